@@ -36,5 +36,8 @@ public class Config {
 	public static boolean hexOutputEnabled = properties.getProperty("PRINT_HEX").equals("1");
 	public static boolean outputVerbose = properties.getProperty("DEBUG_VERBOSE").equals("1");
 	public static boolean debugVerbose = properties.getProperty("OUTPUT_VERBOSE").equals("1");
+	
+	// default debug mode of circuit generators (see CircuitGenerator.setProductionMode()). Optional.
+	public static boolean productionMode = "1".equals(properties.getProperty("PRODUCTION_MODE"));
 
 }
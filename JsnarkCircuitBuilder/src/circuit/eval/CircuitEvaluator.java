@@ -12,9 +12,14 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Scanner;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
+import circuit.config.Config;
 import circuit.operations.WireLabelInstruction;
 import circuit.operations.WireLabelInstruction.LabelType;
+import circuit.operations.primitive.AssertBasicOp;
+import circuit.operations.primitive.BasicOp;
 import circuit.structure.CircuitGenerator;
 import circuit.structure.Wire;
 
@@ -23,6 +28,12 @@ public class CircuitEvaluator {
 	private CircuitGenerator circuitGenerator;
 	private BigInteger[] valueAssignment;
 
+	// inversions requested by invertLater(), and the assertions that wait for
+	// their results
+	private ArrayList<BigInteger> pendingInversions = new ArrayList<BigInteger>();
+	private ArrayList<Consumer<BigInteger>> pendingCallbacks = new ArrayList<Consumer<BigInteger>>();
+	private ArrayList<BasicOp> deferredAssertions = new ArrayList<BasicOp>();
+
 	public CircuitEvaluator(CircuitGenerator circuitGenerator) {
 		this.circuitGenerator = circuitGenerator;
 		valueAssignment = new BigInteger[circuitGenerator.getNumWires()];
@@ -34,6 +45,9 @@ public class CircuitEvaluator {
 	}
 	
 	public BigInteger getWireValue(Wire w) {
+		if (valueAssignment[w.getWireId()] == null && !pendingInversions.isEmpty()) {
+			resolveInversions();
+		}
 		return valueAssignment[w.getWireId()];
 	}
 
@@ -59,11 +73,32 @@ public class CircuitEvaluator {
 		
 		System.out.println("Running Circuit Evaluator for < " + circuitGenerator.getName() + " >");
 		LinkedHashMap<Instruction, Instruction> evalSequence = circuitGenerator.getEvaluationQueue();
-
-		for (Instruction e : evalSequence.keySet()) {
-			e.evaluate(this);
-			e.emit(this);
+		Instruction[] sequence = evalSequence.keySet().toArray(new Instruction[evalSequence.size()]);
+
+		// groups of independent instructions (e.g. instances of a
+		// SubcircuitTemplate) are evaluated in parallel, and emitted in order
+		ArrayList<int[]> sections = circuitGenerator.getParallelSections();
+		int nextSection = 0;
+		int pos = 0;
+		while (pos < sequence.length) {
+			if (nextSection < sections.size() && sections.get(nextSection)[0] == pos) {
+				int[] boundaries = sections.get(nextSection++);
+				resolveInversions();
+				IntStream.range(0, boundaries.length - 1).parallel().forEach(g -> {
+					for (int j = boundaries[g]; j < boundaries[g + 1]; j++) {
+						sequence[j].evaluate(this);
+					}
+				});
+				for (; pos < boundaries[boundaries.length - 1]; pos++) {
+					sequence[pos].emit(this);
+				}
+			} else {
+				evaluate(sequence[pos]);
+				sequence[pos].emit(this);
+				pos++;
+			}
 		}
+		resolveInversions();
 		// check that each wire has been assigned a value
 		for (int i = 0; i < valueAssignment.length; i++) {
 			if (valueAssignment[i] == null) {
@@ -74,6 +109,79 @@ public class CircuitEvaluator {
 
 	}
 
+	/**
+	 * Requests the inverse of a non-zero value modulo the field prime, for a
+	 * prover witness computation, e.g. a division. The callback gets it later,
+	 * but before any instruction reads a wire that is still unassigned
+	 * (assertions on such wires wait for it instead). The requests made
+	 * until then are resolved together, with one modular inversion and
+	 * 3(n - 1) multiplications for n values (Montgomery's trick), instead of
+	 * n inversions.
+	 */
+	public void invertLater(BigInteger value, Consumer<BigInteger> callback) {
+		value = value.mod(Config.FIELD_PRIME);
+		if (value.signum() == 0) {
+			throw new ArithmeticException("Inverse of zero");
+		}
+		pendingInversions.add(value);
+		pendingCallbacks.add(callback);
+	}
+
+	private void evaluate(Instruction instruction) {
+		if (!pendingInversions.isEmpty() && instruction instanceof BasicOp) {
+			BasicOp op = (BasicOp) instruction;
+			boolean unassigned = false;
+			for (Wire w : op.getInputs()) {
+				unassigned |= valueAssignment[w.getWireId()] == null;
+			}
+			if (op instanceof AssertBasicOp) {
+				if (unassigned || valueAssignment[op.getOutputs()[0].getWireId()] == null) {
+					deferredAssertions.add(op);
+					return;
+				}
+			} else if (unassigned) {
+				resolveInversions();
+			}
+		}
+		instruction.evaluate(this);
+	}
+
+	private void resolveInversions() {
+		int n = pendingInversions.size();
+		if (n > 0) {
+			BigInteger p = Config.FIELD_PRIME;
+			BigInteger[] values = pendingInversions.toArray(new BigInteger[n]);
+			ArrayList<Consumer<BigInteger>> callbacks = pendingCallbacks;
+			pendingInversions = new ArrayList<BigInteger>();
+			pendingCallbacks = new ArrayList<Consumer<BigInteger>>();
+
+			// prefix products, the inverse of the last one, then each inverse
+			// from the inverse of its prefix
+			BigInteger[] prefixes = new BigInteger[n];
+			prefixes[0] = values[0];
+			for (int i = 1; i < n; i++) {
+				prefixes[i] = prefixes[i - 1].multiply(values[i]).mod(p);
+			}
+			BigInteger inverse = prefixes[n - 1].modInverse(p);
+			BigInteger[] inverses = new BigInteger[n];
+			for (int i = n - 1; i > 0; i--) {
+				inverses[i] = inverse.multiply(prefixes[i - 1]).mod(p);
+				inverse = inverse.multiply(values[i]).mod(p);
+			}
+			inverses[0] = inverse;
+			for (int i = 0; i < n; i++) {
+				callbacks.get(i).accept(inverses[i]);
+			}
+		}
+		if (!deferredAssertions.isEmpty()) {
+			ArrayList<BasicOp> assertions = deferredAssertions;
+			deferredAssertions = new ArrayList<BasicOp>();
+			for (BasicOp op : assertions) {
+				evaluate(op);
+			}
+		}
+	}
+
 	public void writeInputFile() {
 		try {
 			LinkedHashMap<Instruction, Instruction> evalSequence = circuitGenerator.getEvaluationQueue();
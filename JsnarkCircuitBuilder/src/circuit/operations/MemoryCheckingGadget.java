@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.operations;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import circuit.eval.CircuitEvaluator;
+import circuit.eval.Instruction;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+/**
+ * A memory of n field elements that is read and written at addresses given
+ * by wires, checked offline: the values read are given by the prover, and
+ * all the accesses are checked together by checkAccesses(), which must be
+ * called after the last one.
+ *
+ * Every access is logged as an (address, time, isWrite, value) entry, where
+ * the time is its position in the log, after n writes of the initial
+ * contents. The prover sorts the log by address, then time, and the circuit
+ * checks that:
+ *
+ * - the sorted log is a permutation of the log. It goes through a Benes
+ * network whose switches are set by the prover, i.e. 2 log(m) - 1 layers of
+ * m/2 switches for m entries (padded with reads of address 0 to a power of
+ * two), with one constraint per switch and per field.
+ *
+ * - consecutive addresses differ by 0 or 1, from 0 to n - 1, and the times
+ * increase for the same address. As every address is initialized first,
+ * this checks that the log is sorted and that the addresses are in range.
+ *
+ * - a read has the value of the previous entry.
+ *
+ * For k accesses, this costs O((n + k) log(n + k)), i.e. O(log(n + k)) per
+ * access when there are at least n accesses, instead of O(n) per access for
+ * a linear select (see ArrayAccessGadget for the latter).
+ */
+public class MemoryCheckingGadget extends Gadget {
+
+	private static final int NUM_FIELDS = 4;
+
+	private int size;
+	private ArrayList<Wire[]> log;
+	private ArrayList<Wire> valuesRead;
+	private boolean checked;
+
+	// the contents during the evaluation, for the values read
+	private BigInteger[] contents;
+
+	public MemoryCheckingGadget(WireArray initialContents, String... desc) {
+		super(desc);
+		if (initialContents.size() == 0) {
+			throw new IllegalArgumentException("Empty memory");
+		}
+		final Wire[] initialWires = initialContents.asArray();
+		size = initialWires.length;
+		log = new ArrayList<Wire[]>();
+		valuesRead = new ArrayList<Wire>();
+		for (int i = 0; i < size; i++) {
+			log.add(new Wire[] { generator.createConstantWire(i), generator.createConstantWire(i),
+					generator.getOneWire(), initialWires[i] });
+		}
+		generator.specifyProverWitnessComputation(new Instruction() {
+			@Override
+			public void evaluate(CircuitEvaluator evaluator) {
+				contents = evaluator.getWiresValues(initialWires);
+			}
+		});
+	}
+
+	public Wire read(Wire address, String... desc) {
+		checkNotChecked();
+		Wire value = logRead(address, desc);
+		valuesRead.add(value);
+		return value;
+	}
+
+	public void write(final Wire address, final Wire value, String... desc) {
+		checkNotChecked();
+		generator.specifyProverWitnessComputation(new Instruction() {
+			@Override
+			public void evaluate(CircuitEvaluator evaluator) {
+				contents[getAddress(evaluator, address)] = evaluator.getWireValue(value);
+			}
+		});
+		log.add(new Wire[] { address, generator.createConstantWire(log.size()), generator.getOneWire(), value });
+	}
+
+	private Wire logRead(final Wire address, String... desc) {
+		final Wire value = generator.createProverWitnessWire(desc);
+		generator.specifyProverWitnessComputation(new Instruction() {
+			@Override
+			public void evaluate(CircuitEvaluator evaluator) {
+				evaluator.setWireValue(value, contents[getAddress(evaluator, address)]);
+			}
+		});
+		log.add(new Wire[] { address, generator.createConstantWire(log.size()), generator.getZeroWire(), value });
+		return value;
+	}
+
+	/**
+	 * Adds the consistency checks of all the accesses. No access can be made
+	 * after this call.
+	 */
+	public void checkAccesses() {
+		checkNotChecked();
+		checked = true;
+
+		int numEntries = Integer.highestOneBit(log.size());
+		if (numEntries < log.size()) {
+			numEntries *= 2;
+		}
+		while (log.size() < numEntries) {
+			logRead(generator.getZeroWire(), debugStr("padding"));
+		}
+		final Wire[][] entries = log.toArray(new Wire[0][]);
+		final Wire[] switches = generator.createProverWitnessWireArray(numEntries / 2
+				* (2 * Integer.numberOfTrailingZeros(numEntries) - 1), debugStr("switches"));
+		generator.specifyProverWitnessComputation(new Instruction() {
+			@Override
+			public void evaluate(CircuitEvaluator evaluator) {
+				final BigInteger[] addresses = new BigInteger[entries.length];
+				Integer[] order = new Integer[entries.length];
+				for (int i = 0; i < entries.length; i++) {
+					addresses[i] = evaluator.getWireValue(entries[i][0]);
+					order[i] = i;
+				}
+				// stable, so the times stay in order for the same address
+				Arrays.sort(order, new Comparator<Integer>() {
+					@Override
+					public int compare(Integer i, Integer j) {
+						return addresses[i].compareTo(addresses[j]);
+					}
+				});
+				int[] permutation = new int[entries.length];
+				for (int j = 0; j < entries.length; j++) {
+					permutation[j] = order[j];
+				}
+				ArrayList<Boolean> settings = new ArrayList<Boolean>();
+				setSwitches(permutation, settings);
+				for (int i = 0; i < switches.length; i++) {
+					evaluator.setWireValue(switches[i], settings.get(i) ? 1 : 0);
+				}
+			}
+		});
+		for (Wire s : switches) {
+			generator.addBinaryAssertion(s, debugStr("switch"));
+		}
+		Wire[][] sorted = permute(entries, switches, new int[] { 0 });
+
+		int timeBitwidth = 32 - Integer.numberOfLeadingZeros(numEntries - 1);
+		generator.addZeroAssertion(sorted[0][0], debugStr("first address"));
+		generator.addEqualityAssertion(sorted[numEntries - 1][0], generator.createConstantWire(size - 1),
+				debugStr("last address"));
+		for (int i = 1; i < numEntries; i++) {
+			Wire step = sorted[i][0].sub(sorted[i - 1][0]);
+			generator.addBinaryAssertion(step, debugStr("address order"));
+			Wire timeStep = sorted[i][1].sub(sorted[i - 1][1]).sub(1);
+			generator.addRangeCheck(step.invAsBit().mul(timeStep), timeBitwidth, debugStr("time order"));
+			generator.addAssertion(sorted[i][2].invAsBit(), sorted[i][3].sub(sorted[i - 1][3]),
+					generator.getZeroWire(), debugStr("value read"));
+		}
+	}
+
+	/**
+	 * Applies the Benes network to the entries, taking the switches from
+	 * next[0] on. A set switch swaps its two entries.
+	 */
+	private Wire[][] permute(Wire[][] entries, Wire[] switches, int[] next) {
+		int m = entries.length;
+		if (m == 1) {
+			return entries;
+		}
+		if (m == 2) {
+			return swap(entries[0], entries[1], switches[next[0]++]);
+		}
+		int half = m / 2;
+		Wire[][] upper = new Wire[half][];
+		Wire[][] lower = new Wire[half][];
+		for (int i = 0; i < half; i++) {
+			Wire[][] pair = swap(entries[2 * i], entries[2 * i + 1], switches[next[0]++]);
+			upper[i] = pair[0];
+			lower[i] = pair[1];
+		}
+		upper = permute(upper, switches, next);
+		lower = permute(lower, switches, next);
+		Wire[][] result = new Wire[m][];
+		for (int j = 0; j < half; j++) {
+			Wire[][] pair = swap(upper[j], lower[j], switches[next[0]++]);
+			result[2 * j] = pair[0];
+			result[2 * j + 1] = pair[1];
+		}
+		return result;
+	}
+
+	private Wire[][] swap(Wire[] a, Wire[] b, Wire s) {
+		Wire[] x = new Wire[NUM_FIELDS];
+		Wire[] y = new Wire[NUM_FIELDS];
+		for (int f = 0; f < NUM_FIELDS; f++) {
+			Wire difference = s.mul(b[f].sub(a[f]));
+			x[f] = a[f].add(difference);
+			y[f] = b[f].sub(difference);
+		}
+		return new Wire[][] { x, y };
+	}
+
+	/**
+	 * Computes the switches of permute() in the same order, so that output j
+	 * gets input permutation[j], with the looping algorithm: the two outputs
+	 * of an output switch, as well as the two inputs of an input switch, go
+	 * through different halves.
+	 */
+	private static void setSwitches(int[] permutation, ArrayList<Boolean> settings) {
+		int m = permutation.length;
+		if (m == 1) {
+			return;
+		}
+		if (m == 2) {
+			settings.add(permutation[0] == 1);
+			return;
+		}
+		int half = m / 2;
+		int[] inverse = new int[m];
+		for (int j = 0; j < m; j++) {
+			inverse[permutation[j]] = j;
+		}
+		// 0 for the upper half, 1 for the lower one
+		int[] inputHalf = new int[m];
+		int[] outputHalf = new int[m];
+		Arrays.fill(outputHalf, -1);
+		for (int start = 0; start < m; start += 2) {
+			int out = start;
+			while (outputHalf[out] == -1) {
+				outputHalf[out] = 0;
+				outputHalf[out ^ 1] = 1;
+				int in = permutation[out];
+				inputHalf[in] = 0;
+				inputHalf[in ^ 1] = 1;
+				// the other input of the switch goes through the lower half,
+				// so the other output of its output switch comes from the
+				// upper one
+				out = inverse[in ^ 1] ^ 1;
+			}
+		}
+		int[] upper = new int[half];
+		int[] lower = new int[half];
+		for (int j = 0; j < half; j++) {
+			int fromUpper = outputHalf[2 * j] == 0 ? 2 * j : 2 * j + 1;
+			upper[j] = permutation[fromUpper] / 2;
+			lower[j] = permutation[fromUpper ^ 1] / 2;
+		}
+		for (int i = 0; i < half; i++) {
+			settings.add(inputHalf[2 * i] == 1);
+		}
+		setSwitches(upper, settings);
+		setSwitches(lower, settings);
+		for (int j = 0; j < half; j++) {
+			settings.add(outputHalf[2 * j] == 1);
+		}
+	}
+
+	private int getAddress(CircuitEvaluator evaluator, Wire address) {
+		BigInteger value = evaluator.getWireValue(address);
+		if (value.compareTo(BigInteger.valueOf(size)) >= 0) {
+			throw new RuntimeException("Memory address out of range: " + value);
+		}
+		return value.intValue();
+	}
+
+	private void checkNotChecked() {
+		if (checked) {
+			throw new IllegalStateException("The accesses were already checked");
+		}
+	}
+
+	/**
+	 * The values read, in order.
+	 */
+	@Override
+	public Wire[] getOutputWires() {
+		return valuesRead.toArray(new Wire[0]);
+	}
+}
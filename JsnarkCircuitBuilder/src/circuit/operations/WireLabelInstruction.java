@@ -3,6 +3,8 @@
  *******************************************************************************/
 package circuit.operations;
 
+import java.math.BigInteger;
+
 import circuit.config.Config;
 import circuit.eval.CircuitEvaluator;
 import circuit.eval.Instruction;
@@ -17,6 +19,7 @@ public class WireLabelInstruction implements Instruction {
 	private LabelType type;
 	private Wire w;
 	private String desc;
+	private Wire[] bits;
 
 	public WireLabelInstruction(LabelType type, Wire w, String... desc) {
 		this.type = type;
@@ -28,6 +31,16 @@ public class WireLabelInstruction implements Instruction {
 		}
 	}
 
+	/**
+	 * A debug label for a wire that is only available as bits (i.e. a wire
+	 * that was not packed). The value is computed from the bits when emitted,
+	 * so the label does not need a pack operation in the circuit.
+	 */
+	public WireLabelInstruction(Wire w, Wire[] bits, String... desc) {
+		this(LabelType.debug, w, desc);
+		this.bits = bits;
+	}
+
 	public Wire getWire() {
 		return w;
 	}
@@ -43,8 +56,17 @@ public class WireLabelInstruction implements Instruction {
 	@Override
 	public void emit(CircuitEvaluator evaluator) {
 		if (type == LabelType.output && Config.outputVerbose || type == LabelType.debug && Config.debugVerbose) {
+			BigInteger value;
+			if (bits == null) {
+				value = evaluator.getWireValue(w);
+			} else {
+				value = BigInteger.ZERO;
+				for (int i = 0; i < bits.length; i++) {
+					value = value.add(evaluator.getWireValue(bits[i]).shiftLeft(i));
+				}
+			}
 			System.out.println("\t[" + type + "] Value of Wire # " + w + (desc.length() > 0 ? " (" + desc + ")" : "") + " :: "
-					+ evaluator.getWireValue(w).toString(Config.hexOutputEnabled ? 16 : 10));
+					+ value.toString(Config.hexOutputEnabled ? 16 : 10));
 		}
 	}
 
@@ -52,6 +74,17 @@ public class WireLabelInstruction implements Instruction {
 		return type;
 	}
 
+	public String getDesc() {
+		return desc;
+	}
+
+	/**
+	 * Returns the bits of a debug label on an unpacked wire, or null.
+	 */
+	public Wire[] getBits() {
+		return bits;
+	}
+
 	public boolean doneWithinCircuit() {
 		return type != LabelType.debug;
 	}
@@ -24,5 +24,9 @@ public class AddBasicOp extends BasicOp {
 		assignment[outputs[0].getWireId()] = s.mod(Config.FIELD_PRIME);
 	}
 
+	@Override
+	public BasicOp copy(Wire[] newInputs, Wire[] newOutputs) {
+		return new AddBasicOp(newInputs, newOutputs[0], desc);
+	}
 
 }
\ No newline at end of file
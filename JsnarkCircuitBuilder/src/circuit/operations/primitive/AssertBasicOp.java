@@ -36,4 +36,10 @@ public class AssertBasicOp extends BasicOp {
 	protected void checkOutputs(BigInteger[] assignment) {
 		// do nothing
 	}
+
+	@Override
+	public BasicOp copy(Wire[] newInputs, Wire[] newOutputs) {
+		return new AssertBasicOp(newInputs[0], newInputs[1], newOutputs[0], desc);
+	}
+
 }
\ No newline at end of file
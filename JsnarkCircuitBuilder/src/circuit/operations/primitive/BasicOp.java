@@ -96,6 +96,12 @@ public abstract class BasicOp implements Instruction {
 	public boolean doneWithinCircuit() {
 		return true;
 	}
+
+	/**
+	 * Creates an operation of the same type and parameters on different
+	 * wires. Used to replay recorded subcircuits (see SubcircuitTemplate).
+	 */
+	public abstract BasicOp copy(Wire[] newInputs, Wire[] newOutputs);
 	
 	@Override
 	public int hashCode() {
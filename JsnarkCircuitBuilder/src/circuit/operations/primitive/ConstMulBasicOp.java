@@ -37,4 +37,16 @@ public class ConstMulBasicOp extends BasicOp {
 		assignment[outputs[0].getWireId()] = result;
 	}
 
+	public BigInteger getConstInteger() {
+		return constInteger;
+	}
+
+	@Override
+	public BasicOp copy(Wire[] newInputs, Wire[] newOutputs) {
+		ConstMulBasicOp op = new ConstMulBasicOp(newInputs[0], newOutputs[0], constInteger, desc);
+		// keep the same opcode, in case the constant was given as a negative
+		op.opcode = opcode;
+		return op;
+	}
+
 }
\ No newline at end of file
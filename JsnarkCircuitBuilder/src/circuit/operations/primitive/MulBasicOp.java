@@ -26,5 +26,9 @@ public class MulBasicOp extends BasicOp {
 		assignment[outputs[0].getWireId()] = result;
 	}
 
+	@Override
+	public BasicOp copy(Wire[] newInputs, Wire[] newOutputs) {
+		return new MulBasicOp(newInputs[0], newInputs[1], newOutputs[0], desc);
+	}
 
 }
\ No newline at end of file
@@ -26,4 +26,9 @@ public class NonZeroCheckBasicOp extends BasicOp {
 		assignment[outputs[0].getWireId()] = BigInteger.ZERO; // a dummy value
 	}
 
+	@Override
+	public BasicOp copy(Wire[] newInputs, Wire[] newOutputs) {
+		return new NonZeroCheckBasicOp(newInputs[0], newOutputs[0], newOutputs[1], desc);
+	}
+
 }
@@ -35,6 +35,9 @@ public class ORBasicOp extends BasicOp {
 				assignment[inputs[1].getWireId()]);
 	}
 
-
+	@Override
+	public BasicOp copy(Wire[] newInputs, Wire[] newOutputs) {
+		return new ORBasicOp(newInputs[0], newInputs[1], newOutputs[0], desc);
+	}
 
 }
\ No newline at end of file
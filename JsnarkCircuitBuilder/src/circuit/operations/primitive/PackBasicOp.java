@@ -42,6 +42,9 @@ public class PackBasicOp extends BasicOp {
 		assignment[outputs[0].getWireId()]= sum.mod(Config.FIELD_PRIME);
 	}
 
-
+	@Override
+	public BasicOp copy(Wire[] newInputs, Wire[] newOutputs) {
+		return new PackBasicOp(newInputs, newOutputs[0], desc);
+	}
 
 }
\ No newline at end of file
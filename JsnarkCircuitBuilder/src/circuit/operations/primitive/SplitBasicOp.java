@@ -40,4 +40,9 @@ public class SplitBasicOp extends BasicOp {
 		}
 	}
 
+	@Override
+	public BasicOp copy(Wire[] newInputs, Wire[] newOutputs) {
+		return new SplitBasicOp(newInputs[0], newOutputs, desc);
+	}
+
 }
@@ -35,5 +35,9 @@ public class XorBasicOp extends BasicOp {
 				assignment[inputs[1].getWireId()]);
 	}
 
+	@Override
+	public BasicOp copy(Wire[] newInputs, Wire[] newOutputs) {
+		return new XorBasicOp(newInputs[0], newInputs[1], newOutputs[0], desc);
+	}
 
 }
\ No newline at end of file
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.prover;
+
+import java.math.BigInteger;
+
+/**
+ * Group law of BN254's G1, y^2 = x^3 + 3 over the base field Fq, whose
+ * scalar field is the default FIELD_PRIME in config.properties.
+ *
+ * Points are stored in flat arrays of Montgomery-form Fq elements (see
+ * MontgomeryField): an affine point takes two elements (x, y), where (0, 0)
+ * denotes the point at infinity, and a Jacobian point takes three elements
+ * (X, Y, Z), with Z = 0 for the point at infinity. Point i of an array starts
+ * at element 2*i (affine) or 3*i (Jacobian).
+ *
+ * An instance holds temporary buffers, and should not be shared across
+ * threads.
+ */
+public class BN254G1 {
+
+	public static final BigInteger BASE_FIELD_PRIME = new BigInteger(
+			"21888242871839275222246405745257275088696311157297823662689037894645226208583");
+	public static final BigInteger B = BigInteger.valueOf(3);
+	public static final BigInteger[] GENERATOR = { BigInteger.ONE, BigInteger.valueOf(2) };
+
+	private static final MontgomeryField FQ = new MontgomeryField(BASE_FIELD_PRIME);
+	private static final long[] ONE = FQ.one();
+
+	private long[] t = FQ.newArray(13);
+	private long[] scratch = FQ.newScratch();
+
+	public static MontgomeryField getBaseField() {
+		return FQ;
+	}
+
+	public long[] newJacobianArray(int numPoints) {
+		return FQ.newArray(3 * numPoints);
+	}
+
+	public boolean isInfinity(long[] p, int pi) {
+		return FQ.isZero(p, 3 * pi + 2);
+	}
+
+	public void setInfinity(long[] p, int pi) {
+		for (int k = 0; k < 3; k++) {
+			FQ.copy(FQ.zero(), 0, p, 3 * pi + k);
+		}
+	}
+
+	public void copyJacobian(long[] src, int si, long[] dst, int di) {
+		for (int k = 0; k < 3; k++) {
+			FQ.copy(src, 3 * si + k, dst, 3 * di + k);
+		}
+	}
+
+	/**
+	 * p[pi] += q[qi], where p is a Jacobian array and q is an affine array.
+	 */
+	public void addMixed(long[] p, int pi, long[] q, int qi) {
+		int x1 = 3 * pi, y1 = x1 + 1, z1 = x1 + 2;
+		int x2 = 2 * qi, y2 = x2 + 1;
+		if (FQ.isZero(q, x2) && FQ.isZero(q, y2)) {
+			return;
+		}
+		if (FQ.isZero(p, z1)) {
+			FQ.copy(q, x2, p, x1);
+			FQ.copy(q, y2, p, y1);
+			FQ.copy(ONE, 0, p, z1);
+			return;
+		}
+		mul(p, z1, p, z1, 0); // Z1Z1
+		mul(q, x2, t, 0, 1); // U2
+		mul(q, y2, p, z1, 2);
+		mul(t, 2, t, 0, 2); // S2
+		FQ.sub(t, 1, p, x1, t, 3); // H
+		FQ.sub(t, 2, p, y1, t, 4);
+		if (FQ.isZero(t, 3)) {
+			if (FQ.isZero(t, 4)) {
+				doubling(p, pi);
+			} else {
+				setInfinity(p, pi);
+			}
+			return;
+		}
+		FQ.add(t, 4, t, 4, t, 4); // r
+		mul(t, 3, t, 3, 5); // HH
+		FQ.add(t, 5, t, 5, t, 6);
+		FQ.add(t, 6, t, 6, t, 6); // I
+		mul(t, 3, t, 6, 7); // J
+		mul(p, x1, t, 6, 8); // V
+		mul(t, 4, t, 4, 9);
+		FQ.sub(t, 9, t, 7, t, 9);
+		FQ.sub(t, 9, t, 8, t, 9);
+		FQ.sub(t, 9, t, 8, t, 9); // X3
+		FQ.sub(t, 8, t, 9, t, 10);
+		mul(t, 4, t, 10, 10);
+		mul(p, y1, t, 7, 11);
+		FQ.add(t, 11, t, 11, t, 11);
+		FQ.sub(t, 10, t, 11, t, 10); // Y3
+		FQ.add(p, z1, t, 3, t, 11);
+		mul(t, 11, t, 11, 11);
+		FQ.sub(t, 11, t, 0, t, 11);
+		FQ.sub(t, 11, t, 5, t, 11); // Z3
+		FQ.copy(t, 9, p, x1);
+		FQ.copy(t, 10, p, y1);
+		FQ.copy(t, 11, p, z1);
+	}
+
+	/**
+	 * p[pi] += q[qi], where both are Jacobian arrays.
+	 */
+	public void add(long[] p, int pi, long[] q, int qi) {
+		int x1 = 3 * pi, y1 = x1 + 1, z1 = x1 + 2;
+		int x2 = 3 * qi, y2 = x2 + 1, z2 = x2 + 2;
+		if (FQ.isZero(q, z2)) {
+			return;
+		}
+		if (FQ.isZero(p, z1)) {
+			copyJacobian(q, qi, p, pi);
+			return;
+		}
+		mul(p, z1, p, z1, 0); // Z1Z1
+		mul(q, z2, q, z2, 1); // Z2Z2
+		mul(p, x1, t, 1, 2); // U1
+		mul(q, x2, t, 0, 3); // U2
+		mul(p, y1, q, z2, 4);
+		mul(t, 4, t, 1, 4); // S1
+		mul(q, y2, p, z1, 5);
+		mul(t, 5, t, 0, 5); // S2
+		FQ.sub(t, 3, t, 2, t, 6); // H
+		FQ.sub(t, 5, t, 4, t, 7);
+		if (FQ.isZero(t, 6)) {
+			if (FQ.isZero(t, 7)) {
+				doubling(p, pi);
+			} else {
+				setInfinity(p, pi);
+			}
+			return;
+		}
+		FQ.add(t, 7, t, 7, t, 7); // r
+		FQ.add(t, 6, t, 6, t, 8);
+		mul(t, 8, t, 8, 8); // I
+		mul(t, 6, t, 8, 9); // J
+		mul(t, 2, t, 8, 10); // V
+		mul(t, 7, t, 7, 11);
+		FQ.sub(t, 11, t, 9, t, 11);
+		FQ.sub(t, 11, t, 10, t, 11);
+		FQ.sub(t, 11, t, 10, t, 11); // X3
+		FQ.sub(t, 10, t, 11, t, 10);
+		mul(t, 7, t, 10, 10);
+		mul(t, 4, t, 9, 9);
+		FQ.add(t, 9, t, 9, t, 9);
+		FQ.sub(t, 10, t, 9, t, 10); // Y3
+		FQ.add(p, z1, q, z2, t, 12);
+		mul(t, 12, t, 12, 12);
+		FQ.sub(t, 12, t, 0, t, 12);
+		FQ.sub(t, 12, t, 1, t, 12);
+		mul(t, 12, t, 6, 12); // Z3
+		FQ.copy(t, 11, p, x1);
+		FQ.copy(t, 10, p, y1);
+		FQ.copy(t, 12, p, z1);
+	}
+
+	/**
+	 * p[pi] = 2 * p[pi]
+	 */
+	public void doubling(long[] p, int pi) {
+		int x = 3 * pi, y = x + 1, z = x + 2;
+		if (FQ.isZero(p, z)) {
+			return;
+		}
+		mul(p, x, p, x, 0); // A
+		mul(p, y, p, y, 1); // B
+		mul(t, 1, t, 1, 2); // C
+		FQ.add(p, x, t, 1, t, 3);
+		mul(t, 3, t, 3, 3);
+		FQ.sub(t, 3, t, 0, t, 3);
+		FQ.sub(t, 3, t, 2, t, 3);
+		FQ.add(t, 3, t, 3, t, 3); // D
+		FQ.add(t, 0, t, 0, t, 4);
+		FQ.add(t, 4, t, 0, t, 4); // E
+		mul(t, 4, t, 4, 5); // F
+		mul(p, y, p, z, 6);
+		FQ.add(t, 6, t, 6, t, 6); // Z3
+		FQ.sub(t, 5, t, 3, t, 7);
+		FQ.sub(t, 7, t, 3, t, 7); // X3
+		FQ.sub(t, 3, t, 7, t, 8);
+		mul(t, 4, t, 8, 8);
+		FQ.add(t, 2, t, 2, t, 9);
+		FQ.add(t, 9, t, 9, t, 9);
+		FQ.add(t, 9, t, 9, t, 9);
+		FQ.sub(t, 8, t, 9, t, 8); // Y3
+		FQ.copy(t, 7, p, x);
+		FQ.copy(t, 8, p, y);
+		FQ.copy(t, 6, p, z);
+	}
+
+	/**
+	 * @return the affine coordinates {x, y} of the Jacobian point, or null for
+	 *         the point at infinity.
+	 */
+	public BigInteger[] toAffine(long[] p, int pi) {
+		if (isInfinity(p, pi)) {
+			return null;
+		}
+		BigInteger zInv = FQ.fromMontgomery(p, 3 * pi + 2).modInverse(BASE_FIELD_PRIME);
+		BigInteger zInv2 = zInv.multiply(zInv).mod(BASE_FIELD_PRIME);
+		BigInteger x = FQ.fromMontgomery(p, 3 * pi).multiply(zInv2).mod(BASE_FIELD_PRIME);
+		BigInteger y = FQ.fromMontgomery(p, 3 * pi + 1).multiply(zInv2).multiply(zInv).mod(BASE_FIELD_PRIME);
+		return new BigInteger[] { x, y };
+	}
+
+	/**
+	 * Converts points given as {x, y} pairs (null for infinity) into a flat
+	 * affine array.
+	 */
+	public static long[] toAffineArray(BigInteger[][] points) {
+		long[] out = FQ.newArray(2 * points.length);
+		for (int i = 0; i < points.length; i++) {
+			if (points[i] != null) {
+				if (!isOnCurve(points[i][0], points[i][1])) {
+					throw new IllegalArgumentException("Point #" + i + " is not on the curve");
+				}
+				FQ.toMontgomery(points[i][0], out, 2 * i);
+				FQ.toMontgomery(points[i][1], out, 2 * i + 1);
+			}
+		}
+		return out;
+	}
+
+	public static boolean isOnCurve(BigInteger x, BigInteger y) {
+		BigInteger left = y.multiply(y).mod(BASE_FIELD_PRIME);
+		BigInteger right = x.pow(3).add(B).mod(BASE_FIELD_PRIME);
+		return left.equals(right);
+	}
+
+	/**
+	 * Deterministically maps a seed to a curve point, by trying consecutive x
+	 * coordinates until x^3 + 3 is a square. Useful for generating benchmark
+	 * and test bases (the discrete logs of the result are unknown).
+	 */
+	public static BigInteger[] mapToCurve(BigInteger seed) {
+		BigInteger x = seed.mod(BASE_FIELD_PRIME);
+		// q = 3 mod 4, so a square root is a power of (q+1)/4
+		BigInteger sqrtExponent = BASE_FIELD_PRIME.add(BigInteger.ONE).shiftRight(2);
+		while (true) {
+			BigInteger rhs = x.pow(3).add(B).mod(BASE_FIELD_PRIME);
+			BigInteger y = rhs.modPow(sqrtExponent, BASE_FIELD_PRIME);
+			if (y.multiply(y).mod(BASE_FIELD_PRIME).equals(rhs)) {
+				return new BigInteger[] { x, y };
+			}
+			x = x.add(BigInteger.ONE);
+		}
+	}
+
+	private void mul(long[] a, int ai, long[] b, int bi, int ti) {
+		FQ.mul(a, ai, b, bi, t, ti, scratch);
+	}
+
+}
@@ -0,0 +1,380 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.prover;
+
+import java.math.BigInteger;
+
+/**
+ * Prime field arithmetic on fixed-size arrays of 64-bit limbs (little endian),
+ * with elements kept in the Montgomery form. Multiplication uses the CIOS
+ * method, so no BigInteger objects are created in the hot loops.
+ *
+ * Elements are stored in flat long arrays: element i of an array occupies the
+ * limbs [i * numLimbs, (i+1) * numLimbs). This keeps large vectors (NTT
+ * domains, MSM inputs) contiguous in memory.
+ *
+ */
+public class MontgomeryField {
+
+	private static final long MASK32 = 0xFFFFFFFFL;
+
+	private BigInteger modulus;
+	private int numLimbs;
+	private long[] modulusLimbs;
+	private long inv; // -modulus^(-1) mod 2^64
+
+	private BigInteger r; // 2^(64*numLimbs) mod modulus
+	private BigInteger rInverse;
+
+	private long[] one;
+
+	public MontgomeryField(BigInteger modulus) {
+		if (modulus.signum() != 1 || !modulus.testBit(0)) {
+			throw new IllegalArgumentException("The modulus must be a positive odd number");
+		}
+		this.modulus = modulus;
+		// keep at least one spare bit in the top limb, so that the sum of two
+		// reduced elements never overflows
+		numLimbs = modulus.bitLength() / 64 + 1;
+		modulusLimbs = toLimbs(modulus);
+
+		BigInteger twoTo64 = BigInteger.ONE.shiftLeft(64);
+		inv = modulus.negate().modInverse(twoTo64).longValue();
+
+		r = BigInteger.ONE.shiftLeft(64 * numLimbs).mod(modulus);
+		rInverse = r.modInverse(modulus);
+		one = toLimbs(r);
+	}
+
+	public BigInteger getModulus() {
+		return modulus;
+	}
+
+	public int getNumLimbs() {
+		return numLimbs;
+	}
+
+	/**
+	 * @return a fresh array holding the Montgomery form of one
+	 */
+	public long[] one() {
+		return one.clone();
+	}
+
+	public long[] zero() {
+		return new long[numLimbs];
+	}
+
+	public long[] newArray(int numElements) {
+		return new long[numElements * numLimbs];
+	}
+
+	/**
+	 * Converts a value into its Montgomery form.
+	 */
+	public long[] toMontgomery(BigInteger x) {
+		return toLimbs(x.mod(modulus).multiply(r).mod(modulus));
+	}
+
+	public void toMontgomery(BigInteger x, long[] out, int outIdx) {
+		System.arraycopy(toMontgomery(x), 0, out, outIdx * numLimbs, numLimbs);
+	}
+
+	public long[] toMontgomery(BigInteger[] values) {
+		long[] out = newArray(values.length);
+		for (int i = 0; i < values.length; i++) {
+			toMontgomery(values[i], out, i);
+		}
+		return out;
+	}
+
+	public BigInteger fromMontgomery(long[] a) {
+		return fromMontgomery(a, 0);
+	}
+
+	public BigInteger fromMontgomery(long[] a, int idx) {
+		return fromLimbs(a, idx).multiply(rInverse).mod(modulus);
+	}
+
+	public BigInteger[] fromMontgomeryArray(long[] a) {
+		BigInteger[] values = new BigInteger[a.length / numLimbs];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = fromMontgomery(a, i);
+		}
+		return values;
+	}
+
+	/**
+	 * r[ri] = a[ai] * b[bi]. The output may alias any of the inputs.
+	 *
+	 * @param scratch
+	 *            a temporary array of at least numLimbs + 2 elements. Can be
+	 *            reused across calls by the same thread.
+	 */
+	public void mul(long[] a, int ai, long[] b, int bi, long[] r, int ri, long[] scratch) {
+		int n = numLimbs;
+		int aOff = ai * n;
+		int bOff = bi * n;
+		long[] t = scratch;
+		for (int j = 0; j < n + 2; j++) {
+			t[j] = 0;
+		}
+		for (int i = 0; i < n; i++) {
+			long bLimb = b[bOff + i];
+			long carry = 0;
+			for (int j = 0; j < n; j++) {
+				long aLimb = a[aOff + j];
+				long lo = aLimb * bLimb;
+				long hi = multiplyHighUnsigned(aLimb, bLimb);
+				long s = t[j] + lo;
+				if (Long.compareUnsigned(s, lo) < 0) {
+					hi++;
+				}
+				s += carry;
+				if (Long.compareUnsigned(s, carry) < 0) {
+					hi++;
+				}
+				t[j] = s;
+				carry = hi;
+			}
+			long s = t[n] + carry;
+			t[n + 1] = Long.compareUnsigned(s, carry) < 0 ? 1 : 0;
+			t[n] = s;
+
+			long m = t[0] * inv;
+			long lo = m * modulusLimbs[0];
+			long hi = multiplyHighUnsigned(m, modulusLimbs[0]);
+			s = t[0] + lo;
+			carry = Long.compareUnsigned(s, lo) < 0 ? hi + 1 : hi;
+			for (int j = 1; j < n; j++) {
+				lo = m * modulusLimbs[j];
+				hi = multiplyHighUnsigned(m, modulusLimbs[j]);
+				s = t[j] + lo;
+				if (Long.compareUnsigned(s, lo) < 0) {
+					hi++;
+				}
+				s += carry;
+				if (Long.compareUnsigned(s, carry) < 0) {
+					hi++;
+				}
+				t[j - 1] = s;
+				carry = hi;
+			}
+			s = t[n] + carry;
+			t[n - 1] = s;
+			t[n] = t[n + 1] + (Long.compareUnsigned(s, carry) < 0 ? 1 : 0);
+		}
+		int rOff = ri * n;
+		if (t[n] != 0 || compareToModulus(t, 0) >= 0) {
+			long borrow = 0;
+			for (int j = 0; j < n; j++) {
+				long d = t[j] - modulusLimbs[j] - borrow;
+				borrow = borrowOf(t[j], modulusLimbs[j], borrow, d);
+				r[rOff + j] = d;
+			}
+		} else {
+			System.arraycopy(t, 0, r, rOff, n);
+		}
+	}
+
+	public void mul(long[] a, int ai, long[] b, int bi, long[] r, int ri) {
+		mul(a, ai, b, bi, r, ri, newScratch());
+	}
+
+	public long[] mul(long[] a, long[] b) {
+		long[] r = new long[numLimbs];
+		mul(a, 0, b, 0, r, 0, newScratch());
+		return r;
+	}
+
+	public void square(long[] a, int ai, long[] r, int ri, long[] scratch) {
+		mul(a, ai, a, ai, r, ri, scratch);
+	}
+
+	public long[] newScratch() {
+		return new long[numLimbs + 2];
+	}
+
+	/**
+	 * r[ri] = a[ai] + b[bi]. The output may alias any of the inputs.
+	 */
+	public void add(long[] a, int ai, long[] b, int bi, long[] r, int ri) {
+		int n = numLimbs;
+		int aOff = ai * n;
+		int bOff = bi * n;
+		int rOff = ri * n;
+		long carry = 0;
+		for (int j = 0; j < n; j++) {
+			long x = a[aOff + j];
+			long s = x + b[bOff + j] + carry;
+			carry = carryOf(x, b[bOff + j], carry, s);
+			r[rOff + j] = s;
+		}
+		// no overflow is possible, as the modulus leaves a spare bit.
+		if (compareToModulus(r, rOff) >= 0) {
+			subtractModulus(r, rOff);
+		}
+	}
+
+	public long[] add(long[] a, long[] b) {
+		long[] r = new long[numLimbs];
+		add(a, 0, b, 0, r, 0);
+		return r;
+	}
+
+	/**
+	 * r[ri] = a[ai] - b[bi]. The output may alias any of the inputs.
+	 */
+	public void sub(long[] a, int ai, long[] b, int bi, long[] r, int ri) {
+		int n = numLimbs;
+		int aOff = ai * n;
+		int bOff = bi * n;
+		int rOff = ri * n;
+		long borrow = 0;
+		for (int j = 0; j < n; j++) {
+			long x = a[aOff + j];
+			long y = b[bOff + j];
+			long d = x - y - borrow;
+			borrow = borrowOf(x, y, borrow, d);
+			r[rOff + j] = d;
+		}
+		if (borrow != 0) {
+			long carry = 0;
+			for (int j = 0; j < n; j++) {
+				long x = r[rOff + j];
+				long s = x + modulusLimbs[j] + carry;
+				carry = carryOf(x, modulusLimbs[j], carry, s);
+				r[rOff + j] = s;
+			}
+		}
+	}
+
+	public long[] sub(long[] a, long[] b) {
+		long[] r = new long[numLimbs];
+		sub(a, 0, b, 0, r, 0);
+		return r;
+	}
+
+	public void negate(long[] a, int ai, long[] r, int ri) {
+		if (isZero(a, ai)) {
+			System.arraycopy(a, ai * numLimbs, r, ri * numLimbs, numLimbs);
+			return;
+		}
+		sub(modulusLimbs, 0, a, ai, r, ri);
+	}
+
+	public void copy(long[] a, int ai, long[] r, int ri) {
+		System.arraycopy(a, ai * numLimbs, r, ri * numLimbs, numLimbs);
+	}
+
+	public boolean isZero(long[] a, int ai) {
+		int off = ai * numLimbs;
+		for (int j = 0; j < numLimbs; j++) {
+			if (a[off + j] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean equals(long[] a, int ai, long[] b, int bi) {
+		int aOff = ai * numLimbs;
+		int bOff = bi * numLimbs;
+		for (int j = 0; j < numLimbs; j++) {
+			if (a[aOff + j] != b[bOff + j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long[] pow(long[] a, BigInteger e) {
+		long[] result = one();
+		long[] scratch = newScratch();
+		for (int i = e.bitLength() - 1; i >= 0; i--) {
+			mul(result, 0, result, 0, result, 0, scratch);
+			if (e.testBit(i)) {
+				mul(result, 0, a, 0, result, 0, scratch);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Inversion is rare in the prover's hot paths, so it is delegated to
+	 * BigInteger.
+	 */
+	public long[] inverse(long[] a) {
+		BigInteger v = fromMontgomery(a);
+		if (v.signum() == 0) {
+			throw new ArithmeticException("Zero has no inverse");
+		}
+		return toMontgomery(v.modInverse(modulus));
+	}
+
+	private long[] toLimbs(BigInteger x) {
+		long[] limbs = new long[numLimbs];
+		for (int j = 0; j < numLimbs; j++) {
+			limbs[j] = x.shiftRight(64 * j).longValue();
+		}
+		return limbs;
+	}
+
+	private BigInteger fromLimbs(long[] a, int idx) {
+		BigInteger x = BigInteger.ZERO;
+		int off = idx * numLimbs;
+		for (int j = numLimbs - 1; j >= 0; j--) {
+			x = x.shiftLeft(64).add(new BigInteger(Long.toUnsignedString(a[off + j])));
+		}
+		return x;
+	}
+
+	private int compareToModulus(long[] a, int off) {
+		for (int j = numLimbs - 1; j >= 0; j--) {
+			int c = Long.compareUnsigned(a[off + j], modulusLimbs[j]);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return 0;
+	}
+
+	private void subtractModulus(long[] a, int off) {
+		long borrow = 0;
+		for (int j = 0; j < numLimbs; j++) {
+			long x = a[off + j];
+			long d = x - modulusLimbs[j] - borrow;
+			borrow = borrowOf(x, modulusLimbs[j], borrow, d);
+			a[off + j] = d;
+		}
+	}
+
+	private static long carryOf(long x, long y, long carryIn, long sum) {
+		// carry out of x + y + carryIn (carryIn is 0 or 1)
+		return ((x & y) | ((x | y) & ~sum)) >>> 63;
+	}
+
+	private static long borrowOf(long x, long y, long borrowIn, long diff) {
+		// borrow out of x - y - borrowIn (borrowIn is 0 or 1)
+		return ((~x & y) | (~(x ^ y) & diff)) >>> 63;
+	}
+
+	/**
+	 * The upper 64 bits of the unsigned 128-bit product (Math.multiplyHigh
+	 * is not available in JDK 8, and is signed anyway).
+	 */
+	static long multiplyHighUnsigned(long a, long b) {
+		long aLo = a & MASK32;
+		long aHi = a >>> 32;
+		long bLo = b & MASK32;
+		long bHi = b >>> 32;
+		long loLo = aLo * bLo;
+		long hiLo = aHi * bLo;
+		long loHi = aLo * bHi;
+		long hiHi = aHi * bHi;
+		long cross = (loLo >>> 32) + (hiLo & MASK32) + (loHi & MASK32);
+		return hiHi + (hiLo >>> 32) + (loHi >>> 32) + (cross >>> 32);
+	}
+
+}
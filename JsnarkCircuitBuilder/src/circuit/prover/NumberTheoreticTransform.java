@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.prover;
+
+import java.math.BigInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Radix-2 (Cooley-Tukey) number theoretic transform over a power-of-two
+ * evaluation domain of a prime field. The roots of unity are computed once per
+ * domain, and the butterflies of each stage are spread over the available
+ * cores when the domain is large enough.
+ *
+ * All vectors are flat arrays of Montgomery-form elements (see
+ * MontgomeryField).
+ */
+public class NumberTheoreticTransform {
+
+	// below this size, the work per stage is too small to be worth splitting
+	private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+	private MontgomeryField field;
+	private int size;
+	private int logSize;
+	private boolean parallel;
+
+	private long[] roots; // omega^i, i < size/2
+	private long[] inverseRoots; // omega^-i, i < size/2
+	private long[] sizeInverse;
+	private long[] cosetGenerator;
+	private long[] cosetGeneratorInverse;
+
+	public NumberTheoreticTransform(MontgomeryField field, int size) {
+		this(field, size, true);
+	}
+
+	public NumberTheoreticTransform(MontgomeryField field, int size, boolean parallel) {
+		if (size < 2 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("The domain size must be a power of two: " + size);
+		}
+		this.field = field;
+		this.size = size;
+		this.logSize = Integer.numberOfTrailingZeros(size);
+		this.parallel = parallel;
+
+		BigInteger p = field.getModulus();
+		BigInteger pMinusOne = p.subtract(BigInteger.ONE);
+		if (pMinusOne.getLowestSetBit() < logSize) {
+			throw new IllegalArgumentException("The field does not have a multiplicative subgroup of size " + size);
+		}
+
+		// A quadratic non-residue has the full 2-adic part in its order, so
+		// it yields a primitive root of unity of any supported power-of-two
+		// order. It also serves as the coset shift, as long as it is not
+		// inside the domain itself.
+		BigInteger nonResidue = BigInteger.valueOf(2);
+		BigInteger halfOrder = pMinusOne.shiftRight(1);
+		BigInteger domainSize = BigInteger.valueOf(size);
+		while (nonResidue.modPow(halfOrder, p).equals(BigInteger.ONE)
+				|| nonResidue.modPow(domainSize, p).equals(BigInteger.ONE)) {
+			nonResidue = nonResidue.add(BigInteger.ONE);
+		}
+		BigInteger omega = nonResidue.modPow(pMinusOne.divide(domainSize), p);
+
+		long[] omegaM = field.toMontgomery(omega);
+		long[] omegaInvM = field.inverse(omegaM);
+		roots = powersOf(omegaM, size / 2);
+		inverseRoots = powersOf(omegaInvM, size / 2);
+		sizeInverse = field.toMontgomery(domainSize.modInverse(p));
+		cosetGenerator = field.toMontgomery(nonResidue);
+		cosetGeneratorInverse = field.inverse(cosetGenerator);
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public MontgomeryField getField() {
+		return field;
+	}
+
+	/**
+	 * @return the Montgomery form of the shift g used by the coset
+	 *         transforms, i.e. they evaluate over {g * omega^i}.
+	 */
+	public long[] getCosetGenerator() {
+		return cosetGenerator.clone();
+	}
+
+	/**
+	 * Coefficients -> evaluations over {omega^i}, in place.
+	 */
+	public void ntt(long[] a) {
+		checkLength(a);
+		transform(a, roots);
+	}
+
+	/**
+	 * Evaluations over {omega^i} -> coefficients, in place.
+	 */
+	public void intt(long[] a) {
+		checkLength(a);
+		transform(a, inverseRoots);
+		scale(a, sizeInverse);
+	}
+
+	/**
+	 * Coefficients -> evaluations over the coset {g * omega^i}, in place.
+	 */
+	public void cosetNtt(long[] a) {
+		checkLength(a);
+		multiplyByPowers(a, cosetGenerator);
+		transform(a, roots);
+	}
+
+	/**
+	 * Evaluations over the coset {g * omega^i} -> coefficients, in place.
+	 */
+	public void cosetIntt(long[] a) {
+		intt(a);
+		multiplyByPowers(a, cosetGeneratorInverse);
+	}
+
+	private void transform(long[] a, long[] twiddles) {
+		bitReverse(a);
+		final int n = field.getNumLimbs();
+		final int numButterflies = size / 2;
+		for (int stage = 1; stage <= logSize; stage++) {
+			final int half = 1 << (stage - 1);
+			final int twiddleStride = size >> stage;
+			forEachChunk(numButterflies, (from, to) -> {
+				long[] scratch = field.newScratch();
+				long[] v = new long[n];
+				for (int t = from; t < to; t++) {
+					int j = t & (half - 1);
+					int top = ((t - j) << 1) + j;
+					int bottom = top + half;
+					field.mul(a, bottom, twiddles, j * twiddleStride, v, 0, scratch);
+					field.sub(a, top, v, 0, a, bottom);
+					field.add(a, top, v, 0, a, top);
+				}
+			});
+		}
+	}
+
+	private void bitReverse(long[] a) {
+		int n = field.getNumLimbs();
+		long[] tmp = new long[n];
+		int shift = 32 - logSize;
+		for (int i = 0; i < size; i++) {
+			int j = Integer.reverse(i) >>> shift;
+			if (i < j) {
+				System.arraycopy(a, i * n, tmp, 0, n);
+				System.arraycopy(a, j * n, a, i * n, n);
+				System.arraycopy(tmp, 0, a, j * n, n);
+			}
+		}
+	}
+
+	private void scale(long[] a, long[] c) {
+		forEachChunk(size, (from, to) -> {
+			long[] scratch = field.newScratch();
+			for (int i = from; i < to; i++) {
+				field.mul(a, i, c, 0, a, i, scratch);
+			}
+		});
+	}
+
+	/**
+	 * a[i] *= c^i
+	 */
+	private void multiplyByPowers(long[] a, long[] c) {
+		forEachChunk(size, (from, to) -> {
+			long[] scratch = field.newScratch();
+			long[] power = field.pow(c, BigInteger.valueOf(from));
+			for (int i = from; i < to; i++) {
+				field.mul(a, i, power, 0, a, i, scratch);
+				field.mul(power, 0, c, 0, power, 0, scratch);
+			}
+		});
+	}
+
+	private long[] powersOf(long[] x, int count) {
+		long[] powers = field.newArray(count);
+		long[] scratch = field.newScratch();
+		field.copy(field.one(), 0, powers, 0);
+		for (int i = 1; i < count; i++) {
+			field.mul(powers, i - 1, x, 0, powers, i, scratch);
+		}
+		return powers;
+	}
+
+	private void forEachChunk(int total, ChunkTask task) {
+		if (!parallel || total < PARALLEL_THRESHOLD) {
+			task.run(0, total);
+			return;
+		}
+		int numChunks = Math.min(Runtime.getRuntime().availableProcessors() * 4, total / 64);
+		int chunkSize = (total + numChunks - 1) / numChunks;
+		IntStream.range(0, numChunks).parallel().forEach(c -> {
+			int from = c * chunkSize;
+			int to = Math.min(total, from + chunkSize);
+			if (from < to) {
+				task.run(from, to);
+			}
+		});
+	}
+
+	private void checkLength(long[] a) {
+		if (a.length != size * field.getNumLimbs()) {
+			throw new IllegalArgumentException("Vector length does not match the domain size");
+		}
+	}
+
+	private interface ChunkTask {
+		void run(int from, int to);
+	}
+}
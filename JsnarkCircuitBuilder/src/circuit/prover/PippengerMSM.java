@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.prover;
+
+import java.math.BigInteger;
+import java.util.stream.IntStream;
+
+import circuit.config.Config;
+
+/**
+ * Multi-scalar multiplication sum_i s_i * P_i over BN254 G1, using Pippenger's
+ * bucket method. The scalars are split into windows of c bits; for each
+ * window, every point is added to the bucket of its digit, and the buckets are
+ * then combined with a running sum. The windows are independent, and are
+ * processed on separate threads when parallelism is enabled.
+ *
+ * The scalars are elements of the circuit field, so the wire values returned
+ * by CircuitEvaluator.getAssignment() (or an R1CS variable assignment) can be
+ * passed directly. Zero scalars are skipped, and scalars equal to one (most
+ * bits in a typical witness) are summed directly instead of going through the
+ * buckets.
+ */
+public class PippengerMSM {
+
+	private static final int SCALAR_LIMBS = 4;
+
+	private boolean parallel;
+
+	public PippengerMSM() {
+		this(true);
+	}
+
+	public PippengerMSM(boolean parallel) {
+		this.parallel = parallel;
+		if (Config.LOG2_FIELD_PRIME > SCALAR_LIMBS * 64) {
+			throw new IllegalArgumentException("Scalar field is larger than " + SCALAR_LIMBS * 64 + " bits");
+		}
+	}
+
+	/**
+	 * @param bases
+	 *            affine points, as produced by BN254G1.toAffineArray()
+	 * @param scalars
+	 *            one scalar per point. Values are reduced modulo the field
+	 *            prime.
+	 * @return the affine coordinates {x, y} of the result, or null for the
+	 *         point at infinity.
+	 */
+	public BigInteger[] multiExp(long[] bases, BigInteger[] scalars) {
+		return new BN254G1().toAffine(multiExpJacobian(bases, scalars), 0);
+	}
+
+	/**
+	 * Same as multiExp(), but returns the result as a one-point Jacobian array.
+	 */
+	public long[] multiExpJacobian(long[] bases, BigInteger[] scalars) {
+		int fqLimbs = BN254G1.getBaseField().getNumLimbs();
+		if (bases.length != 2 * fqLimbs * scalars.length) {
+			throw new IllegalArgumentException("Number of bases (" + bases.length / (2 * fqLimbs)
+					+ ") does not match the number of scalars (" + scalars.length + ")");
+		}
+
+		BN254G1 curve = new BN254G1();
+		long[] result = curve.newJacobianArray(1);
+
+		// filter zeros and ones
+		int[] indices = new int[scalars.length];
+		long[] limbs = new long[scalars.length * SCALAR_LIMBS];
+		int count = 0;
+		for (int i = 0; i < scalars.length; i++) {
+			BigInteger s = scalars[i].mod(Config.FIELD_PRIME);
+			if (s.signum() == 0) {
+				continue;
+			} else if (s.equals(BigInteger.ONE)) {
+				curve.addMixed(result, 0, bases, i);
+			} else {
+				indices[count] = i;
+				toLimbs(s, limbs, count);
+				count++;
+			}
+		}
+		if (count == 0) {
+			return result;
+		}
+
+		final int numPoints = count;
+		final int c = getWindowSize(numPoints);
+		int numWindows = (Config.LOG2_FIELD_PRIME + c - 1) / c;
+		long[][] windowSums = new long[numWindows][];
+		IntStream windows = IntStream.range(0, numWindows);
+		if (parallel) {
+			windows = windows.parallel();
+		}
+		windows.forEach(w -> windowSums[w] = sumWindow(bases, indices, limbs, numPoints, w * c, c));
+
+		long[] acc = windowSums[numWindows - 1];
+		for (int w = numWindows - 2; w >= 0; w--) {
+			for (int k = 0; k < c; k++) {
+				curve.doubling(acc, 0);
+			}
+			curve.add(acc, 0, windowSums[w], 0);
+		}
+		curve.add(result, 0, acc, 0);
+		return result;
+	}
+
+	private long[] sumWindow(long[] bases, int[] indices, long[] limbs, int numPoints, int offset, int c) {
+		BN254G1 curve = new BN254G1();
+		int numBuckets = (1 << c) - 1;
+		long[] buckets = curve.newJacobianArray(numBuckets);
+		for (int i = 0; i < numPoints; i++) {
+			int digit = getDigit(limbs, i, offset, c);
+			if (digit != 0) {
+				curve.addMixed(buckets, digit - 1, bases, indices[i]);
+			}
+		}
+		// sum_j (j+1) * bucket_j, as a sum of running sums
+		long[] sums = curve.newJacobianArray(2); // running sum, result
+		for (int j = numBuckets - 1; j >= 0; j--) {
+			curve.add(sums, 0, buckets, j);
+			curve.add(sums, 1, sums, 0);
+		}
+		long[] out = curve.newJacobianArray(1);
+		curve.copyJacobian(sums, 1, out, 0);
+		return out;
+	}
+
+	private static int getDigit(long[] limbs, int i, int offset, int c) {
+		int limb = offset >>> 6;
+		int shift = offset & 63;
+		long v = limbs[i * SCALAR_LIMBS + limb] >>> shift;
+		if (shift + c > 64 && limb + 1 < SCALAR_LIMBS) {
+			v |= limbs[i * SCALAR_LIMBS + limb + 1] << (64 - shift);
+		}
+		return (int) (v & ((1L << c) - 1));
+	}
+
+	private static void toLimbs(BigInteger s, long[] limbs, int i) {
+		for (int k = 0; k < SCALAR_LIMBS; k++) {
+			limbs[i * SCALAR_LIMBS + k] = s.shiftRight(64 * k).longValue();
+		}
+	}
+
+	/**
+	 * A window of c bits costs about n + 2^(c+1) additions for each of the
+	 * (bits / c) windows, which is minimized around c = ln(n).
+	 */
+	static int getWindowSize(int numPoints) {
+		if (numPoints < 32) {
+			return 3;
+		}
+		int log2 = 32 - Integer.numberOfLeadingZeros(numPoints);
+		return Math.min(16, log2 * 69 / 100 + 2);
+	}
+
+}
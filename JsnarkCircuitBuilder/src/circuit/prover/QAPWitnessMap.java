@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.prover;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import circuit.config.Config;
+import circuit.r1cs.LinearCombination;
+import circuit.r1cs.R1CSConstraint;
+import circuit.r1cs.R1CSConstraintSystem;
+
+/**
+ * Computes the coefficients of the quotient polynomial H(x) = (A(x)B(x) -
+ * C(x)) / Z(x) of the QAP obtained from an R1CS instance, given a satisfying
+ * variable assignment. This is the same reduction done by libsnark's
+ * r1cs_to_qap_witness_map (without the zero-knowledge randomization terms,
+ * which the prover adds on top): the domain covers the constraints plus one
+ * input-consistency row per primary input, and the division by Z(x) is done
+ * pointwise over a coset of the domain.
+ *
+ */
+public class QAPWitnessMap {
+
+	private R1CSConstraintSystem constraintSystem;
+	private MontgomeryField field;
+	private NumberTheoreticTransform ntt;
+
+	// most coefficients are small powers of two or negated ones, so their
+	// Montgomery forms are computed once.
+	private HashMap<BigInteger, long[]> coefficientCache = new HashMap<BigInteger, long[]>();
+
+	public QAPWitnessMap(R1CSConstraintSystem constraintSystem) {
+		this(constraintSystem, true);
+	}
+
+	public QAPWitnessMap(R1CSConstraintSystem constraintSystem, boolean parallel) {
+		this.constraintSystem = constraintSystem;
+		this.field = new MontgomeryField(Config.FIELD_PRIME);
+		int numRows = constraintSystem.getNumConstraints() + constraintSystem.getNumPrimaryInputs() + 1;
+		int domainSize = 2;
+		while (domainSize < numRows) {
+			domainSize <<= 1;
+		}
+		this.ntt = new NumberTheoreticTransform(field, domainSize, parallel);
+	}
+
+	public int getDomainSize() {
+		return ntt.getSize();
+	}
+
+	/**
+	 * @param variableAssignment
+	 *            a satisfying assignment, e.g. from
+	 *            R1CSConstraintSystem.getVariableAssignment()
+	 * @return the coefficients of H, lowest degree first. H has degree at
+	 *         most (domain size - 2).
+	 */
+	public BigInteger[] computeH(BigInteger[] variableAssignment) {
+		long[] aH = computeHInMontgomeryForm(variableAssignment);
+		BigInteger[] h = new BigInteger[ntt.getSize() - 1];
+		for (int i = 0; i < h.length; i++) {
+			h[i] = field.fromMontgomery(aH, i);
+		}
+		return h;
+	}
+
+	/**
+	 * Same as computeH(), but returns the coefficients as a flat limb array in
+	 * the Montgomery form (see MontgomeryField), which avoids conversions when
+	 * the result is consumed by other limb-based components.
+	 */
+	public long[] computeHInMontgomeryForm(BigInteger[] variableAssignment) {
+		int size = ntt.getSize();
+		long[] z = field.toMontgomery(variableAssignment);
+
+		long[] aA = field.newArray(size);
+		long[] aB = field.newArray(size);
+		long[] aC = field.newArray(size);
+
+		ArrayList<R1CSConstraint> constraints = constraintSystem.getConstraints();
+		long[] scratch = field.newScratch();
+		for (int i = 0; i < constraints.size(); i++) {
+			R1CSConstraint constraint = constraints.get(i);
+			evaluate(constraint.getA(), z, aA, i, scratch);
+			evaluate(constraint.getB(), z, aB, i, scratch);
+			evaluate(constraint.getC(), z, aC, i, scratch);
+		}
+		// input consistency rows: A_{m+i} = z_i, for the one variable and the
+		// primary inputs.
+		int m = constraints.size();
+		for (int i = 0; i <= constraintSystem.getNumPrimaryInputs(); i++) {
+			field.copy(z, i, aA, m + i);
+		}
+
+		ntt.intt(aA);
+		ntt.cosetNtt(aA);
+		ntt.intt(aB);
+		ntt.cosetNtt(aB);
+		ntt.intt(aC);
+		ntt.cosetNtt(aC);
+
+		// Z(x) = x^n - 1 is constant over the coset g*<omega>: g^n - 1
+		long[] zInverse = field.inverse(
+				field.sub(field.pow(ntt.getCosetGenerator(), BigInteger.valueOf(size)), field.one()));
+		long[] tmp = field.zero();
+		for (int i = 0; i < size; i++) {
+			field.mul(aA, i, aB, i, tmp, 0, scratch);
+			field.sub(tmp, 0, aC, i, tmp, 0);
+			field.mul(tmp, 0, zInverse, 0, aA, i, scratch);
+		}
+		ntt.cosetIntt(aA);
+		return aA;
+	}
+
+	private void evaluate(LinearCombination lc, long[] z, long[] out, int outIdx, long[] scratch) {
+		int n = field.getNumLimbs();
+		long[] term = new long[n];
+		for (int k = 0; k < lc.size(); k++) {
+			BigInteger c = lc.getCoefficient(k);
+			if (c.equals(BigInteger.ONE)) {
+				field.add(out, outIdx, z, lc.getVariable(k), out, outIdx);
+			} else {
+				long[] coeff = coefficientCache.get(c);
+				if (coeff == null) {
+					coeff = field.toMontgomery(c);
+					coefficientCache.put(c, coeff);
+				}
+				field.mul(coeff, 0, z, lc.getVariable(k), term, 0, scratch);
+				field.add(out, outIdx, term, 0, out, outIdx);
+			}
+		}
+	}
+
+	public MontgomeryField getField() {
+		return field;
+	}
+
+}
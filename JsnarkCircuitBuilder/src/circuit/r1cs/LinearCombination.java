@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.r1cs;
+
+import java.math.BigInteger;
+
+import circuit.config.Config;
+
+/**
+ * An immutable sparse linear combination over the R1CS variables. Terms are
+ * kept sorted by variable index, with non-zero coefficients reduced modulo
+ * the field prime.
+ */
+public class LinearCombination {
+
+	public static final LinearCombination ZERO = new LinearCombination(new int[0], new BigInteger[0]);
+
+	private int[] variables;
+	private BigInteger[] coefficients;
+
+	public LinearCombination(int variable) {
+		this(variable, BigInteger.ONE);
+	}
+
+	public LinearCombination(int variable, BigInteger coefficient) {
+		coefficient = coefficient.mod(Config.FIELD_PRIME);
+		if (coefficient.signum() == 0) {
+			variables = new int[0];
+			coefficients = new BigInteger[0];
+		} else {
+			variables = new int[] { variable };
+			coefficients = new BigInteger[] { coefficient };
+		}
+	}
+
+	// assumes sorted variables, and reduced non-zero coefficients
+	LinearCombination(int[] variables, BigInteger[] coefficients) {
+		this.variables = variables;
+		this.coefficients = coefficients;
+	}
+
+	public int size() {
+		return variables.length;
+	}
+
+	public int getVariable(int i) {
+		return variables[i];
+	}
+
+	public BigInteger getCoefficient(int i) {
+		return coefficients[i];
+	}
+
+	/**
+	 * @return the coefficient of the given variable, or zero if it does not
+	 *         appear.
+	 */
+	public BigInteger getCoefficientOf(int variable) {
+		int idx = indexOf(variable);
+		return idx < 0 ? BigInteger.ZERO : coefficients[idx];
+	}
+
+	public boolean contains(int variable) {
+		return indexOf(variable) >= 0;
+	}
+
+	public boolean isZero() {
+		return variables.length == 0;
+	}
+
+	/**
+	 * @return true if the only variable used is the constant one variable
+	 */
+	public boolean isConstant() {
+		return variables.length == 0 || (variables.length == 1 && variables[0] == R1CSConstraintSystem.ONE_VARIABLE);
+	}
+
+	public LinearCombination add(LinearCombination other) {
+		return addScaled(other, BigInteger.ONE);
+	}
+
+	public LinearCombination sub(LinearCombination other) {
+		return addScaled(other, BigInteger.ONE.negate());
+	}
+
+	/**
+	 * @return this + c * other
+	 */
+	public LinearCombination addScaled(LinearCombination other, BigInteger c) {
+		c = c.mod(Config.FIELD_PRIME);
+		if (other.isZero() || c.signum() == 0) {
+			return this;
+		}
+		int[] vars = new int[variables.length + other.variables.length];
+		BigInteger[] coeffs = new BigInteger[vars.length];
+		int i = 0, j = 0, k = 0;
+		while (i < variables.length || j < other.variables.length) {
+			if (j == other.variables.length || (i < variables.length && variables[i] < other.variables[j])) {
+				vars[k] = variables[i];
+				coeffs[k++] = coefficients[i++];
+			} else {
+				BigInteger scaled = other.coefficients[j].multiply(c);
+				if (i == variables.length || other.variables[j] < variables[i]) {
+					vars[k] = other.variables[j++];
+					coeffs[k++] = scaled.mod(Config.FIELD_PRIME);
+				} else {
+					BigInteger sum = coefficients[i].add(scaled).mod(Config.FIELD_PRIME);
+					if (sum.signum() != 0) {
+						vars[k] = variables[i];
+						coeffs[k++] = sum;
+					}
+					i++;
+					j++;
+				}
+			}
+		}
+		if (k < vars.length) {
+			int[] trimmedVars = new int[k];
+			BigInteger[] trimmedCoeffs = new BigInteger[k];
+			System.arraycopy(vars, 0, trimmedVars, 0, k);
+			System.arraycopy(coeffs, 0, trimmedCoeffs, 0, k);
+			return new LinearCombination(trimmedVars, trimmedCoeffs);
+		}
+		return new LinearCombination(vars, coeffs);
+	}
+
+	public LinearCombination mul(BigInteger c) {
+		c = c.mod(Config.FIELD_PRIME);
+		if (c.signum() == 0) {
+			return ZERO;
+		}
+		if (c.equals(BigInteger.ONE)) {
+			return this;
+		}
+		BigInteger[] coeffs = new BigInteger[coefficients.length];
+		for (int i = 0; i < coeffs.length; i++) {
+			coeffs[i] = coefficients[i].multiply(c).mod(Config.FIELD_PRIME);
+		}
+		return new LinearCombination(variables.clone(), coeffs);
+	}
+
+	/**
+	 * @return this linear combination after replacing the variable by the
+	 *         given linear combination.
+	 */
+	public LinearCombination substitute(int variable, LinearCombination replacement) {
+		int idx = indexOf(variable);
+		if (idx < 0) {
+			return this;
+		}
+		BigInteger c = coefficients[idx];
+		int[] vars = new int[variables.length - 1];
+		BigInteger[] coeffs = new BigInteger[vars.length];
+		System.arraycopy(variables, 0, vars, 0, idx);
+		System.arraycopy(variables, idx + 1, vars, idx, vars.length - idx);
+		System.arraycopy(coefficients, 0, coeffs, 0, idx);
+		System.arraycopy(coefficients, idx + 1, coeffs, idx, coeffs.length - idx);
+		return new LinearCombination(vars, coeffs).addScaled(replacement, c);
+	}
+
+	// maps variable i to oldToNew[i]. The mapping must be increasing over the
+	// variables of this combination.
+	LinearCombination renumber(int[] oldToNew) {
+		int[] vars = new int[variables.length];
+		for (int i = 0; i < vars.length; i++) {
+			vars[i] = oldToNew[variables[i]];
+			if (vars[i] < 0) {
+				throw new IllegalArgumentException("Variable " + variables[i] + " has no new index");
+			}
+		}
+		return new LinearCombination(vars, coefficients);
+	}
+
+	public BigInteger evaluate(BigInteger[] variableAssignment) {
+		BigInteger sum = BigInteger.ZERO;
+		for (int i = 0; i < variables.length; i++) {
+			sum = sum.add(variableAssignment[variables[i]].multiply(coefficients[i]));
+		}
+		return sum.mod(Config.FIELD_PRIME);
+	}
+
+	private int indexOf(int variable) {
+		int lo = 0, hi = variables.length - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (variables[mid] < variable) {
+				lo = mid + 1;
+			} else if (variables[mid] > variable) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	public String toString() {
+		if (variables.length == 0) {
+			return "0";
+		}
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < variables.length; i++) {
+			if (i > 0) {
+				s.append(" + ");
+			}
+			s.append(coefficients[i].toString(16) + "*x" + variables[i]);
+		}
+		return s.toString();
+	}
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.r1cs;
+
+import java.math.BigInteger;
+
+import circuit.config.Config;
+
+/**
+ * A rank-1 constraint: <a, z> * <b, z> = <c, z>
+ */
+public class R1CSConstraint {
+
+	private LinearCombination a;
+	private LinearCombination b;
+	private LinearCombination c;
+
+	public R1CSConstraint(LinearCombination a, LinearCombination b, LinearCombination c) {
+		this.a = a;
+		this.b = b;
+		this.c = c;
+	}
+
+	public LinearCombination getA() {
+		return a;
+	}
+
+	public LinearCombination getB() {
+		return b;
+	}
+
+	public LinearCombination getC() {
+		return c;
+	}
+
+	public boolean isSatisfied(BigInteger[] variableAssignment) {
+		BigInteger left = a.evaluate(variableAssignment).multiply(b.evaluate(variableAssignment))
+				.mod(Config.FIELD_PRIME);
+		return left.equals(c.evaluate(variableAssignment));
+	}
+
+	public String toString() {
+		return "(" + a + ") * (" + b + ") = (" + c + ")";
+	}
+}
@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.r1cs;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.eval.Instruction;
+import circuit.operations.WireLabelInstruction;
+import circuit.operations.WireLabelInstruction.LabelType;
+import circuit.operations.primitive.AddBasicOp;
+import circuit.operations.primitive.AssertBasicOp;
+import circuit.operations.primitive.BasicOp;
+import circuit.operations.primitive.ConstMulBasicOp;
+import circuit.operations.primitive.MulBasicOp;
+import circuit.operations.primitive.NonZeroCheckBasicOp;
+import circuit.operations.primitive.ORBasicOp;
+import circuit.operations.primitive.PackBasicOp;
+import circuit.operations.primitive.SplitBasicOp;
+import circuit.operations.primitive.XorBasicOp;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+
+/**
+ * Lowers the circuit of a generator into a rank-1 constraint system, following
+ * the same rules used by the libsnark interface when reading the .arith file:
+ * add and const-mul wires become linear combinations, while the other
+ * operations introduce variables and constraints. The number of constraints
+ * matches CircuitGenerator.getNumOfConstraints().
+ *
+ * Variable ordering: the constant one variable (index 0), then the primary
+ * inputs (circuit inputs followed by the outputs), then the auxiliary
+ * variables (prover witnesses followed by the intermediate variables).
+ */
+public class R1CSConstraintSystem {
+
+	public static final int ONE_VARIABLE = 0;
+
+	private int numVariables;
+	private int numPrimaryInputs; // excluding the one variable
+	private int numWitnesses;
+
+	private int[] wireToVariable;
+	private int[] variableToWire;
+
+	// for zerop operations, the auxiliary inverse is not computed by the
+	// evaluator. This keeps the wire whose inverse is needed.
+	private int[] inverseSourceWire;
+
+	private ArrayList<R1CSConstraint> constraints;
+
+	public R1CSConstraintSystem(CircuitGenerator generator) {
+		assignVariables(generator);
+		generateConstraints(generator);
+	}
+
+	// used by R1CSOptimizer
+	R1CSConstraintSystem(int numVariables, int numPrimaryInputs, int numWitnesses, int[] wireToVariable,
+			int[] variableToWire, int[] inverseSourceWire, ArrayList<R1CSConstraint> constraints) {
+		this.numVariables = numVariables;
+		this.numPrimaryInputs = numPrimaryInputs;
+		this.numWitnesses = numWitnesses;
+		this.wireToVariable = wireToVariable;
+		this.variableToWire = variableToWire;
+		this.inverseSourceWire = inverseSourceWire;
+		this.constraints = constraints;
+	}
+
+	private void assignVariables(CircuitGenerator generator) {
+
+		int numWires = generator.getNumWires();
+		wireToVariable = new int[numWires];
+		Arrays.fill(wireToVariable, -1);
+
+		ArrayList<Integer> inputs = new ArrayList<Integer>();
+		ArrayList<Integer> outputs = new ArrayList<Integer>();
+		ArrayList<Integer> witnesses = new ArrayList<Integer>();
+		ArrayList<Integer> others = new ArrayList<Integer>();
+
+		for (Instruction e : generator.getEvaluationQueue().keySet()) {
+			if (e instanceof WireLabelInstruction) {
+				WireLabelInstruction label = (WireLabelInstruction) e;
+				int id = label.getWire().getWireId();
+				if (label.getType() == LabelType.input) {
+					inputs.add(id);
+				} else if (label.getType() == LabelType.output) {
+					outputs.add(id);
+				} else if (label.getType() == LabelType.nizkinput) {
+					witnesses.add(id);
+				}
+			} else if (e instanceof BasicOp && definesVariables((BasicOp) e)) {
+				for (Wire w : ((BasicOp) e).getOutputs()) {
+					others.add(w.getWireId());
+				}
+			}
+		}
+
+		variableToWire = new int[numWires];
+		int oneWireId = generator.getOneWire().getWireId();
+		wireToVariable[oneWireId] = ONE_VARIABLE;
+		variableToWire[ONE_VARIABLE] = oneWireId;
+		numVariables = 1;
+		for (int id : inputs) {
+			addVariable(id);
+		}
+		for (int id : outputs) {
+			addVariable(id);
+		}
+		numPrimaryInputs = numVariables - 1;
+		for (int id : witnesses) {
+			addVariable(id);
+		}
+		numWitnesses = numVariables - 1 - numPrimaryInputs;
+		for (int id : others) {
+			addVariable(id);
+		}
+		variableToWire = Arrays.copyOf(variableToWire, numVariables);
+		inverseSourceWire = new int[numVariables];
+		Arrays.fill(inverseSourceWire, -1);
+	}
+
+	private void addVariable(int wireId) {
+		if (wireToVariable[wireId] == -1) {
+			wireToVariable[wireId] = numVariables;
+			variableToWire[numVariables] = wireId;
+			numVariables++;
+		}
+	}
+
+	private boolean definesVariables(BasicOp op) {
+		return !(op instanceof AddBasicOp || op instanceof ConstMulBasicOp || op instanceof AssertBasicOp);
+	}
+
+	private void generateConstraints(CircuitGenerator generator) {
+
+		constraints = new ArrayList<R1CSConstraint>(generator.getNumOfConstraints());
+
+		// Linear combinations are only kept while they still have pending
+		// uses, to avoid holding every intermediate sum of long addition
+		// chains in memory.
+		int[] pendingUses = new int[wireToVariable.length];
+		for (Instruction e : generator.getEvaluationQueue().keySet()) {
+			if (e instanceof BasicOp) {
+				for (Wire w : ((BasicOp) e).getInputs()) {
+					pendingUses[w.getWireId()]++;
+				}
+				if (e instanceof AssertBasicOp) {
+					pendingUses[((BasicOp) e).getOutputs()[0].getWireId()]++;
+				}
+			}
+		}
+		LinearCombination[] wireLCs = new LinearCombination[wireToVariable.length];
+		LinearCombination one = new LinearCombination(ONE_VARIABLE);
+
+		for (Instruction e : generator.getEvaluationQueue().keySet()) {
+			if (!(e instanceof BasicOp)) {
+				continue;
+			}
+			BasicOp op = (BasicOp) e;
+			Wire[] in = op.getInputs();
+			Wire[] out = op.getOutputs();
+
+			if (op instanceof AddBasicOp) {
+				LinearCombination sum = LinearCombination.ZERO;
+				for (Wire w : in) {
+					sum = sum.add(lc(w, wireLCs));
+				}
+				wireLCs[out[0].getWireId()] = sum;
+			} else if (op instanceof ConstMulBasicOp) {
+				wireLCs[out[0].getWireId()] = lc(in[0], wireLCs).mul(((ConstMulBasicOp) op).getConstInteger());
+			} else if (op instanceof MulBasicOp) {
+				addConstraint(lc(in[0], wireLCs), lc(in[1], wireLCs), lc(out[0], wireLCs));
+			} else if (op instanceof XorBasicOp) {
+				// 2a * b = a + b - out
+				LinearCombination a = lc(in[0], wireLCs);
+				LinearCombination b = lc(in[1], wireLCs);
+				addConstraint(a.mul(BigInteger.valueOf(2)), b, a.add(b).sub(lc(out[0], wireLCs)));
+			} else if (op instanceof ORBasicOp) {
+				// a * b = a + b - out
+				LinearCombination a = lc(in[0], wireLCs);
+				LinearCombination b = lc(in[1], wireLCs);
+				addConstraint(a, b, a.add(b).sub(lc(out[0], wireLCs)));
+			} else if (op instanceof AssertBasicOp) {
+				addConstraint(lc(in[0], wireLCs), lc(in[1], wireLCs), lc(out[0], wireLCs));
+			} else if (op instanceof SplitBasicOp) {
+				LinearCombination packed = LinearCombination.ZERO;
+				for (int i = 0; i < out.length; i++) {
+					LinearCombination bit = lc(out[i], wireLCs);
+					addConstraint(bit, bit.sub(one), LinearCombination.ZERO);
+					packed = packed.addScaled(bit, BigInteger.ONE.shiftLeft(i));
+				}
+				addConstraint(packed, one, lc(in[0], wireLCs));
+			} else if (op instanceof PackBasicOp) {
+				LinearCombination packed = LinearCombination.ZERO;
+				for (int i = 0; i < in.length; i++) {
+					packed = packed.addScaled(lc(in[i], wireLCs), BigInteger.ONE.shiftLeft(i));
+				}
+				addConstraint(packed, one, lc(out[0], wireLCs));
+			} else if (op instanceof NonZeroCheckBasicOp) {
+				// in * (1 - out) = 0, in * inv = out
+				LinearCombination x = lc(in[0], wireLCs);
+				LinearCombination result = lc(out[1], wireLCs);
+				addConstraint(x, one.sub(result), LinearCombination.ZERO);
+				addConstraint(x, lc(out[0], wireLCs), result);
+				inverseSourceWire[wireToVariable[out[0].getWireId()]] = in[0].getWireId();
+			} else {
+				throw new UnsupportedOperationException("Unknown operation type: " + op.getClass().getSimpleName());
+			}
+
+			for (Wire w : in) {
+				release(w, pendingUses, wireLCs);
+			}
+			if (op instanceof AssertBasicOp) {
+				release(out[0], pendingUses, wireLCs);
+			}
+		}
+	}
+
+	private LinearCombination lc(Wire w, LinearCombination[] wireLCs) {
+		int variable = wireToVariable[w.getWireId()];
+		if (variable != -1) {
+			return new LinearCombination(variable);
+		}
+		LinearCombination lc = wireLCs[w.getWireId()];
+		if (lc == null) {
+			throw new IllegalStateException("Wire #" + w + " is used before being defined");
+		}
+		return lc;
+	}
+
+	private void release(Wire w, int[] pendingUses, LinearCombination[] wireLCs) {
+		int id = w.getWireId();
+		if (--pendingUses[id] == 0) {
+			wireLCs[id] = null;
+		}
+	}
+
+	private void addConstraint(LinearCombination a, LinearCombination b, LinearCombination c) {
+		constraints.add(new R1CSConstraint(a, b, c));
+	}
+
+	/**
+	 * Maps the wire values computed by the evaluator to the R1CS variables.
+	 * Must be called after evaluate().
+	 */
+	public BigInteger[] getVariableAssignment(CircuitEvaluator evaluator) {
+		BigInteger[] wireValues = evaluator.getAssignment();
+		BigInteger[] z = new BigInteger[numVariables];
+		for (int i = 0; i < numVariables; i++) {
+			if (inverseSourceWire[i] != -1) {
+				BigInteger v = wireValues[inverseSourceWire[i]].mod(Config.FIELD_PRIME);
+				z[i] = v.signum() == 0 ? BigInteger.ZERO : v.modInverse(Config.FIELD_PRIME);
+			} else {
+				z[i] = wireValues[variableToWire[i]].mod(Config.FIELD_PRIME);
+			}
+		}
+		return z;
+	}
+
+	public boolean isSatisfied(BigInteger[] variableAssignment) {
+		for (R1CSConstraint constraint : constraints) {
+			if (!constraint.isSatisfied(variableAssignment)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public ArrayList<R1CSConstraint> getConstraints() {
+		return constraints;
+	}
+
+	public int getNumConstraints() {
+		return constraints.size();
+	}
+
+	public int getNumVariables() {
+		return numVariables;
+	}
+
+	/**
+	 * @return the number of primary (public) inputs, excluding the one
+	 *         variable.
+	 */
+	public int getNumPrimaryInputs() {
+		return numPrimaryInputs;
+	}
+
+	/**
+	 * @return the number of prover witness variables, which directly follow
+	 *         the primary inputs.
+	 */
+	public int getNumWitnesses() {
+		return numWitnesses;
+	}
+
+	/**
+	 * @return the R1CS variable index of the wire, or -1 if the wire is
+	 *         represented by a linear combination.
+	 */
+	public int getVariable(Wire w) {
+		return wireToVariable[w.getWireId()];
+	}
+
+	int[] getWireToVariable() {
+		return wireToVariable;
+	}
+
+	int[] getVariableToWire() {
+		return variableToWire;
+	}
+
+	int[] getInverseSourceWire() {
+		return inverseSourceWire;
+	}
+
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.r1cs;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import circuit.config.Config;
+
+/**
+ * Eliminates linear constraints from an R1CS instance. A constraint is linear
+ * when one of its A or B sides is a constant, e.g. the constraints produced by
+ * pack operations, by the recombination step of split operations, or by
+ * equality assertions. Such a constraint defines one of its variables as a
+ * linear combination of the others, so the definition can be substituted into
+ * every other constraint, removing both the constraint and the variable.
+ *
+ * The one variable, the primary inputs and the prover witnesses are never
+ * eliminated, and the variable ordering of the remaining ones is preserved.
+ * Substitutions make the remaining linear combinations denser, so a variable is
+ * only eliminated if no affected linear combination grows beyond a given size.
+ */
+public class R1CSOptimizer {
+
+	public static final int DEFAULT_MAX_LINEAR_COMBINATION_SIZE = 256;
+
+	private int maxLinearCombinationSize;
+
+	public R1CSOptimizer() {
+		this(DEFAULT_MAX_LINEAR_COMBINATION_SIZE);
+	}
+
+	public R1CSOptimizer(int maxLinearCombinationSize) {
+		this.maxLinearCombinationSize = maxLinearCombinationSize;
+	}
+
+	/**
+	 * @return an equivalent constraint system without the eliminated variables
+	 *         and constraints. Its getVariableAssignment() can be used as
+	 *         before.
+	 */
+	public R1CSConstraintSystem optimize(R1CSConstraintSystem cs) {
+
+		int numVariables = cs.getNumVariables();
+		int numProtected = 1 + cs.getNumPrimaryInputs() + cs.getNumWitnesses();
+		R1CSConstraint[] constraints = cs.getConstraints().toArray(new R1CSConstraint[0]);
+
+		ArrayList<HashSet<Integer>> occurrences = new ArrayList<HashSet<Integer>>(numVariables);
+		for (int i = 0; i < numVariables; i++) {
+			occurrences.add(new HashSet<Integer>());
+		}
+		for (int j = 0; j < constraints.length; j++) {
+			addOccurrences(constraints[j], j, occurrences);
+		}
+
+		boolean[] eliminated = new boolean[numVariables];
+		boolean[] queued = new boolean[constraints.length];
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		for (int j = 0; j < constraints.length; j++) {
+			queue.add(j);
+			queued[j] = true;
+		}
+
+		while (!queue.isEmpty()) {
+			int j = queue.poll();
+			queued[j] = false;
+			R1CSConstraint constraint = constraints[j];
+			if (constraint == null) {
+				continue;
+			}
+			LinearCombination equation = getLinearEquation(constraint);
+			if (equation == null) {
+				continue;
+			}
+			if (equation.isZero()) {
+				// trivially satisfied
+				removeOccurrences(constraint, j, occurrences);
+				constraints[j] = null;
+				continue;
+			}
+
+			int x = selectVariable(equation, numProtected, occurrences, constraints, j);
+			if (x == -1) {
+				continue;
+			}
+			// x = -(equation - c * x) / c
+			BigInteger c = equation.getCoefficientOf(x);
+			BigInteger factor = c.modInverse(Config.FIELD_PRIME).negate();
+			LinearCombination definition = equation.substitute(x, LinearCombination.ZERO).mul(factor);
+
+			removeOccurrences(constraint, j, occurrences);
+			constraints[j] = null;
+			for (int k : occurrences.get(x).toArray(new Integer[0])) {
+				R1CSConstraint old = constraints[k];
+				removeOccurrences(old, k, occurrences);
+				R1CSConstraint updated = new R1CSConstraint(old.getA().substitute(x, definition), old.getB()
+						.substitute(x, definition), old.getC().substitute(x, definition));
+				constraints[k] = updated;
+				addOccurrences(updated, k, occurrences);
+				if (!queued[k]) {
+					queue.add(k);
+					queued[k] = true;
+				}
+			}
+			eliminated[x] = true;
+		}
+
+		return buildReducedSystem(cs, constraints, eliminated);
+	}
+
+	/**
+	 * @return the linear equation (= 0) equivalent to the constraint, or null
+	 *         if the constraint is not linear.
+	 */
+	private LinearCombination getLinearEquation(R1CSConstraint constraint) {
+		LinearCombination a = constraint.getA();
+		LinearCombination b = constraint.getB();
+		LinearCombination c = constraint.getC();
+		if (a.isConstant()) {
+			return b.mul(a.getCoefficientOf(R1CSConstraintSystem.ONE_VARIABLE)).sub(c);
+		} else if (b.isConstant()) {
+			return a.mul(b.getCoefficientOf(R1CSConstraintSystem.ONE_VARIABLE)).sub(c);
+		} else {
+			return null;
+		}
+	}
+
+	// picks the unprotected variable of the equation with the fewest
+	// occurrences, whose substitution keeps the linear combinations within
+	// the size limit.
+	private int selectVariable(LinearCombination equation, int numProtected,
+			ArrayList<HashSet<Integer>> occurrences, R1CSConstraint[] constraints, int definingConstraint) {
+		int best = -1;
+		for (int i = 0; i < equation.size(); i++) {
+			int v = equation.getVariable(i);
+			if (v < numProtected) {
+				continue;
+			}
+			if (best != -1 && occurrences.get(v).size() >= occurrences.get(best).size()) {
+				continue;
+			}
+			boolean fits = true;
+			for (int k : occurrences.get(v)) {
+				if (k == definingConstraint) {
+					continue;
+				}
+				R1CSConstraint other = constraints[k];
+				int growth = equation.size() - 2;
+				if (other.getA().size() + growth > maxLinearCombinationSize
+						|| other.getB().size() + growth > maxLinearCombinationSize
+						|| other.getC().size() + growth > maxLinearCombinationSize) {
+					fits = false;
+					break;
+				}
+			}
+			if (fits) {
+				best = v;
+			}
+		}
+		return best;
+	}
+
+	private R1CSConstraintSystem buildReducedSystem(R1CSConstraintSystem cs, R1CSConstraint[] constraints,
+			boolean[] eliminated) {
+		int numVariables = cs.getNumVariables();
+		int[] oldToNew = new int[numVariables];
+		int count = 0;
+		for (int i = 0; i < numVariables; i++) {
+			oldToNew[i] = eliminated[i] ? -1 : count++;
+		}
+
+		int[] variableToWire = new int[count];
+		int[] inverseSourceWire = new int[count];
+		for (int i = 0; i < numVariables; i++) {
+			if (oldToNew[i] != -1) {
+				variableToWire[oldToNew[i]] = cs.getVariableToWire()[i];
+				inverseSourceWire[oldToNew[i]] = cs.getInverseSourceWire()[i];
+			}
+		}
+		int[] wireToVariable = Arrays.copyOf(cs.getWireToVariable(), cs.getWireToVariable().length);
+		for (int w = 0; w < wireToVariable.length; w++) {
+			if (wireToVariable[w] != -1) {
+				wireToVariable[w] = oldToNew[wireToVariable[w]];
+			}
+		}
+
+		ArrayList<R1CSConstraint> remaining = new ArrayList<R1CSConstraint>();
+		for (R1CSConstraint c : constraints) {
+			if (c != null) {
+				remaining.add(new R1CSConstraint(c.getA().renumber(oldToNew), c.getB().renumber(oldToNew), c
+						.getC().renumber(oldToNew)));
+			}
+		}
+		return new R1CSConstraintSystem(count, cs.getNumPrimaryInputs(), cs.getNumWitnesses(), wireToVariable,
+				variableToWire, inverseSourceWire, remaining);
+	}
+
+	private void addOccurrences(R1CSConstraint constraint, int index, ArrayList<HashSet<Integer>> occurrences) {
+		for (LinearCombination lc : new LinearCombination[] { constraint.getA(), constraint.getB(),
+				constraint.getC() }) {
+			for (int i = 0; i < lc.size(); i++) {
+				occurrences.get(lc.getVariable(i)).add(index);
+			}
+		}
+	}
+
+	private void removeOccurrences(R1CSConstraint constraint, int index, ArrayList<HashSet<Integer>> occurrences) {
+		for (LinearCombination lc : new LinearCombination[] { constraint.getA(), constraint.getB(),
+				constraint.getC() }) {
+			for (int i = 0; i < lc.size(); i++) {
+				occurrences.get(lc.getVariable(i)).remove(index);
+			}
+		}
+	}
+
+}
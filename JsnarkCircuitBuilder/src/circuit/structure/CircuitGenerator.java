@@ -44,7 +44,11 @@ public abstract class CircuitGenerator {
 	protected HashMap<BigInteger, Wire> knownConstantWires;
 
 	private int numOfConstraints;
+	private ArrayList<int[]> parallelSections;
+	private HashMap<Object, Object> gadgetMemo;
+	private RangeCheckAggregator rangeChecks;
 	private CircuitEvaluator circuitEvaluator;
+	private boolean productionMode = Config.productionMode;
 
 	public CircuitGenerator(String circuitName) {
 
@@ -56,6 +60,9 @@ public abstract class CircuitGenerator {
 		proverWitnessWires = new ArrayList<Wire>();
 		evaluationQueue = new LinkedHashMap<Instruction, Instruction>();
 		knownConstantWires = new HashMap<BigInteger, Wire>();
+		parallelSections = new ArrayList<int[]>();
+		gadgetMemo = new HashMap<Object, Object>();
+		rangeChecks = new RangeCheckAggregator(this);
 		currentWireId = 0;
 		numOfConstraints = 0;
 
@@ -87,8 +94,13 @@ public abstract class CircuitGenerator {
 
 		initCircuitConstruction();
 		buildCircuit();
+		rangeChecks.discharge();
 		
 		System.out.println("Circuit Generation Done for < " + circuitName + " >  \n \t Total Number of Constraints :  " + getNumOfConstraints() + "\n");
+		if (rangeChecks.getNumRequested() > 0) {
+			System.out.println(" \t Range Checks :  " + rangeChecks.getNumRequested() + " requested, "
+					+ rangeChecks.getCost() + " constraints (" + rangeChecks.getSavings() + " saved)\n");
+		}
 	}
 
 	public String getName() {
@@ -190,23 +202,48 @@ public abstract class CircuitGenerator {
 		return outs;
 	}
 
+	/**
+	 * Adds a label that prints the value of the wire during evaluation. In
+	 * production mode, this does nothing. Otherwise, the label does not change
+	 * the circuit: an unpacked wire is printed from its bits, instead of being
+	 * packed.
+	 */
 	public void addDebugInstruction(Wire w, String... desc) {
-		if (w instanceof VariableWire) {
-			w.packIfNeeded();
+		if (productionMode) {
+			return;
 		}
-		addToEvaluationQueue(new WireLabelInstruction(LabelType.debug, w, desc));
+		addToEvaluationQueue(createDebugInstruction(w, desc));
 	}
 
 	public void addDebugInstruction(Wire[] wires, String... desc) {
+		if (productionMode) {
+			return;
+		}
 		for (int i = 0; i < wires.length; i++) {
-			if (wires[i] instanceof VariableWire) {
-				wires[i].packIfNeeded();
-			}
-			addToEvaluationQueue(
-					new WireLabelInstruction(LabelType.debug, wires[i], desc.length > 0 ? (desc[0] + " - " + i) : ""));
+			addToEvaluationQueue(createDebugInstruction(wires[i], desc.length > 0 ? (desc[0] + " - " + i) : ""));
+		}
+	}
+
+	private Instruction createDebugInstruction(Wire w, String... desc) {
+		if (w.getWireId() == -1) {
+			return new WireLabelInstruction(w, w.getBitWires().asArray(), desc);
+		} else {
+			return new WireLabelInstruction(LabelType.debug, w, desc);
 		}
 	}
 
+	/**
+	 * In production mode, debug instructions are dropped when added, so they
+	 * cost nothing at all. The default is taken from Config.productionMode.
+	 */
+	public void setProductionMode(boolean productionMode) {
+		this.productionMode = productionMode;
+	}
+
+	public boolean isProductionMode() {
+		return productionMode;
+	}
+
 	public void writeCircuitFile() {
 		try {
 			PrintWriter printWriter = new PrintWriter(new BufferedWriter(new FileWriter(getName() + ".arith")));
@@ -299,6 +336,44 @@ public abstract class CircuitGenerator {
 		return currentWireId;
 	}
 
+	/**
+	 * Marks consecutive groups of instructions in the evaluation queue that do
+	 * not depend on each other, so that they can be evaluated in parallel.
+	 * Group i covers the queue positions from boundaries[i] to boundaries[i +
+	 * 1] - 1.
+	 */
+	void addParallelSection(int[] boundaries) {
+		parallelSections.add(boundaries);
+	}
+
+	public ArrayList<int[]> getParallelSections() {
+		return parallelSections;
+	}
+
+	/**
+	 * A map where gadgets can keep parts of the circuit they built, so that
+	 * later gadgets of this generator can reuse them instead of building them
+	 * again (e.g. the key schedule of a cipher for a given key). Keys should
+	 * include the gadget class.
+	 */
+	public HashMap<Object, Object> getGadgetMemo() {
+		return gadgetMemo;
+	}
+
+	/**
+	 * Asserts that w fits in bitwidth bits, for wires whose bits are not
+	 * needed. The check is deferred to the end of the circuit construction,
+	 * where all the checks are discharged together (see
+	 * RangeCheckAggregator).
+	 */
+	public void addRangeCheck(Wire w, int bitwidth, String... desc) {
+		rangeChecks.add(w, bitwidth, desc);
+	}
+
+	public RangeCheckAggregator getRangeChecks() {
+		return rangeChecks;
+	}
+
 	public Wire[] addToEvaluationQueue(Instruction e) {
 		if (evaluationQueue.containsKey(e)) {
 			if (e instanceof BasicOp) {
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.structure;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import circuit.operations.primitive.AddBasicOp;
+
+/**
+ * The comparisons behind the comparison methods of Wire and WireArray. All
+ * of them reduce to [x >= y], where both operands are less than 2^bitwidth:
+ *
+ * - When one operand is a constant and the bits of the other are already
+ * known, the result is computed from the bits, with one constraint per bit
+ * below the highest one, down to the lowest set bit of the constant. The
+ * prefixes shared by the constants compared with the same wire are only
+ * computed once.
+ *
+ * - Otherwise, the result is the top bit of 2^bitwidth + x - y, split into
+ * bitwidth + 1 bits (bitwidth + 2 constraints). Each comparison has its own
+ * split: if several values were packed and split together, an operand that is
+ * out of range in one comparison could carry into the bits of the next one
+ * and change its result.
+ */
+final class Comparisons {
+
+	private Comparisons() {
+	}
+
+	static Wire[] isGreaterThanOrEqual(Wire[] xs, Wire[] ys, int bitwidth, String... desc) {
+
+		CircuitGenerator generator = CircuitGenerator.getActiveCircuitGenerator();
+		BigInteger offset = BigInteger.ONE.shiftLeft(bitwidth);
+		Wire[] results = new Wire[xs.length];
+
+		for (int i = 0; i < xs.length; i++) {
+			Wire x = xs[i];
+			Wire y = ys[i];
+			if (x instanceof ConstantWire && y instanceof ConstantWire) {
+				BigInteger c1 = ((ConstantWire) x).getConstant();
+				BigInteger c2 = ((ConstantWire) y).getConstant();
+				results[i] = c1.compareTo(c2) >= 0 ? generator.getOneWire() : generator.getZeroWire();
+			} else if (y instanceof ConstantWire && useBits(x, ((ConstantWire) y).getConstant(), bitwidth)) {
+				// [x >= c] = 1 - [x < c]
+				results[i] = isLessThan(x, ((ConstantWire) y).getConstant(), desc).invAsBit(desc);
+			} else if (x instanceof ConstantWire
+					&& useBits(y, ((ConstantWire) x).getConstant().add(BigInteger.ONE), bitwidth)) {
+				// [c >= y] = [y < c + 1]
+				results[i] = isLessThan(y, ((ConstantWire) x).getConstant().add(BigInteger.ONE), desc);
+			} else {
+				Wire difference = x.add(offset, desc).sub(y, desc);
+				results[i] = difference.getBitWires(bitwidth + 1, desc).get(bitwidth);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Whether [w < c] from the bits of w is cheaper than a split.
+	 */
+	private static boolean useBits(Wire w, BigInteger c, int bitwidth) {
+		WireArray bits = w.getBitWires();
+		if (bits == null || c.signum() == 0 || c.bitLength() > bits.size()) {
+			return bits != null;
+		}
+		return bits.size() - c.getLowestSetBit() - 1 <= bitwidth;
+	}
+
+	/**
+	 * [w < c] = sum over the set bits i of c of (E_i - E_(i-1)), where E_i is
+	 * 1 if w and c agree on all the bits above i, and E_(i-1) = E_i * w_i for
+	 * such bits.
+	 */
+	private static Wire isLessThan(Wire w, BigInteger c, String... desc) {
+		CircuitGenerator generator = CircuitGenerator.getActiveCircuitGenerator();
+		Wire[] bits = w.getBitWires().asArray();
+		if (c.signum() == 0) {
+			return generator.getZeroWire();
+		}
+		if (c.bitLength() > bits.length) {
+			return generator.getOneWire();
+		}
+		HashMap<Object, Object> memo = generator.getGadgetMemo();
+		ArrayList<Wire> terms = new ArrayList<Wire>();
+		Wire prefix = generator.getOneWire();
+		for (int i = bits.length - 1; i >= c.getLowestSetBit(); i--) {
+			Object key = Arrays.asList(Comparisons.class, w, bits.length, i, c.shiftRight(i));
+			Wire next = (Wire) memo.get(key);
+			if (next == null) {
+				Wire literal = c.testBit(i) ? bits[i] : bits[i].invAsBit(desc);
+				next = literal.mul(prefix, desc);
+				memo.put(key, next);
+			}
+			if (c.testBit(i)) {
+				terms.add(prefix);
+				terms.add(next.mul(-1, desc));
+			}
+			prefix = next;
+		}
+		Wire out = new LinearCombinationBitWire(generator.currentWireId++);
+		generator.addToEvaluationQueue(new AddBasicOp(terms.toArray(new Wire[0]), out, desc));
+		return out;
+	}
+}
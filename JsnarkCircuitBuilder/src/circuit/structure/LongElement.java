@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.structure;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import util.Util;
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.eval.Instruction;
+
+/**
+ * An integer that does not fit in a single field element, represented as
+ * little-endian limbs of limbBitwidth bits each.
+ *
+ * Carries are resolved lazily: add() and mul() only combine the limbs and
+ * keep an upper bound on the value of every limb, so the limbs of a result
+ * can grow beyond limbBitwidth. The carries are only handled when two
+ * elements are compared in assertEquality(), which packs as many limbs per
+ * carry as the field size allows. Limbs that come from the prover must be
+ * range checked by calling restrictBitwidth() once on the whole element, and
+ * then read back with getLimbs(): the wires the element was created from are
+ * not range checked one by one.
+ */
+public class LongElement {
+
+	public static final int DEFAULT_LIMB_BITWIDTH = 32;
+
+	// bounds on the limbs and carries are kept below this bitwidth, so that
+	// an equality between them modulo the field prime is an integer equality
+	private static final int MAX_BOUND_BITWIDTH = Config.LOG2_FIELD_PRIME - 5;
+
+	private Wire[] limbs;
+	private BigInteger[] maxValues;
+	private int limbBitwidth;
+	private CircuitGenerator generator;
+
+	/**
+	 * The limbs are assumed to be less than 2^limbBitwidth, either by
+	 * construction or by calling restrictBitwidth() afterwards.
+	 */
+	public LongElement(Wire[] limbs, int limbBitwidth) {
+		this(limbs, null, limbBitwidth);
+	}
+
+	public LongElement(Wire[] limbs, BigInteger[] maxValues, int limbBitwidth) {
+		if (limbs.length == 0) {
+			throw new IllegalArgumentException("At least one limb is needed");
+		}
+		if (limbBitwidth < 1 || limbBitwidth > MAX_BOUND_BITWIDTH / 2) {
+			throw new IllegalArgumentException("Limb bitwidth not supported: " + limbBitwidth);
+		}
+		this.generator = CircuitGenerator.getActiveCircuitGenerator();
+		this.limbs = limbs.clone();
+		this.limbBitwidth = limbBitwidth;
+		this.maxValues = new BigInteger[limbs.length];
+		for (int i = 0; i < limbs.length; i++) {
+			if (limbs[i] instanceof ConstantWire) {
+				this.maxValues[i] = ((ConstantWire) limbs[i]).getConstant();
+			} else if (maxValues != null) {
+				this.maxValues[i] = maxValues[i];
+			} else {
+				this.maxValues[i] = BigInteger.ONE.shiftLeft(limbBitwidth).subtract(BigInteger.ONE);
+			}
+		}
+	}
+
+	/**
+	 * Packs the bits (little-endian) into limbs.
+	 */
+	public LongElement(WireArray bits, int limbBitwidth) {
+		this(packBits(bits, limbBitwidth), limbBitwidth);
+	}
+
+	public LongElement(BigInteger constant, int limbBitwidth) {
+		this(CircuitGenerator.getActiveCircuitGenerator().createConstantWireArray(
+				Util.split(constant, Math.max(1, (constant.bitLength() + limbBitwidth - 1) / limbBitwidth),
+						limbBitwidth)), limbBitwidth);
+	}
+
+	private static Wire[] packBits(WireArray bits, int limbBitwidth) {
+		Wire[] limbs = new Wire[(bits.size() + limbBitwidth - 1) / limbBitwidth];
+		for (int i = 0; i < limbs.length; i++) {
+			limbs[i] = bits.packAsBits(i * limbBitwidth, Math.min(bits.size(), (i + 1) * limbBitwidth));
+		}
+		return limbs;
+	}
+
+	public LongElement add(LongElement o) {
+		checkLimbBitwidth(o);
+		int n = Math.max(limbs.length, o.limbs.length);
+		Wire[] result = new Wire[n];
+		BigInteger[] resultMaxValues = new BigInteger[n];
+		for (int i = 0; i < n; i++) {
+			if (i >= o.limbs.length) {
+				result[i] = limbs[i];
+				resultMaxValues[i] = maxValues[i];
+			} else if (i >= limbs.length) {
+				result[i] = o.limbs[i];
+				resultMaxValues[i] = o.maxValues[i];
+			} else {
+				result[i] = limbs[i].add(o.limbs[i]);
+				resultMaxValues[i] = maxValues[i].add(o.maxValues[i]);
+			}
+		}
+		return new LongElement(result, checkBounds(resultMaxValues), limbBitwidth);
+	}
+
+	/**
+	 * Multiplies the limbs as polynomial coefficients. When both elements
+	 * are variable, the coefficients of the product are provided by the
+	 * prover and checked at as many points as there are coefficients, which
+	 * costs one constraint per product limb instead of one per pair of
+	 * limbs.
+	 */
+	public LongElement mul(LongElement o) {
+		checkLimbBitwidth(o);
+		int n = limbs.length + o.limbs.length - 1;
+		BigInteger[] resultMaxValues = new BigInteger[n];
+		Arrays.fill(resultMaxValues, BigInteger.ZERO);
+		for (int i = 0; i < limbs.length; i++) {
+			for (int j = 0; j < o.limbs.length; j++) {
+				resultMaxValues[i + j] = resultMaxValues[i + j].add(maxValues[i].multiply(o.maxValues[j]));
+			}
+		}
+		checkBounds(resultMaxValues);
+
+		Wire[] result = new Wire[n];
+		if (isConstant() || o.isConstant() || limbs.length == 1 || o.limbs.length == 1) {
+			ArrayList<ArrayList<Wire>> terms = new ArrayList<ArrayList<Wire>>();
+			for (int k = 0; k < n; k++) {
+				terms.add(new ArrayList<Wire>());
+			}
+			for (int i = 0; i < limbs.length; i++) {
+				for (int j = 0; j < o.limbs.length; j++) {
+					terms.get(i + j).add(limbs[i].mul(o.limbs[j]));
+				}
+			}
+			for (int k = 0; k < n; k++) {
+				result[k] = new WireArray(terms.get(k).toArray(new Wire[0])).sumAllElements();
+			}
+		} else {
+			final Wire[] a = limbs;
+			final Wire[] b = o.limbs;
+			final Wire[] c = generator.createProverWitnessWireArray(n, "long product limbs");
+			generator.specifyProverWitnessComputation(new Instruction() {
+				@Override
+				public void evaluate(CircuitEvaluator evaluator) {
+					BigInteger[] values = new BigInteger[c.length];
+					Arrays.fill(values, BigInteger.ZERO);
+					for (int i = 0; i < a.length; i++) {
+						BigInteger aValue = evaluator.getWireValue(a[i]);
+						for (int j = 0; j < b.length; j++) {
+							values[i + j] = values[i + j].add(aValue.multiply(evaluator.getWireValue(b[j])));
+						}
+					}
+					for (int k = 0; k < c.length; k++) {
+						evaluator.setWireValue(c[k], values[k]);
+					}
+				}
+			});
+			// n distinct points fix the n coefficients, and as the bounds on
+			// the coefficients are below the field prime, the coefficients
+			// are the integer ones.
+			for (int x = 0; x < n; x++) {
+				generator.addAssertion(evaluate(a, x), evaluate(b, x), evaluate(c, x));
+			}
+			result = c;
+		}
+		return new LongElement(result, resultMaxValues, limbBitwidth);
+	}
+
+	private static Wire evaluate(Wire[] coefficients, int x) {
+		Wire[] terms = new Wire[coefficients.length];
+		BigInteger power = BigInteger.ONE;
+		for (int i = 0; i < coefficients.length; i++) {
+			terms[i] = coefficients[i].mul(power);
+			power = power.multiply(BigInteger.valueOf(x)).mod(Config.FIELD_PRIME);
+		}
+		return new WireArray(terms).sumAllElements();
+	}
+
+	/**
+	 * Range checks all the limbs to limbBitwidth. Consecutive limbs are
+	 * packed together and split at once as long as they fit in a field
+	 * element, and the limbs are then replaced by the packed bits.
+	 *
+	 * Only the limbs returned by getLimbs() after this call are range
+	 * checked. The wires passed to the constructor are only constrained
+	 * through their packed sum, e.g. l0 + 2^limbBitwidth * k and l1 - k pass
+	 * as well, so they must not be used as if each of them was checked.
+	 */
+	public void restrictBitwidth() {
+		int groupSize = Math.max(1, (Config.LOG2_FIELD_PRIME - 1) / limbBitwidth);
+		for (int start = 0; start < limbs.length; start += groupSize) {
+			int end = Math.min(limbs.length, start + groupSize);
+			if (end - start == 1) {
+				generator.addRangeCheck(limbs[start], limbBitwidth);
+				maxValues[start] = maxValues[start].min(BigInteger.ONE.shiftLeft(limbBitwidth).subtract(BigInteger.ONE));
+				continue;
+			}
+			Wire[] terms = new Wire[end - start];
+			for (int i = start; i < end; i++) {
+				terms[i - start] = limbs[i].mul(BigInteger.ONE.shiftLeft((i - start) * limbBitwidth));
+			}
+			WireArray bits = new WireArray(terms).sumAllElements().getBitWires((end - start) * limbBitwidth);
+			for (int i = start; i < end; i++) {
+				if (limbs[i] instanceof ConstantWire) {
+					continue;
+				}
+				Wire[] limbBits = Arrays.copyOfRange(bits.asArray(), (i - start) * limbBitwidth, (i - start + 1)
+						* limbBitwidth);
+				Wire[] weightedBits = new Wire[limbBitwidth];
+				for (int j = 0; j < limbBitwidth; j++) {
+					weightedBits[j] = limbBits[j].mul(BigInteger.ONE.shiftLeft(j));
+				}
+				limbs[i] = new WireArray(weightedBits).sumAllElements();
+				if (!(limbs[i] instanceof ConstantWire)) {
+					limbs[i].setBits(new WireArray(limbBits));
+				}
+				maxValues[i] = BigInteger.ONE.shiftLeft(limbBitwidth).subtract(BigInteger.ONE);
+			}
+		}
+	}
+
+	/**
+	 * Asserts that both elements represent the same integer. The limbs are
+	 * grouped so that the difference of each group plus the incoming carry
+	 * stays well below the field prime. The carry of a group is then a
+	 * linear combination (the difference times the inverse of 2^(group
+	 * bitwidth)), and a single split per group checks that it is small.
+	 */
+	public void assertEquality(LongElement o) {
+		checkLimbBitwidth(o);
+		int n = Math.max(limbs.length, o.limbs.length);
+		Wire carry = null;
+		BigInteger carryBound = BigInteger.ZERO;
+		int start = 0;
+		while (start < n) {
+			BigInteger groupBound = carryBound;
+			int end = start;
+			while (end < n && (end - start + 1) * limbBitwidth <= MAX_BOUND_BITWIDTH) {
+				BigInteger bound = groupBound.add(getMaxValue(end).max(o.getMaxValue(end)).shiftLeft(
+						(end - start) * limbBitwidth));
+				if (bound.bitLength() > MAX_BOUND_BITWIDTH) {
+					break;
+				}
+				groupBound = bound;
+				end++;
+			}
+			if (end == start) {
+				throw new IllegalArgumentException("Limbs are too large to be compared");
+			}
+
+			ArrayList<Wire> terms = new ArrayList<Wire>();
+			if (carry != null) {
+				terms.add(carry);
+			}
+			for (int i = start; i < end; i++) {
+				BigInteger weight = BigInteger.ONE.shiftLeft((i - start) * limbBitwidth);
+				if (i < limbs.length) {
+					terms.add(limbs[i].mul(weight));
+				}
+				if (i < o.limbs.length) {
+					terms.add(o.limbs[i].mul(weight.negate().mod(Config.FIELD_PRIME)));
+				}
+			}
+			Wire difference = new WireArray(terms.toArray(new Wire[0])).sumAllElements();
+			if (end == n) {
+				generator.addZeroAssertion(difference, "long element equality");
+				break;
+			}
+
+			int shift = (end - start) * limbBitwidth;
+			carry = difference.mul(BigInteger.ONE.shiftLeft(shift).modInverse(Config.FIELD_PRIME));
+			// carry lies in [-bound, bound], and is checked to be in
+			// [-bound, 2^bitwidth - bound)
+			BigInteger bound = groupBound.shiftRight(shift).add(BigInteger.ONE);
+			int bitwidth = bound.shiftLeft(1).bitLength();
+			generator.addRangeCheck(carry.add(bound), bitwidth);
+			carryBound = BigInteger.ONE.shiftLeft(bitwidth);
+			start = end;
+		}
+	}
+
+	public BigInteger getValue(CircuitEvaluator evaluator) {
+		BigInteger value = BigInteger.ZERO;
+		for (int i = limbs.length - 1; i >= 0; i--) {
+			value = value.shiftLeft(limbBitwidth).add(evaluator.getWireValue(limbs[i]));
+		}
+		return value;
+	}
+
+	/**
+	 * An upper bound on the bitwidth of the represented integer.
+	 */
+	public int getMaxBitwidth() {
+		BigInteger max = BigInteger.ZERO;
+		for (int i = limbs.length - 1; i >= 0; i--) {
+			max = max.shiftLeft(limbBitwidth).add(maxValues[i]);
+		}
+		return max.bitLength();
+	}
+
+	public boolean isConstant() {
+		for (Wire w : limbs) {
+			if (!(w instanceof ConstantWire)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The limbs of the element. After restrictBitwidth(), these are the range
+	 * checked limbs, which replace the wires the element was created from.
+	 */
+	public Wire[] getLimbs() {
+		return limbs;
+	}
+
+	public BigInteger[] getMaxValues() {
+		return maxValues;
+	}
+
+	public int getLimbBitwidth() {
+		return limbBitwidth;
+	}
+
+	private BigInteger getMaxValue(int i) {
+		return i < maxValues.length ? maxValues[i] : BigInteger.ZERO;
+	}
+
+	private BigInteger[] checkBounds(BigInteger[] bounds) {
+		for (BigInteger b : bounds) {
+			if (b.bitLength() > MAX_BOUND_BITWIDTH) {
+				throw new IllegalArgumentException("Limb bound exceeds the field size; reduce the operands first");
+			}
+		}
+		return bounds;
+	}
+
+	private void checkLimbBitwidth(LongElement o) {
+		if (o.limbBitwidth != limbBitwidth) {
+			throw new IllegalArgumentException("Limb bitwidths do not match: " + limbBitwidth + " and "
+					+ o.limbBitwidth);
+		}
+	}
+}
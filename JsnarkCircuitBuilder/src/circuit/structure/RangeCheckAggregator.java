@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.structure;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import circuit.config.Config;
+
+/**
+ * Collects range checks on wires whose bits are not needed by the circuit
+ * (see CircuitGenerator.addRangeCheck()), and discharges them once the
+ * circuit is built. A split costs bitwidth + 1 constraints for every check,
+ * while here:
+ *
+ * - checks on the same wire are merged into the tightest one,
+ *
+ * - checks on constants are verified during construction,
+ *
+ * - checks implied by a decomposition that the circuit did anyway (e.g. a
+ * later getBitWires() on the same wire) are dropped,
+ *
+ * - 1-bit and 2-bit checks assert that a vanishing polynomial is zero (1 and
+ * 2 constraints), and wider ones are split.
+ *
+ * Packing unrelated wires into one split is not done: each wire would still
+ * need an equality with its part of the bits, which costs as much as
+ * splitting it on its own.
+ */
+public class RangeCheckAggregator {
+
+	private CircuitGenerator generator;
+	// keyed by the wires themselves, as the wires that are not packed all
+	// have the id -1
+	private LinkedHashMap<Wire, Integer> bitwidths = new LinkedHashMap<Wire, Integer>();
+	private int suspended;
+
+	private int numRequested;
+	private long separateCost;
+	private long cost;
+
+	RangeCheckAggregator(CircuitGenerator generator) {
+		this.generator = generator;
+	}
+
+	void add(Wire w, int bitwidth, String... desc) {
+		numRequested++;
+		if (!(w instanceof ConstantWire)) {
+			separateCost += bitwidth + 1;
+		}
+		if (suspended > 0) {
+			check(w, bitwidth, desc);
+			return;
+		}
+		Integer current = bitwidths.get(w);
+		if (current == null || current > bitwidth) {
+			bitwidths.put(w, bitwidth);
+		}
+	}
+
+	/**
+	 * While suspended, checks are discharged right away (e.g. during the
+	 * recording of a SubcircuitTemplate, whose instances must contain their
+	 * own checks).
+	 */
+	void suspend() {
+		suspended++;
+	}
+
+	void resume() {
+		suspended--;
+	}
+
+	void discharge() {
+		for (Map.Entry<Wire, Integer> entry : bitwidths.entrySet()) {
+			check(entry.getKey(), entry.getValue());
+		}
+		bitwidths.clear();
+	}
+
+	private void check(Wire w, int bitwidth, String... desc) {
+		int before = generator.getNumOfConstraints();
+		if (w instanceof ConstantWire) {
+			if (((ConstantWire) w).getConstant().bitLength() > bitwidth) {
+				throw new RuntimeException("Range check failed on a constant wire: " + w);
+			}
+			return;
+		}
+		WireArray bits = w.getBitWires();
+		if (w instanceof BitWire || bitwidth >= Config.LOG2_FIELD_PRIME
+				|| (bits != null && bits.size() <= bitwidth)) {
+			return;
+		}
+		if (bitwidth == 1) {
+			generator.addBinaryAssertion(w, desc);
+		} else if (bitwidth == 2) {
+			// w(w-1)(w-2)(w-3) = t(t - 4w + 6), where t = w(w-1)
+			Wire t = w.mul(w.sub(1, desc), desc);
+			generator.addAssertion(t, t.sub(w.mul(4, desc), desc).add(6, desc), generator.getZeroWire(), desc);
+		} else {
+			// a wire known only by its bits is packed, then split again
+			w.packIfNeeded(desc);
+			w.restrictBitLength(bitwidth, desc);
+		}
+		cost += generator.getNumOfConstraints() - before;
+	}
+
+	public int getNumRequested() {
+		return numRequested;
+	}
+
+	/**
+	 * The number of constraints if every check was a separate split.
+	 */
+	public long getSeparateCost() {
+		return separateCost;
+	}
+
+	public long getCost() {
+		return cost;
+	}
+
+	public long getSavings() {
+		return separateCost - cost;
+	}
+}
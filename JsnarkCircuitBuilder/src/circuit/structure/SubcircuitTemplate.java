@@ -0,0 +1,565 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import circuit.config.Config;
+import circuit.eval.Instruction;
+import circuit.operations.WireLabelInstruction;
+import circuit.operations.WireLabelInstruction.LabelType;
+import circuit.operations.primitive.AssertBasicOp;
+import circuit.operations.primitive.BasicOp;
+
+/**
+ * Records the instructions produced by building a subcircuit once (the
+ * prototype), so that further instances of the same subcircuit on other input
+ * wires can be produced by cloning these instructions, instead of running the
+ * builder again.
+ *
+ * The recorded instructions are split into two groups: the ones that depend on
+ * the prototype inputs (or their bits), which are cloned for every instance,
+ * and the ones that do not (e.g. constants), which are shared by all
+ * instances. Cloning is done in parallel, and the cloned instructions are then
+ * added to the evaluation queue in order, so the resulting circuit is the same
+ * as the one obtained by calling the builder on each instance.
+ *
+ * The builder is called directly instead of cloning when the recording is not
+ * replayable (e.g. it creates inputs, prover witnesses, or uses custom
+ * instructions), or for an instance whose wires do not have the same shape as
+ * the prototype inputs, or whose instructions could collide with existing ones
+ * through caching.
+ */
+public class SubcircuitTemplate {
+
+	private static final int SHARED = -1;
+
+	private CircuitGenerator generator;
+	private Function<Wire[], Wire[]> builder;
+
+	private Wire[] prototypeInputs;
+	private Wire[] prototypeOutputs;
+	private boolean replayable = true;
+
+	// the prototype outputs as they were right after building, as they may
+	// be packed or split later by the caller
+	private int[] outputIds;
+	private Wire[][] outputBits;
+
+	// root wires: the non-constant prototype inputs and their bits, indexed by
+	// slot
+	private ArrayList<Wire> roots = new ArrayList<Wire>();
+	private HashMap<Integer, Integer> rootSlots = new HashMap<Integer, Integer>();
+
+	private int[] inputSlots;
+	private Wire[][] inputBitsBefore;
+	private Wire[][] inputBitsAfter;
+
+	private int firstWireId;
+	// offset of each cloned wire, indexed by wireId - firstWireId
+	private int[] cloneOffsets;
+	private int numClonedWires;
+
+	// the recorded instructions that are cloned for each instance
+	private ArrayList<Instruction> dependentInstructions = new ArrayList<Instruction>();
+	// instructions that only use root or shared wires; they have to be checked
+	// against the evaluation queue, because of caching
+	private ArrayList<Instruction> rootOnlyInstructions = new ArrayList<Instruction>();
+
+	/**
+	 * @param prototypeInputs
+	 *            input wires of the prototype instance
+	 * @param builder
+	 *            builds the subcircuit on the given input wires and returns
+	 *            its output wires. It is called once for the prototype
+	 *            immediately, and possibly again by instantiate().
+	 */
+	public SubcircuitTemplate(Wire[] prototypeInputs, Function<Wire[], Wire[]> builder) {
+
+		this.generator = CircuitGenerator.getActiveCircuitGenerator();
+		this.builder = builder;
+		this.prototypeInputs = prototypeInputs.clone();
+
+		inputSlots = new int[prototypeInputs.length];
+		inputBitsBefore = new Wire[prototypeInputs.length][];
+		inputBitsAfter = new Wire[prototypeInputs.length][];
+		for (int i = 0; i < prototypeInputs.length; i++) {
+			Wire w = prototypeInputs[i];
+			if (w instanceof ConstantWire) {
+				inputSlots[i] = SHARED;
+				continue;
+			}
+			w.packIfNeeded();
+			inputSlots[i] = addRoot(w);
+			inputBitsBefore[i] = getBits(w);
+			if (inputBitsBefore[i] != null) {
+				for (Wire bit : inputBitsBefore[i]) {
+					if (!(bit instanceof ConstantWire)) {
+						addRoot(bit);
+					}
+				}
+			}
+		}
+
+		firstWireId = generator.currentWireId;
+		int queueStart = generator.evaluationQueue.size();
+		generator.getRangeChecks().suspend();
+		prototypeOutputs = builder.apply(this.prototypeInputs);
+		generator.getRangeChecks().resume();
+
+		for (int i = 0; i < prototypeInputs.length; i++) {
+			Wire[] bits = inputSlots[i] == SHARED ? null : getBits(prototypeInputs[i]);
+			if (bits != null && !Arrays.equals(bits, inputBitsBefore[i])) {
+				inputBitsAfter[i] = bits;
+			}
+		}
+
+		ArrayList<Instruction> recorded = new ArrayList<Instruction>();
+		Iterator<Instruction> it = generator.evaluationQueue.keySet().iterator();
+		for (int i = 0; i < queueStart; i++) {
+			it.next();
+		}
+		while (it.hasNext()) {
+			recorded.add(it.next());
+		}
+		if (replayable) {
+			record(recorded, queueStart);
+		}
+	}
+
+	private int addRoot(Wire w) {
+		if (w.getWireId() < 0) {
+			replayable = false;
+			return SHARED;
+		}
+		Integer slot = rootSlots.get(w.getWireId());
+		if (slot == null) {
+			slot = roots.size();
+			roots.add(w);
+			rootSlots.put(w.getWireId(), slot);
+		}
+		return slot;
+	}
+
+	private void record(ArrayList<Instruction> recorded, int queueStart) {
+
+		cloneOffsets = new int[generator.currentWireId - firstWireId];
+		Arrays.fill(cloneOffsets, SHARED);
+		// wires outside the recorded range (other than roots and constants)
+		// that are used by the recorded instructions
+		HashSet<Integer> externalWires = new HashSet<Integer>();
+
+		for (Instruction e : recorded) {
+			if (e instanceof BasicOp) {
+				BasicOp op = (BasicOp) e;
+				boolean dependent = false;
+				boolean rootOnly = true;
+				for (Wire w : op.getInputs()) {
+					dependent |= isDependent(w, externalWires);
+					rootOnly &= !isCloned(w);
+				}
+				if (op instanceof AssertBasicOp) {
+					Wire w = op.getOutputs()[0];
+					dependent |= isDependent(w, externalWires);
+					rootOnly &= !isCloned(w);
+				}
+				if (dependent) {
+					if (!(op instanceof AssertBasicOp)) {
+						for (Wire w : op.getOutputs()) {
+							if (!isClonable(w)) {
+								replayable = false;
+								return;
+							}
+							cloneOffsets[w.getWireId() - firstWireId] = numClonedWires++;
+						}
+					}
+					dependentInstructions.add(op);
+					if (rootOnly) {
+						rootOnlyInstructions.add(op);
+					}
+				}
+			} else if (e instanceof WireLabelInstruction
+					&& ((WireLabelInstruction) e).getType() == LabelType.debug) {
+				WireLabelInstruction label = (WireLabelInstruction) e;
+				boolean dependent = false;
+				if (label.getBits() == null) {
+					dependent = isDependent(label.getWire(), externalWires);
+				} else {
+					for (Wire w : label.getBits()) {
+						dependent |= isDependent(w, externalWires);
+					}
+				}
+				if (dependent) {
+					dependentInstructions.add(e);
+				}
+			} else {
+				// inputs, outputs, prover witnesses and custom instructions
+				// cannot be replayed
+				replayable = false;
+				return;
+			}
+		}
+
+		outputIds = new int[prototypeOutputs.length];
+		outputBits = new Wire[prototypeOutputs.length][];
+		for (int i = 0; i < prototypeOutputs.length; i++) {
+			Wire w = prototypeOutputs[i];
+			if (w == null) {
+				replayable = false;
+				return;
+			}
+			outputIds[i] = w.getWireId();
+			if (w.getWireId() < 0) {
+				if (!(w.getClass() == VariableWire.class || w.getClass() == LinearCombinationWire.class)
+						|| w.getBitWires() == null) {
+					replayable = false;
+					return;
+				}
+				outputBits[i] = getBits(w);
+				for (Wire bit : outputBits[i]) {
+					if (bit.getWireId() < 0) {
+						replayable = false;
+						return;
+					}
+					isDependent(bit, externalWires);
+				}
+			} else {
+				isDependent(w, externalWires);
+				if (isCloned(w) && !(w instanceof BitWire)) {
+					outputBits[i] = getBits(w);
+				}
+			}
+		}
+
+		if (!externalWires.isEmpty() && dependsOnRoots(externalWires, queueStart)) {
+			// an instruction that depends on the inputs was found in the
+			// queue through caching, or an outside wire computed from the
+			// inputs was used directly
+			replayable = false;
+		}
+	}
+
+	private boolean isCloned(Wire w) {
+		return isCloned(w.getWireId());
+	}
+
+	private boolean isCloned(int id) {
+		return id >= firstWireId && id - firstWireId < cloneOffsets.length && cloneOffsets[id - firstWireId] != SHARED;
+	}
+
+	private boolean isDependent(Wire w, HashSet<Integer> externalWires) {
+		if (w instanceof ConstantWire) {
+			return false;
+		}
+		int id = w.getWireId();
+		if (rootSlots.containsKey(id) || isCloned(w)) {
+			return true;
+		}
+		if (id < firstWireId) {
+			externalWires.add(id);
+		}
+		return false;
+	}
+
+	private boolean isClonable(Wire w) {
+		Class<?> c = w.getClass();
+		return w.getWireId() >= firstWireId && (c == Wire.class || c == VariableWire.class
+				|| c == VariableBitWire.class || c == LinearCombinationWire.class || c == LinearCombinationBitWire.class);
+	}
+
+	private boolean dependsOnRoots(HashSet<Integer> externalWires, int queueStart) {
+		boolean[] dependent = new boolean[firstWireId];
+		for (int id : rootSlots.keySet()) {
+			dependent[id] = true;
+		}
+		Iterator<Instruction> it = generator.evaluationQueue.keySet().iterator();
+		for (int i = 0; i < queueStart; i++) {
+			Instruction e = it.next();
+			if (e instanceof BasicOp) {
+				BasicOp op = (BasicOp) e;
+				boolean d = false;
+				for (Wire w : op.getInputs()) {
+					d |= dependent[w.getWireId()];
+				}
+				if (d) {
+					for (Wire w : op.getOutputs()) {
+						dependent[w.getWireId()] = true;
+					}
+				}
+			}
+		}
+		for (int id : externalWires) {
+			if (dependent[id]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Wire[] getBits(Wire w) {
+		WireArray bits = w.getBitWires();
+		return bits == null ? null : bits.asArray().clone();
+	}
+
+	public Wire[] getPrototypeOutputs() {
+		return prototypeOutputs;
+	}
+
+	public boolean isReplayable() {
+		return replayable;
+	}
+
+	/**
+	 * Returns the number of wires each cloned instance adds to the circuit.
+	 */
+	public int getNumClonedWires() {
+		return numClonedWires;
+	}
+
+	/**
+	 * Creates an instance of the subcircuit for each of the given input
+	 * arrays, and returns the output wires of each instance.
+	 *
+	 * @param parallel
+	 *            whether the instructions of different instances are cloned
+	 *            in parallel. Ignored when Config.runningMultiGenerators is
+	 *            set, as wires look up their generator by thread.
+	 */
+	public Wire[][] instantiate(Wire[][] inputs, boolean parallel) {
+
+		if (CircuitGenerator.getActiveCircuitGenerator() != generator) {
+			throw new RuntimeException("The template was recorded by a different circuit generator");
+		}
+
+		Wire[][] outputs = new Wire[inputs.length][];
+		Wire[][] rootWires = new Wire[inputs.length][];
+		HashSet<Wire> usedRoots = new HashSet<Wire>(roots);
+		for (int k = 0; k < inputs.length; k++) {
+			if (replayable) {
+				rootWires[k] = matchRoots(inputs[k], usedRoots);
+			}
+		}
+
+		int[] valid = IntStream.range(0, inputs.length).filter(k -> rootWires[k] != null).toArray();
+		int[] baseIds = new int[inputs.length];
+		for (int k : valid) {
+			baseIds[k] = generator.currentWireId;
+			generator.currentWireId += numClonedWires;
+		}
+
+		Instruction[][] clonedInstructions = new Instruction[inputs.length][];
+		IntStream stream = IntStream.of(valid);
+		if (parallel && !Config.runningMultiGenerators) {
+			stream = stream.parallel();
+		}
+		stream.forEach(k -> {
+			Wire[] clones = new Wire[numClonedWires];
+			clonedInstructions[k] = cloneInstructions(rootWires[k], clones, baseIds[k]);
+			outputs[k] = mapOutputs(rootWires[k], clones);
+			for (int i = 0; i < inputs[k].length; i++) {
+				if (inputBitsAfter[i] != null) {
+					inputs[k][i].setBits(new WireArray(mapWires(inputBitsAfter[i], rootWires[k], clones)));
+				}
+			}
+		});
+
+		// the inputs of all instances exist before this call, so the cloned
+		// instances do not depend on each other, and can be evaluated in
+		// parallel
+		int[] boundaries = new int[valid.length + 1];
+		boundaries[0] = generator.evaluationQueue.size();
+		for (int v = 0; v < valid.length; v++) {
+			for (Instruction e : clonedInstructions[valid[v]]) {
+				generator.addToEvaluationQueue(e);
+			}
+			clonedInstructions[valid[v]] = null;
+			boundaries[v + 1] = generator.evaluationQueue.size();
+		}
+		if (valid.length > 1) {
+			generator.addParallelSection(boundaries);
+		}
+
+		for (int k = 0; k < inputs.length; k++) {
+			if (rootWires[k] == null) {
+				outputs[k] = builder.apply(inputs[k]);
+			}
+		}
+		return outputs;
+	}
+
+	/**
+	 * Maps the root slots to the wires of the given instance, or returns null
+	 * if the instance cannot be cloned from the prototype.
+	 */
+	private Wire[] matchRoots(Wire[] instance, HashSet<Wire> usedRoots) {
+
+		if (instance.length != prototypeInputs.length) {
+			return null;
+		}
+		for (int i = 0; i < instance.length; i++) {
+			if (inputSlots[i] == SHARED) {
+				if (instance[i] != prototypeInputs[i]) {
+					return null;
+				}
+			} else if (instance[i] == null || instance[i].getClass() != prototypeInputs[i].getClass()) {
+				return null;
+			} else {
+				instance[i].packIfNeeded();
+			}
+		}
+
+		Wire[] rootWires = new Wire[roots.size()];
+		for (int i = 0; i < instance.length; i++) {
+			if (inputSlots[i] == SHARED) {
+				continue;
+			}
+			if (!matchRoot(inputSlots[i], instance[i], rootWires)) {
+				return null;
+			}
+			Wire[] bits = getBits(instance[i]);
+			if ((bits == null) != (inputBitsBefore[i] == null)) {
+				return null;
+			} else if (bits != null) {
+				if (bits.length != inputBitsBefore[i].length) {
+					return null;
+				}
+				for (int j = 0; j < bits.length; j++) {
+					Wire protoBit = inputBitsBefore[i][j];
+					if (protoBit instanceof ConstantWire) {
+						if (bits[j] != protoBit) {
+							return null;
+						}
+					} else if (bits[j].getClass() != protoBit.getClass()
+							|| !matchRoot(rootSlots.get(protoBit.getWireId()), bits[j], rootWires)) {
+						return null;
+					}
+				}
+			}
+		}
+
+		// the roots of different instances must be distinct, so that the
+		// cloned instructions do not collide with each other
+		HashSet<Wire> instanceRoots = new HashSet<Wire>(Arrays.asList(rootWires));
+		if (instanceRoots.size() != rootWires.length) {
+			return null;
+		}
+		for (Wire w : rootWires) {
+			if (usedRoots.contains(w)) {
+				return null;
+			}
+		}
+		for (Instruction e : rootOnlyInstructions) {
+			BasicOp op = (BasicOp) e;
+			// only the inputs matter for caching
+			Wire[] outputs = op instanceof AssertBasicOp ? mapWires(op.getOutputs(), rootWires, null) : op.getOutputs();
+			BasicOp clone = op.copy(mapWires(op.getInputs(), rootWires, null), outputs);
+			if (generator.evaluationQueue.containsKey(clone)) {
+				return null;
+			}
+		}
+		usedRoots.addAll(instanceRoots);
+		return rootWires;
+	}
+
+	private boolean matchRoot(int slot, Wire w, Wire[] rootWires) {
+		if (w.getWireId() < 0 || rootWires[slot] != null && rootWires[slot] != w) {
+			return false;
+		}
+		rootWires[slot] = w;
+		return true;
+	}
+
+	private Instruction[] cloneInstructions(Wire[] rootWires, Wire[] clones, int baseId) {
+		Instruction[] result = new Instruction[dependentInstructions.size()];
+		for (int i = 0; i < result.length; i++) {
+			Instruction e = dependentInstructions.get(i);
+			if (e instanceof BasicOp) {
+				BasicOp op = (BasicOp) e;
+				Wire[] inputs = mapWires(op.getInputs(), rootWires, clones);
+				Wire[] outputs;
+				if (op instanceof AssertBasicOp) {
+					outputs = mapWires(op.getOutputs(), rootWires, clones);
+				} else {
+					outputs = new Wire[op.getOutputs().length];
+					for (int j = 0; j < outputs.length; j++) {
+						Wire w = op.getOutputs()[j];
+						int offset = cloneOffsets[w.getWireId() - firstWireId];
+						outputs[j] = newWire(w.getClass(), baseId + offset);
+						clones[offset] = outputs[j];
+					}
+				}
+				result[i] = op.copy(inputs, outputs);
+			} else {
+				WireLabelInstruction label = (WireLabelInstruction) e;
+				if (label.getBits() == null) {
+					result[i] = new WireLabelInstruction(LabelType.debug, mapWire(label.getWire(), rootWires, clones),
+							label.getDesc());
+				} else {
+					result[i] = new WireLabelInstruction(label.getWire(), mapWires(label.getBits(), rootWires, clones),
+							label.getDesc());
+				}
+			}
+		}
+		return result;
+	}
+
+	private Wire[] mapOutputs(Wire[] rootWires, Wire[] clones) {
+		Wire[] outputs = new Wire[prototypeOutputs.length];
+		for (int i = 0; i < outputs.length; i++) {
+			Wire w = prototypeOutputs[i];
+			if (outputIds[i] < 0) {
+				WireArray bits = new WireArray(mapWires(outputBits[i], rootWires, clones));
+				outputs[i] = w instanceof VariableWire ? new VariableWire(bits) : new LinearCombinationWire(bits);
+			} else {
+				outputs[i] = mapWire(w, rootWires, clones);
+				if (outputBits[i] != null) {
+					outputs[i].setBits(new WireArray(mapWires(outputBits[i], rootWires, clones)));
+				}
+			}
+		}
+		return outputs;
+	}
+
+	private Wire[] mapWires(Wire[] wires, Wire[] rootWires, Wire[] clones) {
+		Wire[] result = new Wire[wires.length];
+		for (int i = 0; i < wires.length; i++) {
+			result[i] = mapWire(wires[i], rootWires, clones);
+		}
+		return result;
+	}
+
+	private Wire mapWire(Wire w, Wire[] rootWires, Wire[] clones) {
+		if (w instanceof ConstantWire) {
+			return w;
+		}
+		Integer slot = rootSlots.get(w.getWireId());
+		if (slot != null) {
+			return rootWires[slot];
+		} else if (isCloned(w)) {
+			return clones[cloneOffsets[w.getWireId() - firstWireId]];
+		} else {
+			return w;
+		}
+	}
+
+	private static Wire newWire(Class<?> c, int wireId) {
+		if (c == VariableWire.class) {
+			return new VariableWire(wireId);
+		} else if (c == VariableBitWire.class) {
+			return new VariableBitWire(wireId);
+		} else if (c == LinearCombinationWire.class) {
+			return new LinearCombinationWire(wireId);
+		} else if (c == LinearCombinationBitWire.class) {
+			return new LinearCombinationBitWire(wireId);
+		} else {
+			return new Wire(wireId);
+		}
+	}
+}
@@ -299,13 +299,7 @@ public class Wire {
 	}
 
 	public Wire isLessThanOrEqual(Wire w, int bitwidth, String... desc) {
-		packIfNeeded(desc);
-		w.packIfNeeded(desc);
-		BigInteger p = new BigInteger("2").pow(bitwidth);
-		Wire pWire = generator.createConstantWire(p, desc);
-		Wire sum = pWire.add(w, desc).sub(this, desc);
-		WireArray bitWires = sum.getBitWires(bitwidth + 1, desc);
-		return bitWires.get(bitwidth);
+		return Comparisons.isGreaterThanOrEqual(new Wire[] { w }, new Wire[] { this }, bitwidth, desc)[0];
 	}
 
 	public Wire isLessThanOrEqual(long v, int bitwidth, String... desc) {
@@ -317,13 +311,8 @@ public class Wire {
 	}
 
 	public Wire isLessThan(Wire w, int bitwidth, String... desc) {
-		packIfNeeded(desc);
-		w.packIfNeeded(desc);
-		BigInteger p = new BigInteger("2").pow(bitwidth);
-		Wire pWire = generator.createConstantWire(p, desc);
-		Wire sum = pWire.add(this, desc).sub(w, desc);
-		WireArray bitWires = sum.getBitWires(bitwidth + 1, desc);
-		return bitWires.get(bitwidth).invAsBit(desc);
+		return Comparisons.isGreaterThanOrEqual(new Wire[] { this }, new Wire[] { w }, bitwidth, desc)[0]
+				.invAsBit(desc);
 	}
 
 	public Wire isLessThan(long v, int bitwidth, String... desc) {
@@ -336,13 +325,7 @@ public class Wire {
 	}
 
 	public Wire isGreaterThanOrEqual(Wire w, int bitwidth, String... desc) {
-		packIfNeeded(desc);
-		w.packIfNeeded(desc);
-		BigInteger p = new BigInteger("2").pow(bitwidth);
-		Wire pWire = generator.createConstantWire(p, desc);
-		Wire sum = pWire.add(this, desc).sub(w, desc);
-		WireArray bitWires = sum.getBitWires(bitwidth + 1, desc);
-		return bitWires.get(bitwidth);
+		return Comparisons.isGreaterThanOrEqual(new Wire[] { this }, new Wire[] { w }, bitwidth, desc)[0];
 	}
 
 	public Wire isGreaterThanOrEqual(long v, int bitwidth, String... desc) {
@@ -354,13 +337,8 @@ public class Wire {
 	}
 
 	public Wire isGreaterThan(Wire w, int bitwidth, String... desc) {
-		packIfNeeded(desc);
-		w.packIfNeeded(desc);
-		BigInteger p = new BigInteger("2").pow(bitwidth);
-		Wire pWire = generator.createConstantWire(p, desc);
-		Wire sum = pWire.add(w, desc).sub(this, desc);
-		WireArray bitWires = sum.getBitWires(bitwidth + 1, desc);
-		return bitWires.get(bitwidth).invAsBit(desc);
+		return Comparisons.isGreaterThanOrEqual(new Wire[] { w }, new Wire[] { this }, bitwidth, desc)[0]
+				.invAsBit(desc);
 	}
 
 	public Wire isGreaterThan(long v, int bitwidth, String... desc) {
@@ -4,9 +4,11 @@
 package circuit.structure;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import util.Util;
+import circuit.config.Config;
 import circuit.eval.Instruction;
 import circuit.operations.primitive.AddBasicOp;
 import circuit.operations.primitive.PackBasicOp;
@@ -83,6 +85,58 @@ public class WireArray {
 		return output;
 	}
 	
+	/**
+	 * Adds the elements modulo 2^wordBitwidth. Each element is assumed to be
+	 * a word of wordBitwidth bits, unless its bits are already known. The sum
+	 * is split once, into the exact number of bits it can reach, and the
+	 * result is a linear combination of the low bits, which are cached on it,
+	 * so that it can be used in further additions and in bitwise operations
+	 * without packing or splitting again. Elements that are only known by
+	 * their bits (e.g. the results of bitwise operations) are added as linear
+	 * combinations of their bits, without being packed.
+	 */
+	public Wire sumWords(int wordBitwidth, String...desc) {
+		BigInteger modulus = BigInteger.ONE.shiftLeft(wordBitwidth);
+		BigInteger maxValue = BigInteger.ZERO;
+		Wire[] terms = new Wire[array.length];
+		for (int i = 0; i < array.length; i++) {
+			Wire w = array[i];
+			WireArray bits = w.getBitWires();
+			if (w instanceof ConstantWire) {
+				terms[i] = generator.createConstantWire(((ConstantWire) w).getConstant().mod(modulus));
+				maxValue = maxValue.add(((ConstantWire) terms[i]).getConstant());
+			} else if (bits != null) {
+				terms[i] = w.wireId == -1 ? bits.weightedSum(desc) : w;
+				maxValue = maxValue.add(BigInteger.ONE.shiftLeft(bits.size()).subtract(BigInteger.ONE));
+			} else {
+				terms[i] = w;
+				maxValue = maxValue.add(modulus.subtract(BigInteger.ONE));
+			}
+		}
+		int sumBitwidth = Math.max(wordBitwidth, maxValue.bitLength());
+		if (sumBitwidth >= Config.LOG2_FIELD_PRIME) {
+			throw new IllegalArgumentException("The sum of the words may overflow the field: " + sumBitwidth + " bits");
+		}
+		Wire sum = new WireArray(terms).sumAllElements(desc);
+		if (sum instanceof ConstantWire) {
+			return generator.createConstantWire(((ConstantWire) sum).getConstant().mod(modulus), desc);
+		}
+		WireArray bits = sum.getBitWires(sumBitwidth, desc).adjustLength(wordBitwidth);
+		Wire result = bits.weightedSum(desc);
+		if (!(result instanceof ConstantWire)) {
+			result.setBits(bits);
+		}
+		return result;
+	}
+	
+	// the value of the bits, as a linear combination (no constraint)
+	private Wire weightedSum(String...desc) {
+		Wire[] weightedBits = new Wire[array.length];
+		for (int i = 0; i < array.length; i++) {
+			weightedBits[i] = array[i].mul(BigInteger.ONE.shiftLeft(i), desc);
+		}
+		return new WireArray(weightedBits).sumAllElements(desc);
+	}
 	
 	public WireArray addWireArray(WireArray v, int desiredLength, String...desc) {
 		Wire[] ws1 = adjustLength(array, desiredLength);
@@ -118,6 +172,70 @@ public class WireArray {
 		return new WireArray(out);
 	}
 	
+	/**
+	 * The XOR of all the bits. The constant bits are folded, and k variable
+	 * bits are XORed pairwise (k - 1 constraints) while k <= 5. Beyond that,
+	 * the bits are added, and the parity is the lowest bit of the sum, which
+	 * is split into ceil(log2(k + 1)) bits, i.e. ceil(log2(k + 1)) + 1
+	 * constraints.
+	 */
+	public Wire parity(String...desc) {
+		ArrayList<Wire> variableBits = new ArrayList<Wire>();
+		boolean constantParity = false;
+		for (Wire w : array) {
+			if (w instanceof ConstantWire) {
+				ConstantWire cw = (ConstantWire) w;
+				if (!cw.isBinary()) {
+					throw new RuntimeException("Trying to XOR a non-binary constant : " + Util.getDesc(desc));
+				}
+				constantParity ^= cw.getConstant().equals(BigInteger.ONE);
+			} else {
+				variableBits.add(w);
+			}
+		}
+		int k = variableBits.size();
+		int sumBitwidth = 32 - Integer.numberOfLeadingZeros(k);
+		Wire result;
+		if (k == 0) {
+			result = generator.zeroWire;
+		} else if (sumBitwidth + 1 < k - 1) {
+			Wire sum = new WireArray(variableBits.toArray(new Wire[k])).sumAllElements(desc);
+			result = sum.getBitWires(sumBitwidth, desc).get(0);
+		} else {
+			result = variableBits.get(0);
+			for (int i = 1; i < k; i++) {
+				result = result.xor(variableBits.get(i), desc);
+			}
+		}
+		return constantParity ? result.invAsBit(desc) : result;
+	}
+	
+	/**
+	 * The bitwise XOR of all the elements, as words of wordBitwidth bits,
+	 * with one parity() per bit position.
+	 */
+	public Wire xorWords(int wordBitwidth, String...desc) {
+		Wire[][] bits = new Wire[array.length][];
+		for (int i = 0; i < array.length; i++) {
+			bits[i] = array[i].getBitWires(wordBitwidth, desc).asArray();
+		}
+		Wire[] resultBits = new Wire[wordBitwidth];
+		for (int j = 0; j < wordBitwidth; j++) {
+			Wire[] column = new Wire[array.length];
+			for (int i = 0; i < array.length; i++) {
+				column[i] = bits[i][j];
+			}
+			resultBits[j] = new WireArray(column).parity(desc);
+		}
+		WireArray result = new WireArray(resultBits);
+		BigInteger v = result.checkIfConstantBits(desc);
+		if (v == null) {
+			return new VariableWire(result);
+		} else {
+			return generator.createConstantWire(v);
+		}
+	}
+	
 	public WireArray andWireArray(WireArray v, int desiredLength, String...desc) {
 		Wire[] ws1 = adjustLength( array, desiredLength);
 		Wire[] ws2 = adjustLength( v.array, desiredLength);
@@ -137,6 +255,59 @@ public class WireArray {
 		}
 		return new WireArray(out);
 	}
+
+	/**
+	 * Comparisons of every element with w, or of every element with the
+	 * element at the same position in v. All operands are assumed to fit in
+	 * bitwidth bits. The comparisons against constants reuse the bits of the
+	 * other operand when they are known, and the others have a split each
+	 * (see Comparisons).
+	 */
+	public WireArray isLessThan(Wire w, int bitwidth, String...desc) {
+		return isGreaterThanOrEqual(w, bitwidth, desc).invAsBits(size(), desc);
+	}
+
+	public WireArray isLessThan(WireArray v, int bitwidth, String...desc) {
+		return isGreaterThanOrEqual(v, bitwidth, desc).invAsBits(size(), desc);
+	}
+
+	public WireArray isLessThanOrEqual(Wire w, int bitwidth, String...desc) {
+		return new WireArray(Comparisons.isGreaterThanOrEqual(fill(w), array, bitwidth, desc));
+	}
+
+	public WireArray isLessThanOrEqual(WireArray v, int bitwidth, String...desc) {
+		checkSize(v);
+		return new WireArray(Comparisons.isGreaterThanOrEqual(v.array, array, bitwidth, desc));
+	}
+
+	public WireArray isGreaterThan(Wire w, int bitwidth, String...desc) {
+		return isLessThanOrEqual(w, bitwidth, desc).invAsBits(size(), desc);
+	}
+
+	public WireArray isGreaterThan(WireArray v, int bitwidth, String...desc) {
+		return isLessThanOrEqual(v, bitwidth, desc).invAsBits(size(), desc);
+	}
+
+	public WireArray isGreaterThanOrEqual(Wire w, int bitwidth, String...desc) {
+		return new WireArray(Comparisons.isGreaterThanOrEqual(array, fill(w), bitwidth, desc));
+	}
+
+	public WireArray isGreaterThanOrEqual(WireArray v, int bitwidth, String...desc) {
+		checkSize(v);
+		return new WireArray(Comparisons.isGreaterThanOrEqual(array, v.array, bitwidth, desc));
+	}
+
+	private Wire[] fill(Wire w) {
+		Wire[] ws = new Wire[array.length];
+		Arrays.fill(ws, w);
+		return ws;
+	}
+
+	private void checkSize(WireArray v) {
+		if (size() != v.size()) {
+			throw new IllegalArgumentException("Array sizes do not match: " + size() + " and " + v.size());
+		}
+	}
 	
 	
 	
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.tests;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+public class ComparisonTest extends TestCase {
+
+	private static final int BITWIDTH = 16;
+
+	@Test
+	public void testPairwise() {
+		Random rand = new Random(1);
+		final long[] xs = new long[24];
+		final long[] ys = new long[24];
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = rand.nextInt(1 << BITWIDTH);
+			ys[i] = i % 3 == 0 ? xs[i] : rand.nextInt(1 << BITWIDTH);
+		}
+		xs[1] = 0;
+		ys[2] = (1 << BITWIDTH) - 1;
+
+		CircuitGenerator batch = buildPairwise(xs, ys, true);
+		CircuitGenerator separate = buildPairwise(xs, ys, false);
+		// a split per comparison either way
+		assertEquals(separate.getNumOfConstraints(), batch.getNumOfConstraints());
+		check(batch, xs, ys);
+		check(separate, xs, ys);
+	}
+
+	@Test
+	public void testOutOfRangeOperand() {
+		// 300 does not fit in 8 bits: its comparison must fail, instead of
+		// carrying into the comparison of 199 with 200
+		final long[] xs = { 300, 199 };
+		final long[] ys = { 10, 200 };
+		CircuitGenerator generator = new CircuitGenerator("Comparison_OutOfRange") {
+
+			Wire[] xWires;
+			Wire[] yWires;
+
+			@Override
+			protected void buildCircuit() {
+				xWires = createInputWireArray(xs.length);
+				yWires = createInputWireArray(ys.length);
+				makeOutputArray(new WireArray(xWires).isGreaterThanOrEqual(new WireArray(yWires), 8).asArray());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < xs.length; i++) {
+					e.setWireValue(xWires[i], xs[i]);
+					e.setWireValue(yWires[i], ys[i]);
+				}
+			}
+		};
+		generator.generateCircuit();
+		try {
+			generator.evalCircuit();
+			fail("out of range operand accepted");
+		} catch (RuntimeException e) {
+		}
+	}
+
+	private CircuitGenerator buildPairwise(final long[] xs, final long[] ys, final boolean batch) {
+		CircuitGenerator generator = new CircuitGenerator("Comparison_Pairwise") {
+
+			Wire[] xWires;
+			Wire[] yWires;
+
+			@Override
+			protected void buildCircuit() {
+				xWires = createInputWireArray(xs.length);
+				yWires = createInputWireArray(ys.length);
+				if (batch) {
+					WireArray x = new WireArray(xWires);
+					WireArray y = new WireArray(yWires);
+					makeOutputArray(x.isLessThan(y, BITWIDTH).asArray());
+					makeOutputArray(x.isLessThanOrEqual(y, BITWIDTH).asArray());
+					makeOutputArray(x.isGreaterThan(y, BITWIDTH).asArray());
+					makeOutputArray(x.isGreaterThanOrEqual(y, BITWIDTH).asArray());
+				} else {
+					Wire[][] outputs = new Wire[4][xs.length];
+					for (int i = 0; i < xs.length; i++) {
+						outputs[0][i] = xWires[i].isLessThan(yWires[i], BITWIDTH);
+						outputs[1][i] = xWires[i].isLessThanOrEqual(yWires[i], BITWIDTH);
+						outputs[2][i] = xWires[i].isGreaterThan(yWires[i], BITWIDTH);
+						outputs[3][i] = xWires[i].isGreaterThanOrEqual(yWires[i], BITWIDTH);
+					}
+					for (Wire[] o : outputs) {
+						makeOutputArray(o);
+					}
+				}
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < xs.length; i++) {
+					e.setWireValue(xWires[i], xs[i]);
+					e.setWireValue(yWires[i], ys[i]);
+				}
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+
+	@Test
+	public void testKnownBits() {
+		// constants against a wire whose bits are known
+		final long x = 0x5A3C;
+		final long[] constants = { 0, 1, 0x5A3C, 0x5A3D, 0x5A3B, 0x8000, 0x5A00, 0xFFFF, 0x1000 };
+
+		CircuitGenerator generator = new CircuitGenerator("Comparison_KnownBits") {
+
+			Wire xWire;
+
+			@Override
+			protected void buildCircuit() {
+				xWire = createInputWire();
+				xWire.getBitWires(BITWIDTH);
+				WireArray c = new WireArray(createConstantWireArray(toBigIntegers(constants)));
+				makeOutputArray(c.isLessThan(xWire, BITWIDTH).asArray());
+				makeOutputArray(c.isLessThanOrEqual(xWire, BITWIDTH).asArray());
+				makeOutputArray(c.isGreaterThan(xWire, BITWIDTH).asArray());
+				makeOutputArray(c.isGreaterThanOrEqual(xWire, BITWIDTH).asArray());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				e.setWireValue(xWire, x);
+			}
+		};
+		generator.generateCircuit();
+		// without the split of x and the outputs: at most BITWIDTH - 1 per
+		// constant, shared by the four comparisons, instead of BITWIDTH + 2
+		// per comparison
+		int cost = generator.getNumOfConstraints() - (BITWIDTH + 1) - 4 * constants.length;
+		assertTrue(cost <= constants.length * (BITWIDTH - 1));
+		long[] xs = new long[constants.length];
+		Arrays.fill(xs, x);
+		check(generator, constants, xs);
+	}
+
+	private static void check(CircuitGenerator generator, long[] xs, long[] ys) {
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		int n = xs.length;
+		for (int i = 0; i < n; i++) {
+			assertEquals(xs[i] < ys[i] ? 1 : 0, output(generator, evaluator, i));
+			assertEquals(xs[i] <= ys[i] ? 1 : 0, output(generator, evaluator, n + i));
+			assertEquals(xs[i] > ys[i] ? 1 : 0, output(generator, evaluator, 2 * n + i));
+			assertEquals(xs[i] >= ys[i] ? 1 : 0, output(generator, evaluator, 3 * n + i));
+		}
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+	}
+
+	private static int output(CircuitGenerator generator, CircuitEvaluator evaluator, int i) {
+		return evaluator.getWireValue(generator.getOutWires().get(i)).intValue();
+	}
+
+	private static BigInteger[] toBigIntegers(long[] values) {
+		BigInteger[] result = new BigInteger[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = BigInteger.valueOf(values[i]);
+		}
+		return result;
+	}
+}
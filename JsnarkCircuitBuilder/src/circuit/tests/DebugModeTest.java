@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.Blake2bGadget;
+
+/**
+ * Checks that debug instructions never change the circuit: they are dropped in
+ * production mode, and unpacked wires are printed from their bits otherwise.
+ */
+public class DebugModeTest extends TestCase {
+
+	@Test
+	public void testUnpackedWire() {
+
+		CircuitGenerator plain = build(false, false);
+		CircuitGenerator development = build(true, false);
+		CircuitGenerator production = build(true, true);
+
+		assertEquals(plain.getNumOfConstraints(), development.getNumOfConstraints());
+		assertEquals(plain.getNumWires(), development.getNumWires());
+		assertEquals(plain.getEvaluationQueue().size() + 1, development.getEvaluationQueue().size());
+
+		assertEquals(plain.getNumOfConstraints(), production.getNumOfConstraints());
+		assertEquals(plain.getNumWires(), production.getNumWires());
+		assertEquals(plain.getEvaluationQueue().size(), production.getEvaluationQueue().size());
+
+		// the rotated value (0xA5 rotated right by 3) is printed from the bits
+		if (Config.debugVerbose) {
+			PrintStream out = System.out;
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			System.setOut(new PrintStream(buffer));
+			try {
+				development.evalCircuit();
+			} finally {
+				System.setOut(out);
+			}
+			assertTrue(buffer.toString().contains("(rotated) :: " + 0xB4));
+		}
+	}
+
+	@Test
+	public void testBlake2bGadget() {
+
+		CircuitGenerator[] generators = new CircuitGenerator[2];
+		for (int k = 0; k < 2; k++) {
+			generators[k] = new CircuitGenerator("Blake2b_Debug" + k) {
+
+				Wire[] inputWires;
+
+				@Override
+				protected void buildCircuit() {
+					inputWires = createInputWireArray(64);
+					makeOutputArray(new Blake2bGadget(inputWires, 8, 64, false, false).getOutputWires());
+				}
+
+				@Override
+				public void generateSampleInput(CircuitEvaluator e) {
+					for (int i = 0; i < inputWires.length; i++) {
+						e.setWireValue(inputWires[i], i);
+					}
+				}
+			};
+			generators[k].setProductionMode(k == 1);
+			generators[k].generateCircuit();
+		}
+		assertEquals(generators[0].getNumOfConstraints(), generators[1].getNumOfConstraints());
+		assertEquals(generators[0].getNumWires(), generators[1].getNumWires());
+	}
+
+	private CircuitGenerator build(final boolean debug, boolean productionMode) {
+		CircuitGenerator generator = new CircuitGenerator("Debug_Test") {
+
+			Wire input;
+
+			@Override
+			protected void buildCircuit() {
+				input = createInputWire();
+				// a wire that is only available as bits
+				Wire rotated = input.rotateRight(8, 3);
+				if (debug) {
+					addDebugInstruction(rotated, "rotated");
+				}
+				makeOutput(rotated.add(input));
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				e.setWireValue(input, 0xA5);
+			}
+		};
+		generator.setProductionMode(productionMode);
+		generator.generateCircuit();
+		return generator;
+	}
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.prover.BN254G1;
+import circuit.prover.PippengerMSM;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.SHA256Gadget;
+
+public class MSMTest extends TestCase {
+
+	private static final BigInteger Q = BN254G1.BASE_FIELD_PRIME;
+
+	@Test
+	public void testGroupLaw() {
+		BN254G1 curve = new BN254G1();
+		long[] g = BN254G1.toAffineArray(new BigInteger[][] { BN254G1.GENERATOR });
+
+		// r * G = infinity, and (r-1) * G = -G
+		long[] p = curve.newJacobianArray(1);
+		curve.addMixed(p, 0, g, 0);
+		BigInteger[] minusG = toAffine(scalarMul(curve, g, Config.FIELD_PRIME.subtract(BigInteger.ONE)));
+		assertEquals(BigInteger.ONE, minusG[0]);
+		assertEquals(Q.subtract(BigInteger.valueOf(2)), minusG[1]);
+		assertTrue(curve.isInfinity(scalarMul(curve, g, Config.FIELD_PRIME), 0));
+
+		// compare with affine arithmetic
+		BigInteger[] a = BN254G1.mapToCurve(BigInteger.valueOf(12345));
+		BigInteger[] b = BN254G1.mapToCurve(BigInteger.valueOf(67890));
+		long[] bases = BN254G1.toAffineArray(new BigInteger[][] { a, b });
+		long[] sum = curve.newJacobianArray(2);
+		curve.addMixed(sum, 0, bases, 0);
+		curve.addMixed(sum, 1, bases, 1);
+		curve.doubling(sum, 1);
+		curve.add(sum, 0, sum, 1);
+		BigInteger[] expected = affineAdd(a, affineAdd(b, b));
+		assertEquals(expected[0], curve.toAffine(sum, 0)[0]);
+		assertEquals(expected[1], curve.toAffine(sum, 0)[1]);
+	}
+
+	@Test
+	public void testMultiExp() {
+		int n = 300;
+		BigInteger[][] points = new BigInteger[n][];
+		BigInteger[] scalars = Util.randomBigIntegerArray(n, Config.FIELD_PRIME);
+		for (int i = 0; i < n; i++) {
+			points[i] = BN254G1.mapToCurve(BigInteger.valueOf(i * 1000));
+		}
+		// special scalars and a point at infinity
+		scalars[0] = BigInteger.ZERO;
+		scalars[1] = BigInteger.ONE;
+		scalars[2] = Config.FIELD_PRIME.subtract(BigInteger.ONE);
+		scalars[3] = Config.FIELD_PRIME.add(BigInteger.valueOf(5));
+		points[4] = null;
+
+		long[] bases = BN254G1.toAffineArray(points);
+		BigInteger[] expected = naiveMultiExp(bases, scalars);
+		BigInteger[] sequential = new PippengerMSM(false).multiExp(bases, scalars);
+		BigInteger[] parallel = new PippengerMSM(true).multiExp(bases, scalars);
+		assertEquals(expected[0], sequential[0]);
+		assertEquals(expected[1], sequential[1]);
+		assertEquals(expected[0], parallel[0]);
+		assertEquals(expected[1], parallel[1]);
+	}
+
+	@Test
+	public void testMultiExpOnWitness() {
+		CircuitGenerator generator = new CircuitGenerator("msm_test") {
+
+			Wire[] inputs;
+
+			@Override
+			protected void buildCircuit() {
+				inputs = createInputWireArray(16);
+				makeOutputArray(new SHA256Gadget(inputs, 32, 64, false, true).getOutputWires());
+				makeOutput(inputs[0].mul(inputs[1]).add(inputs[2]));
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+				for (int i = 0; i < inputs.length; i++) {
+					evaluator.setWireValue(inputs[i], 0x12345678L * (i + 1) % (1L << 32));
+				}
+			}
+		};
+		generator.generateCircuit();
+		generator.evalCircuit();
+
+		// mostly bits, so exercises the filtering of zeros and ones
+		BigInteger[] assignment = generator.getCircuitEvaluator().getAssignment();
+		BigInteger[][] points = new BigInteger[assignment.length][];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = BN254G1.mapToCurve(BigInteger.valueOf(i));
+		}
+		long[] bases = BN254G1.toAffineArray(points);
+		BigInteger[] expected = naiveMultiExp(bases, assignment);
+		BigInteger[] result = new PippengerMSM().multiExp(bases, assignment);
+		assertEquals(expected[0], result[0]);
+		assertEquals(expected[1], result[1]);
+	}
+
+	private BigInteger[] naiveMultiExp(long[] bases, BigInteger[] scalars) {
+		BN254G1 curve = new BN254G1();
+		long[] acc = curve.newJacobianArray(1);
+		for (int i = 0; i < scalars.length; i++) {
+			long[] base = new long[2 * BN254G1.getBaseField().getNumLimbs()];
+			System.arraycopy(bases, i * base.length, base, 0, base.length);
+			curve.add(acc, 0, scalarMul(curve, base, scalars[i].mod(Config.FIELD_PRIME)), 0);
+		}
+		return curve.toAffine(acc, 0);
+	}
+
+	private long[] scalarMul(BN254G1 curve, long[] base, BigInteger s) {
+		long[] p = curve.newJacobianArray(1);
+		for (int i = s.bitLength() - 1; i >= 0; i--) {
+			curve.doubling(p, 0);
+			if (s.testBit(i)) {
+				curve.addMixed(p, 0, base, 0);
+			}
+		}
+		return p;
+	}
+
+	private BigInteger[] toAffine(long[] p) {
+		return new BN254G1().toAffine(p, 0);
+	}
+
+	private BigInteger[] affineAdd(BigInteger[] a, BigInteger[] b) {
+		BigInteger lambda;
+		if (a[0].equals(b[0])) {
+			lambda = a[0].pow(2).multiply(BigInteger.valueOf(3)).multiply(a[1].shiftLeft(1).modInverse(Q));
+		} else {
+			lambda = b[1].subtract(a[1]).multiply(b[0].subtract(a[0]).modInverse(Q));
+		}
+		lambda = lambda.mod(Q);
+		BigInteger x = lambda.pow(2).subtract(a[0]).subtract(b[0]).mod(Q);
+		BigInteger y = lambda.multiply(a[0].subtract(x)).subtract(a[1]).mod(Q);
+		return new BigInteger[] { x, y };
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.tests;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import circuit.eval.CircuitEvaluator;
+import circuit.operations.MemoryCheckingGadget;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+public class MemoryCheckingTest extends TestCase {
+
+	@Test
+	public void testAccesses() {
+		int[][] configurations = { { 1, 3 }, { 5, 11 }, { 16, 16 }, { 64, 200 } };
+		for (int[] configuration : configurations) {
+			int size = configuration[0];
+			int numAccesses = configuration[1];
+			Random rand = new Random(size);
+			long[] initial = new long[size];
+			for (int i = 0; i < size; i++) {
+				initial[i] = rand.nextInt(1000);
+			}
+			long[] addresses = new long[numAccesses];
+			long[] values = new long[numAccesses];
+			boolean[] writes = new boolean[numAccesses];
+			for (int j = 0; j < numAccesses; j++) {
+				addresses[j] = rand.nextInt(size);
+				writes[j] = rand.nextBoolean();
+				values[j] = rand.nextInt(1000);
+			}
+
+			CircuitGenerator generator = build(initial, addresses, values, writes);
+			generator.evalCircuit();
+			CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+			long[] memory = initial.clone();
+			int numReads = 0;
+			for (int j = 0; j < numAccesses; j++) {
+				if (writes[j]) {
+					memory[(int) addresses[j]] = values[j];
+				} else {
+					assertEquals(BigInteger.valueOf(memory[(int) addresses[j]]),
+							evaluator.getWireValue(generator.getOutWires().get(numReads++)));
+				}
+			}
+			R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+			assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+		}
+	}
+
+	@Test
+	public void testAddressOutOfRange() {
+		CircuitGenerator generator = build(new long[] { 1, 2, 3 }, new long[] { 1, 3 }, new long[] { 5, 0 },
+				new boolean[] { true, false });
+		try {
+			generator.evalCircuit();
+			fail("address out of range accepted");
+		} catch (RuntimeException e) {
+		}
+	}
+
+	private static CircuitGenerator build(final long[] initial, final long[] addresses, final long[] values,
+			final boolean[] writes) {
+		CircuitGenerator generator = new CircuitGenerator("MemoryChecking_Test") {
+
+			Wire[] initialWires;
+			Wire[] addressWires;
+			Wire[] valueWires;
+
+			@Override
+			protected void buildCircuit() {
+				initialWires = createInputWireArray(initial.length);
+				addressWires = createProverWitnessWireArray(addresses.length);
+				valueWires = createInputWireArray(values.length);
+				MemoryCheckingGadget memory = new MemoryCheckingGadget(new WireArray(initialWires));
+				for (int j = 0; j < addresses.length; j++) {
+					if (writes[j]) {
+						memory.write(addressWires[j], valueWires[j]);
+					} else {
+						makeOutput(memory.read(addressWires[j]));
+					}
+				}
+				memory.checkAccesses();
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < initial.length; i++) {
+					e.setWireValue(initialWires[i], initial[i]);
+				}
+				for (int j = 0; j < addresses.length; j++) {
+					e.setWireValue(addressWires[j], addresses[j]);
+					e.setWireValue(valueWires[j], values[j]);
+				}
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+}
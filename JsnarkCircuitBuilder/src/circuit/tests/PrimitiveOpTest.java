@@ -76,6 +76,141 @@ public class PrimitiveOpTest extends TestCase {
 
 	}
 
+	@Test
+	public void testWordAddition() {
+
+		int numIns = 5;
+		final BigInteger[] inVals = Util.randomBigIntegerArray(numIns, 32);
+		final BigInteger constant = new BigInteger("100000005", 16);
+		BigInteger mask = BigInteger.ONE.shiftLeft(32).subtract(BigInteger.ONE);
+
+		BigInteger s = constant;
+		for (int i = 0; i < numIns; i++) {
+			s = s.add(inVals[i]);
+		}
+		BigInteger sum1 = s.and(mask);
+		BigInteger rotated = BigInteger.valueOf(Integer.rotateRight(sum1.intValue(), 7) & 0x00000000ffffffffL);
+		BigInteger sum2 = sum1.add(rotated).and(mask);
+
+		CircuitGenerator generator = new CircuitGenerator("word_addition") {
+			Wire[] inputs;
+
+			@Override
+			protected void buildCircuit() {
+				inputs = createInputWireArray(numIns);
+				Wire[] words = new Wire[numIns + 1];
+				System.arraycopy(inputs, 0, words, 0, numIns);
+				words[numIns] = createConstantWire(constant);
+
+				// 5 * (2^32 - 1) + 5 fits in 35 bits
+				Wire result1 = new WireArray(words).sumWords(32);
+				// the bits of result1 are reused, and the rotated word is
+				// added without being packed. The sum fits in 33 bits.
+				Wire result2 = new WireArray(new Wire[] { result1, result1.rotateRight(32, 7) }).sumWords(32);
+				Wire result3 = new WireArray(new Wire[] { createConstantWire(200), createConstantWire(100) })
+						.sumWords(8);
+
+				makeOutput(result1);
+				makeOutput(result2);
+				makeOutput(result3);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+				evaluator.setWireValue(inputs, inVals);
+			}
+		};
+		generator.generateCircuit();
+		CircuitEvaluator evaluator = new CircuitEvaluator(generator);
+		generator.generateSampleInput(evaluator);
+		evaluator.evaluate();
+
+		ArrayList<Wire> outWires = generator.getOutWires();
+		assertEquals(sum1, evaluator.getWireValue(outWires.get(0)));
+		assertEquals(sum2, evaluator.getWireValue(outWires.get(1)));
+		assertEquals(BigInteger.valueOf(44), evaluator.getWireValue(outWires.get(2)));
+		// one split of 35 bits and one of 33 bits, plus one constraint per
+		// output
+		assertEquals(36 + 34 + 3, generator.getNumOfConstraints());
+	}
+
+	@Test
+	public void testParity() {
+
+		for (int k = 1; k <= 12; k++) {
+			final int numIns = k;
+			final BigInteger[] inVals = Util.randomBigIntegerArray(numIns, 1);
+			int parity = 1;
+			for (int i = 0; i < numIns; i++) {
+				parity ^= inVals[i].intValue();
+			}
+
+			CircuitGenerator generator = new CircuitGenerator("parity") {
+				Wire[] inputs;
+
+				@Override
+				protected void buildCircuit() {
+					inputs = createInputWireArray(numIns);
+					Wire[] bits = new Wire[numIns + 2];
+					System.arraycopy(inputs, 0, bits, 0, numIns);
+					bits[numIns] = getOneWire();
+					bits[numIns + 1] = getZeroWire();
+					makeOutput(new WireArray(bits).parity());
+				}
+
+				@Override
+				public void generateSampleInput(CircuitEvaluator evaluator) {
+					evaluator.setWireValue(inputs, inVals);
+				}
+			};
+			generator.generateCircuit();
+			CircuitEvaluator evaluator = new CircuitEvaluator(generator);
+			generator.generateSampleInput(evaluator);
+			evaluator.evaluate();
+
+			assertEquals(BigInteger.valueOf(parity), evaluator.getWireValue(generator.getOutWires().get(0)));
+			// pairwise XORs up to 5 bits, then a split of the sum, plus the
+			// output (the constant 1 inverts the result)
+			int sumBitwidth = 32 - Integer.numberOfLeadingZeros(k);
+			assertEquals(Math.min(k - 1, sumBitwidth + 1) + 1, generator.getNumOfConstraints());
+		}
+	}
+
+	@Test
+	public void testWordXor() {
+
+		final int numIns = 7;
+		final BigInteger[] inVals = Util.randomBigIntegerArray(numIns, 16);
+		BigInteger expected = BigInteger.ZERO;
+		for (int i = 0; i < numIns; i++) {
+			expected = expected.xor(inVals[i]);
+		}
+
+		CircuitGenerator generator = new CircuitGenerator("word_xor") {
+			Wire[] inputs;
+
+			@Override
+			protected void buildCircuit() {
+				inputs = createInputWireArray(numIns);
+				makeOutput(new WireArray(inputs).xorWords(16));
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+				evaluator.setWireValue(inputs, inVals);
+			}
+		};
+		generator.generateCircuit();
+		CircuitEvaluator evaluator = new CircuitEvaluator(generator);
+		generator.generateSampleInput(evaluator);
+		evaluator.evaluate();
+
+		assertEquals(expected, evaluator.getWireValue(generator.getOutWires().get(0)));
+		// the splits of the inputs, a split of 3 bits per position instead of
+		// 6 XORs, and the packing of the output
+		assertEquals(numIns * 17 + 16 * 4 + 1, generator.getNumOfConstraints());
+	}
+
 	@Test
 	public void testMultiplication() {
 
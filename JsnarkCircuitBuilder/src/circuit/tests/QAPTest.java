@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.prover.MontgomeryField;
+import circuit.prover.NumberTheoreticTransform;
+import circuit.prover.QAPWitnessMap;
+import circuit.r1cs.R1CSConstraint;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.r1cs.R1CSOptimizer;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+import examples.gadgets.SHA256Gadget;
+
+public class QAPTest extends TestCase {
+
+	@Test
+	public void testFieldArithmetic() {
+		MontgomeryField field = new MontgomeryField(Config.FIELD_PRIME);
+		BigInteger p = Config.FIELD_PRIME;
+		BigInteger[] xs = Util.randomBigIntegerArray(200, p);
+		BigInteger[] ys = Util.randomBigIntegerArray(200, p);
+		// include boundary values
+		xs[0] = p.subtract(BigInteger.ONE);
+		ys[0] = p.subtract(BigInteger.ONE);
+		xs[1] = BigInteger.ZERO;
+
+		for (int i = 0; i < xs.length; i++) {
+			long[] x = field.toMontgomery(xs[i]);
+			long[] y = field.toMontgomery(ys[i]);
+			assertEquals(xs[i].multiply(ys[i]).mod(p), field.fromMontgomery(field.mul(x, y)));
+			assertEquals(xs[i].add(ys[i]).mod(p), field.fromMontgomery(field.add(x, y)));
+			assertEquals(xs[i].subtract(ys[i]).mod(p), field.fromMontgomery(field.sub(x, y)));
+		}
+	}
+
+	@Test
+	public void testNTT() {
+		MontgomeryField field = new MontgomeryField(Config.FIELD_PRIME);
+		BigInteger p = Config.FIELD_PRIME;
+		int size = 16;
+		NumberTheoreticTransform ntt = new NumberTheoreticTransform(field, size);
+		BigInteger[] coeffs = Util.randomBigIntegerArray(size, p);
+		long[] a = field.toMontgomery(coeffs);
+
+		// compare against direct evaluation on the coset
+		ntt.cosetNtt(a);
+		BigInteger g = field.fromMontgomery(ntt.getCosetGenerator());
+		BigInteger omega = findRootOfUnity(g, size, field, ntt);
+		for (int i = 0; i < size; i++) {
+			BigInteger x = g.multiply(omega.modPow(BigInteger.valueOf(i), p)).mod(p);
+			assertEquals(evaluate(coeffs, x), field.fromMontgomery(a, i));
+		}
+
+		ntt.cosetIntt(a);
+		for (int i = 0; i < size; i++) {
+			assertEquals(coeffs[i], field.fromMontgomery(a, i));
+		}
+
+		// large enough to exercise the parallel butterflies
+		size = 1 << 13;
+		ntt = new NumberTheoreticTransform(field, size);
+		coeffs = Util.randomBigIntegerArray(size, p);
+		a = field.toMontgomery(coeffs);
+		ntt.ntt(a);
+		ntt.intt(a);
+		for (int i = 0; i < size; i++) {
+			assertEquals(coeffs[i], field.fromMontgomery(a, i));
+		}
+	}
+
+	@Test
+	public void testR1CSAndWitnessMap() {
+
+		CircuitGenerator generator = new CircuitGenerator("r1cs_test") {
+
+			Wire[] inputs;
+			Wire witness;
+
+			@Override
+			protected void buildCircuit() {
+				inputs = createInputWireArray(4);
+				witness = createProverWitnessWire();
+				Wire r1 = inputs[0].mul(inputs[1]).add(inputs[2].mul(5));
+				Wire r2 = inputs[2].xorBitwise(inputs[3], 32);
+				Wire r3 = r2.add(r1).trimBits(64, 32);
+				Wire r4 = inputs[0].isEqualTo(inputs[1]);
+				Wire r5 = r3.orBitwise(witness, 32);
+				addEqualityAssertion(witness.mul(2), inputs[2].add(inputs[2]));
+				makeOutput(r3);
+				makeOutput(r4);
+				makeOutput(r5);
+				Wire[] digest = new SHA256Gadget(inputs, 32, 16, false, true).getOutputWires();
+				makeOutputArray(new WireArray(digest).packWordsIntoLargerWords(32, 8));
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+				evaluator.setWireValue(inputs[0], 123456);
+				evaluator.setWireValue(inputs[1], 0);
+				evaluator.setWireValue(inputs[2], 99999);
+				evaluator.setWireValue(inputs[3], 0xFFFFFFFFL);
+				evaluator.setWireValue(witness, 99999);
+			}
+		};
+
+		generator.generateCircuit();
+		generator.evalCircuit();
+
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertEquals(generator.getNumOfConstraints(), cs.getNumConstraints());
+
+		BigInteger[] z = cs.getVariableAssignment(generator.getCircuitEvaluator());
+		assertTrue(cs.isSatisfied(z));
+
+		// a wrong assignment should be detected
+		BigInteger[] wrongZ = z.clone();
+		int outVar = cs.getVariable(generator.getOutWires().get(0));
+		wrongZ[outVar] = wrongZ[outVar].add(BigInteger.ONE);
+		assertFalse(cs.isSatisfied(wrongZ));
+
+		// check A(t)B(t) - C(t) = H(t)Z(t) at a random point t, evaluating the
+		// QAP polynomials directly through Lagrange interpolation
+		QAPWitnessMap witnessMap = new QAPWitnessMap(cs);
+		BigInteger[] h = witnessMap.computeH(z);
+		int n = witnessMap.getDomainSize();
+		BigInteger p = Config.FIELD_PRIME;
+		BigInteger t = Util.nextRandomBigInteger(p);
+
+		MontgomeryField field = witnessMap.getField();
+		NumberTheoreticTransform ntt = new NumberTheoreticTransform(field, n);
+		BigInteger g = field.fromMontgomery(ntt.getCosetGenerator());
+		BigInteger omega = findRootOfUnity(g, n, field, ntt);
+
+		BigInteger[] rowsA = new BigInteger[n];
+		BigInteger[] rowsB = new BigInteger[n];
+		BigInteger[] rowsC = new BigInteger[n];
+		for (int i = 0; i < n; i++) {
+			rowsA[i] = rowsB[i] = rowsC[i] = BigInteger.ZERO;
+		}
+		int m = cs.getNumConstraints();
+		for (int i = 0; i < m; i++) {
+			R1CSConstraint c = cs.getConstraints().get(i);
+			rowsA[i] = c.getA().evaluate(z);
+			rowsB[i] = c.getB().evaluate(z);
+			rowsC[i] = c.getC().evaluate(z);
+		}
+		for (int i = 0; i <= cs.getNumPrimaryInputs(); i++) {
+			rowsA[m + i] = z[i];
+		}
+
+		BigInteger zt = t.modPow(BigInteger.valueOf(n), p).subtract(BigInteger.ONE).mod(p);
+		BigInteger at = interpolateAt(rowsA, omega, t, zt);
+		BigInteger bt = interpolateAt(rowsB, omega, t, zt);
+		BigInteger ct = interpolateAt(rowsC, omega, t, zt);
+		BigInteger left = at.multiply(bt).subtract(ct).mod(p);
+		assertEquals(left, evaluate(h, t).multiply(zt).mod(p));
+	}
+
+	@Test
+	public void testR1CSOptimizer() {
+
+		CircuitGenerator generator = new CircuitGenerator("r1cs_optimizer_test") {
+
+			Wire[] inputs;
+			Wire[] witnesses;
+
+			@Override
+			protected void buildCircuit() {
+				inputs = createInputWireArray(2);
+				witnesses = createProverWitnessWireArray(2);
+				// packed bits and equality assertions give linear constraints
+				Wire sum = inputs[0].xorBitwise(witnesses[0], 32).add(inputs[1]);
+				Wire packed = new WireArray(sum.getBitWires(40).asArray()).packAsBits(40);
+				addEqualityAssertion(packed.mul(3), witnesses[1]);
+				makeOutput(packed.mul(packed));
+				Wire[] digest = new SHA256Gadget(inputs, 32, 8, false, true).getOutputWires();
+				makeOutputArray(digest);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+				evaluator.setWireValue(inputs[0], 0x12345678L);
+				evaluator.setWireValue(inputs[1], 0xFFFFFFFFL);
+				evaluator.setWireValue(witnesses[0], 0x0F0F0F0FL);
+				BigInteger sum = BigInteger.valueOf((0x12345678L ^ 0x0F0F0F0FL) + 0xFFFFFFFFL);
+				evaluator.setWireValue(witnesses[1], sum.multiply(BigInteger.valueOf(3)));
+			}
+		};
+
+		generator.generateCircuit();
+		generator.evalCircuit();
+
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		R1CSConstraintSystem optimized = new R1CSOptimizer().optimize(cs);
+		assertTrue(optimized.getNumConstraints() < cs.getNumConstraints());
+		assertTrue(optimized.getNumVariables() < cs.getNumVariables());
+		assertEquals(cs.getNumPrimaryInputs(), optimized.getNumPrimaryInputs());
+		assertEquals(cs.getNumWitnesses(), optimized.getNumWitnesses());
+
+		// inputs, outputs and witnesses keep their indices
+		for (Wire w : generator.getInWires()) {
+			assertEquals(cs.getVariable(w), optimized.getVariable(w));
+		}
+		for (Wire w : generator.getOutWires()) {
+			assertEquals(cs.getVariable(w), optimized.getVariable(w));
+		}
+		for (Wire w : generator.getProverWitnessWires()) {
+			assertEquals(cs.getVariable(w), optimized.getVariable(w));
+		}
+
+		BigInteger[] z = optimized.getVariableAssignment(generator.getCircuitEvaluator());
+		assertTrue(optimized.isSatisfied(z));
+		BigInteger[] wrongZ = z.clone();
+		int witnessVar = optimized.getVariable(generator.getProverWitnessWires().get(1));
+		wrongZ[witnessVar] = wrongZ[witnessVar].add(BigInteger.ONE);
+		assertFalse(optimized.isSatisfied(wrongZ));
+
+		QAPWitnessMap witnessMap = new QAPWitnessMap(optimized);
+		assertEquals(witnessMap.getDomainSize() - 1, witnessMap.computeH(z).length);
+	}
+
+	// Recovers the generator of the domain used by the transform by
+	// transforming the polynomial x.
+	private BigInteger findRootOfUnity(BigInteger g, int size, MontgomeryField field, NumberTheoreticTransform ntt) {
+		BigInteger[] x = new BigInteger[size];
+		for (int i = 0; i < size; i++) {
+			x[i] = BigInteger.ZERO;
+		}
+		x[1] = BigInteger.ONE;
+		long[] a = field.toMontgomery(x);
+		ntt.ntt(a);
+		return field.fromMontgomery(a, 1);
+	}
+
+	private BigInteger evaluate(BigInteger[] coeffs, BigInteger x) {
+		BigInteger result = BigInteger.ZERO;
+		for (int i = coeffs.length - 1; i >= 0; i--) {
+			result = result.multiply(x).add(coeffs[i]).mod(Config.FIELD_PRIME);
+		}
+		return result;
+	}
+
+	// L_i(t) = Z(t) * omega^i / (n * (t - omega^i))
+	private BigInteger interpolateAt(BigInteger[] values, BigInteger omega, BigInteger t, BigInteger zt) {
+		BigInteger p = Config.FIELD_PRIME;
+		BigInteger nInv = BigInteger.valueOf(values.length).modInverse(p);
+		BigInteger sum = BigInteger.ZERO;
+		BigInteger omegaI = BigInteger.ONE;
+		for (int i = 0; i < values.length; i++) {
+			BigInteger li = zt.multiply(omegaI).multiply(nInv).multiply(t.subtract(omegaI).modInverse(p)).mod(p);
+			sum = sum.add(values[i].multiply(li)).mod(p);
+			omegaI = omegaI.multiply(omega).mod(p);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package circuit.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.RangeCheckAggregator;
+import circuit.structure.Wire;
+
+public class RangeCheckTest extends TestCase {
+
+	@Test
+	public void testAggregation() {
+		CircuitGenerator generator = build(new long[] { 31, 1, 3, 63 });
+		RangeCheckAggregator rangeChecks = generator.getRangeChecks();
+
+		// x: merged into one 5-bit split (6), y: binary (1), z: 2-bit
+		// polynomial (2), the constant: none, v: the 6-bit split done anyway
+		// for its bits (7)
+		assertEquals(16, generator.getNumOfConstraints());
+		assertEquals(6, rangeChecks.getNumRequested());
+		assertEquals(9 + 6 + 2 + 3 + 7, rangeChecks.getSeparateCost());
+		assertEquals(9, rangeChecks.getCost());
+		assertEquals(18, rangeChecks.getSavings());
+
+		CircuitEvaluator evaluator = new CircuitEvaluator(generator);
+		generator.generateSampleInput(evaluator);
+		evaluator.evaluate();
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+	}
+
+	@Test
+	public void testOutOfRange() {
+		long[][] invalidInputs = { { 32, 1, 3, 63 }, { 31, 2, 3, 63 }, { 31, 1, 4, 63 } };
+		for (long[] inputs : invalidInputs) {
+			CircuitGenerator generator = build(inputs);
+			CircuitEvaluator evaluator = new CircuitEvaluator(generator);
+			generator.generateSampleInput(evaluator);
+			try {
+				evaluator.evaluate();
+				fail("out-of-range value accepted: " + inputs[0] + ", " + inputs[1] + ", " + inputs[2]);
+			} catch (RuntimeException e) {
+			}
+		}
+	}
+
+	@Test
+	public void testUnpackedWires() {
+		// x and y are only available as bits, and have no wire id yet
+		CircuitGenerator generator = buildUnpacked(new long[] { 0x0F0F, 0x0F00, 0x00F0, 0x00F5 });
+		assertEquals(2, generator.getRangeChecks().getNumRequested());
+		assertEquals(2 * 6, generator.getRangeChecks().getCost());
+		CircuitEvaluator evaluator = new CircuitEvaluator(generator);
+		generator.generateSampleInput(evaluator);
+		evaluator.evaluate();
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+
+		long[][] invalidInputs = { { 0xFF0F, 0x0F00, 0x00F0, 0x00F5 }, { 0x0F0F, 0x0F00, 0xFF00, 0x0000 } };
+		for (long[] inputs : invalidInputs) {
+			generator = buildUnpacked(inputs);
+			evaluator = new CircuitEvaluator(generator);
+			generator.generateSampleInput(evaluator);
+			try {
+				evaluator.evaluate();
+				fail("out-of-range value accepted: " + (inputs[0] ^ inputs[1]) + ", " + (inputs[2] ^ inputs[3]));
+			} catch (RuntimeException e) {
+			}
+		}
+	}
+
+	private CircuitGenerator buildUnpacked(final long[] values) {
+		CircuitGenerator generator = new CircuitGenerator("RangeCheckUnpacked_Test") {
+
+			Wire[] inputWires;
+
+			@Override
+			protected void buildCircuit() {
+				inputWires = createProverWitnessWireArray(4);
+				Wire x = inputWires[0].xorBitwise(inputWires[1], 16);
+				Wire y = inputWires[2].xorBitwise(inputWires[3], 16);
+				addRangeCheck(x, 4);
+				addRangeCheck(y, 4);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < 4; i++) {
+					e.setWireValue(inputWires[i], values[i]);
+				}
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+
+	private CircuitGenerator build(final long[] values) {
+		CircuitGenerator generator = new CircuitGenerator("RangeCheck_Test") {
+
+			Wire[] inputWires;
+
+			@Override
+			protected void buildCircuit() {
+				inputWires = createProverWitnessWireArray(4);
+				Wire x = inputWires[0];
+				Wire v = inputWires[3];
+				addRangeCheck(x, 8);
+				addRangeCheck(x, 5);
+				addRangeCheck(inputWires[1], 1);
+				addRangeCheck(inputWires[2], 2);
+				addRangeCheck(createConstantWire(5), 3);
+				addRangeCheck(v, 6);
+				// bits requested after the check
+				v.getBitWires(6);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < 4; i++) {
+					e.setWireValue(inputWires[i], values[i]);
+				}
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+}
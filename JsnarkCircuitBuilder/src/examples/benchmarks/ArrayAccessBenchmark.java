@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.benchmarks;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+import examples.gadgets.ArrayAccessGadget;
+
+/**
+ * Compares a read at a secret index done by a scan (isEqualTo() and a
+ * multiplication per entry) with ArrayAccessGadget, for arrays of variables
+ * and tables of constants of growing sizes.
+ *
+ * Usage: ArrayAccessBenchmark [maxSize]
+ */
+public class ArrayAccessBenchmark {
+
+	public static void main(String[] args) {
+
+		int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 16384;
+
+		// warm up
+		build(false, false, 64);
+		build(true, false, 64);
+
+		for (int n = 16; n <= maxSize; n *= 4) {
+			System.out.println("Array size: " + n);
+			report("Scan (variables)", false, false, n);
+			report("ArrayAccessGadget (variables)", true, false, n);
+			report("Scan (constants)", false, true, n);
+			report("ArrayAccessGadget (constants)", true, true, n);
+		}
+	}
+
+	private static void report(String name, boolean gadget, boolean constant, int n) {
+		long start = System.nanoTime();
+		CircuitGenerator generator = build(gadget, constant, n);
+		long buildTime = System.nanoTime() - start;
+		System.out.println("\t" + name + ": constraints = " + generator.getNumOfConstraints()
+				+ ", build time (ms) = " + buildTime / 1000000);
+	}
+
+	private static CircuitGenerator build(final boolean gadget, final boolean constant, final int n) {
+		CircuitGenerator generator = new CircuitGenerator("array_access_" + n) {
+
+			@Override
+			protected void buildCircuit() {
+				Wire[] array = constant ? createConstantWireArray(Util.randomBigIntegerArray(n, 64))
+						: createInputWireArray(n);
+				Wire index = createProverWitnessWire();
+				Wire result;
+				if (gadget) {
+					result = new ArrayAccessGadget(new WireArray(array), index).getOutputWires()[0];
+				} else {
+					result = getZeroWire();
+					for (int i = 0; i < n; i++) {
+						result = result.add(index.isEqualTo(i).mul(array[i]));
+					}
+				}
+				makeOutput(result);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.benchmarks;
+
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.Blake2bGadget;
+import examples.gadgets.Blake2bLimbGadget;
+
+/**
+ * Compares Blake2bGadget and Blake2bLimbGadget side by side: constraints, wires,
+ * R1CS variables and circuit build time, for messages of 64 and 128 bytes
+ * (after the constant key block, this is one 128-byte block that depends on
+ * the input).
+ */
+public class Blake2bBenchmark {
+
+	public static void main(String[] args) {
+
+		// warm up
+		build(false, 64);
+		build(true, 64);
+
+		for (int numBytes : new int[] { 64, 128 }) {
+			System.out.println("Message bytes: " + numBytes);
+			report("Blake2bGadget", false, numBytes);
+			report("Blake2bLimbGadget", true, numBytes);
+		}
+	}
+
+	private static void report(String name, boolean limb, int numBytes) {
+		long start = System.nanoTime();
+		CircuitGenerator generator = build(limb, numBytes);
+		long buildTime = System.nanoTime() - start;
+		generator.evalCircuit();
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		System.out.println("\t" + name + ": constraints = " + generator.getNumOfConstraints() + ", wires = "
+				+ generator.getNumWires() + ", R1CS variables = " + cs.getNumVariables() + ", build time (ms) = "
+				+ buildTime / 1000000);
+	}
+
+	private static CircuitGenerator build(final boolean limb, final int numBytes) {
+		CircuitGenerator generator = new CircuitGenerator("blake2b_" + (limb ? "limb_" : "") + numBytes) {
+
+			Wire[] inputWires;
+
+			@Override
+			protected void buildCircuit() {
+				inputWires = createInputWireArray(numBytes);
+				Wire[] digest = limb ? new Blake2bLimbGadget(inputWires, 8, numBytes, false, false).getOutputWires()
+						: new Blake2bGadget(inputWires, 8, numBytes, false, false).getOutputWires();
+				makeOutputArray(digest);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+				for (int i = 0; i < numBytes; i++) {
+					evaluator.setWireValue(inputWires[i], i % 256);
+				}
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.benchmarks;
+
+import java.math.BigInteger;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+import examples.gadgets.ArrayAccessGadget;
+import examples.gadgets.LookupTableGadget;
+
+/**
+ * Reports the constraints per lookup in a table of constants (including the
+ * split of the index) with LookupTableGadget, ArrayAccessGadget and a scan
+ * with isEqualTo(), for tables of 2^k entries, e.g. 4-bit and 8-bit S-boxes.
+ *
+ * Usage: LookupTableBenchmark [maxBitwidth]
+ */
+public class LookupTableBenchmark {
+
+	private static final int NUM_LOOKUPS = 16;
+
+	public static void main(String[] args) {
+
+		int maxBitwidth = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+
+		for (int k = 2; k <= maxBitwidth; k += 2) {
+			BigInteger[] table = Util.randomBigIntegerArray(1 << k, 64);
+			System.out.println("Table size: " + (1 << k));
+			report("LookupTableGadget", 0, table);
+			report("ArrayAccessGadget", 1, table);
+			report("Scan", 2, table);
+		}
+	}
+
+	private static void report(String name, int method, BigInteger[] table) {
+		CircuitGenerator generator = build(method, table);
+		System.out.println("\t" + name + ": constraints per lookup = "
+				+ (double) generator.getNumOfConstraints() / NUM_LOOKUPS);
+	}
+
+	private static CircuitGenerator build(final int method, final BigInteger[] table) {
+		CircuitGenerator generator = new CircuitGenerator("lookup_table_" + table.length) {
+
+			@Override
+			protected void buildCircuit() {
+				Wire[] entries = createConstantWireArray(table);
+				for (int i = 0; i < NUM_LOOKUPS; i++) {
+					Wire index = createProverWitnessWire();
+					Wire result;
+					if (method == 0) {
+						result = new LookupTableGadget(table, index).getOutputWires()[0];
+					} else if (method == 1) {
+						result = new ArrayAccessGadget(new WireArray(entries), index).getOutputWires()[0];
+					} else {
+						result = getZeroWire();
+						for (int j = 0; j < table.length; j++) {
+							result = result.add(index.isEqualTo(j).mul(entries[j]));
+						}
+					}
+					makeOutput(result);
+				}
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.benchmarks;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import util.Util;
+import circuit.config.Config;
+import circuit.prover.BN254G1;
+import circuit.prover.PippengerMSM;
+
+/**
+ * Measures the throughput of the Java multi-scalar multiplication over BN254
+ * G1, for input sizes 2^10 up to 2^maxLog, with random full-size scalars.
+ *
+ * Usage: MSMBenchmark [maxLog]
+ */
+public class MSMBenchmark {
+
+	public static void main(String[] args) {
+
+		int maxLog = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int maxSize = 1 << maxLog;
+
+		BigInteger[][] points = new BigInteger[maxSize][];
+		for (int i = 0; i < maxSize; i++) {
+			points[i] = BN254G1.mapToCurve(BigInteger.valueOf(i));
+		}
+		long[] allBases = BN254G1.toAffineArray(points);
+		BigInteger[] allScalars = Util.randomBigIntegerArray(maxSize, Config.FIELD_PRIME);
+		int pointLength = allBases.length / maxSize;
+
+		PippengerMSM sequential = new PippengerMSM(false);
+		PippengerMSM parallel = new PippengerMSM(true);
+		// warm up
+		sequential.multiExp(Arrays.copyOf(allBases, 1024 * pointLength),
+				Arrays.copyOf(allScalars, 1024));
+
+		for (int log = 10; log <= maxLog; log++) {
+			int size = 1 << log;
+			long[] bases = Arrays.copyOf(allBases, size * pointLength);
+			BigInteger[] scalars = Arrays.copyOf(allScalars, size);
+
+			long start = System.nanoTime();
+			sequential.multiExp(bases, scalars);
+			long sequentialTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			parallel.multiExp(bases, scalars);
+			long parallelTime = System.nanoTime() - start;
+
+			System.out.println("Size 2^" + log + ":");
+			System.out.println("\t1 thread (ms): " + sequentialTime / 1000000 + ", points/s: "
+					+ (long) (size / (sequentialTime / 1e9)));
+			System.out.println("\t" + Runtime.getRuntime().availableProcessors() + " cores (ms): "
+					+ parallelTime / 1000000 + ", points/s: " + (long) (size / (parallelTime / 1e9)));
+		}
+	}
+}
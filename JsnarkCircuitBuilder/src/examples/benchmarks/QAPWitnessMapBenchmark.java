@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.benchmarks;
+
+import java.io.File;
+import java.math.BigInteger;
+
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.prover.QAPWitnessMap;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.SHA256Gadget;
+
+/**
+ * Measures the time to compute the QAP quotient polynomial H in Java, for a
+ * growing number of SHA-256 compressions. If the libsnark executable is
+ * available, the native prover is also run on the same circuit for comparison
+ * (its output reports the time of each proving stage).
+ *
+ * Usage: QAPWitnessMapBenchmark [numCircuitCopies] [runNative]
+ */
+public class QAPWitnessMapBenchmark {
+
+	public static void main(String[] args) {
+
+		int copies = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		boolean runNative = args.length > 1 && args[1].equals("1");
+
+		for (int c = 1; c <= copies; c *= 2) {
+			final int numCopies = c;
+			CircuitGenerator generator = new CircuitGenerator("sha_256_x" + numCopies) {
+
+				Wire[][] inputWires = new Wire[numCopies][];
+
+				@Override
+				protected void buildCircuit() {
+					for (int i = 0; i < numCopies; i++) {
+						inputWires[i] = createInputWireArray(64);
+						Wire[] digest = new SHA256Gadget(inputWires[i], 8, 64, false, false).getOutputWires();
+						makeOutputArray(digest, "digest " + i);
+					}
+				}
+
+				@Override
+				public void generateSampleInput(CircuitEvaluator evaluator) {
+					for (int i = 0; i < numCopies; i++) {
+						for (int j = 0; j < 64; j++) {
+							evaluator.setWireValue(inputWires[i][j], (i + j) % 256);
+						}
+					}
+				}
+			};
+			generator.generateCircuit();
+			generator.evalCircuit();
+
+			long start = System.nanoTime();
+			R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+			BigInteger[] z = cs.getVariableAssignment(generator.getCircuitEvaluator());
+			long exportTime = System.nanoTime() - start;
+
+			QAPWitnessMap sequential = new QAPWitnessMap(cs, false);
+			QAPWitnessMap parallel = new QAPWitnessMap(cs, true);
+			// warm up
+			sequential.computeH(z);
+			parallel.computeH(z);
+
+			start = System.nanoTime();
+			sequential.computeHInMontgomeryForm(z);
+			long sequentialTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			parallel.computeHInMontgomeryForm(z);
+			long parallelTime = System.nanoTime() - start;
+
+			System.out.println("Constraints: " + cs.getNumConstraints() + ", Variables: " + cs.getNumVariables()
+					+ ", Domain size: " + parallel.getDomainSize());
+			System.out.println("\tR1CS export + assignment (ms): " + exportTime / 1000000);
+			System.out.println("\tH computation, 1 thread (ms): " + sequentialTime / 1000000);
+			System.out.println("\tH computation, " + Runtime.getRuntime().availableProcessors() + " cores (ms): "
+					+ parallelTime / 1000000);
+
+			if (runNative && new File(Config.LIBSNARK_EXEC).exists()) {
+				generator.prepFiles();
+				start = System.nanoTime();
+				generator.runLibsnark();
+				System.out.println("\tNative run (setup + prove + verify) (ms): " + (System.nanoTime() - start) / 1000000);
+			}
+		}
+	}
+}
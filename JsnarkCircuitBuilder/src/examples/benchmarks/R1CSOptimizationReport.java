@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.benchmarks;
+
+import java.math.BigInteger;
+
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.r1cs.R1CSOptimizer;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.ModGadget;
+import examples.generators.Blake2bCircuitGenerator;
+import examples.generators.DotProductCircuitGenerator;
+import examples.generators.EncryptionCircuitGenerator;
+import examples.generators.FieldDivisionCircuitGenerator;
+import examples.generators.MerkleTreeMembershipCircuitGenerator;
+import examples.generators.SHA2CircuitGenerator;
+
+/**
+ * Reports the number of R1CS variables and constraints before and after
+ * linear-constraint elimination (R1CSOptimizer), for a circuit built around
+ * each of the example gadgets.
+ */
+public class R1CSOptimizationReport {
+
+	public static void main(String[] args) {
+
+		report("SHA-256 (1 block)", new SHA2CircuitGenerator("sha_256"));
+		report("Blake2b (1 block)", new Blake2bCircuitGenerator("blake2b"));
+		report("Merkle path, subset sum (height 4)", new MerkleTreeMembershipCircuitGenerator("tree_4", 4));
+		report("DH + Speck128 CBC (16 words)", new EncryptionCircuitGenerator("enc", 16, "speck128"));
+		report("Field division (100)", new FieldDivisionCircuitGenerator("field_div", 100));
+		report("Dot product (100)", new DotProductCircuitGenerator("dot_product", 100));
+		report("Mod (64 bits)", new CircuitGenerator("mod") {
+
+			Wire[] inputs;
+
+			@Override
+			protected void buildCircuit() {
+				inputs = createInputWireArray(2);
+				makeOutput(new ModGadget(inputs[0], inputs[1], 64).getOutputWires()[0]);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+				evaluator.setWireValue(inputs[0], new BigInteger("1234567890123456789"));
+				evaluator.setWireValue(inputs[1], new BigInteger("987654321"));
+			}
+		});
+	}
+
+	private static void report(String name, CircuitGenerator generator) {
+		generator.generateCircuit();
+		generator.evalCircuit();
+
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		long start = System.nanoTime();
+		R1CSConstraintSystem optimized = new R1CSOptimizer().optimize(cs);
+		long time = System.nanoTime() - start;
+		boolean satisfied = optimized.isSatisfied(optimized.getVariableAssignment(generator.getCircuitEvaluator()));
+
+		System.out.println(name + ":");
+		System.out.println("\tVariables: " + cs.getNumVariables() + " -> " + optimized.getNumVariables() + " ("
+				+ percentage(cs.getNumVariables(), optimized.getNumVariables()) + ")");
+		System.out.println("\tConstraints: " + cs.getNumConstraints() + " -> " + optimized.getNumConstraints() + " ("
+				+ percentage(cs.getNumConstraints(), optimized.getNumConstraints()) + ")");
+		System.out.println("\tOptimization time (ms): " + time / 1000000 + ", satisfied: " + satisfied);
+	}
+
+	private static String percentage(int before, int after) {
+		return String.format("-%.1f%%", 100.0 * (before - after) / before);
+	}
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.benchmarks;
+
+import circuit.eval.CircuitEvaluator;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.SHA256BatchGadget;
+import examples.gadgets.SHA256Gadget;
+
+/**
+ * Compares the circuit build time of a SHA256Gadget per message with a single
+ * SHA256BatchGadget, for a growing number of messages (eight 64-bit words per
+ * message, as in the commitments of AugmentedAuctionCircuitGenerator).
+ *
+ * Usage: SHA256BatchBenchmark [maxNumMessages]
+ */
+public class SHA256BatchBenchmark {
+
+	public static void main(String[] args) {
+
+		int maxMessages = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+
+		// warm up
+		build(false, 8);
+		build(true, 8);
+
+		for (int n = 16; n <= maxMessages; n *= 2) {
+			System.out.println("Messages: " + n);
+			report("SHA256Gadget", false, n);
+			report("SHA256BatchGadget", true, n);
+		}
+	}
+
+	private static void report(String name, boolean batch, int numMessages) {
+		long start = System.nanoTime();
+		CircuitGenerator generator = build(batch, numMessages);
+		long buildTime = System.nanoTime() - start;
+		System.out.println("\t" + name + ": constraints = " + generator.getNumOfConstraints() + ", wires = "
+				+ generator.getNumWires() + ", build time (ms) = " + buildTime / 1000000);
+	}
+
+	private static CircuitGenerator build(final boolean batch, final int numMessages) {
+		CircuitGenerator generator = new CircuitGenerator("sha_256_" + (batch ? "batch_" : "") + numMessages) {
+
+			@Override
+			protected void buildCircuit() {
+				Wire[][] messages = new Wire[numMessages][];
+				for (int i = 0; i < numMessages; i++) {
+					messages[i] = createProverWitnessWireArray(8);
+				}
+				if (batch) {
+					makeOutputArray(new SHA256BatchGadget(messages, 64, 64, false, false).getOutputWires());
+				} else {
+					for (int i = 0; i < numMessages; i++) {
+						makeOutputArray(new SHA256Gadget(messages[i], 64, 64, false, false).getOutputWires());
+					}
+				}
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.benchmarks;
+
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.SHA256Gadget;
+import examples.gadgets.SHA256LimbGadget;
+
+/**
+ * Compares SHA256Gadget and SHA256LimbGadget side by side: constraints, wires,
+ * R1CS variables and circuit build time, for a growing number of blocks
+ * (padded byte inputs, 32-bit word outputs).
+ *
+ * Usage: SHA256Benchmark [maxNumBlocks]
+ */
+public class SHA256Benchmark {
+
+	public static void main(String[] args) {
+
+		int maxBlocks = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+
+		// warm up
+		build(false, 1);
+		build(true, 1);
+
+		for (int blocks = 1; blocks <= maxBlocks; blocks *= 2) {
+			System.out.println("Blocks: " + blocks);
+			report("SHA256Gadget", false, blocks);
+			report("SHA256LimbGadget", true, blocks);
+		}
+	}
+
+	private static void report(String name, boolean limb, int numBlocks) {
+		long start = System.nanoTime();
+		CircuitGenerator generator = build(limb, numBlocks);
+		long buildTime = System.nanoTime() - start;
+		generator.evalCircuit();
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		System.out.println("\t" + name + ": constraints = " + generator.getNumOfConstraints() + ", wires = "
+				+ generator.getNumWires() + ", R1CS variables = " + cs.getNumVariables() + ", build time (ms) = "
+				+ buildTime / 1000000);
+	}
+
+	private static CircuitGenerator build(final boolean limb, int numBlocks) {
+		// the largest message that fits in the given number of blocks after
+		// padding
+		final int numBytes = numBlocks * 64 - 9;
+		CircuitGenerator generator = new CircuitGenerator("sha_256_" + (limb ? "limb_" : "") + numBlocks) {
+
+			Wire[] inputWires;
+
+			@Override
+			protected void buildCircuit() {
+				inputWires = createInputWireArray(numBytes);
+				Wire[] digest = limb ? new SHA256LimbGadget(inputWires, 8, numBytes, false, true).getOutputWires()
+						: new SHA256Gadget(inputWires, 8, numBytes, false, true).getOutputWires();
+				makeOutputArray(digest);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+				for (int i = 0; i < numBytes; i++) {
+					evaluator.setWireValue(inputWires[i], i % 256);
+				}
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.benchmarks;
+
+import circuit.eval.CircuitEvaluator;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.encrypt.SymmetricEncryptionCBCGadget;
+import examples.gadgets.encrypt.SymmetricEncryptionCTRGadget;
+
+/**
+ * Compares the build and evaluation times of Speck128 encryption in the CBC
+ * mode (sequential) and in the CTR mode (blocks cloned and evaluated in
+ * parallel), for a growing number of 128-bit blocks.
+ *
+ * Usage: SymmetricEncryptionBenchmark [maxNumBlocks]
+ */
+public class SymmetricEncryptionBenchmark {
+
+	public static void main(String[] args) {
+
+		int maxBlocks = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+
+		// warm up
+		run(false, 8);
+		run(true, 8);
+
+		for (int n = 32; n <= maxBlocks; n *= 2) {
+			System.out.println("Blocks: " + n);
+			report("CBC", false, n);
+			report("CTR", true, n);
+		}
+	}
+
+	private static void report(String name, boolean ctr, int numBlocks) {
+		long[] times = run(ctr, numBlocks);
+		System.out.println("\t" + name + ": build time (ms) = " + times[0] / 1000000 + ", evaluation time (ms) = "
+				+ times[1] / 1000000);
+	}
+
+	private static long[] run(final boolean ctr, final int numBlocks) {
+		CircuitGenerator generator = new CircuitGenerator("speck_" + (ctr ? "ctr_" : "cbc_") + numBlocks) {
+
+			Wire[] plaintext;
+			Wire[] key;
+			Wire[] iv;
+
+			@Override
+			protected void buildCircuit() {
+				plaintext = createInputWireArray(numBlocks * 128);
+				key = createInputWireArray(128);
+				iv = createInputWireArray(128);
+				if (ctr) {
+					makeOutputArray(new SymmetricEncryptionCTRGadget(plaintext, key, iv, "speck128").getOutputWires());
+				} else {
+					makeOutputArray(new SymmetricEncryptionCBCGadget(plaintext, key, iv, "speck128").getOutputWires());
+				}
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+				for (int i = 0; i < plaintext.length; i++) {
+					evaluator.setWireValue(plaintext[i], i % 3 == 0 ? 1 : 0);
+				}
+				for (int i = 0; i < 128; i++) {
+					evaluator.setWireValue(key[i], i % 2);
+					evaluator.setWireValue(iv[i], i % 5 == 0 ? 1 : 0);
+				}
+			}
+		};
+		long start = System.nanoTime();
+		generator.generateCircuit();
+		long buildTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		generator.evalCircuit();
+		long evalTime = System.nanoTime() - start;
+		return new long[] { buildTime, evalTime };
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import circuit.operations.Gadget;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+/**
+ * Reads array[index] or writes array[index] = value, where the index is a
+ * wire. The array is laid out as a grid of rows of 2^(t/2) elements, for a
+ * t-bit index: the low bits of the index select the column and the high
+ * bits select the row, and each selector is built from the bits with one
+ * constraint per entry, i.e. O(sqrt(n)) for both.
+ *
+ * A read sums the entries of every row weighted by the column selector, then
+ * weights the rows by the row selector. Constant entries are free in the
+ * first step, so reading a table of constants costs O(sqrt(n)). A variable
+ * entry needs one constraint, as the value is a bilinear function of the
+ * selector and the entries, so a read costs n + O(sqrt(n)) instead of the
+ * 3n of a scan with isEqualTo(). A write costs two constraints per entry.
+ *
+ * The index is checked to be less than the array size.
+ */
+public class ArrayAccessGadget extends Gadget {
+
+	private Wire[] array;
+	private Wire index;
+	private Wire value;
+	private Wire[] outputs;
+
+	/**
+	 * Reads array[index].
+	 */
+	public ArrayAccessGadget(WireArray array, Wire index, String... desc) {
+		this(array, index, null, desc);
+	}
+
+	/**
+	 * Writes value at array[index], and outputs the new array. If value is
+	 * null, reads array[index] instead.
+	 */
+	public ArrayAccessGadget(WireArray array, Wire index, Wire value, String... desc) {
+		super(desc);
+		if (array.size() == 0) {
+			throw new IllegalArgumentException("Empty array");
+		}
+		this.array = array.asArray();
+		this.index = index;
+		this.value = value;
+		buildCircuit();
+	}
+
+	private void buildCircuit() {
+
+		int n = array.length;
+		int indexBitwidth = 32 - Integer.numberOfLeadingZeros(n - 1);
+		int columnBitwidth = indexBitwidth / 2;
+		int numColumns = 1 << columnBitwidth;
+		int numRows = (n + numColumns - 1) / numColumns;
+
+		Wire[] indexBits;
+		if (indexBitwidth == 0) {
+			generator.addZeroAssertion(index);
+			indexBits = new Wire[0];
+		} else {
+			indexBits = index.getBitWires(indexBitwidth).asArray();
+			if (n < 1 << indexBitwidth) {
+				generator.addOneAssertion(index.isLessThanOrEqual(n - 1, indexBitwidth));
+			}
+		}
+		Wire[] columnSelector = getSelector(Arrays.copyOfRange(indexBits, 0, columnBitwidth), numColumns);
+		Wire[] rowSelector = getSelector(Arrays.copyOfRange(indexBits, columnBitwidth, indexBitwidth), numRows);
+
+		if (value == null) {
+			Wire[] rowTerms = new Wire[numRows];
+			for (int r = 0; r < numRows; r++) {
+				ArrayList<Wire> terms = new ArrayList<Wire>();
+				for (int c = 0; c < numColumns && r * numColumns + c < n; c++) {
+					terms.add(columnSelector[c].mul(array[r * numColumns + c]));
+				}
+				Wire rowValue = new WireArray(terms.toArray(new Wire[0])).sumAllElements();
+				rowTerms[r] = rowSelector[r].mul(rowValue);
+			}
+			outputs = new Wire[] { new WireArray(rowTerms).sumAllElements() };
+		} else {
+			outputs = new Wire[n];
+			for (int j = 0; j < n; j++) {
+				Wire selector = rowSelector[j / numColumns].mul(columnSelector[j % numColumns]);
+				outputs[j] = array[j].add(selector.mul(value.sub(array[j])));
+			}
+		}
+	}
+
+	/**
+	 * Returns the first size entries of [value(bits) == j], with one
+	 * constraint per entry (beyond the first two).
+	 */
+	private Wire[] getSelector(Wire[] bits, int size) {
+		Wire[] selector = { generator.getOneWire() };
+		for (int l = 0; l < bits.length; l++) {
+			int length = selector.length;
+			Wire[] next = new Wire[Math.min(2 * length, size)];
+			for (int j = 0; j < length && j < next.length; j++) {
+				if (j + length < next.length) {
+					Wire product = selector[j].mul(bits[l]);
+					next[j] = selector[j].sub(product);
+					next[j + length] = product;
+				} else {
+					next[j] = selector[j].mul(bits[l].invAsBit());
+				}
+			}
+			selector = next;
+		}
+		return selector;
+	}
+
+	/**
+	 * For a read: the value. For a write: the new array.
+	 */
+	@Override
+	public Wire[] getOutputWires() {
+		return outputs;
+	}
+}
@@ -84,8 +84,8 @@ public class Blake2bGadget extends Gadget {
 		Wire[] keyWireBytes = keyWire.getBitWires(KeyLenInBytes * 8).packBitsIntoWords(8);
 		for (int i = 0; i < KeyLenInBytes; i++) {
 			key_chunk[i] = keyWireBytes[KeyLenInBytes- 1 - i];
-			generator.addDebugInstruction(key_chunk[i], "key_chunk"+i);
 		}
+		generator.addDebugInstruction(Arrays.copyOf(key_chunk, KeyLenInBytes), "key_chunk");
 		//compress(hWires, key_chunk, 0, false);
 
 		//Each time we Compress we record how many bytes have been compressed
@@ -165,9 +165,7 @@ public class Blake2bGadget extends Gadget {
 		}
 
 	    //WireArray chunkArray = new WireArray(chunk);
-		for (int i = 0; i < 16; i++) {
-			generator.addDebugInstruction(chunk[i], "chunk"+i);
-		}
+		generator.addDebugInstruction(Arrays.copyOf(chunk, 16), "chunk");
 		Wire[] m = new Wire[16];
 		Arrays.fill(m, generator.getZeroWire());
 		for (int i = 0; i < 16; i++) {
@@ -175,12 +173,8 @@ public class Blake2bGadget extends Gadget {
 				m[i] = m[i].shiftLeft(64, 8).add(chunk[i * 8 + 8 - 1 - j]).trimBits(65, 64);
 			}
 		}
-		for  (int i = 0; i < 16; i++) {
-			generator.addDebugInstruction(m[i], "m"+i);
-		}
-		for (int i = 0; i < 16; i++) {
-			generator.addDebugInstruction(v[i], "v"+i);
-		}
+		generator.addDebugInstruction(m, "m");
+		generator.addDebugInstruction(v, "v");
 
 
 		for (int i = 0; i < 12; i++) {
@@ -196,27 +190,25 @@ public class Blake2bGadget extends Gadget {
 			mix(v, 3, 4, 9, 14, m, s[14], s[15]);
 		}
 
-		for (int i = 0; i < 16; i++) {
-			generator.addDebugInstruction(v[i], "v"+i);
-		}
+		generator.addDebugInstruction(v, "v");
 
 		for (int i = 0; i < 8; i++) {
-			h[i] = h[i].xorBitwise(v[i], 64).xorBitwise(v[i + 8], 64);
-			generator.addDebugInstruction(h[i], "h"+i);
+			h[i] = new WireArray(new Wire[] { h[i], v[i], v[i + 8] }).xorWords(64);
 		}
+		generator.addDebugInstruction(h, "h");
 	}
 
 	private void mix(Wire[] v, int a, int b, int c, int d, Wire[] m, int x, int y) {
-		v[a] = v[a].add(v[b]).add(m[x]).trimBits(66, 64);
+		v[a] = new WireArray(new Wire[] { v[a], v[b], m[x] }).sumWords(64);
 		v[d] = v[d].xorBitwise(v[a], 64).rotateRight(64, 32);
 
-		v[c] = v[c].add(v[d]).trimBits(65, 64);
+		v[c] = new WireArray(new Wire[] { v[c], v[d] }).sumWords(64);
 		v[b] = v[b].xorBitwise(v[c], 64).rotateRight(64, 24);
 
-		v[a] = v[a].add(v[b]).add(m[y]).trimBits(66, 64);
+		v[a] = new WireArray(new Wire[] { v[a], v[b], m[y] }).sumWords(64);
 		v[d] = v[d].xorBitwise(v[a], 64).rotateRight(64, 16);
 
-		v[c] = v[c].add(v[d]).trimBits(65, 64);
+		v[c] = new WireArray(new Wire[] { v[c], v[d] }).sumWords(64);
 		v[b] = v[b].xorBitwise(v[c], 64).rotateRight(64, 63);
 	}
 
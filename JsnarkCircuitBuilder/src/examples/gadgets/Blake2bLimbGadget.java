@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import circuit.operations.Gadget;
+import circuit.structure.ConstantWire;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+/**
+ * A variant of Blake2bGadget (same interface and outputs) that requires fewer
+ * constraints per block. Each 64-bit state word is kept in the form the next
+ * step needs, instead of being packed after every step and split again:
+ * - The result of xor and rotation stays as bits; rotations only reorder them,
+ * and the bits are packed only when the word is added.
+ * - A sum is a linear combination, reduced by a single split when its bits are
+ * needed by the next xor. The reduced word is derived linearly from that
+ * split, and is not packed again.
+ * - Each message word is a single linear combination of its eight bytes,
+ * instead of eight shift/add/trim rounds.
+ *
+ * As in Blake2bGadget, the input elements are expected to be bytes.
+ */
+public class Blake2bLimbGadget extends Gadget {
+
+	private static final BigInteger WORD_MAX = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+	private static final BigInteger[] H = { new BigInteger("6a09e667f3bcc908", 16),
+			new BigInteger("bb67ae8584caa73b", 16), new BigInteger("3c6ef372fe94f82b", 16),
+			new BigInteger("a54ff53a5f1d36f1", 16), new BigInteger("510e527fade682d1", 16),
+			new BigInteger("9b05688c2b3e6c1f", 16), new BigInteger("1f83d9abfb41bd6b", 16),
+			new BigInteger("5be0cd19137e2179", 16) };
+
+	private static final int SIGMA[][] = { { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15 },
+			{ 14, 10, 4, 8, 9, 15, 13, 6, 1, 12, 0, 2, 11, 7, 5, 3 },
+			{ 11, 8, 12, 0, 5, 2, 15, 13, 10, 14, 3, 6, 7, 1, 9, 4 },
+			{ 7, 9, 3, 1, 13, 12, 11, 14, 2, 6, 5, 10, 4, 0, 15, 8 },
+			{ 9, 0, 5, 7, 2, 4, 10, 15, 14, 1, 11, 12, 6, 8, 3, 13 },
+			{ 2, 12, 6, 10, 0, 11, 8, 3, 4, 13, 7, 5, 15, 14, 1, 9 },
+			{ 12, 5, 1, 15, 14, 13, 4, 10, 0, 7, 6, 3, 9, 2, 8, 11 },
+			{ 13, 11, 7, 14, 12, 1, 3, 9, 5, 0, 15, 4, 8, 6, 2, 10 },
+			{ 6, 15, 14, 9, 11, 3, 0, 8, 12, 2, 13, 7, 1, 4, 10, 5 },
+			{ 10, 2, 8, 4, 7, 6, 1, 5, 15, 11, 9, 14, 3, 12, 13, 0 } };
+
+	// the key of blake2b in zcash "ZcashComputehSig"
+	private static final BigInteger Key = new BigInteger("5a63617368436f6d7075746568536967", 16);
+	private static final int KeyLenInBytes = 16;
+	private static final BigInteger finalFlags = WORD_MAX;
+	// for blake2b-256
+	private static final int OutputLengthInBytes = 32;
+
+	private Wire[] unpaddedInputs;
+	private int totalLengthInBytes;
+
+	private Wire[] output;
+
+	public Blake2bLimbGadget(Wire[] ins, int bitWidthPerInputElement, int totalLengthInBytes, boolean binaryOutput,
+			boolean paddingRequired, String... desc) {
+
+		super(desc);
+		if (totalLengthInBytes * 8 > ins.length * bitWidthPerInputElement
+				|| totalLengthInBytes * 8 < (ins.length - 1) * bitWidthPerInputElement) {
+			throw new IllegalArgumentException("Inconsistent Length Information");
+		}
+
+		this.unpaddedInputs = ins;
+		this.totalLengthInBytes = totalLengthInBytes;
+
+		buildCircuit();
+	}
+
+	/**
+	 * A word whose value is below max + 1, given by a dense form (a linear
+	 * combination that may exceed 64 bits), or by its 64 bits, or both. The
+	 * dense form of a word given by bits is only packed when the word is added.
+	 */
+	private static class Word {
+		Wire dense;
+		BigInteger max;
+		Wire[] bits;
+
+		Word(Wire dense, BigInteger max, Wire[] bits) {
+			this.dense = dense;
+			this.max = max;
+			this.bits = bits;
+		}
+	}
+
+	protected void buildCircuit() {
+
+		Word[] h = new Word[8];
+		for (int i = 0; i < 8; i++) {
+			h[i] = constantWord(H[i]);
+		}
+
+		// h0 = h0 xor 0x0101kknn, where kk is the key length and nn is the
+		// digest length (in bytes)
+		long param = 0x0101 * 0x10000 + KeyLenInBytes * 0x100 + OutputLengthInBytes;
+		h[0] = constantWord(H[0].xor(BigInteger.valueOf(param)));
+
+		// the key, padded with zeros to 128 bytes, is prepended to the message
+		Wire[] keyBytes = generator.createConstantWire(Key).getBitWires(KeyLenInBytes * 8).packBitsIntoWords(8);
+		int totalLength = totalLengthInBytes + 128;
+		int numChunks = (totalLength + 127) / 128;
+		Wire[] preparedInput = new Wire[numChunks * 128];
+		Arrays.fill(preparedInput, generator.getZeroWire());
+		for (int i = 0; i < KeyLenInBytes; i++) {
+			preparedInput[i] = keyBytes[KeyLenInBytes - 1 - i];
+		}
+		System.arraycopy(unpaddedInputs, 0, preparedInput, 128, totalLengthInBytes);
+
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			boolean isLastChunk = chunk == numChunks - 1;
+			long bytesCompressed = isLastChunk ? totalLength : (chunk + 1) * 128L;
+			compress(h, Arrays.copyOfRange(preparedInput, chunk * 128, (chunk + 1) * 128), bytesCompressed,
+					isLastChunk);
+		}
+
+		// first bytes of the little endian state vector
+		output = new Wire[OutputLengthInBytes];
+		for (int i = 0; i < OutputLengthInBytes / 8; i++) {
+			Wire[] bytes = new WireArray(getBits(h[i])).packBitsIntoWords(8);
+			System.arraycopy(bytes, 0, output, i * 8, 8);
+		}
+	}
+
+	private void compress(Word[] h, Wire[] chunk, long t, boolean isLastChunk) {
+
+		Word[] v = new Word[16];
+		System.arraycopy(h, 0, v, 0, 8);
+		for (int i = 8; i < 16; i++) {
+			v[i] = constantWord(H[i - 8]);
+		}
+		// the counter is below 2^64 here, so its high word is zero
+		v[12] = constantWord(H[4].xor(BigInteger.valueOf(t)));
+		if (isLastChunk) {
+			v[14] = constantWord(H[6].xor(finalFlags));
+		}
+
+		// each message word is a linear combination of its little endian
+		// bytes
+		Word[] m = new Word[16];
+		for (int i = 0; i < 16; i++) {
+			WordSum sum = new WordSum();
+			for (int j = 0; j < 8; j++) {
+				sum.addByte(chunk[i * 8 + j], 8 * j);
+			}
+			m[i] = sum.toWord();
+		}
+
+		for (int i = 0; i < 12; i++) {
+			int[] s = SIGMA[i % 10];
+			mix(v, 0, 4, 8, 12, m[s[0]], m[s[1]]);
+			mix(v, 1, 5, 9, 13, m[s[2]], m[s[3]]);
+			mix(v, 2, 6, 10, 14, m[s[4]], m[s[5]]);
+			mix(v, 3, 7, 11, 15, m[s[6]], m[s[7]]);
+
+			mix(v, 0, 5, 10, 15, m[s[8]], m[s[9]]);
+			mix(v, 1, 6, 11, 12, m[s[10]], m[s[11]]);
+			mix(v, 2, 7, 8, 13, m[s[12]], m[s[13]]);
+			mix(v, 3, 4, 9, 14, m[s[14]], m[s[15]]);
+		}
+
+		for (int i = 0; i < 8; i++) {
+			Wire[] bits = new Wire[64];
+			Wire[] x = getBits(h[i]);
+			Wire[] y = getBits(v[i]);
+			Wire[] z = getBits(v[i + 8]);
+			for (int j = 0; j < 64; j++) {
+				bits[j] = x[j].xor(y[j]).xor(z[j]);
+			}
+			h[i] = new Word(null, WORD_MAX, bits);
+		}
+	}
+
+	private void mix(Word[] v, int a, int b, int c, int d, Word x, Word y) {
+		v[a] = new WordSum().add(v[a]).add(v[b]).add(x).toWord();
+		v[d] = xorRotate(v[d], v[a], 32);
+
+		v[c] = new WordSum().add(v[c]).add(v[d]).toWord();
+		v[b] = xorRotate(v[b], v[c], 24);
+
+		v[a] = new WordSum().add(v[a]).add(v[b]).add(y).toWord();
+		v[d] = xorRotate(v[d], v[a], 16);
+
+		v[c] = new WordSum().add(v[c]).add(v[d]).toWord();
+		v[b] = xorRotate(v[b], v[c], 63);
+	}
+
+	/**
+	 * Returns (x xor y) rotated right by s bits, as bits.
+	 */
+	private Word xorRotate(Word x, Word y, int s) {
+		Wire[] xBits = getBits(x);
+		Wire[] yBits = getBits(y);
+		Wire[] result = new Wire[64];
+		for (int i = 0; i < 64; i++) {
+			int j = (i + s) % 64;
+			result[i] = xBits[j].xor(yBits[j]);
+		}
+		return new Word(null, WORD_MAX, result);
+	}
+
+	private Word constantWord(BigInteger v) {
+		Wire constant = generator.createConstantWire(v);
+		return new Word(constant, WORD_MAX, constant.getBitWires(64).asArray());
+	}
+
+	/**
+	 * Returns the bits of the word, reducing it modulo 2^64 first if needed.
+	 * The reduction splits the dense form once, over the width of its upper
+	 * bound, and subtracts the overflow bits linearly.
+	 */
+	private Wire[] getBits(Word word) {
+		if (word.bits != null) {
+			return word.bits;
+		}
+		if (word.dense instanceof ConstantWire) {
+			BigInteger v = ((ConstantWire) word.dense).getConstant().and(WORD_MAX);
+			word.dense = generator.createConstantWire(v);
+			word.bits = word.dense.getBitWires(64).asArray();
+		} else if (word.max.bitLength() <= 64) {
+			word.bits = word.dense.getBitWires(64).asArray();
+		} else {
+			int width = word.max.bitLength();
+			Wire[] allBits = word.dense.getBitWires(width).asArray();
+			word.bits = Arrays.copyOf(allBits, 64);
+			WordSum overflow = new WordSum();
+			overflow.addBits(Arrays.copyOfRange(allBits, 64, width));
+			word.dense = word.dense.sub(overflow.getWire().mul(BigInteger.ONE.shiftLeft(64)));
+		}
+		word.max = WORD_MAX;
+		return word.bits;
+	}
+
+	/**
+	 * Accumulates the terms of a sum of words, and an upper bound of its
+	 * value. The sum is a single linear combination.
+	 */
+	private class WordSum {
+		ArrayList<Wire> terms = new ArrayList<Wire>();
+		BigInteger max = BigInteger.ZERO;
+
+		WordSum add(Word word) {
+			if (word.dense == null) {
+				// a single pack, instead of a term per bit
+				word.dense = new WireArray(word.bits).packAsBits();
+			}
+			terms.add(word.dense);
+			max = max.add(word.max);
+			return this;
+		}
+
+		WordSum addBits(Wire[] bits) {
+			for (int i = 0; i < bits.length; i++) {
+				addTerm(bits[i], i);
+			}
+			max = max.add(BigInteger.ONE.shiftLeft(bits.length).subtract(BigInteger.ONE));
+			return this;
+		}
+
+		WordSum addByte(Wire b, int shift) {
+			addTerm(b, shift);
+			max = max.add(BigInteger.valueOf(255).shiftLeft(shift));
+			return this;
+		}
+
+		private void addTerm(Wire w, int shift) {
+			if (w instanceof ConstantWire && ((ConstantWire) w).getConstant().signum() == 0) {
+				return;
+			}
+			terms.add(w.mul(BigInteger.ONE.shiftLeft(shift)));
+		}
+
+		Wire getWire() {
+			if (terms.isEmpty()) {
+				return generator.getZeroWire();
+			} else if (terms.size() == 1) {
+				return terms.get(0);
+			}
+			return new WireArray(terms.toArray(new Wire[0])).sumAllElements();
+		}
+
+		Word toWord() {
+			return new Word(getWire(), max, null);
+		}
+	}
+
+	/**
+	 * outputs digest as bytes
+	 */
+	@Override
+	public Wire[] getOutputWires() {
+		return output;
+	}
+}
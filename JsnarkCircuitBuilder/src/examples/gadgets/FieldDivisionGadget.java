@@ -4,6 +4,7 @@
 package examples.gadgets;
 
 import java.math.BigInteger;
+import java.util.function.Consumer;
 
 import circuit.config.Config;
 import circuit.eval.CircuitEvaluator;
@@ -29,11 +30,16 @@ public class FieldDivisionGadget extends Gadget {
 		c = generator.createProverWitnessWire(debugStr("division result"));
 		generator.specifyProverWitnessComputation(new Instruction() {
 			@Override
-			public void evaluate(CircuitEvaluator evaluator) {
-				BigInteger aValue = evaluator.getWireValue(a);
+			public void evaluate(final CircuitEvaluator evaluator) {
+				final BigInteger aValue = evaluator.getWireValue(a);
 				BigInteger bValue = evaluator.getWireValue(b);
-				BigInteger cValue = aValue.multiply(bValue.modInverse(Config.FIELD_PRIME)).mod(Config.FIELD_PRIME);
-				evaluator.setWireValue(c, cValue);
+				// batched with the other pending inversions
+				evaluator.invertLater(bValue, new Consumer<BigInteger>() {
+					@Override
+					public void accept(BigInteger bInverse) {
+						evaluator.setWireValue(c, aValue.multiply(bInverse).mod(Config.FIELD_PRIME));
+					}
+				});
 			}
 
 		});
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import java.math.BigInteger;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.eval.Instruction;
+import circuit.operations.Gadget;
+import circuit.structure.LongElement;
+import circuit.structure.Wire;
+
+/**
+ * This gadget provides the remainder of a % m, where a and m are long
+ * elements (e.g. a product of two 2048-bit integers and an RSA modulus).
+ * The quotient and the remainder are provided by the prover, range checked,
+ * and a = q * m + r is checked on the limbs.
+ *
+ * If restrictRange is set, r < m is also enforced, otherwise r is only
+ * known to fit in modulusBitwidth bits.
+ */
+public class LongIntegerModGadget extends Gadget {
+
+	private LongElement a;
+	private LongElement m;
+	private LongElement r;
+	private LongElement q;
+
+	private int modulusBitwidth;
+	private int quotientBitwidth;
+	private boolean restrictRange;
+
+	/**
+	 * Assumes that m has exactly modulusBitwidth bits, which bounds the
+	 * quotient.
+	 */
+	public LongIntegerModGadget(LongElement a, LongElement m, int modulusBitwidth, boolean restrictRange,
+			String... desc) {
+		this(a, m, modulusBitwidth, Math.max(1, a.getMaxBitwidth() - modulusBitwidth + 1), restrictRange, desc);
+	}
+
+	public LongIntegerModGadget(LongElement a, LongElement m, int modulusBitwidth, int quotientBitwidth,
+			boolean restrictRange, String... desc) {
+		super(desc);
+		this.a = a;
+		this.m = m;
+		this.modulusBitwidth = modulusBitwidth;
+		this.quotientBitwidth = quotientBitwidth;
+		this.restrictRange = restrictRange;
+		buildCircuit();
+	}
+
+	private void buildCircuit() {
+
+		final int limbBitwidth = a.getLimbBitwidth();
+		final Wire[] rWires = generator.createProverWitnessWireArray(
+				(modulusBitwidth + limbBitwidth - 1) / limbBitwidth, "mod result");
+		final Wire[] qWires = generator.createProverWitnessWireArray(
+				(quotientBitwidth + limbBitwidth - 1) / limbBitwidth, "division result");
+
+		generator.specifyProverWitnessComputation(new Instruction() {
+			@Override
+			public void evaluate(CircuitEvaluator evaluator) {
+				BigInteger aValue = a.getValue(evaluator);
+				BigInteger mValue = m.getValue(evaluator);
+				BigInteger[] rValues = Util.split(aValue.mod(mValue), rWires.length, limbBitwidth);
+				BigInteger[] qValues = Util.split(aValue.divide(mValue), qWires.length, limbBitwidth);
+				for (int i = 0; i < rWires.length; i++) {
+					evaluator.setWireValue(rWires[i], rValues[i]);
+				}
+				for (int i = 0; i < qWires.length; i++) {
+					evaluator.setWireValue(qWires[i], qValues[i]);
+				}
+			}
+		});
+
+		r = new LongElement(rWires, limbBitwidth);
+		q = new LongElement(qWires, limbBitwidth);
+		r.restrictBitwidth();
+		q.restrictBitwidth();
+		q.mul(m).add(r).assertEquality(a);
+
+		if (restrictRange) {
+			// r + s + 1 = m for some non-negative s
+			final Wire[] sWires = generator.createProverWitnessWireArray(rWires.length);
+			generator.specifyProverWitnessComputation(new Instruction() {
+				@Override
+				public void evaluate(CircuitEvaluator evaluator) {
+					BigInteger sValue = m.getValue(evaluator).subtract(r.getValue(evaluator))
+							.subtract(BigInteger.ONE);
+					BigInteger[] sValues = Util.split(sValue, sWires.length, limbBitwidth);
+					for (int i = 0; i < sWires.length; i++) {
+						evaluator.setWireValue(sWires[i], sValues[i]);
+					}
+				}
+			});
+			LongElement s = new LongElement(sWires, limbBitwidth);
+			s.restrictBitwidth();
+			r.add(s).add(new LongElement(BigInteger.ONE, limbBitwidth)).assertEquality(m);
+		}
+	}
+
+	public LongElement getRemainder() {
+		return r;
+	}
+
+	public LongElement getQuotient() {
+		return q;
+	}
+
+	@Override
+	public Wire[] getOutputWires() {
+		return r.getLimbs();
+	}
+
+}
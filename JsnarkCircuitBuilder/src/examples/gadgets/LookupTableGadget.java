@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import circuit.config.Config;
+import circuit.operations.Gadget;
+import circuit.structure.ConstantWire;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+/**
+ * Looks up a table of 2^k constants at a k-bit index, e.g. for S-boxes and
+ * byte-wise functions.
+ *
+ * The entry is the multilinear polynomial of the index bits that takes the
+ * values of the table. Its coefficients are computed once per table array
+ * and kept in the gadget memo of the generator, so the array should not be
+ * modified afterwards. The index bits are divided into l low bits and h high
+ * bits, and the polynomial is evaluated as a sum over the products of high
+ * bits, each multiplied by a linear combination of the products of low bits
+ * (free, as the coefficients are constants). This costs 2^l - l - 1 and
+ * 2^h - h - 1 products of bits, and 2^h - 1 products with the combinations.
+ * The split minimizes the total: h = 0 (the plain polynomial) for up to 4
+ * entries, and about k / 2 for larger tables, i.e. O(sqrt(n)) for n entries:
+ * 5 constraints for 16 entries, 37 for 256 and 177 for 4096, plus the split
+ * of the index.
+ *
+ * The entries can also be tuples, e.g. points of a curve or elements of a
+ * field extension, with one output per component. The products of bits are
+ * shared by the components, and only the products with the combinations are
+ * paid for each of them. Tables of wires (e.g. the first multiples of a
+ * variable point) use the plain polynomial, whose coefficients are then wires
+ * as well: each non-zero one costs a product.
+ *
+ * The products of bits are cached by the generator, so lookups of the same
+ * index in other tables only pay for the 2^h - 1 last products.
+ */
+public class LookupTableGadget extends Gadget {
+
+	private Wire[] indexBits;
+	private Wire[] output;
+
+	/**
+	 * @param table
+	 *            2^k constants
+	 * @param index
+	 *            A wire, split into k bits (which checks that it is less
+	 *            than the table size).
+	 */
+	public LookupTableGadget(BigInteger[] table, Wire index, String... desc) {
+		this(table, index.getBitWires(getBitwidth(table.length), desc).asArray(), desc);
+	}
+
+	/**
+	 * @param indexBits
+	 *            The k bits of the index, least significant first.
+	 */
+	public LookupTableGadget(BigInteger[] table, Wire[] indexBits, String... desc) {
+		this(table, toEntries(table), indexBits, desc);
+	}
+
+	/**
+	 * @param table
+	 *            2^k tuples of constants of the same length: table[v] is the
+	 *            entry at v.
+	 * @param indexBits
+	 *            The k bits of the index, least significant first.
+	 */
+	public LookupTableGadget(BigInteger[][] table, Wire[] indexBits, String... desc) {
+		this(table, table, indexBits, desc);
+	}
+
+	/**
+	 * @param table
+	 *            2^k tuples of wires of the same length: table[v] is the entry
+	 *            at v.
+	 * @param indexBits
+	 *            The k bits of the index, least significant first.
+	 */
+	public LookupTableGadget(Wire[][] table, Wire[] indexBits, String... desc) {
+		super(desc);
+		checkTable(table, indexBits);
+		this.indexBits = indexBits;
+		output = lookup(table);
+	}
+
+	private LookupTableGadget(Object memoKey, BigInteger[][] table, Wire[] indexBits, String... desc) {
+		super(desc);
+		checkTable(table, indexBits);
+		this.indexBits = indexBits;
+		output = lookup(getCoefficients(memoKey, table));
+	}
+
+	private static int getBitwidth(int size) {
+		if (size < 2 || Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("The table size must be a power of two (at least 2): " + size);
+		}
+		return Integer.numberOfTrailingZeros(size);
+	}
+
+	private static void checkTable(Object[][] table, Wire[] indexBits) {
+		if (indexBits.length != getBitwidth(table.length)) {
+			throw new IllegalArgumentException("The table size must be 2^" + indexBits.length);
+		}
+		for (Object[] entry : table) {
+			if (entry.length != table[0].length) {
+				throw new IllegalArgumentException("All the entries must have the same length");
+			}
+		}
+	}
+
+	private static BigInteger[][] toEntries(BigInteger[] table) {
+		BigInteger[][] entries = new BigInteger[table.length][];
+		for (int v = 0; v < table.length; v++) {
+			entries[v] = new BigInteger[] { table[v] };
+		}
+		return entries;
+	}
+
+	private Wire[] lookup(BigInteger[][] coeffs) {
+		int k = indexBits.length;
+		int numComponents = coeffs[0].length;
+		int low = getLowBitwidth(k, numComponents);
+		Wire[] lowMonomials = getMonomials(Arrays.copyOfRange(indexBits, 0, low));
+		Wire[] highMonomials = getMonomials(Arrays.copyOfRange(indexBits, low, k));
+
+		Wire[] result = new Wire[numComponents];
+		for (int i = 0; i < numComponents; i++) {
+			Wire[] terms = new Wire[highMonomials.length];
+			for (int hv = 0; hv < highMonomials.length; hv++) {
+				ArrayList<Wire> lowTerms = new ArrayList<Wire>();
+				for (int lv = 0; lv < lowMonomials.length; lv++) {
+					BigInteger c = coeffs[hv << low | lv][i];
+					if (c.signum() != 0) {
+						lowTerms.add(lowMonomials[lv].mul(c, description));
+					}
+				}
+				Wire combination = new WireArray(lowTerms.toArray(new Wire[0])).sumAllElements(description);
+				terms[hv] = highMonomials[hv].mul(combination, description);
+			}
+			result[i] = new WireArray(terms).sumAllElements(description);
+		}
+		return result;
+	}
+
+	private Wire[] lookup(Wire[][] table) {
+		Wire[] monomials = getMonomials(indexBits);
+		Wire[][] coeffs = new Wire[table.length][];
+		for (int v = 0; v < table.length; v++) {
+			coeffs[v] = table[v].clone();
+		}
+		for (int bit = 1; bit < table.length; bit <<= 1) {
+			for (int v = 0; v < table.length; v++) {
+				if ((v & bit) != 0) {
+					for (int i = 0; i < coeffs[v].length; i++) {
+						coeffs[v][i] = coeffs[v][i].sub(coeffs[v ^ bit][i], description);
+					}
+				}
+			}
+		}
+
+		Wire[] result = new Wire[coeffs[0].length];
+		for (int i = 0; i < result.length; i++) {
+			ArrayList<Wire> terms = new ArrayList<Wire>();
+			terms.add(coeffs[0][i]);
+			for (int v = 1; v < table.length; v++) {
+				if (!(coeffs[v][i] instanceof ConstantWire)
+						|| ((ConstantWire) coeffs[v][i]).getConstant().signum() != 0) {
+					terms.add(monomials[v].mul(coeffs[v][i], description));
+				}
+			}
+			result[i] = new WireArray(terms.toArray(new Wire[terms.size()])).sumAllElements(description);
+		}
+		return result;
+	}
+
+	/**
+	 * The number of low bits that minimizes the cost of a lookup of tuples
+	 * of the given length (the largest one in case of a tie).
+	 */
+	static int getLowBitwidth(int k, int numComponents) {
+		int best = k;
+		for (int l = k - 1; l >= 0; l--) {
+			if (getCost(l, k - l, numComponents) < getCost(best, k - best, numComponents)) {
+				best = l;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The number of constraints of a lookup, without the split of the index.
+	 */
+	static int getCost(int low, int high, int numComponents) {
+		int cost = (1 << low) - low - 1;
+		if (high > 0) {
+			cost += (1 << high) - high - 1 + numComponents * ((1 << high) - 1);
+		}
+		return cost;
+	}
+
+	// the coefficients of the products of the bits of v (inclusion-exclusion
+	// over the table entries)
+	private BigInteger[][] getCoefficients(Object table, BigInteger[][] entries) {
+		List<Object> memoKey = Arrays.asList(LookupTableGadget.class, table);
+		BigInteger[][] coeffs = (BigInteger[][]) generator.getGadgetMemo().get(memoKey);
+		if (coeffs == null) {
+			coeffs = new BigInteger[entries.length][];
+			for (int v = 0; v < entries.length; v++) {
+				coeffs[v] = new BigInteger[entries[v].length];
+				for (int i = 0; i < coeffs[v].length; i++) {
+					coeffs[v][i] = entries[v][i].mod(Config.FIELD_PRIME);
+				}
+			}
+			for (int bit = 1; bit < entries.length; bit <<= 1) {
+				for (int v = 0; v < entries.length; v++) {
+					if ((v & bit) != 0) {
+						for (int i = 0; i < coeffs[v].length; i++) {
+							coeffs[v][i] = coeffs[v][i].subtract(coeffs[v ^ bit][i]).mod(Config.FIELD_PRIME);
+						}
+					}
+				}
+			}
+			generator.getGadgetMemo().put(memoKey, coeffs);
+		}
+		return coeffs;
+	}
+
+	// monomials[v] = product of bits[j] for the bits j of v
+	private Wire[] getMonomials(Wire[] bits) {
+		Wire[] monomials = new Wire[1 << bits.length];
+		monomials[0] = generator.getOneWire();
+		for (int v = 1; v < monomials.length; v++) {
+			int j = 31 - Integer.numberOfLeadingZeros(v);
+			int rest = v ^ (1 << j);
+			monomials[v] = rest == 0 ? bits[j] : monomials[rest].mul(bits[j], description);
+		}
+		return monomials;
+	}
+
+	/**
+	 * The entry at the index (one wire per component).
+	 */
+	@Override
+	public Wire[] getOutputWires() {
+		return output;
+	}
+}
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Stack;
+
+import circuit.config.Config;
+import circuit.operations.Gadget;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+/**
+ * Proves the membership of several leaves in the same tree as
+ * MerkleTreePathGadget, computing every internal node on the union of their
+ * paths only once.
+ * 
+ * The leaves are given in descending order of their direction selectors, and
+ * the shape of the union of the paths is fixed when the circuit is built by the
+ * merge steps: mergeSteps[j] is the step (0 being the level of the leaves) at
+ * which the paths of leaf j and leaf j + 1 meet, i.e. the highest bit in which
+ * their direction selectors differ. The positions themselves stay private: the
+ * circuit only checks that the direction selectors are consistent with the
+ * merge steps. The sibling hashes are only the ones of the nodes that are
+ * missing from the union, in the order returned by getSiblingPositions().
+ */
+public class MerkleTreeMultiPathGadget extends Gadget {
+
+	private static int digestWidth = SubsetSumHashGadget.DIMENSION;
+
+	private Wire[] directionSelectorWires;
+	private Wire[][] directionSelectorBits;
+	private Wire[][] leafWires;
+	private Wire[] siblingHashWires;
+	private int[] mergeSteps;
+	private Wire[] outRoot;
+
+	private int leafWordBitWidth;
+	private int treeHeight;
+	private int siblingIndex;
+
+	public MerkleTreeMultiPathGadget(Wire[] directionSelectorWires, Wire[][] leafWires, int[] mergeSteps,
+			Wire[] siblingHashWires, int leafWordBitWidth, int treeHeight, String... desc) {
+
+		super(desc);
+		if (directionSelectorWires.length == 0 || directionSelectorWires.length != leafWires.length
+				|| mergeSteps.length != leafWires.length - 1) {
+			throw new IllegalArgumentException("Expected one direction selector per leaf, and one merge step "
+					+ "between every two consecutive leaves");
+		}
+		int numSiblings = getSiblingPositions(mergeSteps, treeHeight).length;
+		if (siblingHashWires.length != numSiblings * digestWidth) {
+			throw new IllegalArgumentException("Expected " + numSiblings + " sibling hashes");
+		}
+		this.directionSelectorWires = directionSelectorWires;
+		this.leafWires = leafWires;
+		this.mergeSteps = mergeSteps;
+		this.siblingHashWires = siblingHashWires;
+		this.leafWordBitWidth = leafWordBitWidth;
+		this.treeHeight = treeHeight;
+
+		buildCircuit();
+	}
+
+	private void buildCircuit() {
+
+		directionSelectorBits = new Wire[leafWires.length][];
+		for (int j = 0; j < leafWires.length; j++) {
+			directionSelectorBits[j] = directionSelectorWires[j].getBitWires(treeHeight).asArray();
+		}
+
+		// the paths of two consecutive leaves go left and right at their
+		// merge step, and coincide above it
+		for (int j = 0; j < mergeSteps.length; j++) {
+			int m = mergeSteps[j];
+			generator.addOneAssertion(directionSelectorBits[j][m].sub(directionSelectorBits[j + 1][m]));
+			if (m + 1 < treeHeight) {
+				Wire[] diff = new Wire[treeHeight - m - 1];
+				for (int l = m + 1; l < treeHeight; l++) {
+					diff[l - m - 1] = directionSelectorBits[j][l].sub(directionSelectorBits[j + 1][l]).mul(
+							BigInteger.ONE.shiftLeft(l - m - 1));
+				}
+				generator.addZeroAssertion(new WireArray(diff).sumAllElements());
+			}
+		}
+
+		outRoot = traverse(mergeSteps, treeHeight, this, null).hash;
+	}
+
+	/**
+	 * Returns, for every sibling hash expected by the gadget, the index of a
+	 * leaf and the step on the path of this leaf at which the sibling is used.
+	 */
+	public static int[][] getSiblingPositions(int[] mergeSteps, int treeHeight) {
+		ArrayList<int[]> positions = new ArrayList<int[]>();
+		traverse(mergeSteps, treeHeight, null, positions);
+		return positions.toArray(new int[positions.size()][]);
+	}
+
+	/**
+	 * Returns the merge steps of leaves given by their direction selectors,
+	 * which must be in descending order.
+	 */
+	public static int[] getMergeSteps(BigInteger[] directionSelectors, int treeHeight) {
+		int[] mergeSteps = new int[directionSelectors.length - 1];
+		for (int j = 0; j < mergeSteps.length; j++) {
+			if (directionSelectors[j].compareTo(directionSelectors[j + 1]) <= 0
+					|| directionSelectors[j].bitLength() > treeHeight) {
+				throw new IllegalArgumentException("Direction selectors must be distinct, in descending order and of "
+						+ treeHeight + " bits");
+			}
+			mergeSteps[j] = directionSelectors[j].xor(directionSelectors[j + 1]).bitLength() - 1;
+		}
+		return mergeSteps;
+	}
+
+	private static class Node {
+		Wire[] hash;
+		int level;
+		int leaf;
+		int mergeStep;
+
+		Node(Wire[] hash, int level, int leaf, int mergeStep) {
+			this.hash = hash;
+			this.level = level;
+			this.leaf = leaf;
+			this.mergeStep = mergeStep;
+		}
+	}
+
+	/**
+	 * Builds the union of the paths from left to right. Each subtree waits on
+	 * the stack until the subtree to its right is complete up to their merge
+	 * step. When gadget is null, only the positions of the sibling hashes are
+	 * collected.
+	 */
+	private static Node traverse(int[] mergeSteps, int treeHeight, MerkleTreeMultiPathGadget gadget,
+			ArrayList<int[]> siblingPositions) {
+
+		Stack<Node> stack = new Stack<Node>();
+		for (int j = 0; j <= mergeSteps.length; j++) {
+			int mergeStep = j < mergeSteps.length ? mergeSteps[j] : treeHeight;
+			if (mergeStep < 0 || mergeStep > treeHeight || (mergeStep == treeHeight && j < mergeSteps.length)) {
+				throw new IllegalArgumentException("Invalid merge step: " + mergeStep);
+			}
+			Node node = new Node(gadget == null ? null : gadget.hashLeaf(j), 0, j, mergeStep);
+			while (!stack.isEmpty() && stack.peek().mergeStep < mergeStep) {
+				Node left = stack.pop();
+				raise(left, left.mergeStep, gadget, siblingPositions);
+				raise(node, left.mergeStep, gadget, siblingPositions);
+				node.hash = gadget == null ? null : gadget.hash(left.hash, node.hash);
+				node.level = left.mergeStep + 1;
+				node.leaf = left.leaf;
+			}
+			if (!stack.isEmpty() && stack.peek().mergeStep == mergeStep) {
+				throw new IllegalArgumentException("Merge steps do not describe a binary tree: three paths meet at step "
+						+ mergeStep);
+			}
+			stack.push(node);
+		}
+		Node root = stack.pop();
+		raise(root, treeHeight, gadget, siblingPositions);
+		return root;
+	}
+
+	private static void raise(Node node, int level, MerkleTreeMultiPathGadget gadget,
+			ArrayList<int[]> siblingPositions) {
+		for (; node.level < level; node.level++) {
+			if (gadget == null) {
+				siblingPositions.add(new int[] { node.leaf, node.level });
+			} else {
+				node.hash = gadget.hashWithSibling(node.hash, node.leaf, node.level);
+			}
+		}
+	}
+
+	private Wire[] hashLeaf(int j) {
+		Wire[] leafBits = new WireArray(leafWires[j]).getBits(leafWordBitWidth).asArray();
+		return new SubsetSumHashGadget(leafBits, false).getOutputWires();
+	}
+
+	private Wire[] hash(Wire[] left, Wire[] right) {
+		Wire[] inHash = new Wire[2 * digestWidth];
+		System.arraycopy(left, 0, inHash, 0, digestWidth);
+		System.arraycopy(right, 0, inHash, digestWidth, digestWidth);
+		Wire[] nextInputBits = new WireArray(inHash).getBits(Config.LOG2_FIELD_PRIME).asArray();
+		return new SubsetSumHashGadget(nextInputBits, false).getOutputWires();
+	}
+
+	// same as a level of MerkleTreePathGadget
+	private Wire[] hashWithSibling(Wire[] currentHash, int leaf, int step) {
+		Wire[] sibling = new Wire[digestWidth];
+		System.arraycopy(siblingHashWires, siblingIndex * digestWidth, sibling, 0, digestWidth);
+		siblingIndex++;
+
+		Wire[] first = new Wire[digestWidth];
+		Wire[] second = new Wire[digestWidth];
+		for (int j = 0; j < digestWidth; j++) {
+			Wire temp = currentHash[j].sub(sibling[j]);
+			first[j] = sibling[j].add(directionSelectorBits[leaf][step].mul(temp));
+			second[j] = currentHash[j].add(sibling[j]).sub(first[j]);
+		}
+		return hash(first, second);
+	}
+
+	@Override
+	public Wire[] getOutputWires() {
+		return outRoot;
+	}
+
+}
@@ -10,7 +10,28 @@ import circuit.structure.WireArray;
 
 public class MerkleTreePathGadget extends Gadget {
 
-	private static int digestWidth = SubsetSumHashGadget.DIMENSION;
+	/**
+	 * SUBSET_SUM hashes bits, so every intermediate hash is split at each
+	 * level. MIMC hashes field elements directly: the leaf words are used as
+	 * they are, a digest is one element, and each level is a single call to
+	 * the compression function of MiMCHashGadget.
+	 */
+	public enum HashFunction {
+		SUBSET_SUM(SubsetSumHashGadget.DIMENSION), MIMC(1);
+
+		private final int digestWidth;
+
+		private HashFunction(int digestWidth) {
+			this.digestWidth = digestWidth;
+		}
+
+		public int getDigestWidth() {
+			return digestWidth;
+		}
+	}
+
+	private HashFunction hashFunction;
+	private int digestWidth;
 
 	private int treeHeight;
 	private Wire directionSelectorWire;
@@ -23,6 +44,16 @@ public class MerkleTreePathGadget extends Gadget {
 
 	public MerkleTreePathGadget(Wire directionSelectorWire, Wire[] leafWires, Wire[] intermediateHasheWires,
 			int leafWordBitWidth, int treeHeight, String... desc) {
+		this(directionSelectorWire, leafWires, intermediateHasheWires, leafWordBitWidth, treeHeight,
+				HashFunction.SUBSET_SUM, desc);
+	}
+
+	/**
+	 * @param intermediateHasheWires
+	 *            treeHeight digests of hashFunction.getDigestWidth() elements
+	 */
+	public MerkleTreePathGadget(Wire directionSelectorWire, Wire[] leafWires, Wire[] intermediateHasheWires,
+			int leafWordBitWidth, int treeHeight, HashFunction hashFunction, String... desc) {
 
 		super(desc);
 		this.directionSelectorWire = directionSelectorWire;
@@ -30,6 +61,8 @@ public class MerkleTreePathGadget extends Gadget {
 		this.leafWires = leafWires;
 		this.intermediateHashWires = intermediateHasheWires;
 		this.leafWordBitWidth = leafWordBitWidth;
+		this.hashFunction = hashFunction;
+		this.digestWidth = hashFunction.getDigestWidth();
 
 		buildCircuit();
 
@@ -40,9 +73,14 @@ public class MerkleTreePathGadget extends Gadget {
 		directionSelectorBits = directionSelectorWire.getBitWires(treeHeight).asArray();
 
 		// Apply CRH to leaf data
-		Wire[] leafBits = new WireArray(leafWires).getBits(leafWordBitWidth).asArray();
-		SubsetSumHashGadget subsetSumGadget = new SubsetSumHashGadget(leafBits, false);
-		Wire[] currentHash = subsetSumGadget.getOutputWires();
+		Wire[] currentHash;
+		if (hashFunction == HashFunction.MIMC) {
+			currentHash = new MiMCHashGadget(leafWires).getOutputWires();
+		} else {
+			Wire[] leafBits = new WireArray(leafWires).getBits(leafWordBitWidth).asArray();
+			SubsetSumHashGadget subsetSumGadget = new SubsetSumHashGadget(leafBits, false);
+			currentHash = subsetSumGadget.getOutputWires();
+		}
 
 		// Apply CRH across tree path guided by the direction bits
 		for (int i = 0; i < treeHeight; i++) {
@@ -57,9 +95,13 @@ public class MerkleTreePathGadget extends Gadget {
 				inHash[j] = temp.sub(inHash[j - digestWidth]);
 			}
 
-			Wire[] nextInputBits = new WireArray(inHash).getBits(Config.LOG2_FIELD_PRIME).asArray();
-			subsetSumGadget = new SubsetSumHashGadget(nextInputBits, false);
-			currentHash = subsetSumGadget.getOutputWires();
+			if (hashFunction == HashFunction.MIMC) {
+				currentHash = new MiMCHashGadget(inHash[0], new Wire[] { inHash[1] }).getOutputWires();
+			} else {
+				Wire[] nextInputBits = new WireArray(inHash).getBits(Config.LOG2_FIELD_PRIME).asArray();
+				SubsetSumHashGadget subsetSumGadget = new SubsetSumHashGadget(nextInputBits, false);
+				currentHash = subsetSumGadget.getOutputWires();
+			}
 		}
 		outRoot = currentHash;
 	}
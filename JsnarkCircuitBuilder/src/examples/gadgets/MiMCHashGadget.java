@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import circuit.config.Config;
+import circuit.operations.Gadget;
+import circuit.structure.Wire;
+
+/**
+ * A field-native hash: the MiMC block cipher over Config.FIELD_PRIME in
+ * Miyaguchi-Preneel mode. Each input is a field element, and the digest is a
+ * single field element, so no bit decomposition is needed. Each input costs
+ * one call to the compression function E_h(m) + h + m, where h is the
+ * chaining value, which can also be used directly to hash two elements (e.g.
+ * the children of a Merkle tree node).
+ * 
+ * The parameters are generated for the configured prime: the exponent is the
+ * smallest odd d > 1 such that x^d is a permutation (gcd(d, p - 1) = 1), the
+ * number of rounds is ceil(log(p) / log(d)), and the round constants are
+ * derived from SHA-256 (the first one is zero). For the default prime, this
+ * is x^5 with 110 rounds, i.e. 330 constraints per input element.
+ */
+public class MiMCHashGadget extends Gadget {
+
+	public static final int EXPONENT;
+	public static final int NUM_ROUNDS;
+	private static final BigInteger[] ROUND_CONSTANTS;
+
+	static {
+		BigInteger pMinusOne = Config.FIELD_PRIME.subtract(BigInteger.ONE);
+		int d = 3;
+		while (!pMinusOne.gcd(BigInteger.valueOf(d)).equals(BigInteger.ONE)) {
+			d += 2;
+		}
+		EXPONENT = d;
+		NUM_ROUNDS = (int) Math.ceil(Config.FIELD_PRIME.bitLength() / (Math.log(d) / Math.log(2)));
+
+		MessageDigest sha256;
+		try {
+			sha256 = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		ROUND_CONSTANTS = new BigInteger[NUM_ROUNDS];
+		ROUND_CONSTANTS[0] = BigInteger.ZERO;
+		for (int i = 1; i < NUM_ROUNDS; i++) {
+			sha256.update("MiMCHashGadget".getBytes(StandardCharsets.US_ASCII));
+			sha256.update(ByteBuffer.allocate(4).putInt(i).array());
+			ROUND_CONSTANTS[i] = new BigInteger(1, sha256.digest()).mod(Config.FIELD_PRIME);
+		}
+	}
+
+	private Wire chainingValue;
+	private Wire[] inputWires;
+	private Wire outDigest;
+
+	/**
+	 * @param ins
+	 *            The input field elements.
+	 * @param desc
+	 */
+	public MiMCHashGadget(Wire[] ins, String... desc) {
+		this(null, ins, desc);
+	}
+
+	/**
+	 * @param chainingValue
+	 *            The initial chaining value, instead of zero.
+	 * @param ins
+	 *            The input field elements.
+	 * @param desc
+	 */
+	public MiMCHashGadget(Wire chainingValue, Wire[] ins, String... desc) {
+		super(desc);
+		this.chainingValue = chainingValue;
+		this.inputWires = ins;
+		buildCircuit();
+	}
+
+	private void buildCircuit() {
+		Wire h = chainingValue == null ? generator.getZeroWire() : chainingValue;
+		for (Wire m : inputWires) {
+			h = encrypt(h, m).add(h).add(m);
+		}
+		outDigest = h;
+	}
+
+	private Wire encrypt(Wire key, Wire x) {
+		for (int i = 0; i < NUM_ROUNDS; i++) {
+			x = power(x.add(key).add(ROUND_CONSTANTS[i]));
+		}
+		return x.add(key);
+	}
+
+	// left-to-right square and multiply
+	private Wire power(Wire x) {
+		Wire result = x;
+		for (int i = BigInteger.valueOf(EXPONENT).bitLength() - 2; i >= 0; i--) {
+			result = result.mul(result);
+			if (((EXPONENT >> i) & 1) == 1) {
+				result = result.mul(x);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the digest outside the circuit, e.g. for the prover inputs of a
+	 * Merkle path.
+	 */
+	public static BigInteger hash(BigInteger... ins) {
+		BigInteger h = BigInteger.ZERO;
+		for (BigInteger m : ins) {
+			h = compress(h, m);
+		}
+		return h;
+	}
+
+	/**
+	 * Computes the compression function E_h(m) + h + m outside the circuit.
+	 */
+	public static BigInteger compress(BigInteger h, BigInteger m) {
+		BigInteger p = Config.FIELD_PRIME;
+		BigInteger d = BigInteger.valueOf(EXPONENT);
+		BigInteger x = m;
+		for (int i = 0; i < NUM_ROUNDS; i++) {
+			x = x.add(h).add(ROUND_CONSTANTS[i]).modPow(d, p);
+		}
+		return x.add(h).add(h).add(m).mod(p);
+	}
+
+	@Override
+	public Wire[] getOutputWires() {
+		return new Wire[] { outDigest };
+	}
+}
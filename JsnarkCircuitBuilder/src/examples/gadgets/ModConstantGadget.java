@@ -59,8 +59,8 @@ public class ModConstantGadget extends Gadget {
 		});
 		
 		int bBitwidth = b.bitLength();
-		r.restrictBitLength(bBitwidth);
-		q.restrictBitLength(bitwidth - bBitwidth + 1);
+		generator.addRangeCheck(r, bBitwidth);
+		generator.addRangeCheck(q, bitwidth - bBitwidth + 1);
 		generator.addOneAssertion(r.isLessThan(b, bBitwidth));
 		generator.addEqualityAssertion(q.mul(b).add(r), a);
 	}
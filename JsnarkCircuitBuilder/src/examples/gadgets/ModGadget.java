@@ -7,13 +7,17 @@ import java.math.BigInteger;
 
 import circuit.eval.CircuitEvaluator;
 import circuit.eval.Instruction;
+import circuit.config.Config;
 import circuit.operations.Gadget;
+import circuit.structure.LongElement;
 import circuit.structure.Wire;
+import circuit.structure.WireArray;
 
 /**
  * This gadget provides the remainder of a % b. 
  *
- *
+ * For bitwidths above 126 bits, q * b could wrap around the field, so the
+ * check is done on limbs through LongIntegerModGadget instead.
  */
 
 public class ModGadget extends Gadget {
@@ -30,7 +34,7 @@ public class ModGadget extends Gadget {
 		this.a = a;
 		this.b = b;
 		this.bitwidth = bitwidth;
-		if(bitwidth > 126){
+		if(bitwidth >= Config.LOG2_FIELD_PRIME){
 			throw new IllegalArgumentException("Bitwidth not supported yet.");
 		}
 		buildCircuit();
@@ -38,6 +42,10 @@ public class ModGadget extends Gadget {
 
 	private void buildCircuit() {
 		
+		if (bitwidth > 126) {
+			buildLongCircuit();
+			return;
+		}
 		r = generator.createProverWitnessWire("mod result");
 		q = generator.createProverWitnessWire("division result");
 
@@ -54,12 +62,23 @@ public class ModGadget extends Gadget {
 
 		});
 		
-		r.restrictBitLength(bitwidth);
-		q.restrictBitLength(bitwidth);
+		generator.addRangeCheck(r, bitwidth);
+		generator.addRangeCheck(q, bitwidth);
 		generator.addOneAssertion(r.isLessThan(b, bitwidth));
 		generator.addEqualityAssertion(q.mul(b).add(r), a);
 	}
 
+	private void buildLongCircuit() {
+		int limbBitwidth = LongElement.DEFAULT_LIMB_BITWIDTH;
+		LongElement aLimbs = new LongElement(a.getBitWires(bitwidth), limbBitwidth);
+		LongElement bLimbs = new LongElement(b.getBitWires(bitwidth), limbBitwidth);
+		LongIntegerModGadget gadget = new LongIntegerModGadget(aLimbs, bLimbs, bitwidth, bitwidth, true, description);
+		Wire[] qLimbs = gadget.getQuotient().getLimbs();
+		Wire[] rLimbs = gadget.getRemainder().getLimbs();
+		q = new WireArray(qLimbs).packWordsIntoLargerWords(limbBitwidth, qLimbs.length)[0];
+		r = new WireArray(rLimbs).packWordsIntoLargerWords(limbBitwidth, rLimbs.length)[0];
+	}
+
 	@Override
 	public Wire[] getOutputWires() {
 		return new Wire[] { r };
@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import util.Util;
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.eval.Instruction;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.LongElement;
+import circuit.structure.Wire;
+
+/**
+ * An element of the field of integers modulo a prime other than the field
+ * prime of the circuit (e.g. the base field of secp256k1), represented by a
+ * LongElement holding some integer congruent to it.
+ *
+ * The reduction is lazy: add(), sub() and mul() only combine the limbs, and
+ * an operand is reduced with a quotient and a remainder from the prover (see
+ * LongIntegerModGadget) when it is itself a product, or when its limbs would
+ * be too large for the operation. A sum of products is thus reduced once.
+ * The remainders are only known to fit in the bitwidth of the modulus,
+ * unless reduced with getCanonical().
+ * inverse() and div() take the result from the prover and check one product,
+ * and assertEquality() checks that the difference is a multiple of the
+ * modulus. The range checks of the limbs, quotients and carries are
+ * collected on the generator (see CircuitGenerator.addRangeCheck()).
+ */
+public class NonNativeFieldElement {
+
+	private LongElement value;
+	private BigInteger modulus;
+
+	/**
+	 * @param value
+	 *            An integer congruent to the element, whose limbs are range
+	 *            checked.
+	 * @param modulus
+	 *            A prime, for inverse() and div().
+	 */
+	public NonNativeFieldElement(LongElement value, BigInteger modulus) {
+		this.value = value;
+		this.modulus = modulus;
+	}
+
+	public NonNativeFieldElement(BigInteger constant, BigInteger modulus, int limbBitwidth) {
+		this(new LongElement(constant.mod(modulus), limbBitwidth), modulus);
+	}
+
+	/**
+	 * An element given by limbs that are not range checked yet, e.g. inputs
+	 * or witnesses. The limbs are range checked to limbBitwidth.
+	 */
+	public NonNativeFieldElement(Wire[] limbs, int limbBitwidth, BigInteger modulus) {
+		this(new LongElement(limbs, limbBitwidth), modulus);
+		value.restrictBitwidth();
+	}
+
+	public NonNativeFieldElement add(NonNativeFieldElement o) {
+		checkModulus(o);
+		NonNativeFieldElement a = this;
+		if (!fitsSum(a.value.getMaxValues(), o.value.getMaxValues())) {
+			a = a.reduce();
+			o = o.reduce();
+		}
+		return new NonNativeFieldElement(a.value.add(o.value), modulus);
+	}
+
+	public NonNativeFieldElement sub(NonNativeFieldElement o) {
+		checkModulus(o);
+		NonNativeFieldElement a = this;
+		if (!fitsSum(a.value.getMaxValues(), getPadding(o.value.getMaxValues()))) {
+			a = a.reduce();
+			o = o.reduce();
+		}
+		return new NonNativeFieldElement(subtract(a.value, o.value), modulus);
+	}
+
+	/**
+	 * The product, which is not reduced until it is used in another product
+	 * (or reduced explicitly), so that a sum of products is reduced once.
+	 */
+	public NonNativeFieldElement mul(NonNativeFieldElement o) {
+		checkModulus(o);
+		NonNativeFieldElement a = isProduct() ? reduce() : this;
+		if (o.isProduct()) {
+			o = o.reduce();
+		}
+		if (!fitsProduct(a.value.getMaxValues(), o.value.getMaxValues())) {
+			a = a.reduce();
+			if (!fitsProduct(a.value.getMaxValues(), o.value.getMaxValues())) {
+				o = o.reduce();
+			}
+		}
+		return new NonNativeFieldElement(a.value.mul(o.value), modulus);
+	}
+
+	/**
+	 * The inverse, from the prover, checked by inverse * this = 1. The
+	 * element must be non-zero.
+	 */
+	public NonNativeFieldElement inverse() {
+		return new NonNativeFieldElement(BigInteger.ONE, modulus, value.getLimbBitwidth()).div(this);
+	}
+
+	/**
+	 * this / o, from the prover, checked by (this / o) * o = this. The divisor
+	 * must be non-zero.
+	 */
+	public NonNativeFieldElement div(final NonNativeFieldElement o) {
+		checkModulus(o);
+		final int limbBitwidth = value.getLimbBitwidth();
+		final Wire[] limbs = CircuitGenerator.getActiveCircuitGenerator().createProverWitnessWireArray(
+				(modulus.bitLength() + limbBitwidth - 1) / limbBitwidth, "non-native division result");
+		final LongElement dividend = value;
+		CircuitGenerator.getActiveCircuitGenerator().specifyProverWitnessComputation(new Instruction() {
+			@Override
+			public void evaluate(CircuitEvaluator evaluator) {
+				BigInteger v = dividend.getValue(evaluator).multiply(o.value.getValue(evaluator).modInverse(modulus))
+						.mod(modulus);
+				evaluator.setWireValue(limbs, Util.split(v, limbs.length, limbBitwidth));
+			}
+		});
+		NonNativeFieldElement result = new NonNativeFieldElement(limbs, limbBitwidth, modulus);
+		result.mul(o).assertEquality(this);
+		return result;
+	}
+
+	/**
+	 * Asserts that both represent the same element, i.e. that their
+	 * difference is a multiple of the modulus.
+	 */
+	public void assertEquality(NonNativeFieldElement o) {
+		checkModulus(o);
+		NonNativeFieldElement a = this;
+		if (!fitsSum(a.value.getMaxValues(), getPadding(o.value.getMaxValues()))) {
+			a = a.reduce();
+			o = o.reduce();
+		}
+		final LongElement difference = subtract(a.value, o.value);
+		int limbBitwidth = value.getLimbBitwidth();
+		int quotientBitwidth = Math.max(1, difference.getMaxBitwidth() - modulus.bitLength() + 1);
+		final Wire[] limbs = CircuitGenerator.getActiveCircuitGenerator().createProverWitnessWireArray(
+				(quotientBitwidth + limbBitwidth - 1) / limbBitwidth, "multiple of the modulus");
+		CircuitGenerator.getActiveCircuitGenerator().specifyProverWitnessComputation(new Instruction() {
+			@Override
+			public void evaluate(CircuitEvaluator evaluator) {
+				BigInteger q = difference.getValue(evaluator).divide(modulus);
+				evaluator.setWireValue(limbs, Util.split(q, limbs.length, difference.getLimbBitwidth()));
+			}
+		});
+		LongElement q = new LongElement(limbs, limbBitwidth);
+		q.restrictBitwidth();
+		q.mul(new LongElement(modulus, limbBitwidth)).assertEquality(difference);
+	}
+
+	/**
+	 * The remainder modulo the modulus, which fits in the bitwidth of the
+	 * modulus.
+	 */
+	public NonNativeFieldElement reduce() {
+		if (value.getMaxBitwidth() <= modulus.bitLength()) {
+			return this;
+		}
+		LongIntegerModGadget gadget = new LongIntegerModGadget(value, new LongElement(modulus,
+				value.getLimbBitwidth()), modulus.bitLength(), false);
+		return new NonNativeFieldElement(gadget.getRemainder(), modulus);
+	}
+
+	/**
+	 * The remainder modulo the modulus, checked to be less than the modulus,
+	 * e.g. to compare or output the element.
+	 */
+	public NonNativeFieldElement getCanonical() {
+		LongIntegerModGadget gadget = new LongIntegerModGadget(value, new LongElement(modulus,
+				value.getLimbBitwidth()), modulus.bitLength(), true);
+		return new NonNativeFieldElement(gadget.getRemainder(), modulus);
+	}
+
+	/**
+	 * Returns a + C - b, where C is a constant multiple of the modulus whose
+	 * limbs are at least the bounds on the limbs of b, so that the limbs of
+	 * the result are non-negative.
+	 */
+	private LongElement subtract(LongElement a, LongElement b) {
+		BigInteger[] padding = getPadding(b.getMaxValues());
+		int n = Math.max(a.getLimbs().length, padding.length);
+		Wire[] limbs = new Wire[n];
+		BigInteger[] maxValues = new BigInteger[n];
+		for (int i = 0; i < n; i++) {
+			Wire limb = CircuitGenerator.getActiveCircuitGenerator().createConstantWire(
+					i < padding.length ? padding[i] : BigInteger.ZERO);
+			BigInteger maxValue = i < padding.length ? padding[i] : BigInteger.ZERO;
+			if (i < a.getLimbs().length) {
+				limb = limb.add(a.getLimbs()[i]);
+				maxValue = maxValue.add(a.getMaxValues()[i]);
+			}
+			if (i < b.getLimbs().length) {
+				limb = limb.sub(b.getLimbs()[i]);
+			}
+			limbs[i] = limb;
+			maxValues[i] = maxValue;
+		}
+		return new LongElement(limbs, maxValues, a.getLimbBitwidth());
+	}
+
+	/**
+	 * The limbs of a multiple of the modulus that are at least the given
+	 * bounds: the bounds rounded up to powers of two, plus the limbs of the
+	 * remainder that completes them to a multiple.
+	 */
+	private BigInteger[] getPadding(BigInteger[] bounds) {
+		int limbBitwidth = value.getLimbBitwidth();
+		int numModulusLimbs = (modulus.bitLength() + limbBitwidth - 1) / limbBitwidth;
+		BigInteger[] padding = new BigInteger[Math.max(bounds.length, numModulusLimbs)];
+		BigInteger total = BigInteger.ZERO;
+		for (int i = 0; i < padding.length; i++) {
+			padding[i] = i < bounds.length ? BigInteger.ONE.shiftLeft(bounds[i].bitLength()) : BigInteger.ZERO;
+			total = total.add(padding[i].shiftLeft(i * limbBitwidth));
+		}
+		BigInteger[] complement = Util.split(total.negate().mod(modulus), numModulusLimbs, limbBitwidth);
+		for (int i = 0; i < numModulusLimbs; i++) {
+			padding[i] = padding[i].add(complement[i]);
+		}
+		return padding;
+	}
+
+	private boolean isProduct() {
+		int limbBitwidth = value.getLimbBitwidth();
+		return value.getLimbs().length > (modulus.bitLength() + limbBitwidth - 1) / limbBitwidth;
+	}
+
+	private boolean fitsSum(BigInteger[] a, BigInteger[] b) {
+		for (int i = 0; i < Math.max(a.length, b.length); i++) {
+			BigInteger sum = (i < a.length ? a[i] : BigInteger.ZERO).add(i < b.length ? b[i] : BigInteger.ZERO);
+			if (sum.bitLength() > getMaxBoundBitwidth()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean fitsProduct(BigInteger[] a, BigInteger[] b) {
+		BigInteger[] sums = new BigInteger[a.length + b.length - 1];
+		Arrays.fill(sums, BigInteger.ZERO);
+		for (int i = 0; i < a.length; i++) {
+			for (int j = 0; j < b.length; j++) {
+				sums[i + j] = sums[i + j].add(a[i].multiply(b[j]));
+			}
+		}
+		for (BigInteger s : sums) {
+			if (s.bitLength() > getMaxBoundBitwidth()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// leaves room for the carries of the reduction (see LongElement)
+	private static int getMaxBoundBitwidth() {
+		return Config.LOG2_FIELD_PRIME - 8;
+	}
+
+	public BigInteger getValue(CircuitEvaluator evaluator) {
+		return value.getValue(evaluator).mod(modulus);
+	}
+
+	public LongElement getLongElement() {
+		return value;
+	}
+
+	public BigInteger getModulus() {
+		return modulus;
+	}
+
+	private void checkModulus(NonNativeFieldElement o) {
+		if (!o.modulus.equals(modulus)) {
+			throw new IllegalArgumentException("Elements of different fields");
+		}
+	}
+}
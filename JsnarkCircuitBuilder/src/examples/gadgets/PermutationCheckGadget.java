@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import circuit.config.Config;
+import circuit.operations.Gadget;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+/**
+ * Asserts that b is a permutation of a, i.e. that both arrays hold the same
+ * multiset of values, with the grand product check
+ *
+ * (r - a_0) * ... * (r - a_(n-1)) == (r - b_0) * ... * (r - b_(n-1))
+ *
+ * at a challenge r, which costs 2n - 2 constraints. Two different multisets
+ * agree at no more than n points, so the check is sound as long as r is
+ * chosen after a and b are fixed.
+ *
+ * The challenge can be given by the caller, or derived in the circuit by
+ * hashing a and b with MiMCHashGadget (Fiat-Shamir). In the second case, the
+ * values of both arrays must be less than 2^bitwidth, so that they can be
+ * packed into fewer field elements before hashing, which costs 330
+ * constraints per packed element (see MiMCHashGadget).
+ */
+public class PermutationCheckGadget extends Gadget {
+
+	private Wire[] a;
+	private Wire[] b;
+	private Wire challenge;
+
+	/**
+	 * @param challenge
+	 *            A random field element that the prover cannot choose after
+	 *            a and b.
+	 */
+	public PermutationCheckGadget(WireArray a, WireArray b, Wire challenge, String... desc) {
+		super(desc);
+		if (a.size() != b.size()) {
+			throw new IllegalArgumentException("Arrays of different sizes");
+		}
+		this.a = a.asArray();
+		this.b = b.asArray();
+		this.challenge = challenge;
+		buildCircuit();
+	}
+
+	/**
+	 * Derives the challenge from a hash of a and b, whose values are assumed
+	 * to be less than 2^bitwidth.
+	 */
+	public PermutationCheckGadget(WireArray a, WireArray b, int bitwidth, String... desc) {
+		super(desc);
+		if (a.size() != b.size()) {
+			throw new IllegalArgumentException("Arrays of different sizes");
+		}
+		if (bitwidth <= 0 || bitwidth >= Config.LOG2_FIELD_PRIME) {
+			throw new IllegalArgumentException("Unsupported bitwidth: " + bitwidth);
+		}
+		this.a = a.asArray();
+		this.b = b.asArray();
+		int numWordsPerElement = (Config.LOG2_FIELD_PRIME - 1) / bitwidth;
+		Wire[] packedA = a.packWordsIntoLargerWords(bitwidth, numWordsPerElement);
+		Wire[] packedB = b.packWordsIntoLargerWords(bitwidth, numWordsPerElement);
+		Wire[] packed = new Wire[packedA.length + packedB.length];
+		System.arraycopy(packedA, 0, packed, 0, packedA.length);
+		System.arraycopy(packedB, 0, packed, packedA.length, packedB.length);
+		this.challenge = new MiMCHashGadget(packed, description).getOutputWires()[0];
+		buildCircuit();
+	}
+
+	private void buildCircuit() {
+		int n = a.length;
+		if (n == 0) {
+			return;
+		}
+		Wire productA = challenge.sub(a[0]);
+		Wire productB = challenge.sub(b[0]);
+		for (int i = 1; i < n - 1; i++) {
+			productA = productA.mul(challenge.sub(a[i]));
+			productB = productB.mul(challenge.sub(b[i]));
+		}
+		if (n == 1) {
+			generator.addEqualityAssertion(productA, productB, debugStr("permutation check"));
+		} else {
+			productA = productA.mul(challenge.sub(a[n - 1]));
+			generator.addAssertion(productB, challenge.sub(b[n - 1]), productA, debugStr("permutation check"));
+		}
+	}
+
+	public Wire getChallenge() {
+		return challenge;
+	}
+
+	/**
+	 * The gadget only adds assertions.
+	 */
+	@Override
+	public Wire[] getOutputWires() {
+		return new Wire[0];
+	}
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import java.util.Arrays;
+
+import circuit.operations.Gadget;
+import circuit.structure.SubcircuitTemplate;
+import circuit.structure.Wire;
+
+/**
+ * Computes the SHA256 digests of many messages of the same length, with the
+ * same interface and outputs as SHA256Gadget. The first message is hashed by a
+ * SHA256Gadget, which is recorded as a SubcircuitTemplate; the circuits of the
+ * remaining messages are then cloned from that template in parallel, instead
+ * of being built one by one. The number of constraints is the same as using a
+ * SHA256Gadget per message, and the constant wires (H, K and the padding) are
+ * shared by all messages.
+ */
+public class SHA256BatchGadget extends Gadget {
+
+	private Wire[][] digests;
+
+	public SHA256BatchGadget(Wire[][] messages, int bitWidthPerInputElement, int totalLengthInBytes,
+			boolean binaryOutput, boolean paddingRequired, String... desc) {
+
+		super(desc);
+		if (messages.length == 0) {
+			throw new IllegalArgumentException("No messages to hash");
+		}
+		for (Wire[] message : messages) {
+			if (message.length != messages[0].length) {
+				throw new IllegalArgumentException("All messages must have the same length");
+			}
+		}
+
+		SubcircuitTemplate template = new SubcircuitTemplate(messages[0], ins -> new SHA256Gadget(ins,
+				bitWidthPerInputElement, totalLengthInBytes, binaryOutput, paddingRequired, desc).getOutputWires());
+
+		digests = new Wire[messages.length][];
+		digests[0] = template.getPrototypeOutputs();
+		Wire[][] others = template.instantiate(Arrays.copyOfRange(messages, 1, messages.length), true);
+		System.arraycopy(others, 0, digests, 1, others.length);
+	}
+
+	/**
+	 * outputs the digest of each message
+	 */
+	public Wire[][] getDigests() {
+		return digests;
+	}
+
+	/**
+	 * outputs the digests of all messages, concatenated
+	 */
+	@Override
+	public Wire[] getOutputWires() {
+		Wire[] output = new Wire[digests.length * digests[0].length];
+		for (int i = 0; i < digests.length; i++) {
+			System.arraycopy(digests[i], 0, output, i * digests[0].length, digests[i].length);
+		}
+		return output;
+	}
+}
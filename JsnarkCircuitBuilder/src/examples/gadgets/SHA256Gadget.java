@@ -7,15 +7,16 @@ import java.util.Arrays;
 
 import util.Util;
 import circuit.operations.Gadget;
+import circuit.structure.CircuitGenerator;
 import circuit.structure.Wire;
 import circuit.structure.WireArray;
 
 public class SHA256Gadget extends Gadget {
 
-	private static final long H[] = { 0x6a09e667L, 0xbb67ae85L, 0x3c6ef372L, 0xa54ff53aL, 0x510e527fL, 0x9b05688cL,
+	static final long H[] = { 0x6a09e667L, 0xbb67ae85L, 0x3c6ef372L, 0xa54ff53aL, 0x510e527fL, 0x9b05688cL,
 			0x1f83d9abL, 0x5be0cd19L };
 
-	private static final long K[] = { 0x428a2f98L, 0x71374491L, 0xb5c0fbcfL, 0xe9b5dba5L, 0x3956c25bL, 0x59f111f1L,
+	static final long K[] = { 0x428a2f98L, 0x71374491L, 0xb5c0fbcfL, 0xe9b5dba5L, 0x3956c25bL, 0x59f111f1L,
 			0x923f82a4L, 0xab1c5ed5L, 0xd807aa98L, 0x12835b01L, 0x243185beL, 0x550c7dc3L, 0x72be5d74L, 0x80deb1feL,
 			0x9bdc06a7L, 0xc19bf174L, 0xe49b69c1L, 0xefbe4786L, 0x0fc19dc6L, 0x240ca1ccL, 0x2de92c6fL, 0x4a7484aaL,
 			0x5cb0a9dcL, 0x76f988daL, 0x983e5152L, 0xa831c66dL, 0xb00327c8L, 0xbf597fc7L, 0xc6e00bf3L, 0xd5a79147L,
@@ -41,16 +42,6 @@ public class SHA256Gadget extends Gadget {
 			boolean paddingRequired, String... desc) {
 
 		super(desc);
-		if (totalLengthInBytes * 8 > ins.length * bitWidthPerInputElement
-				|| totalLengthInBytes * 8 < (ins.length - 1) * bitWidthPerInputElement) {
-			throw new IllegalArgumentException("Inconsistent Length Information");
-		}
-
-		if (!paddingRequired && totalLengthInBytes % 64 != 0
-				&& ins.length * bitWidthPerInputElement != totalLengthInBytes) {
-			throw new IllegalArgumentException("When padding is not forced, totalLengthInBytes % 64 must be zero.");
-		}
-
 		this.unpaddedInputs = ins;
 		this.bitwidthPerInputElement = bitWidthPerInputElement;
 		this.totalLengthInBytes = totalLengthInBytes;
@@ -64,7 +55,9 @@ public class SHA256Gadget extends Gadget {
 	protected void buildCircuit() {
 
 		// pad if needed
-		prepare();
+		PaddedInput input = pad(unpaddedInputs, bitwidthPerInputElement, totalLengthInBytes, paddingRequired);
+		preparedInputBits = input.bits;
+		numBlocks = input.numBlocks;
 
 		Wire[] outDigest = new Wire[8];
 		Wire[] hWires = new Wire[H.length];
@@ -87,18 +80,14 @@ public class SHA256Gadget extends Gadget {
 					Wire t1 = w[i - 15].rotateRight(32, 7);
 					Wire t2 = w[i - 15].rotateRight(32, 18);
 					Wire t3 = w[i - 15].shiftRight(32, 3);
-					Wire s0 = t1.xorBitwise(t2, 32);
-					s0 = s0.xorBitwise(t3, 32);
+					Wire s0 = new WireArray(new Wire[] { t1, t2, t3 }).xorWords(32);
 
 					Wire t4 = w[i - 2].rotateRight(32, 17);
 					Wire t5 = w[i - 2].rotateRight(32, 19);
 					Wire t6 = w[i - 2].shiftRight(32, 10);
-					Wire s1 = t4.xorBitwise(t5, 32);
-					s1 = s1.xorBitwise(t6, 32);
+					Wire s1 = new WireArray(new Wire[] { t4, t5, t6 }).xorWords(32);
 
-					w[i] = w[i - 16].add(w[i - 7]);
-					w[i] = w[i].add(s0).add(s1);
-					w[i] = w[i].trimBits(34, 32);
+					w[i] = new WireArray(new Wire[] { w[i - 16], w[i - 7], s0, s1 }).sumWords(32);
 				}
 			}
 
@@ -116,16 +105,14 @@ public class SHA256Gadget extends Gadget {
 				Wire t1 = e.rotateRight(32, 6);
 				Wire t2 = e.rotateRight(32, 11);
 				Wire t3 = e.rotateRight(32, 25);
-				Wire s1 = t1.xorBitwise(t2, 32);
-				s1 = s1.xorBitwise(t3, 32);
+				Wire s1 = new WireArray(new Wire[] { t1, t2, t3 }).xorWords(32);
 
 				Wire ch = computeCh(e, f, g, 32);
 
 				Wire t4 = a.rotateRight(32, 2);
 				Wire t5 = a.rotateRight(32, 13);
 				Wire t6 = a.rotateRight(32, 22);
-				Wire s0 = t4.xorBitwise(t5, 32);
-				s0 = s0.xorBitwise(t6, 32);
+				Wire s0 = new WireArray(new Wire[] { t4, t5, t6 }).xorWords(32);
 
 				Wire maj;
 				// since after each iteration, SHA256 does c = b; and b = a;, we can make use of that to save multiplications in maj computation.
@@ -137,32 +124,32 @@ public class SHA256Gadget extends Gadget {
 					maj = computeMaj(a, b, c, 32);
 				}
 				
-				Wire temp1 = w[i].add(K[i]).add(s1).add(h).add(ch);
-
-				Wire temp2 = maj.add(s0);
+				// d + temp1 and temp1 + temp2, where temp1 = h + s1 + ch + K[i] + w[i]
+				// and temp2 = s0 + maj, each split once from all its operands
+				Wire k = generator.createConstantWire(K[i]);
+				Wire newE = new WireArray(new Wire[] { w[i], k, s1, h, ch, d }).sumWords(32);
+				Wire newA = new WireArray(new Wire[] { w[i], k, s1, h, ch, maj, s0 }).sumWords(32);
 
 				h = g;
 				g = f;
 				f = e;
-				e = temp1.add(d);
-				e = e.trimBits(35, 32);
+				e = newE;
 
 				d = c;
 				c = b;
 				b = a;
-				a = temp2.add(temp1);
-				a = a.trimBits(35, 32);
+				a = newA;
 
 			}
 
-			hWires[0] = hWires[0].add(a).trimBits(33, 32);
-			hWires[1] = hWires[1].add(b).trimBits(33, 32);
-			hWires[2] = hWires[2].add(c).trimBits(33, 32);
-			hWires[3] = hWires[3].add(d).trimBits(33, 32);
-			hWires[4] = hWires[4].add(e).trimBits(33, 32);
-			hWires[5] = hWires[5].add(f).trimBits(33, 32);
-			hWires[6] = hWires[6].add(g).trimBits(33, 32);
-			hWires[7] = hWires[7].add(h).trimBits(33, 32);
+			hWires[0] = new WireArray(new Wire[] { hWires[0], a }).sumWords(32);
+			hWires[1] = new WireArray(new Wire[] { hWires[1], b }).sumWords(32);
+			hWires[2] = new WireArray(new Wire[] { hWires[2], c }).sumWords(32);
+			hWires[3] = new WireArray(new Wire[] { hWires[3], d }).sumWords(32);
+			hWires[4] = new WireArray(new Wire[] { hWires[4], e }).sumWords(32);
+			hWires[5] = new WireArray(new Wire[] { hWires[5], f }).sumWords(32);
+			hWires[6] = new WireArray(new Wire[] { hWires[6], g }).sumWords(32);
+			hWires[7] = new WireArray(new Wire[] { hWires[7], h }).sumWords(32);
 		}
 
 		outDigest[0] = hWires[0];
@@ -217,9 +204,34 @@ public class SHA256Gadget extends Gadget {
 		return new WireArray(result).packAsBits();
 	}
 
-	private void prepare() {
+	/**
+	 * The input bits, padded if required, and the number of 512-bit blocks.
+	 */
+	static class PaddedInput {
+		Wire[] bits;
+		int numBlocks;
+	}
+
+	/**
+	 * Checks the length information and pads the input (also used by
+	 * SHA256LimbGadget).
+	 */
+	static PaddedInput pad(Wire[] unpaddedInputs, int bitwidthPerInputElement, int totalLengthInBytes,
+			boolean paddingRequired) {
+
+		if (totalLengthInBytes * 8 > unpaddedInputs.length * bitwidthPerInputElement
+				|| totalLengthInBytes * 8 < (unpaddedInputs.length - 1) * bitwidthPerInputElement) {
+			throw new IllegalArgumentException("Inconsistent Length Information");
+		}
+
+		if (!paddingRequired && totalLengthInBytes % 64 != 0
+				&& unpaddedInputs.length * bitwidthPerInputElement != totalLengthInBytes) {
+			throw new IllegalArgumentException("When padding is not forced, totalLengthInBytes % 64 must be zero.");
+		}
 
-		numBlocks = (int) Math.ceil(totalLengthInBytes * 1.0 / 64);
+		CircuitGenerator generator = CircuitGenerator.getActiveCircuitGenerator();
+		PaddedInput input = new PaddedInput();
+		int numBlocks = (int) Math.ceil(totalLengthInBytes * 1.0 / 64);
 		Wire[] bits = new WireArray(unpaddedInputs).getBits(bitwidthPerInputElement).asArray();
 		int tailLength = totalLengthInBytes % 64;
 		if (paddingRequired) {
@@ -242,14 +254,17 @@ public class SHA256Gadget extends Gadget {
 				System.arraycopy(tmp, 0, lengthBits, (7 - i) * 8, 8);
 			}
 			int totalNumberOfBits = numBlocks * 512;
-			preparedInputBits = new Wire[totalNumberOfBits];
+			Wire[] preparedInputBits = new Wire[totalNumberOfBits];
 			Arrays.fill(preparedInputBits, generator.getZeroWire());
 			System.arraycopy(bits, 0, preparedInputBits, 0, bits.length);
 			preparedInputBits[bits.length + 7] = generator.getOneWire();
 			System.arraycopy(lengthBits, 0, preparedInputBits, preparedInputBits.length - 64, 64);
+			input.bits = preparedInputBits;
 		} else {
-			preparedInputBits = bits;
+			input.bits = bits;
 		}
+		input.numBlocks = numBlocks;
+		return input;
 	}
 
 	/**
@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import util.Util;
+import circuit.operations.Gadget;
+import circuit.structure.ConstantWire;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+/**
+ * A variant of SHA256Gadget (same interface and outputs) that requires fewer
+ * constraints per block. Each 32-bit word is kept in two forms: a dense form,
+ * which is a linear combination that may exceed 32 bits, and a sparse form
+ * (its 32 bits), which is only extracted when a bitwise operation needs it.
+ *
+ * Compared to SHA256Gadget:
+ * - The results of bitwise operations are packed into linear combinations
+ * (free), instead of pack operations (one constraint each).
+ * - A sum of words is reduced by a single split that covers its overflow bits,
+ * and the reduced dense form is derived linearly from that split.
+ * - Words whose bits are never needed are never reduced, e.g. the last two
+ * message schedule words, the last values of a and e, and the chaining values
+ * that only feed additions in the next block. Split widths are derived from
+ * the tracked upper bound of each sum.
+ */
+public class SHA256LimbGadget extends Gadget {
+
+	private static final BigInteger WORD_MAX = BigInteger.ONE.shiftLeft(32).subtract(BigInteger.ONE);
+
+	private Wire[] unpaddedInputs;
+
+	private int bitwidthPerInputElement;
+	private int totalLengthInBytes;
+
+	private int numBlocks;
+	private boolean binaryOutput;
+	private boolean paddingRequired;
+
+	private Wire[] preparedInputBits;
+	private Wire[] output;
+
+	public SHA256LimbGadget(Wire[] ins, int bitWidthPerInputElement, int totalLengthInBytes, boolean binaryOutput,
+			boolean paddingRequired, String... desc) {
+
+		super(desc);
+		this.unpaddedInputs = ins;
+		this.bitwidthPerInputElement = bitWidthPerInputElement;
+		this.totalLengthInBytes = totalLengthInBytes;
+		this.binaryOutput = binaryOutput;
+		this.paddingRequired = paddingRequired;
+
+		buildCircuit();
+
+	}
+
+	/**
+	 * A word whose dense form is below max + 1. The bits are null until
+	 * requested by getBits(), which also reduces the dense form to 32 bits.
+	 */
+	private static class Word {
+		Wire dense;
+		BigInteger max;
+		Wire[] bits;
+
+		Word(Wire dense, BigInteger max, Wire[] bits) {
+			this.dense = dense;
+			this.max = max;
+			this.bits = bits;
+		}
+	}
+
+	protected void buildCircuit() {
+
+		// pad if needed
+		SHA256Gadget.PaddedInput input = SHA256Gadget.pad(unpaddedInputs, bitwidthPerInputElement,
+				totalLengthInBytes, paddingRequired);
+		preparedInputBits = input.bits;
+		numBlocks = input.numBlocks;
+
+		Word[] hWords = new Word[8];
+		for (int i = 0; i < 8; i++) {
+			Wire constant = generator.createConstantWire(SHA256Gadget.H[i]);
+			hWords[i] = new Word(constant, WORD_MAX, constant.getBitWires(32).asArray());
+		}
+
+		for (int blockNum = 0; blockNum < numBlocks; blockNum++) {
+
+			Word[] w = new Word[64];
+
+			for (int i = 0; i < 64; i++) {
+				if (i < 16) {
+					Wire[] bits = Util.reverseBytes(Arrays.copyOfRange(preparedInputBits, blockNum * 512 + i * 32,
+							blockNum * 512 + (i + 1) * 32));
+					w[i] = new Word(new WordSum().addBits(bits).getWire(), WORD_MAX, bits);
+				} else {
+					Wire[] x = getBits(w[i - 15]);
+					Wire[] s0 = xor3(rotateRight(x, 7), rotateRight(x, 18), shiftRight(x, 3));
+					Wire[] y = getBits(w[i - 2]);
+					Wire[] s1 = xor3(rotateRight(y, 17), rotateRight(y, 19), shiftRight(y, 10));
+					w[i] = new WordSum().add(w[i - 16]).add(w[i - 7]).addBits(s0).addBits(s1).toWord();
+				}
+			}
+
+			Word a = hWords[0];
+			Word b = hWords[1];
+			Word c = hWords[2];
+			Word d = hWords[3];
+			Word e = hWords[4];
+			Word f = hWords[5];
+			Word g = hWords[6];
+			Word h = hWords[7];
+
+			for (int i = 0; i < 64; i++) {
+
+				Wire[] eBits = getBits(e);
+				Wire[] s1 = xor3(rotateRight(eBits, 6), rotateRight(eBits, 11), rotateRight(eBits, 25));
+				Wire[] ch = computeCh(eBits, getBits(f), getBits(g));
+
+				Wire[] aBits = getBits(a);
+				Wire[] s0 = xor3(rotateRight(aBits, 2), rotateRight(aBits, 13), rotateRight(aBits, 22));
+
+				// same ordering trick as in SHA256Gadget, so that half of the
+				// products are reused from the previous round through caching.
+				Wire[] maj;
+				if (i % 2 == 1) {
+					maj = computeMaj(getBits(c), getBits(b), aBits);
+				} else {
+					maj = computeMaj(aBits, getBits(b), getBits(c));
+				}
+
+				Word temp1 = new WordSum().add(w[i]).addConstant(SHA256Gadget.K[i]).addBits(s1).add(h).addBits(ch)
+						.toWord();
+
+				h = g;
+				g = f;
+				f = e;
+				e = new WordSum().add(temp1).add(d).toWord();
+
+				d = c;
+				c = b;
+				b = a;
+				a = new WordSum().add(temp1).addBits(maj).addBits(s0).toWord();
+			}
+
+			Word[] state = { a, b, c, d, e, f, g, h };
+			for (int i = 0; i < 8; i++) {
+				hWords[i] = new WordSum().add(hWords[i]).add(state[i]).toWord();
+			}
+		}
+
+		output = new Wire[binaryOutput ? 8 * 32 : 8];
+		for (int i = 0; i < 8; i++) {
+			Wire[] bits = getBits(hWords[i]);
+			if (binaryOutput) {
+				System.arraycopy(bits, 0, output, i * 32, 32);
+			} else {
+				output[i] = hWords[i].dense;
+			}
+		}
+	}
+
+	/**
+	 * Returns the bits of the word, reducing it modulo 2^32 first if needed.
+	 * The reduction splits the dense form once, over the width of its upper
+	 * bound, and subtracts the overflow bits linearly.
+	 */
+	private Wire[] getBits(Word word) {
+		if (word.bits != null) {
+			return word.bits;
+		}
+		if (word.dense instanceof ConstantWire) {
+			BigInteger v = ((ConstantWire) word.dense).getConstant().and(WORD_MAX);
+			word.dense = generator.createConstantWire(v);
+			word.bits = word.dense.getBitWires(32).asArray();
+		} else if (word.max.bitLength() <= 32) {
+			word.bits = word.dense.getBitWires(32).asArray();
+		} else {
+			int width = word.max.bitLength();
+			Wire[] allBits = word.dense.getBitWires(width).asArray();
+			word.bits = Arrays.copyOf(allBits, 32);
+			Wire overflow = new WordSum().addBits(Arrays.copyOfRange(allBits, 32, width)).getWire();
+			word.dense = word.dense.sub(overflow.mul(BigInteger.ONE.shiftLeft(32)));
+		}
+		word.max = WORD_MAX;
+		return word.bits;
+	}
+
+	/**
+	 * Accumulates the terms of a sum of words, and an upper bound of its
+	 * value. The sum is a single linear combination.
+	 */
+	private class WordSum {
+		ArrayList<Wire> terms = new ArrayList<Wire>();
+		BigInteger max = BigInteger.ZERO;
+
+		WordSum add(Word word) {
+			terms.add(word.dense);
+			max = max.add(word.max);
+			return this;
+		}
+
+		WordSum addConstant(long v) {
+			terms.add(generator.createConstantWire(v));
+			max = max.add(BigInteger.valueOf(v));
+			return this;
+		}
+
+		WordSum addBits(Wire[] bits) {
+			for (int i = 0; i < bits.length; i++) {
+				if (bits[i] instanceof ConstantWire && ((ConstantWire) bits[i]).getConstant().signum() == 0) {
+					continue;
+				}
+				terms.add(bits[i].mul(BigInteger.ONE.shiftLeft(i)));
+			}
+			max = max.add(BigInteger.ONE.shiftLeft(bits.length).subtract(BigInteger.ONE));
+			return this;
+		}
+
+		Wire getWire() {
+			if (terms.isEmpty()) {
+				return generator.getZeroWire();
+			} else if (terms.size() == 1) {
+				return terms.get(0);
+			}
+			return new WireArray(terms.toArray(new Wire[0])).sumAllElements();
+		}
+
+		Word toWord() {
+			return new Word(getWire(), max, null);
+		}
+	}
+
+	private Wire[] xor3(Wire[] x, Wire[] y, Wire[] z) {
+		Wire[] result = new Wire[32];
+		for (int i = 0; i < 32; i++) {
+			result[i] = x[i].xor(y[i]).xor(z[i]);
+		}
+		return result;
+	}
+
+	private Wire[] rotateRight(Wire[] bits, int s) {
+		Wire[] result = new Wire[32];
+		for (int i = 0; i < 32; i++) {
+			result[i] = bits[(i + s) % 32];
+		}
+		return result;
+	}
+
+	private Wire[] shiftRight(Wire[] bits, int s) {
+		Wire[] result = new Wire[32];
+		for (int i = 0; i < 32; i++) {
+			result[i] = i + s < 32 ? bits[i + s] : generator.getZeroWire();
+		}
+		return result;
+	}
+
+	private Wire[] computeMaj(Wire[] aBits, Wire[] bBits, Wire[] cBits) {
+		Wire[] result = new Wire[32];
+		for (int i = 0; i < 32; i++) {
+			Wire t1 = aBits[i].mul(bBits[i]);
+			Wire t2 = aBits[i].add(bBits[i]).add(t1.mul(-2));
+			result[i] = t1.add(cBits[i].mul(t2));
+		}
+		return result;
+	}
+
+	private Wire[] computeCh(Wire[] aBits, Wire[] bBits, Wire[] cBits) {
+		Wire[] result = new Wire[32];
+		for (int i = 0; i < 32; i++) {
+			Wire t1 = bBits[i].sub(cBits[i]);
+			Wire t2 = t1.mul(aBits[i]);
+			result[i] = t2.add(cBits[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * outputs digest as 32-bit words
+	 */
+	@Override
+	public Wire[] getOutputWires() {
+		return output;
+	}
+}
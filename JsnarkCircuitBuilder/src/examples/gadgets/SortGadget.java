@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.eval.Instruction;
+import circuit.operations.Gadget;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+/**
+ * Sorts an array of values less than 2^bitwidth in ascending order. Instead
+ * of a network of compare-and-swap elements, which needs O(n log^2 n)
+ * comparisons, the prover provides the sorted array, and the circuit checks
+ * that:
+ *
+ * - the first and the last outputs, and the difference between every two
+ * consecutive outputs, fit in bitwidth bits. This makes the outputs
+ * non-decreasing and less than 2^bitwidth, with one range check per output.
+ *
+ * - the outputs are a permutation of the inputs (see PermutationCheckGadget,
+ * where the challenge is derived from the inputs and the outputs).
+ *
+ * This costs about (bitwidth + 3) * n constraints, plus the hash of 2n values
+ * packed into field elements.
+ */
+public class SortGadget extends Gadget {
+
+	private Wire[] inputs;
+	private int bitwidth;
+	private Wire[] outputs;
+
+	/**
+	 * @param inputs
+	 *            Values that are assumed to be less than 2^bitwidth.
+	 */
+	public SortGadget(WireArray inputs, int bitwidth, String... desc) {
+		super(desc);
+		if (bitwidth <= 0 || bitwidth > Config.LOG2_FIELD_PRIME - 2) {
+			throw new IllegalArgumentException("Unsupported bitwidth: " + bitwidth);
+		}
+		this.inputs = inputs.asArray();
+		this.bitwidth = bitwidth;
+		buildCircuit();
+	}
+
+	private void buildCircuit() {
+
+		int n = inputs.length;
+		outputs = generator.createProverWitnessWireArray(n, debugStr("sorted values"));
+		generator.specifyProverWitnessComputation(new Instruction() {
+			@Override
+			public void evaluate(CircuitEvaluator evaluator) {
+				BigInteger[] values = evaluator.getWiresValues(inputs);
+				Arrays.sort(values);
+				evaluator.setWireValue(outputs, values);
+			}
+		});
+		if (n == 0) {
+			return;
+		}
+
+		generator.addRangeCheck(outputs[0], bitwidth, debugStr("smallest value"));
+		for (int i = 1; i < n; i++) {
+			generator.addRangeCheck(outputs[i].sub(outputs[i - 1]), bitwidth, debugStr("order"));
+		}
+		generator.addRangeCheck(outputs[n - 1], bitwidth, debugStr("largest value"));
+
+		new PermutationCheckGadget(new WireArray(inputs), new WireArray(outputs), bitwidth, description);
+	}
+
+	/**
+	 * The sorted values.
+	 */
+	@Override
+	public Wire[] getOutputWires() {
+		return outputs;
+	}
+}
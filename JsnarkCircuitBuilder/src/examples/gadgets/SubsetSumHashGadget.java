@@ -4,33 +4,46 @@
 package examples.gadgets;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
-import util.Util;
 import circuit.config.Config;
 import circuit.operations.Gadget;
+import circuit.structure.ConstantWire;
 import circuit.structure.Wire;
-
+import circuit.structure.WireArray;
+
+/**
+ * Subset-sum hash over the field. Inputs longer than one block are hashed using
+ * Merkle-Damgard chaining: the first block takes INPUT_LENGTH input bits, and
+ * every following block takes the bits of the previous digest followed by
+ * CHAINED_BLOCK_LENGTH input bits. The input length is added to the last block
+ * through an extra coefficient, so that zero padding does not cause
+ * collisions between inputs of different lengths.
+ * 
+ * The coefficients are derived deterministically from SHA-256 per block and
+ * dimension, and are only computed (and then cached) for the blocks that are
+ * used.
+ */
 public class SubsetSumHashGadget extends Gadget {
 
 	public static final int DIMENSION = 3;
 	public static final int INPUT_LENGTH = 2 * DIMENSION * Config.LOG2_FIELD_PRIME; // length in bits
-	private static final BigInteger[][] COEFFS;
+	public static final int CHAINED_BLOCK_LENGTH = INPUT_LENGTH - DIMENSION * Config.LOG2_FIELD_PRIME;
+
+	// block index -> coefficients of each dimension. The last coefficient of
+	// each dimension is the one of the input length.
+	private static final ConcurrentHashMap<Integer, BigInteger[][]> coeffsCache = new ConcurrentHashMap<>();
 
 	private Wire[] inputWires;
 	private Wire[] outWires;
 	private boolean binaryOutput;
 
-	static {
-		COEFFS = new BigInteger[DIMENSION][INPUT_LENGTH];
-		for (int i = 0; i < DIMENSION; i++) {
-			for (int k = 0; k < INPUT_LENGTH; k++) {
-				COEFFS[i][k] = Util.nextRandomBigInteger(Config.FIELD_PRIME);
-			}
-
-		}
-	}
-
 	/**
 	 * @param ins
 	 *            The bitwires of the input.
@@ -41,45 +54,110 @@ public class SubsetSumHashGadget extends Gadget {
 	public SubsetSumHashGadget(Wire[] ins, boolean binaryOutput, String... desc) {
 
 		super(desc);
-		int numBlocks = (int) Math.ceil(ins.length * 1.0 / INPUT_LENGTH);
-
-		if (numBlocks > 1) {
-			throw new IllegalArgumentException("Only one block is supported at this point");
-		}
-
-		int rem = numBlocks * INPUT_LENGTH - ins.length;
-
-		Wire[] pad = new Wire[rem];
-		for (int i = 0; i < pad.length; i++) {
-			pad[i] = generator.getZeroWire(); // TODO: adjust padding
-		}
-		inputWires = Util.concat(ins, pad);
+		inputWires = ins;
 		this.binaryOutput = binaryOutput;
 		buildCircuit();
 	}
 
 	private void buildCircuit() {
 
-		Wire[] outDigest = new Wire[DIMENSION];
-		Arrays.fill(outDigest, generator.getZeroWire());
-
-		for (int i = 0; i < DIMENSION; i++) {
-			for (int j = 0; j < INPUT_LENGTH; j++) {
-				Wire t = inputWires[j].mul(COEFFS[i][j]);
-				outDigest[i] = outDigest[i].add(t);
+		int numBlocks = getNumBlocks(inputWires.length);
+		Wire[] outDigest = null;
+		for (int b = 0; b < numBlocks; b++) {
+			Wire[] blockBits = new Wire[INPUT_LENGTH];
+			int offset;
+			int from;
+			if (b == 0) {
+				offset = 0;
+				from = 0;
+			} else {
+				offset = INPUT_LENGTH - CHAINED_BLOCK_LENGTH;
+				from = INPUT_LENGTH + (b - 1) * CHAINED_BLOCK_LENGTH;
+				System.arraycopy(splitDigest(outDigest), 0, blockBits, 0, offset);
 			}
+			int n = Math.max(0, Math.min(INPUT_LENGTH - offset, inputWires.length - from));
+			System.arraycopy(inputWires, from, blockBits, offset, n);
+			Arrays.fill(blockBits, offset + n, INPUT_LENGTH, generator.getZeroWire());
+			outDigest = hashBlock(blockBits, b, b == numBlocks - 1 ? inputWires.length : 0);
 		}
+
 		if (!binaryOutput) {
 			outWires = outDigest;
 		} else {
-			outWires = new Wire[DIMENSION * Config.LOG2_FIELD_PRIME];
-			for (int i = 0; i < DIMENSION; i++) {
-				Wire[] bits = outDigest[i].getBitWires(Config.LOG2_FIELD_PRIME).asArray();
-				for (int j = 0; j < bits.length; j++) {
-					outWires[j + i * Config.LOG2_FIELD_PRIME] = bits[j];
+			outWires = splitDigest(outDigest);
+		}
+	}
+
+	/**
+	 * Each element of the digest is a single linear combination of the block
+	 * bits; the constant bits (e.g. the padding) and the length term are folded
+	 * into one constant.
+	 */
+	private Wire[] hashBlock(Wire[] blockBits, int block, long length) {
+
+		BigInteger[][] coeffs = getCoefficients(block);
+		Wire[] digest = new Wire[DIMENSION];
+		for (int i = 0; i < DIMENSION; i++) {
+			ArrayList<Wire> terms = new ArrayList<Wire>();
+			BigInteger constant = coeffs[i][INPUT_LENGTH].multiply(BigInteger.valueOf(length));
+			for (int j = 0; j < INPUT_LENGTH; j++) {
+				if (blockBits[j] instanceof ConstantWire) {
+					constant = constant.add(((ConstantWire) blockBits[j]).getConstant().multiply(coeffs[i][j]));
+				} else {
+					terms.add(blockBits[j].mul(coeffs[i][j]));
 				}
 			}
+			terms.add(generator.createConstantWire(constant.mod(Config.FIELD_PRIME)));
+			digest[i] = new WireArray(terms.toArray(new Wire[terms.size()])).sumAllElements();
+		}
+		return digest;
+	}
+
+	private Wire[] splitDigest(Wire[] digest) {
+		Wire[] bits = new Wire[DIMENSION * Config.LOG2_FIELD_PRIME];
+		for (int i = 0; i < DIMENSION; i++) {
+			Wire[] elementBits = digest[i].getBitWires(Config.LOG2_FIELD_PRIME).asArray();
+			System.arraycopy(elementBits, 0, bits, i * Config.LOG2_FIELD_PRIME, Config.LOG2_FIELD_PRIME);
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns the number of blocks used to hash an input of the given length
+	 * (in bits).
+	 */
+	public static int getNumBlocks(int inputLength) {
+		if (inputLength <= INPUT_LENGTH) {
+			return 1;
+		}
+		return 1 + (inputLength - INPUT_LENGTH + CHAINED_BLOCK_LENGTH - 1) / CHAINED_BLOCK_LENGTH;
+	}
+
+	/**
+	 * Returns the coefficients of a block: DIMENSION arrays of INPUT_LENGTH + 1
+	 * field elements, where the last element multiplies the input length.
+	 */
+	public static BigInteger[][] getCoefficients(int block) {
+		return coeffsCache.computeIfAbsent(block, SubsetSumHashGadget::deriveCoefficients);
+	}
+
+	private static BigInteger[][] deriveCoefficients(int block) {
+		MessageDigest sha256;
+		try {
+			sha256 = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		byte[] prefix = "SubsetSumHashGadget".getBytes(StandardCharsets.US_ASCII);
+		BigInteger[][] coeffs = new BigInteger[DIMENSION][INPUT_LENGTH + 1];
+		for (int i = 0; i < DIMENSION; i++) {
+			for (int k = 0; k <= INPUT_LENGTH; k++) {
+				sha256.update(prefix);
+				sha256.update(ByteBuffer.allocate(12).putInt(block).putInt(i).putInt(k).array());
+				coeffs[i][k] = new BigInteger(1, sha256.digest()).mod(Config.FIELD_PRIME);
+			}
 		}
+		return coeffs;
 	}
 
 	@Override
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets.ecc;
+
+import java.math.BigInteger;
+
+import circuit.config.Config;
+import circuit.operations.Gadget;
+import circuit.structure.ConstantWire;
+import circuit.structure.Wire;
+import examples.gadgets.FieldDivisionGadget;
+
+/**
+ * Adds two points of a twisted Edwards curve with the complete formulas
+ *
+ * x3 = (x1 * y2 + y1 * x2) / (1 + d * x1 * x2 * y1 * y2)
+ * y3 = (y1 * y2 - a * x1 * x2) / (1 - d * x1 * x2 * y1 * y2)
+ *
+ * computed with the products x1 * y2, y1 * x2, (y1 - a * x1) * (x2 + y2) and
+ * their product, and one division per coordinate (6 constraints). When the
+ * two points are the same wires, the doubling formulas
+ *
+ * x3 = 2 * x * y / (a * x^2 + y^2), y3 = (y^2 - a * x^2) / (2 - a * x^2 - y^2)
+ *
+ * cost 5 constraints. Products and divisions by constants are free.
+ */
+public class EdwardsAddGadget extends Gadget {
+
+	private EdwardsCurve curve;
+	private Wire[] p;
+	private Wire[] q;
+	private Wire[] result;
+
+	public EdwardsAddGadget(EdwardsCurve curve, Wire[] p, Wire[] q, String... desc) {
+		super(desc);
+		this.curve = curve;
+		this.p = p;
+		this.q = q;
+		buildCircuit();
+	}
+
+	private void buildCircuit() {
+		BigInteger a = curve.getA();
+		BigInteger d = curve.getD();
+		if (p[0] == q[0] && p[1] == q[1]) {
+			Wire xx = p[0].mul(p[0]);
+			Wire yy = p[1].mul(p[1]);
+			Wire xy = p[0].mul(p[1]);
+			Wire axx = xx.mul(a);
+			result = new Wire[] { div(xy.mul(2), axx.add(yy)), div(yy.sub(axx), axx.add(yy).mul(-1).add(2)) };
+		} else {
+			Wire beta = p[0].mul(q[1]);
+			Wire gamma = p[1].mul(q[0]);
+			Wire delta = p[1].sub(p[0].mul(a)).mul(q[0].add(q[1]));
+			Wire tau = beta.mul(gamma).mul(d);
+			result = new Wire[] { div(beta.add(gamma), tau.add(1)),
+					div(delta.add(beta.mul(a)).sub(gamma), tau.mul(-1).add(1)) };
+		}
+	}
+
+	private Wire div(Wire numerator, Wire denominator) {
+		if (denominator instanceof ConstantWire) {
+			return numerator.mul(((ConstantWire) denominator).getConstant().modInverse(Config.FIELD_PRIME));
+		}
+		return new FieldDivisionGadget(numerator, denominator, description).getOutputWires()[0];
+	}
+
+	/**
+	 * The sum, as {x, y}.
+	 */
+	@Override
+	public Wire[] getOutputWires() {
+		return result;
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets.ecc;
+
+import java.math.BigInteger;
+
+import circuit.config.Config;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+
+/**
+ * A twisted Edwards curve a * x^2 + y^2 = 1 + d * x^2 * y^2 over
+ * Config.FIELD_PRIME, with a base point of prime order. The parameter a must
+ * be a square and d a non-square, so that the addition formulas are complete:
+ * they hold for any two points of the curve, including the identity (0, 1)
+ * and doublings, with no special case in the circuit.
+ *
+ * Points are given as {x, y}, as BigIntegers outside the circuit, and as
+ * wires in the gadgets (see EdwardsAddGadget and EdwardsScalarMulGadget).
+ */
+public class EdwardsCurve {
+
+	private static final BigInteger BN254_SCALAR_FIELD = new BigInteger(
+			"21888242871839275222246405745257275088548364400416034343698204186575808495617");
+
+	private BigInteger a;
+	private BigInteger d;
+	private BigInteger[] base;
+	private BigInteger order;
+
+	public EdwardsCurve(BigInteger a, BigInteger d, BigInteger[] base, BigInteger order) {
+		BigInteger p = Config.FIELD_PRIME;
+		BigInteger half = p.subtract(BigInteger.ONE).shiftRight(1);
+		if (!a.modPow(half, p).equals(BigInteger.ONE) || d.modPow(half, p).equals(BigInteger.ONE)
+				|| d.mod(p).signum() == 0) {
+			throw new IllegalArgumentException("Incomplete curve: a must be a square and d a non-square");
+		}
+		this.a = a.mod(p);
+		this.d = d.mod(p);
+		this.base = base;
+		this.order = order;
+		if (!isOnCurve(base)) {
+			throw new IllegalArgumentException("Base point not on the curve");
+		}
+	}
+
+	/**
+	 * Baby Jubjub (EIP-2494), defined over the scalar field of BN254, i.e. the
+	 * default prime. The base point generates the subgroup of prime order
+	 * (251 bits), and the cofactor is 8.
+	 */
+	public static EdwardsCurve babyJubjub() {
+		if (!Config.FIELD_PRIME.equals(BN254_SCALAR_FIELD)) {
+			throw new RuntimeException("Baby Jubjub is only defined over the BN254 scalar field");
+		}
+		BigInteger[] base = {
+				new BigInteger("5299619240641551281634865583518297030282874472190772894086521144482721001553"),
+				new BigInteger("16950150798460657717958625567821834550301663161624707787222815936182638968203") };
+		BigInteger order = new BigInteger(
+				"2736030358979909402780800718157159386076813972158567259200215660948447373041");
+		return new EdwardsCurve(BigInteger.valueOf(168700), BigInteger.valueOf(168696), base, order);
+	}
+
+	public BigInteger[] add(BigInteger[] p, BigInteger[] q) {
+		BigInteger prime = Config.FIELD_PRIME;
+		BigInteger t = d.multiply(p[0]).multiply(q[0]).multiply(p[1]).multiply(q[1]).mod(prime);
+		BigInteger x = p[0].multiply(q[1]).add(p[1].multiply(q[0]))
+				.multiply(BigInteger.ONE.add(t).modInverse(prime));
+		BigInteger y = p[1].multiply(q[1]).subtract(a.multiply(p[0]).multiply(q[0]))
+				.multiply(BigInteger.ONE.subtract(t).modInverse(prime));
+		return new BigInteger[] { x.mod(prime), y.mod(prime) };
+	}
+
+	public BigInteger[] mul(BigInteger[] p, BigInteger k) {
+		BigInteger[] result = getIdentity();
+		for (int i = k.bitLength() - 1; i >= 0; i--) {
+			result = add(result, result);
+			if (k.testBit(i)) {
+				result = add(result, p);
+			}
+		}
+		return result;
+	}
+
+	public boolean isOnCurve(BigInteger[] p) {
+		BigInteger prime = Config.FIELD_PRIME;
+		BigInteger xx = p[0].multiply(p[0]);
+		BigInteger yy = p[1].multiply(p[1]);
+		return a.multiply(xx).add(yy).subtract(BigInteger.ONE).subtract(d.multiply(xx).multiply(yy)).mod(prime)
+				.signum() == 0;
+	}
+
+	/**
+	 * Asserts that a point is on the curve, e.g. for a variable point from
+	 * the prover, as the formulas are only complete on the curve. This costs
+	 * three constraints. Points from a scalar multiplication or an addition
+	 * are on the curve by construction.
+	 */
+	public void assertOnCurve(Wire[] p, String... desc) {
+		CircuitGenerator generator = CircuitGenerator.getActiveCircuitGenerator();
+		Wire xx = p[0].mul(p[0], desc);
+		Wire yy = p[1].mul(p[1], desc);
+		generator.addAssertion(xx.mul(d, desc), yy, xx.mul(a, desc).add(yy, desc).sub(1, desc), desc);
+	}
+
+	public BigInteger[] getIdentity() {
+		return new BigInteger[] { BigInteger.ZERO, BigInteger.ONE };
+	}
+
+	public BigInteger getA() {
+		return a;
+	}
+
+	public BigInteger getD() {
+		return d;
+	}
+
+	public BigInteger[] getBase() {
+		return base.clone();
+	}
+
+	public BigInteger getOrder() {
+		return order;
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.gadgets.ecc;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import circuit.config.Config;
+import circuit.operations.Gadget;
+import circuit.structure.ConstantWire;
+import circuit.structure.Wire;
+import examples.gadgets.LookupTableGadget;
+
+/**
+ * Multiplies a point of a twisted Edwards curve by a scalar given as bits
+ * (least significant first), with fixed windows of the scalar, as
+ * DHKeyExchangeGadget does for exponentiations, and LookupTableGadget to select
+ * the multiples:
+ *
+ * - For a constant point, the multiples of the point for every window are
+ * computed outside the circuit. A window of 3 bits costs 3 constraints for
+ * the lookup (the 2 coordinates share the product of 2 bits) and one
+ * addition, i.e. 3 constraints per bit (748 for a 251-bit scalar).
+ *
+ * - For a variable point, the multiples 0, P, 2P, 3P are computed once, and
+ * the scalar is processed from left to right, with two doublings, a lookup
+ * (7 constraints) and an addition per window of 2 bits, i.e. about 11.5
+ * constraints per bit. The point is assumed to be on the curve (see
+ * EdwardsCurve.assertOnCurve()).
+ */
+public class EdwardsScalarMulGadget extends Gadget {
+
+	public static final int FIXED_BASE_WINDOW_SIZE = 3;
+	public static final int VARIABLE_BASE_WINDOW_SIZE = 2;
+
+	private EdwardsCurve curve;
+	private Wire[] point;
+	private Wire[] scalarBits;
+	private Wire[] result;
+
+	public EdwardsScalarMulGadget(EdwardsCurve curve, Wire[] point, Wire[] scalarBits, String... desc) {
+		super(desc);
+		this.curve = curve;
+		this.point = point;
+		this.scalarBits = scalarBits;
+		buildCircuit();
+	}
+
+	/**
+	 * Splits the scalar into bitwidth bits first. The bitwidth must be less
+	 * than the bitwidth of the field prime, so that the split is unique.
+	 */
+	public EdwardsScalarMulGadget(EdwardsCurve curve, Wire[] point, Wire scalar, int bitwidth, String... desc) {
+		this(curve, point, split(scalar, bitwidth), desc);
+	}
+
+	private static Wire[] split(Wire scalar, int bitwidth) {
+		if (bitwidth <= 0 || bitwidth >= Config.LOG2_FIELD_PRIME) {
+			throw new IllegalArgumentException("Unsupported bitwidth: " + bitwidth);
+		}
+		return scalar.getBitWires(bitwidth).asArray();
+	}
+
+	private void buildCircuit() {
+		if (point[0] instanceof ConstantWire && point[1] instanceof ConstantWire) {
+			result = fixedBaseMul();
+		} else {
+			result = variableBaseMul();
+		}
+	}
+
+	private Wire[] fixedBaseMul() {
+		int w = FIXED_BASE_WINDOW_SIZE;
+		// point * 2^from, computed outside the circuit
+		BigInteger[] power = { ((ConstantWire) point[0]).getConstant(), ((ConstantWire) point[1]).getConstant() };
+
+		Wire[] acc = null;
+		for (int from = 0; from < scalarBits.length; from += w) {
+			int width = Math.min(w, scalarBits.length - from);
+			BigInteger[][] table = new BigInteger[1 << width][];
+			BigInteger[] entry = curve.getIdentity();
+			for (int v = 0; v < table.length; v++) {
+				table[v] = entry;
+				entry = curve.add(entry, power);
+			}
+			for (int j = 0; j < width; j++) {
+				power = curve.add(power, power);
+			}
+			Wire[] f = new LookupTableGadget(table, getWindow(from, width), description).getOutputWires();
+			acc = acc == null ? f : add(acc, f);
+		}
+		return acc == null ? identity() : acc;
+	}
+
+	private Wire[] variableBaseMul() {
+		int w = VARIABLE_BASE_WINDOW_SIZE;
+		Wire[][] multiples = new Wire[1 << w][];
+		multiples[0] = identity();
+		multiples[1] = point;
+		for (int v = 2; v < multiples.length; v++) {
+			multiples[v] = v % 2 == 0 ? add(multiples[v / 2], multiples[v / 2]) : add(multiples[v - 1], point);
+		}
+
+		Wire[] acc = null;
+		int numWindows = (scalarBits.length + w - 1) / w;
+		for (int k = numWindows - 1; k >= 0; k--) {
+			int from = k * w;
+			int width = Math.min(w, scalarBits.length - from);
+			if (acc != null) {
+				for (int j = 0; j < width; j++) {
+					acc = add(acc, acc);
+				}
+			}
+			Wire[][] table = Arrays.copyOf(multiples, 1 << width);
+			Wire[] f = new LookupTableGadget(table, getWindow(from, width), description).getOutputWires();
+			acc = acc == null ? f : add(acc, f);
+		}
+		return acc == null ? identity() : acc;
+	}
+
+	private Wire[] add(Wire[] p, Wire[] q) {
+		return new EdwardsAddGadget(curve, p, q, description).getOutputWires();
+	}
+
+	private Wire[] getWindow(int from, int width) {
+		return Arrays.copyOfRange(scalarBits, from, from + width);
+	}
+
+	private Wire[] identity() {
+		return new Wire[] { generator.getZeroWire(), generator.getOneWire() };
+	}
+
+	/**
+	 * The product, as {x, y}.
+	 */
+	@Override
+	public Wire[] getOutputWires() {
+		return result;
+	}
+}
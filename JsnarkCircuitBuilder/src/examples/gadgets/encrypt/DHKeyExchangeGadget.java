@@ -4,22 +4,37 @@
 
 package examples.gadgets.encrypt;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import util.Util;
+import circuit.config.Config;
 import circuit.operations.Gadget;
+import circuit.structure.ConstantWire;
 import circuit.structure.Wire;
+import circuit.structure.WireArray;
+import examples.gadgets.LookupTableGadget;
 
 /**
  * Performs Key Exchange using a field extension F_p[x]/(x^\mu - \omega), where the polynomial (x^\mu - \omega) is irreducible.
  * The inputs to this gadget: the base g, the other party's input h = g^a, the bits of the secret exponent secExpBits and omega.
  * The outputs of this gadget: the derived key h^s to be used for symmetric key derivation, and g^s which is sent to the other party.
  *
+ * Both exponentiations use fixed windows of the exponent, and the table lookups are done by LookupTableGadget (the 
+ * products of the window bits are computed once for g^s and h^s). For a constant base, the tables are computed 
+ * outside the circuit, and each window costs one multiplication. For a variable base, the exponentiation goes from 
+ * left to right with a table of the first powers of the base. A multiplication of two non-constant elements is done 
+ * by evaluation and interpolation (Toom-Cook), which costs 2 * mu - 1 constraints instead of mu^2.
+ *
  * A sample parameter choice can be found in the test
  * A sample usage is in: examples/generators/EncryptionCircuitGenerator.java
  */
 public class DHKeyExchangeGadget extends Gadget {
 
+	public static final int FIXED_BASE_WINDOW_SIZE = 3;
+	public static final int VARIABLE_BASE_WINDOW_SIZE = 2;
+
 	private Wire[] g; // base
 	private Wire[] h; // other party's input
 	
@@ -30,6 +45,9 @@ public class DHKeyExchangeGadget extends Gadget {
 	private Wire[] g_to_s; // exchange material  g^s (to be sent to the other party)
 	private Wire[] h_to_s; // the derived key h^s
 	
+	// maps the products at the evaluation points 0, 1, .., 2mu-2 to the reduced product
+	private BigInteger[][] interpolationMatrix;
+	
 	public DHKeyExchangeGadget(Wire[] g, Wire[] h, Wire[] expBits, long omega, 
 			String desc) {
 		super(desc);
@@ -45,52 +63,230 @@ public class DHKeyExchangeGadget extends Gadget {
 	}
 	
 	protected void buildCircuit() {
+		interpolationMatrix = computeInterpolationMatrix();
 		g_to_s = exp(g, secExpBits);
 		h_to_s = exp(h, secExpBits);
 	}
 	
 	
-	private  Wire[] mul(Wire[] a, Wire[] b){
+	private Wire[] mul(Wire[] a, Wire[] b){
+		if(isConstant(a) || isConstant(b)){
+			// schoolbook: every product involves a constant, so it is free
+			Wire[] c = new Wire[mu];
+			Arrays.fill(c, generator.getZeroWire());
+			for(int i = 0; i < mu; i+=1){
+				for(int j = 0; j < mu; j+=1){
+					Wire t = a[i].mul(b[j]);
+					int k = i + j;
+					if(k < mu){
+						c[k] = c[k].add(t);
+					} else {
+						c[k - mu] = c[k - mu].add(t.mul(omega));
+					}
+				}
+			}
+			return c;
+		}
+		Wire[] ea = evaluate(a);
+		Wire[] eb = evaluate(b);
+		Wire[] products = new Wire[ea.length];
+		for(int k = 0; k < ea.length; k++){
+			products[k] = ea[k].mul(eb[k]);
+		}
+		return interpolate(products);
+	}
+	
+	private Wire[] square(Wire[] a){
+		if(isConstant(a)){
+			return mul(a, a);
+		}
+		Wire[] ea = evaluate(a);
+		Wire[] products = new Wire[ea.length];
+		for(int k = 0; k < ea.length; k++){
+			products[k] = ea[k].mul(ea[k]);
+		}
+		return interpolate(products);
+	}
+
+	// evaluates a(x) at x = 0, 1, .., 2mu-2
+	private Wire[] evaluate(Wire[] a){
+		Wire[] result = new Wire[2 * mu - 1];
+		for(int k = 0; k < result.length; k++){
+			BigInteger point = BigInteger.valueOf(k);
+			result[k] = linearCombination(a, null, point);
+		}
+		return result;
+	}
+
+	private Wire[] interpolate(Wire[] products){
 		Wire[] c = new Wire[mu];
-		int i,j;
-		for( i = 0; i < mu; i+=1){
-			c[i] = generator.getZeroWire();
-		}	
-		for( i = 0; i < mu; i+=1){
-			for( j = 0; j < mu; j+=1){
-				int k = i + j;
-				if(k < mu){
-					c[k] = c[k].add(a[i].mul(b[j]));		
+		for(int i = 0; i < mu; i++){
+			c[i] = linearCombination(products, interpolationMatrix[i], null);
+		}
+		return c;
+	}
+
+	// sums ws[k] * coeffs[k], or ws[k] * point^k if point is not null
+	private Wire linearCombination(Wire[] ws, BigInteger[] coeffs, BigInteger point){
+		ArrayList<Wire> terms = new ArrayList<Wire>();
+		for(int k = 0; k < ws.length; k++){
+			BigInteger coeff = point == null ? coeffs[k] : point.pow(k);
+			if(coeff.signum() != 0){
+				terms.add(ws[k].mul(coeff));
+			}
+		}
+		if(terms.isEmpty()){
+			return generator.getZeroWire();
+		}
+		return new WireArray(terms.toArray(new Wire[terms.size()])).sumAllElements();
+	}
+
+	private BigInteger[][] computeInterpolationMatrix(){
+		BigInteger p = Config.FIELD_PRIME;
+		int n = 2 * mu - 1;
+		// invert the Vandermonde matrix of the points 0, 1, .., n-1
+		BigInteger[][] m = new BigInteger[n][2 * n];
+		for(int k = 0; k < n; k++){
+			for(int j = 0; j < n; j++){
+				m[k][j] = BigInteger.valueOf(k).pow(j).mod(p);
+				m[k][n + j] = j == k ? BigInteger.ONE : BigInteger.ZERO;
+			}
+		}
+		for(int col = 0; col < n; col++){
+			int pivot = col;
+			while(m[pivot][col].signum() == 0){
+				pivot++;
+			}
+			BigInteger[] tmp = m[pivot];
+			m[pivot] = m[col];
+			m[col] = tmp;
+			BigInteger inv = m[col][col].modInverse(p);
+			for(int j = 0; j < 2 * n; j++){
+				m[col][j] = m[col][j].multiply(inv).mod(p);
+			}
+			for(int k = 0; k < n; k++){
+				if(k != col && m[k][col].signum() != 0){
+					BigInteger f = m[k][col];
+					for(int j = 0; j < 2 * n; j++){
+						m[k][j] = m[k][j].subtract(f.multiply(m[col][j])).mod(p);
+					}
 				}
-				k = i+j-mu;
-				if(k >= 0){
-					c[k] = c[k].add(a[i].mul(b[j]).mul(omega));		
+			}
+		}
+		// coefficient j of the product goes to j mod mu, multiplied by omega if j >= mu
+		BigInteger[][] result = new BigInteger[mu][n];
+		for(int i = 0; i < mu; i++){
+			for(int k = 0; k < n; k++){
+				BigInteger v = m[i][n + k];
+				if(i + mu < n){
+					v = v.add(BigInteger.valueOf(omega).multiply(m[i + mu][n + k]));
 				}
-			}	
+				result[i][k] = v.mod(p);
+			}
 		}
-		return c;
+		return result;
 	}
 
 	private Wire[] exp(Wire[] base, Wire[] expBits){
+		if(isConstant(base)){
+			return fixedBaseExp(base, expBits);
+		}
+		
+		// left to right, using base^0 .. base^(2^w - 1)
+		int w = VARIABLE_BASE_WINDOW_SIZE;
+		Wire[][] powers = new Wire[1 << w][];
+		powers[0] = one();
+		powers[1] = base;
+		for(int v = 2; v < powers.length; v++){
+			powers[v] = mul(powers[v - 1], base);
+		}
+		
+		Wire[] c = null;
+		int numWindows = (expBits.length + w - 1) / w;
+		for(int k = numWindows - 1; k >= 0; k--){
+			int from = k * w;
+			int width = Math.min(w, expBits.length - from);
+			if(c != null){
+				for(int j = 0; j < width; j++){
+					c = square(c);
+				}
+			}
+			Wire[] f = new LookupTableGadget(Arrays.copyOf(powers, 1 << width),
+					Arrays.copyOfRange(expBits, from, from + width), description).getOutputWires();
+			c = c == null ? f : mul(c, f);
+		}
+		return c == null ? one() : c;
+	}
 
-		Wire[][] powersTable =new Wire[expBits.length][mu];
-		powersTable[0] = base;
-		for(int j = 1; j < expBits.length; j+=1){
-			powersTable[j] = mul(powersTable[j-1],powersTable[j-1]);
+	private Wire[] fixedBaseExp(Wire[] base, Wire[] expBits){
+		int w = FIXED_BASE_WINDOW_SIZE;
+		// base^(2^from), computed outside the circuit
+		BigInteger[] power = new BigInteger[mu];
+		for(int i = 0; i < mu; i++){
+			power[i] = ((ConstantWire) base[i]).getConstant();
 		}
-	
-		Wire[] c = new Wire[mu];
-		Arrays.fill(c, generator.getZeroWire());
-		c[0] = generator.getOneWire();
-		for( int j = 0; j <  expBits.length; j+=1){
-			Wire[] tmp = mul(c, powersTable[j]);
-			for(int i = 0; i < mu; i++){
-				c[i] = c[i].add(expBits[j].mul(tmp[i].sub(c[i])));
+		
+		Wire[] c = null;
+		for(int from = 0; from < expBits.length; from += w){
+			int width = Math.min(w, expBits.length - from);
+			BigInteger[][] table = new BigInteger[1 << width][];
+			BigInteger[] entry = constantOne();
+			for(int v = 0; v < table.length; v++){
+				table[v] = entry;
+				entry = mulConstants(entry, power);
+			}
+			for(int j = 0; j < width; j++){
+				power = mulConstants(power, power);
 			}
+			Wire[] f = new LookupTableGadget(table, Arrays.copyOfRange(expBits, from, from + width),
+					description).getOutputWires();
+			c = c == null ? f : mul(c, f);
+		}
+		return c == null ? one() : c;
+	}
+
+	private BigInteger[] mulConstants(BigInteger[] a, BigInteger[] b){
+		BigInteger[] c = new BigInteger[mu];
+		Arrays.fill(c, BigInteger.ZERO);
+		for(int i = 0; i < mu; i++){
+			for(int j = 0; j < mu; j++){
+				BigInteger t = a[i].multiply(b[j]);
+				if(i + j < mu){
+					c[i + j] = c[i + j].add(t);
+				} else {
+					c[i + j - mu] = c[i + j - mu].add(t.multiply(BigInteger.valueOf(omega)));
+				}
+			}
+		}
+		for(int i = 0; i < mu; i++){
+			c[i] = c[i].mod(Config.FIELD_PRIME);
 		}
 		return c;
 	}
 
+	private BigInteger[] constantOne(){
+		BigInteger[] one = new BigInteger[mu];
+		Arrays.fill(one, BigInteger.ZERO);
+		one[0] = BigInteger.ONE;
+		return one;
+	}
+
+	private Wire[] one(){
+		Wire[] one = new Wire[mu];
+		Arrays.fill(one, generator.getZeroWire());
+		one[0] = generator.getOneWire();
+		return one;
+	}
+
+	private boolean isConstant(Wire[] a){
+		for(Wire w : a){
+			if(!(w instanceof ConstantWire)){
+				return false;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public Wire[] getOutputWires() {
 		return Util.concat(g_to_s, h_to_s);
@@ -4,9 +4,15 @@
 
 package examples.gadgets.encrypt;
 
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
 import circuit.operations.Gadget;
 import circuit.structure.CircuitGenerator;
+import circuit.structure.ConstantWire;
 import circuit.structure.Wire;
+import circuit.structure.WireArray;
 
 /**
  * http://csrc.nist.gov/groups/ST/lwc-workshop2015/papers/session1-shors-paper.pdf
@@ -42,8 +48,7 @@ public class Speck128CipherGadget extends Gadget {
 		y = plaintext[0];
 		ciphertext = new Wire[2]; 
 		for (int i = 0; i <= 31; i++) {
-			x = x.rotateRight(64, 8).add(y);
-			x.getBitWires(65);
+			x = new WireArray(new Wire[] { x.rotateRight(64, 8), y }).sumWords(64);
 			x = x.xorBitwise(expandedKey[i], 64);
 			y = y.rotateLeft(64 , 3).xorBitwise(x, 64);
 		}
@@ -52,22 +57,53 @@ public class Speck128CipherGadget extends Gadget {
 	}
 	
 	/**
+	 * The key schedule is computed outside the circuit when the key is
+	 * constant. Otherwise, it is built once per key: later calls with the same
+	 * key wires return the same round keys (with their bits).
 	 * 
 	 * @param key: 2 64-bit words
 	 * @return
 	 */
 	public static Wire[] expandKey(Wire[] key){
 		CircuitGenerator generator = CircuitGenerator.getActiveCircuitGenerator();
+		if (key[0] instanceof ConstantWire && key[1] instanceof ConstantWire) {
+			long[] roundKeys = expandKey(((ConstantWire) key[0]).getConstant().longValue(),
+					((ConstantWire) key[1]).getConstant().longValue());
+			Wire[] k = new Wire[32];
+			for (int i = 0; i < 32; i++) {
+				k[i] = generator.createConstantWire(new BigInteger(Long.toUnsignedString(roundKeys[i])));
+			}
+			return k;
+		}
+		List<Object> memoKey = Arrays.asList(Speck128CipherGadget.class, key[0], key[1]);
+		Wire[] memoized = (Wire[]) generator.getGadgetMemo().get(memoKey);
+		if (memoized != null) {
+			return memoized.clone();
+		}
 		Wire[] k = new Wire[32];
 		Wire[] l =new Wire[32];
 		k[0] = key[0];
 		l[0] = key[1]; 
 		for (int i = 0; i <= 32 - 2; i++) {
-			l[i + 1] = k[i].add(l[i].rotateLeft(64, 56));
-			l[i + 1].getBitWires(65);
+			l[i + 1] = new WireArray(new Wire[] { k[i], l[i].rotateLeft(64, 56) }).sumWords(64);
 			l[i + 1] = l[i + 1].xorBitwise(generator.createConstantWire(i), 64);
 			k[i+1] = k[i].rotateLeft(64, 3).xorBitwise(l[i+1], 64);			
 		}
+		generator.getGadgetMemo().put(memoKey, k.clone());
+		return k;
+	}
+
+	/**
+	 * Computes the key schedule outside the circuit.
+	 */
+	public static long[] expandKey(long key0, long key1) {
+		long[] k = new long[32];
+		long l = key1;
+		k[0] = key0;
+		for (int i = 0; i <= 32 - 2; i++) {
+			l = (k[i] + Long.rotateRight(l, 8)) ^ i;
+			k[i + 1] = Long.rotateLeft(k[i], 3) ^ l;
+		}
 		return k;
 	}
 	
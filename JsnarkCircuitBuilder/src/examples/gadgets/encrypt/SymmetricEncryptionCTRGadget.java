@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+
+package examples.gadgets.encrypt;
+
+import java.util.Arrays;
+
+import util.Util;
+import circuit.operations.Gadget;
+import circuit.structure.SubcircuitTemplate;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+
+/**
+ * Performs symmetric encryption in the CTR mode: block i of the plaintext is
+ * xored with the encryption of the counter IV + i (mod 2^128), and the last
+ * block is truncated, so no padding is needed. The output has the same format
+ * as SymmetricEncryptionCBCGadget (64-bit words).
+ * 
+ * The block encryptions do not depend on each other: after the counters are
+ * computed, one block is recorded as a SubcircuitTemplate, and the other blocks
+ * are cloned from it in parallel. The evaluator also evaluates the cloned
+ * blocks in parallel.
+ * 
+ * Only supports one cipher (speck128) as an example at the moment.
+ */
+public class SymmetricEncryptionCTRGadget extends Gadget {
+
+	private Wire[] ciphertext;
+	private String cipherName;
+
+	private Wire[] keyBits;
+	private Wire[] plaintextBits;
+	private Wire[] ivBits;
+
+	private int blocksize = 128;
+	private int keysize = 128;
+
+	public SymmetricEncryptionCTRGadget(Wire[] plaintextBits, Wire[] keyBits, Wire[] ivBits, String cipherName,
+			String... desc) {
+		super(desc);
+		if (keyBits.length != keysize || ivBits.length != keysize) {
+			throw new IllegalArgumentException("Key and IV bit vectors should be of length 128");
+		}
+		if (!cipherName.equals("speck128")) {
+			throw new UnsupportedOperationException("Other Ciphers not supported in this version!");
+		}
+		this.plaintextBits = plaintextBits;
+		this.ivBits = ivBits;
+		this.keyBits = keyBits;
+		this.cipherName = cipherName;
+		buildCircuit();
+	}
+
+	protected void buildCircuit() {
+
+		int numBlocks = (int) Math.ceil(plaintextBits.length * 1.0 / blocksize);
+		Wire[] packedKey = new WireArray(keyBits).packBitsIntoWords(64);
+		final Wire[] preparedKey = Speck128CipherGadget.expandKey(packedKey);
+
+		// the inputs of each block: the two words of the counter, followed by
+		// the plaintext bits of the block
+		Wire iv = new WireArray(ivBits).packAsBits();
+		Wire[][] blockInputs = new Wire[numBlocks][];
+		for (int i = 0; i < numBlocks; i++) {
+			WireArray counterBits = iv.add(i).getBitWires(blocksize + 1);
+			Wire[] counter = new Wire[] { counterBits.packAsBits(0, 64), counterBits.packAsBits(64, 128) };
+			Wire[] msgBlock = Arrays.copyOfRange(plaintextBits, i * blocksize,
+					Math.min((i + 1) * blocksize, plaintextBits.length));
+			blockInputs[i] = Util.concat(counter, msgBlock);
+		}
+
+		Wire[][] blockOutputs = new Wire[numBlocks][];
+		if (numBlocks > 0) {
+			SubcircuitTemplate template = new SubcircuitTemplate(blockInputs[0],
+					ins -> encryptBlock(ins, preparedKey));
+			blockOutputs[0] = template.getPrototypeOutputs();
+			Wire[][] others = template.instantiate(Arrays.copyOfRange(blockInputs, 1, numBlocks), true);
+			System.arraycopy(others, 0, blockOutputs, 1, others.length);
+		}
+
+		ciphertext = new Wire[0];
+		for (Wire[] words : blockOutputs) {
+			ciphertext = Util.concat(ciphertext, words);
+		}
+	}
+
+	private Wire[] encryptBlock(Wire[] ins, Wire[] preparedKey) {
+		Wire[] counter = Arrays.copyOfRange(ins, 0, 2);
+		Wire[] msgBits = Arrays.copyOfRange(ins, 2, ins.length);
+		Wire[] keystream = new Speck128CipherGadget(counter, preparedKey, "").getOutputWires();
+		WireArray keystreamBits = new WireArray(keystream).getBits(64);
+		return new WireArray(msgBits).xorWireArray(keystreamBits, msgBits.length).packBitsIntoWords(64);
+	}
+
+	@Override
+	public Wire[] getOutputWires() {
+		return ciphertext;
+	}
+
+}
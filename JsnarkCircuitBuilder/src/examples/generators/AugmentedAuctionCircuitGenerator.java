@@ -10,7 +10,7 @@ import circuit.eval.CircuitEvaluator;
 import circuit.structure.CircuitGenerator;
 import circuit.structure.Wire;
 import examples.gadgets.PinocchioGadget;
-import examples.gadgets.SHA256Gadget;
+import examples.gadgets.SHA256BatchGadget;
 
 /**
  * This circuit generator augments a second-price auction circuit (produced by Pinocchio's compiler) 
@@ -56,18 +56,26 @@ public class AugmentedAuctionCircuitGenerator extends CircuitGenerator {
 		// ignore the last output for this circuit which carries the index of the winner (not needed for this example)
 		secretOutputValues = Arrays.copyOfRange(outputs, 0, outputs.length - 1);
 		
-		// augment the input side
+		// augment the input side (the commitments are hashed by a single batch gadget)
+		Wire[][] inputCommitmentMessages = new Wire[numParties - 1][];
 		for(int i = 0; i < numParties - 1; i++){
-			SHA256Gadget g = new SHA256Gadget(Util.concat(secretInputValues[i], secretInputRandomness[i]), 64, 64, false, false);
-			makeOutputArray(g.getOutputWires(), "Commitment for party # " + i + "'s input balance.");
+			inputCommitmentMessages[i] = Util.concat(secretInputValues[i], secretInputRandomness[i]);
+		}
+		Wire[][] inputCommitments = new SHA256BatchGadget(inputCommitmentMessages, 64, 64, false, false).getDigests();
+		for(int i = 0; i < numParties - 1; i++){
+			makeOutputArray(inputCommitments[i], "Commitment for party # " + i + "'s input balance.");
 		}
 		
 		// augment the output side
+		Wire[][] outputCommitmentMessages = new Wire[numParties][];
 		for(int i = 0; i < numParties; i++){
 			// adapt the output values to 64-bit values (adaptation is needed due to the way Pinocchio's compiler handles subtractions) 
 			secretOutputValues[i] = secretOutputValues[i].getBitWires(64*2).packAsBits(64);
-			SHA256Gadget g = new SHA256Gadget(Util.concat(secretOutputValues[i], secretOutputRandomness[i]), 64, 64, false, false);
-			makeOutputArray(g.getOutputWires(), "Commitment for party # " + i + "'s output balance.");
+			outputCommitmentMessages[i] = Util.concat(secretOutputValues[i], secretOutputRandomness[i]);
+		}
+		Wire[][] outputCommitments = new SHA256BatchGadget(outputCommitmentMessages, 64, 64, false, false).getDigests();
+		for(int i = 0; i < numParties; i++){
+			makeOutputArray(outputCommitments[i], "Commitment for party # " + i + "'s output balance.");
 		}
 	}
 
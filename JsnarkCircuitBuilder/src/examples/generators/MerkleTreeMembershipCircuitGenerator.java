@@ -8,7 +8,7 @@ import circuit.eval.CircuitEvaluator;
 import circuit.structure.CircuitGenerator;
 import circuit.structure.Wire;
 import examples.gadgets.MerkleTreePathGadget;
-import examples.gadgets.SubsetSumHashGadget;
+import examples.gadgets.MerkleTreePathGadget.HashFunction;
 import util.Util;
 
 public class MerkleTreeMembershipCircuitGenerator extends CircuitGenerator {
@@ -20,13 +20,20 @@ public class MerkleTreeMembershipCircuitGenerator extends CircuitGenerator {
 	private int leafNumOfWords = 10;
 	private int leafWordBitWidth = 32;
 	private int treeHeight;
-	private int hashDigestDimension = SubsetSumHashGadget.DIMENSION;
+	private HashFunction hashFunction;
+	private int hashDigestDimension;
 
 	private MerkleTreePathGadget merkleTreeGadget;
 	
 	public MerkleTreeMembershipCircuitGenerator(String circuitName, int treeHeight) {
+		this(circuitName, treeHeight, HashFunction.SUBSET_SUM);
+	}
+
+	public MerkleTreeMembershipCircuitGenerator(String circuitName, int treeHeight, HashFunction hashFunction) {
 		super(circuitName);
 		this.treeHeight = treeHeight;
+		this.hashFunction = hashFunction;
+		this.hashDigestDimension = hashFunction.getDigestWidth();
 	}
 
 	@Override
@@ -42,7 +49,7 @@ public class MerkleTreeMembershipCircuitGenerator extends CircuitGenerator {
 		/** connect gadget **/
 
 		merkleTreeGadget = new MerkleTreePathGadget(
-				directionSelector, leafWires, intermediateHasheWires, leafWordBitWidth, treeHeight);
+				directionSelector, leafWires, intermediateHasheWires, leafWordBitWidth, treeHeight, hashFunction);
 		Wire[] actualRoot = merkleTreeGadget.getOutputWires();
 		
 		/** Now compare the actual root with the public known root **/
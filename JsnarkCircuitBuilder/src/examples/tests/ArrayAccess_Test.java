@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+import examples.gadgets.ArrayAccessGadget;
+
+public class ArrayAccess_Test extends TestCase {
+
+	@Test
+	public void testRead() {
+		int[] sizes = { 1, 2, 5, 16, 37, 100 };
+		for (int n : sizes) {
+			int[] indices = new int[Math.min(n, 20)];
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = (i * 7) % n;
+			}
+			indices[indices.length - 1] = n - 1;
+			BigInteger[] values = Util.randomBigIntegerArray(n, 64);
+			CircuitGenerator generator = buildReads(values, false, indices);
+			check(generator);
+			CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+			for (int i = 0; i < indices.length; i++) {
+				assertEquals(values[indices[i]], evaluator.getWireValue(generator.getOutWires().get(i)));
+			}
+		}
+	}
+
+	@Test
+	public void testTable() {
+		int n = 1024;
+		BigInteger[] values = Util.randomBigIntegerArray(n, 64);
+		int[] indices = { 0, 31, 32, 555, 1023 };
+		CircuitGenerator generator = buildReads(values, true, indices);
+		check(generator);
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		for (int i = 0; i < indices.length; i++) {
+			assertEquals(values[indices[i]], evaluator.getWireValue(generator.getOutWires().get(i)));
+		}
+		// per read: the split of the index (11), both selectors (30 each),
+		// the rows (32), and the output (1)
+		assertEquals(indices.length * 104, generator.getNumOfConstraints());
+	}
+
+	@Test
+	public void testWrite() {
+		final int n = 37;
+		final int index = 20;
+		final BigInteger[] values = Util.randomBigIntegerArray(n, 64);
+		final BigInteger newValue = BigInteger.valueOf(999);
+		CircuitGenerator generator = new CircuitGenerator("ArrayWrite_Test") {
+
+			Wire[] arrayWires;
+			Wire indexWire;
+			Wire valueWire;
+
+			@Override
+			protected void buildCircuit() {
+				arrayWires = createInputWireArray(n);
+				indexWire = createProverWitnessWire();
+				valueWire = createInputWire();
+				makeOutputArray(new ArrayAccessGadget(new WireArray(arrayWires), indexWire, valueWire)
+						.getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				e.setWireValue(arrayWires, values);
+				e.setWireValue(indexWire, index);
+				e.setWireValue(valueWire, newValue);
+			}
+		};
+		generator.generateCircuit();
+		check(generator);
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		for (int i = 0; i < n; i++) {
+			assertEquals(i == index ? newValue : values[i], evaluator.getWireValue(generator.getOutWires().get(i)));
+		}
+	}
+
+	@Test
+	public void testIndexOutOfRange() {
+		BigInteger[] values = Util.randomBigIntegerArray(37, 64);
+		CircuitGenerator generator = buildReads(values, false, new int[] { 37 });
+		try {
+			generator.evalCircuit();
+			fail("index out of range accepted");
+		} catch (RuntimeException e) {
+		}
+	}
+
+	private CircuitGenerator buildReads(final BigInteger[] values, final boolean constant, final int[] indices) {
+		CircuitGenerator generator = new CircuitGenerator("ArrayRead_Test") {
+
+			Wire[] arrayWires;
+			Wire[] indexWires;
+
+			@Override
+			protected void buildCircuit() {
+				arrayWires = constant ? createConstantWireArray(values) : createInputWireArray(values.length);
+				indexWires = createProverWitnessWireArray(indices.length);
+				for (int i = 0; i < indices.length; i++) {
+					makeOutputArray(new ArrayAccessGadget(new WireArray(arrayWires), indexWires[i]).getOutputWires());
+				}
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				if (!constant) {
+					e.setWireValue(arrayWires, values);
+				}
+				for (int i = 0; i < indices.length; i++) {
+					e.setWireValue(indexWires[i], indices[i]);
+				}
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+
+	private static void check(CircuitGenerator generator) {
+		generator.evalCircuit();
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(generator.getCircuitEvaluator())));
+	}
+}
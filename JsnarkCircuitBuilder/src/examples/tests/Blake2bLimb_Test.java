@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.Blake2bGadget;
+import examples.gadgets.Blake2bLimbGadget;
+
+/**
+ * Tests the Blake2b standard cases on Blake2bLimbGadget, and compares it with
+ * Blake2bGadget.
+ */
+public class Blake2bLimb_Test extends TestCase {
+
+	@Test
+	public void testStandardCases() {
+		checkDigest("", "e58199f28d56fea2ec39fa5e6f2720d27a38d0b187c1cde079d37e3f799b5dd0");
+		checkDigest("abc", "4ebf7df5e1b1d1c8837bb6bb970eb076130ec5e21287473e76c286c83179435b");
+		checkDigest("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq",
+				"5ef99720a55fd1a9b7161424a77e2b86bf77b08e764c8d5659440b9c8c930917");
+		checkDigest("abcdefghbcdefghicdefghijdefghijkefghijklfghijklmghijklmnhijklmnoijklmnopjklmnopqklmnopqrlmnopqrs"
+				+ "mnopqrstnopqrstu", "d0fc4d095e3ad9a8126851d46cae8ab300301d0317d3b30c7fbad84225e9cb99");
+	}
+
+	@Test
+	public void testAgainstBlake2bGadget() {
+
+		// 100 random bytes, i.e. two blocks after prepending the key block
+		final BigInteger[] inputs = Util.randomBigIntegerArray(100, 8);
+		CircuitGenerator[] generators = new CircuitGenerator[2];
+		for (int k = 0; k < 2; k++) {
+			final boolean limb = k == 1;
+			generators[k] = new CircuitGenerator("Blake2b_Compare" + k) {
+
+				Wire[] inputWires;
+
+				@Override
+				protected void buildCircuit() {
+					inputWires = createInputWireArray(inputs.length);
+					Wire[] digest = limb ? new Blake2bLimbGadget(inputWires, 8, inputs.length, false, false).getOutputWires()
+							: new Blake2bGadget(inputWires, 8, inputs.length, false, false).getOutputWires();
+					makeOutputArray(digest);
+				}
+
+				@Override
+				public void generateSampleInput(CircuitEvaluator e) {
+					for (int i = 0; i < inputs.length; i++) {
+						e.setWireValue(inputWires[i], inputs[i]);
+					}
+				}
+			};
+			generators[k].generateCircuit();
+			generators[k].evalCircuit();
+		}
+
+		CircuitEvaluator expected = generators[0].getCircuitEvaluator();
+		CircuitEvaluator actual = generators[1].getCircuitEvaluator();
+		assertEquals(generators[0].getOutWires().size(), generators[1].getOutWires().size());
+		for (int i = 0; i < generators[0].getOutWires().size(); i++) {
+			assertEquals(expected.getWireValue(generators[0].getOutWires().get(i)),
+					actual.getWireValue(generators[1].getOutWires().get(i)));
+		}
+		assertTrue(generators[1].getNumOfConstraints() < generators[0].getNumOfConstraints());
+
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generators[1]);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(actual)));
+	}
+
+	private void checkDigest(final String inputStr, String expectedDigest) {
+
+		CircuitGenerator generator = new CircuitGenerator("Blake2b_Limb_Test") {
+
+			Wire[] inputWires;
+
+			@Override
+			protected void buildCircuit() {
+				inputWires = createInputWireArray(inputStr.length());
+				Wire[] digest = new Blake2bLimbGadget(inputWires, 8, inputStr.length(), false, true, "")
+						.getOutputWires();
+				makeOutputArray(digest);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < inputStr.length(); i++) {
+					e.setWireValue(inputWires[i], inputStr.charAt(i));
+				}
+			}
+		};
+
+		generator.generateCircuit();
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+
+		String outDigest = "";
+		for (Wire w : generator.getOutWires()) {
+			outDigest += Util.padZeros(evaluator.getWireValue(w).toString(16), 2);
+		}
+		assertEquals(expectedDigest, outDigest);
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.ecc.EdwardsAddGadget;
+import examples.gadgets.ecc.EdwardsCurve;
+import examples.gadgets.ecc.EdwardsScalarMulGadget;
+
+public class EdwardsCurve_Test extends TestCase {
+
+	private static final EdwardsCurve CURVE = EdwardsCurve.babyJubjub();
+
+	@Test
+	public void testCurve() {
+		BigInteger[] base = CURVE.getBase();
+		assertTrue(CURVE.isOnCurve(base));
+		BigInteger[] identity = CURVE.mul(base, CURVE.getOrder());
+		assertEquals(BigInteger.ZERO, identity[0]);
+		assertEquals(BigInteger.ONE, identity[1]);
+	}
+
+	@Test
+	public void testFixedBase() {
+		final BigInteger scalar = Util.nextRandomBigInteger(CURVE.getOrder());
+		CircuitGenerator generator = new CircuitGenerator("EdwardsFixedBase_Test") {
+
+			Wire[] scalarBits;
+
+			@Override
+			protected void buildCircuit() {
+				scalarBits = createProverWitnessWireArray(251);
+				Wire[] base = createConstantWireArray(CURVE.getBase());
+				makeOutputArray(new EdwardsScalarMulGadget(CURVE, base, scalarBits).getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < scalarBits.length; i++) {
+					e.setWireValue(scalarBits[i], scalar.testBit(i) ? 1 : 0);
+				}
+			}
+		};
+		generator.generateCircuit();
+		check(generator, CURVE.mul(CURVE.getBase(), scalar));
+		// 83 windows of 3 bits (3 constraints each) and one of 2 bits, with an
+		// addition (6) after the first one, and the outputs
+		assertEquals(83 * 3 + 1 + 83 * 6 + 2, generator.getNumOfConstraints());
+	}
+
+	@Test
+	public void testVariableBase() {
+		final BigInteger[] point = CURVE.mul(CURVE.getBase(), Util.nextRandomBigInteger(CURVE.getOrder()));
+		final BigInteger[] scalars = { Util.nextRandomBigInteger(CURVE.getOrder()), BigInteger.ZERO,
+				BigInteger.ONE, CURVE.getOrder(), CURVE.getOrder().subtract(BigInteger.ONE) };
+		for (final BigInteger scalar : scalars) {
+			CircuitGenerator generator = new CircuitGenerator("EdwardsVariableBase_Test") {
+
+				Wire[] pointWires;
+				Wire scalarWire;
+
+				@Override
+				protected void buildCircuit() {
+					pointWires = createInputWireArray(2);
+					scalarWire = createProverWitnessWire();
+					CURVE.assertOnCurve(pointWires);
+					makeOutputArray(new EdwardsScalarMulGadget(CURVE, pointWires, scalarWire, 251)
+							.getOutputWires());
+				}
+
+				@Override
+				public void generateSampleInput(CircuitEvaluator e) {
+					e.setWireValue(pointWires, point);
+					e.setWireValue(scalarWire, scalar);
+				}
+			};
+			generator.generateCircuit();
+			check(generator, CURVE.mul(point, scalar));
+			// the split, the on-curve check, and about 11.5 per bit
+			assertTrue(generator.getNumOfConstraints() <= 252 + 3 + 251 * 23 / 2 + 30);
+		}
+	}
+
+	@Test
+	public void testAddition() {
+		final BigInteger[] p = CURVE.mul(CURVE.getBase(), BigInteger.valueOf(12345));
+		final BigInteger[] q = CURVE.mul(CURVE.getBase(), CURVE.getOrder().subtract(BigInteger.valueOf(12345)));
+		CircuitGenerator generator = new CircuitGenerator("EdwardsAdd_Test") {
+
+			Wire[] pWires;
+			Wire[] qWires;
+
+			@Override
+			protected void buildCircuit() {
+				pWires = createInputWireArray(2);
+				qWires = createInputWireArray(2);
+				Wire[] identity = new Wire[] { getZeroWire(), getOneWire() };
+				// p + q = 0, p + 0 = p, 2p
+				makeOutputArray(new EdwardsAddGadget(CURVE, pWires, qWires).getOutputWires());
+				makeOutputArray(new EdwardsAddGadget(CURVE, pWires, identity).getOutputWires());
+				makeOutputArray(new EdwardsAddGadget(CURVE, pWires, pWires).getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				e.setWireValue(pWires, p);
+				e.setWireValue(qWires, q);
+			}
+		};
+		generator.generateCircuit();
+		check(generator, CURVE.getIdentity(), p, CURVE.add(p, p));
+	}
+
+	private static void check(CircuitGenerator generator, BigInteger[]... expected) {
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i][0], evaluator.getWireValue(generator.getOutWires().get(2 * i)));
+			assertEquals(expected[i][1], evaluator.getWireValue(generator.getOutWires().get(2 * i + 1)));
+		}
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.FieldDivisionGadget;
+
+public class FieldDivision_Test extends TestCase {
+
+	@Test
+	public void testDivisions() {
+		// independent divisions, whose inversions are batched, and chains of
+		// divisions, where each one needs the result of the previous one
+		int n = 500;
+		BigInteger p = Config.FIELD_PRIME;
+		BigInteger[] a = Util.randomBigIntegerArray(n, p);
+		BigInteger[] b = Util.randomBigIntegerArray(n, p);
+		CircuitGenerator generator = build(a, b);
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		for (int i = 0; i < n; i++) {
+			BigInteger quotient = a[i].multiply(b[i].modInverse(p)).mod(p);
+			assertEquals(quotient, evaluator.getWireValue(generator.getOutWires().get(2 * i)));
+			assertEquals(quotient.multiply(b[i].modInverse(p)).mod(p),
+					evaluator.getWireValue(generator.getOutWires().get(2 * i + 1)));
+		}
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+	}
+
+	@Test
+	public void testDivisionByZero() {
+		BigInteger[] a = { BigInteger.ONE, BigInteger.TEN };
+		BigInteger[] b = { BigInteger.ONE, BigInteger.ZERO };
+		CircuitGenerator generator = build(a, b);
+		try {
+			generator.evalCircuit();
+			fail("division by zero accepted");
+		} catch (RuntimeException e) {
+		}
+	}
+
+	private static CircuitGenerator build(final BigInteger[] a, final BigInteger[] b) {
+		CircuitGenerator generator = new CircuitGenerator("FieldDivision_Test") {
+
+			Wire[] aWires;
+			Wire[] bWires;
+
+			@Override
+			protected void buildCircuit() {
+				aWires = createInputWireArray(a.length);
+				bWires = createInputWireArray(b.length);
+				Wire[] quotients = new Wire[a.length];
+				for (int i = 0; i < a.length; i++) {
+					quotients[i] = new FieldDivisionGadget(aWires[i], bWires[i]).getOutputWires()[0];
+				}
+				for (int i = 0; i < a.length; i++) {
+					makeOutput(quotients[i]);
+					makeOutput(new FieldDivisionGadget(quotients[i], bWires[i]).getOutputWires()[0]);
+				}
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				e.setWireValue(aWires, a);
+				e.setWireValue(bWires, b);
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+}
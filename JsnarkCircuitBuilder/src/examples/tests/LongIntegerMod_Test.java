@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.LongElement;
+import circuit.structure.Wire;
+import examples.gadgets.LongIntegerModGadget;
+
+public class LongIntegerMod_Test extends TestCase {
+
+	@Test
+	public void testModMul2048() {
+		Random rand = new Random(1);
+		BigInteger m = new BigInteger(2048, rand).setBit(2047);
+		BigInteger a = new BigInteger(2048, rand).mod(m);
+		BigInteger b = new BigInteger(2048, rand).mod(m);
+		CircuitGenerator generator = modMul(a, b, m, LongElement.DEFAULT_LIMB_BITWIDTH, false);
+		// most of the cost is in the range checks of a, b, q, r and m - r - 1
+		// (5 * 2048 bits), while a product on bits alone would need 2048^2
+		assertTrue(generator.getNumOfConstraints() < 6 * 2048);
+	}
+
+	@Test
+	public void testConstantModulus() {
+		Random rand = new Random(2);
+		BigInteger m = new BigInteger(1024, rand).setBit(1023);
+		BigInteger a = new BigInteger(1024, rand).mod(m);
+		BigInteger b = new BigInteger(1024, rand).mod(m);
+		modMul(a, b, m, LongElement.DEFAULT_LIMB_BITWIDTH, true);
+	}
+
+	@Test
+	public void testLimbBitwidths() {
+		Random rand = new Random(3);
+		BigInteger m = new BigInteger(521, rand).setBit(520);
+		BigInteger a = m.subtract(BigInteger.ONE);
+		BigInteger b = new BigInteger(521, rand).mod(m);
+		int[] limbBitwidths = { 16, 32, 120 };
+		for (int limbBitwidth : limbBitwidths) {
+			modMul(a, b, m, limbBitwidth, false);
+		}
+	}
+
+	@Test
+	public void testModulusAboveFieldPrime() {
+		final BigInteger m = BigInteger.ONE.shiftLeft(255).add(BigInteger.valueOf(95));
+		final BigInteger a = m.subtract(BigInteger.TEN);
+		final BigInteger b = m.subtract(BigInteger.ONE);
+		CircuitGenerator generator = new CircuitGenerator("LongMod_Large") {
+
+			Wire[] aWires;
+			Wire[] bWires;
+
+			@Override
+			protected void buildCircuit() {
+				aWires = createInputWireArray(4);
+				bWires = createInputWireArray(4);
+				LongElement product = new LongElement(aWires, 64).mul(new LongElement(bWires, 64));
+				LongIntegerModGadget gadget = new LongIntegerModGadget(product, new LongElement(m, 64), 256, true);
+				makeOutputArray(gadget.getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				setLimbs(e, aWires, a, 64);
+				setLimbs(e, bWires, b, 64);
+			}
+		};
+		generator.generateCircuit();
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		BigInteger[] assignment = cs.getVariableAssignment(evaluator);
+		assertTrue(cs.isSatisfied(assignment));
+		assertEquals(BigInteger.TEN, valueOf(evaluator, generator.getOutWires().toArray(new Wire[0]), 64));
+	}
+
+	private CircuitGenerator modMul(final BigInteger a, final BigInteger b, final BigInteger m,
+			final int limbBitwidth, final boolean constantModulus) {
+		final int bitwidth = m.bitLength();
+		final int numLimbs = (bitwidth + limbBitwidth - 1) / limbBitwidth;
+		CircuitGenerator generator = new CircuitGenerator("LongMod_Test") {
+
+			Wire[] aWires;
+			Wire[] bWires;
+			Wire[] mWires;
+
+			@Override
+			protected void buildCircuit() {
+				aWires = createProverWitnessWireArray(numLimbs);
+				bWires = createProverWitnessWireArray(numLimbs);
+				LongElement aElement = new LongElement(aWires, limbBitwidth);
+				LongElement bElement = new LongElement(bWires, limbBitwidth);
+				aElement.restrictBitwidth();
+				bElement.restrictBitwidth();
+				LongElement mElement;
+				if (constantModulus) {
+					mElement = new LongElement(m, limbBitwidth);
+				} else {
+					mWires = createInputWireArray(numLimbs);
+					mElement = new LongElement(mWires, limbBitwidth);
+				}
+				LongElement product = aElement.mul(bElement);
+				makeOutputArray(new LongIntegerModGadget(product, mElement, bitwidth, true).getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				setLimbs(e, aWires, a, limbBitwidth);
+				setLimbs(e, bWires, b, limbBitwidth);
+				if (!constantModulus) {
+					setLimbs(e, mWires, m, limbBitwidth);
+				}
+			}
+		};
+		generator.generateCircuit();
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		Wire[] outputs = generator.getOutWires().toArray(new Wire[0]);
+		assertEquals(a.multiply(b).mod(m), valueOf(evaluator, outputs, limbBitwidth));
+
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+		return generator;
+	}
+
+	private static void setLimbs(CircuitEvaluator e, Wire[] wires, BigInteger value, int limbBitwidth) {
+		BigInteger[] limbs = Util.split(value, wires.length, limbBitwidth);
+		for (int i = 0; i < wires.length; i++) {
+			e.setWireValue(wires[i], limbs[i]);
+		}
+	}
+
+	private static BigInteger valueOf(CircuitEvaluator e, Wire[] wires, int limbBitwidth) {
+		BigInteger value = BigInteger.ZERO;
+		for (int i = wires.length - 1; i >= 0; i--) {
+			value = value.shiftLeft(limbBitwidth).add(e.getWireValue(wires[i]));
+		}
+		return value;
+	}
+}
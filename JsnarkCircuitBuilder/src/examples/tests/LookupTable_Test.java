@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.LookupTableGadget;
+
+public class LookupTable_Test extends TestCase {
+
+	// constraints of a lookup in a table of 2^k entries, without the split of
+	// the index, for k = 1 .. 8
+	private static final int[] COSTS = { 0, 1, 2, 5, 8, 15, 22, 37 };
+
+	@Test
+	public void testLookups() {
+		for (int k = 1; k <= 8; k++) {
+			int n = 1 << k;
+			BigInteger[] table = Util.randomBigIntegerArray(n, k == 8 ? Config.LOG2_FIELD_PRIME - 1 : 64);
+			int[] indices = new int[Math.min(n, 20)];
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = (i * 7) % n;
+			}
+			indices[indices.length - 1] = n - 1;
+			CircuitGenerator generator = buildLookups(new BigInteger[][] { table }, indices);
+			check(generator);
+			CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+			for (int i = 0; i < indices.length; i++) {
+				assertEquals(table[indices[i]], evaluator.getWireValue(generator.getOutWires().get(i)));
+			}
+			// per lookup: the split of the index, the lookup and the output
+			assertEquals(indices.length * (k + 1 + COSTS[k - 1] + 1), generator.getNumOfConstraints());
+		}
+	}
+
+	@Test
+	public void testSharedIndex() {
+		// an S-box and its inverse, looked up at the same indices: the
+		// products of the index bits are only computed once
+		ArrayList<Integer> permutation = new ArrayList<Integer>();
+		for (int v = 0; v < 256; v++) {
+			permutation.add(v);
+		}
+		Collections.shuffle(permutation, new Random(1));
+		BigInteger[] sbox = new BigInteger[256];
+		BigInteger[] inverse = new BigInteger[256];
+		for (int v = 0; v < 256; v++) {
+			sbox[v] = BigInteger.valueOf(permutation.get(v));
+			inverse[permutation.get(v)] = BigInteger.valueOf(v);
+		}
+		int[] indices = { 0, 1, 77, 200, 255 };
+		CircuitGenerator generator = buildLookups(new BigInteger[][] { sbox, inverse }, indices);
+		check(generator);
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		for (int i = 0; i < indices.length; i++) {
+			assertEquals(sbox[indices[i]], evaluator.getWireValue(generator.getOutWires().get(2 * i)));
+			assertEquals(inverse[indices[i]], evaluator.getWireValue(generator.getOutWires().get(2 * i + 1)));
+		}
+		// 5 low bits and 3 high bits: the second lookup only costs the 7
+		// products with the combinations
+		assertEquals(indices.length * (9 + 37 + 7 + 2), generator.getNumOfConstraints());
+	}
+
+	@Test
+	public void testTupleEntries() {
+		// pairs of constants, and pairs of wires given as inputs
+		final BigInteger[][] constants = new BigInteger[8][];
+		for (int v = 0; v < constants.length; v++) {
+			constants[v] = Util.randomBigIntegerArray(2, 64);
+		}
+		final BigInteger[][] values = new BigInteger[4][];
+		for (int v = 0; v < values.length; v++) {
+			values[v] = Util.randomBigIntegerArray(2, 64);
+		}
+		final int index = 6;
+		CircuitGenerator generator = new CircuitGenerator("LookupTable_Test") {
+
+			Wire indexWire;
+			Wire[][] entries = new Wire[values.length][];
+
+			@Override
+			protected void buildCircuit() {
+				indexWire = createProverWitnessWire();
+				Wire[] indexBits = indexWire.getBitWires(3).asArray();
+				makeOutputArray(new LookupTableGadget(constants, indexBits).getOutputWires());
+				for (int v = 0; v < entries.length; v++) {
+					entries[v] = createInputWireArray(2);
+				}
+				makeOutputArray(new LookupTableGadget(entries, Arrays.copyOf(indexBits, 2)).getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				e.setWireValue(indexWire, index);
+				for (int v = 0; v < entries.length; v++) {
+					e.setWireValue(entries[v], values[v]);
+				}
+			}
+		};
+		generator.generateCircuit();
+		check(generator);
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		for (int i = 0; i < 2; i++) {
+			assertEquals(constants[index][i], evaluator.getWireValue(generator.getOutWires().get(i)));
+			assertEquals(values[index % 4][i], evaluator.getWireValue(generator.getOutWires().get(2 + i)));
+		}
+		// the split of the index, 1 product of bits and 2 products with the
+		// combinations for the constants, 3 products for each component of
+		// the wires (the product of the 2 low bits is shared), and the outputs
+		assertEquals(4 + 3 + 6 + 4, generator.getNumOfConstraints());
+	}
+
+	@Test
+	public void testInvalidTableSize() {
+		try {
+			buildLookups(new BigInteger[][] { Util.randomBigIntegerArray(12, 8) }, new int[] { 0 });
+			fail("table size not a power of two accepted");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testIndexOutOfRange() {
+		CircuitGenerator generator = buildLookups(new BigInteger[][] { Util.randomBigIntegerArray(16, 8) },
+				new int[] { 16 });
+		try {
+			generator.evalCircuit();
+			fail("index out of range accepted");
+		} catch (RuntimeException e) {
+		}
+	}
+
+	private CircuitGenerator buildLookups(final BigInteger[][] tables, final int[] indices) {
+		CircuitGenerator generator = new CircuitGenerator("LookupTable_Test") {
+
+			Wire[] indexWires;
+
+			@Override
+			protected void buildCircuit() {
+				indexWires = createProverWitnessWireArray(indices.length);
+				for (int i = 0; i < indices.length; i++) {
+					for (BigInteger[] table : tables) {
+						makeOutputArray(new LookupTableGadget(table, indexWires[i]).getOutputWires());
+					}
+				}
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < indices.length; i++) {
+					e.setWireValue(indexWires[i], indices[i]);
+				}
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+
+	private static void check(CircuitGenerator generator) {
+		generator.evalCircuit();
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(generator.getCircuitEvaluator())));
+	}
+}
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+import examples.gadgets.MerkleTreeMultiPathGadget;
+import examples.gadgets.MerkleTreePathGadget;
+import examples.gadgets.SubsetSumHashGadget;
+
+/**
+ * Compares MerkleTreeMultiPathGadget with a MerkleTreePathGadget per leaf, on a
+ * complete tree whose node hashes are computed by a separate circuit.
+ */
+public class MerkleTreeMultiPath_Test extends TestCase {
+
+	private static final int TREE_HEIGHT = 4;
+	private static final int LEAF_NUM_OF_WORDS = 2;
+	private static final int LEAF_WORD_BIT_WIDTH = 32;
+	private static final int DIGEST_WIDTH = SubsetSumHashGadget.DIMENSION;
+
+	@Test
+	public void testSharedPaths() {
+		compare(13, 12, 9, 3, 2);
+	}
+
+	@Test
+	public void testSingleLeaf() {
+		compare(6);
+	}
+
+	@Test
+	public void testAllLeaves() {
+		compare(15, 14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0);
+	}
+
+	@Test
+	public void testInvalidMergeSteps() {
+		assertEquals(4, MerkleTreeMultiPathGadget.getSiblingPositions(new int[] { 2, 1 }, 3).length);
+		try {
+			// three paths cannot meet at the same step
+			MerkleTreeMultiPathGadget.getSiblingPositions(new int[] { 1, 1 }, 3);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			MerkleTreeMultiPathGadget.getMergeSteps(new BigInteger[] { BigInteger.ONE, BigInteger.TEN }, 4);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	private void compare(int... positions) {
+
+		final BigInteger[][] leaves = new BigInteger[1 << TREE_HEIGHT][LEAF_NUM_OF_WORDS];
+		for (int i = 0; i < leaves.length; i++) {
+			for (int j = 0; j < LEAF_NUM_OF_WORDS; j++) {
+				leaves[i][j] = BigInteger.valueOf(i * 1000 + j);
+			}
+		}
+		final BigInteger[][][] tree = computeTree(leaves);
+
+		final int k = positions.length;
+		final BigInteger[] selectors = new BigInteger[k];
+		for (int j = 0; j < k; j++) {
+			selectors[j] = BigInteger.valueOf(positions[j]);
+		}
+		final int[] mergeSteps = MerkleTreeMultiPathGadget.getMergeSteps(selectors, TREE_HEIGHT);
+		int[][] siblingPositions = MerkleTreeMultiPathGadget.getSiblingPositions(mergeSteps, TREE_HEIGHT);
+		final BigInteger[] siblings = new BigInteger[siblingPositions.length * DIGEST_WIDTH];
+		for (int s = 0; s < siblingPositions.length; s++) {
+			int level = siblingPositions[s][1];
+			int node = (positions[siblingPositions[s][0]] >> level) ^ 1;
+			System.arraycopy(tree[level][node], 0, siblings, s * DIGEST_WIDTH, DIGEST_WIDTH);
+		}
+
+		CircuitGenerator[] generators = new CircuitGenerator[2];
+		for (int g = 0; g < 2; g++) {
+			final boolean batch = g == 1;
+			generators[g] = new CircuitGenerator("Merkle_MultiPath" + g) {
+
+				Wire[] selectorWires;
+				Wire[][] leafWires;
+				Wire[] siblingWires;
+				Wire[][] pathWires;
+
+				@Override
+				protected void buildCircuit() {
+					selectorWires = createProverWitnessWireArray(k);
+					leafWires = new Wire[k][];
+					for (int j = 0; j < k; j++) {
+						leafWires[j] = createProverWitnessWireArray(LEAF_NUM_OF_WORDS);
+					}
+					if (batch) {
+						siblingWires = createProverWitnessWireArray(siblings.length);
+						makeOutputArray(new MerkleTreeMultiPathGadget(selectorWires, leafWires, mergeSteps,
+								siblingWires, LEAF_WORD_BIT_WIDTH, TREE_HEIGHT).getOutputWires());
+					} else {
+						pathWires = new Wire[k][];
+						for (int j = 0; j < k; j++) {
+							pathWires[j] = createProverWitnessWireArray(TREE_HEIGHT * DIGEST_WIDTH);
+							Wire[] root = new MerkleTreePathGadget(selectorWires[j], leafWires[j], pathWires[j],
+									LEAF_WORD_BIT_WIDTH, TREE_HEIGHT).getOutputWires();
+							if (j == 0) {
+								makeOutputArray(root);
+							}
+						}
+					}
+				}
+
+				@Override
+				public void generateSampleInput(CircuitEvaluator e) {
+					for (int j = 0; j < k; j++) {
+						e.setWireValue(selectorWires[j], selectors[j]);
+						for (int i = 0; i < LEAF_NUM_OF_WORDS; i++) {
+							e.setWireValue(leafWires[j][i], leaves[selectors[j].intValue()][i]);
+						}
+					}
+					if (batch) {
+						for (int i = 0; i < siblings.length; i++) {
+							e.setWireValue(siblingWires[i], siblings[i]);
+						}
+					} else {
+						for (int j = 0; j < k; j++) {
+							int position = selectors[j].intValue();
+							for (int l = 0; l < TREE_HEIGHT; l++) {
+								for (int i = 0; i < DIGEST_WIDTH; i++) {
+									e.setWireValue(pathWires[j][l * DIGEST_WIDTH + i],
+											tree[l][((position >> l) ^ 1)][i]);
+								}
+							}
+						}
+					}
+				}
+			};
+			generators[g].generateCircuit();
+			generators[g].evalCircuit();
+
+			CircuitEvaluator evaluator = generators[g].getCircuitEvaluator();
+			for (int i = 0; i < DIGEST_WIDTH; i++) {
+				assertEquals(tree[TREE_HEIGHT][0][i], evaluator.getWireValue(generators[g].getOutWires().get(i)));
+			}
+			R1CSConstraintSystem cs = new R1CSConstraintSystem(generators[g]);
+			assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+		}
+		if (k > 1) {
+			assertTrue(generators[1].getNumOfConstraints() < generators[0].getNumOfConstraints());
+		}
+	}
+
+	/**
+	 * computes the hashes of all nodes: tree[level][index], where the children
+	 * of node i are 2i + 1 (the first half of the input) and 2i
+	 */
+	private BigInteger[][][] computeTree(final BigInteger[][] leaves) {
+
+		final Wire[][][] nodeWires = new Wire[TREE_HEIGHT + 1][][];
+		CircuitGenerator generator = new CircuitGenerator("Merkle_Tree") {
+
+			Wire[][] leafWires;
+
+			@Override
+			protected void buildCircuit() {
+				leafWires = new Wire[leaves.length][];
+				nodeWires[0] = new Wire[leaves.length][];
+				for (int i = 0; i < leaves.length; i++) {
+					leafWires[i] = createInputWireArray(LEAF_NUM_OF_WORDS);
+					Wire[] bits = new WireArray(leafWires[i]).getBits(LEAF_WORD_BIT_WIDTH).asArray();
+					nodeWires[0][i] = new SubsetSumHashGadget(bits, false).getOutputWires();
+				}
+				for (int l = 1; l <= TREE_HEIGHT; l++) {
+					nodeWires[l] = new Wire[nodeWires[l - 1].length / 2][];
+					for (int i = 0; i < nodeWires[l].length; i++) {
+						Wire[] in = new Wire[2 * DIGEST_WIDTH];
+						System.arraycopy(nodeWires[l - 1][2 * i + 1], 0, in, 0, DIGEST_WIDTH);
+						System.arraycopy(nodeWires[l - 1][2 * i], 0, in, DIGEST_WIDTH, DIGEST_WIDTH);
+						Wire[] bits = new WireArray(in).getBits(Config.LOG2_FIELD_PRIME).asArray();
+						nodeWires[l][i] = new SubsetSumHashGadget(bits, false).getOutputWires();
+					}
+				}
+				makeOutputArray(nodeWires[TREE_HEIGHT][0]);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < leaves.length; i++) {
+					for (int j = 0; j < LEAF_NUM_OF_WORDS; j++) {
+						e.setWireValue(leafWires[i][j], leaves[i][j]);
+					}
+				}
+			}
+		};
+		generator.generateCircuit();
+		generator.evalCircuit();
+
+		BigInteger[][][] tree = new BigInteger[TREE_HEIGHT + 1][][];
+		for (int l = 0; l <= TREE_HEIGHT; l++) {
+			tree[l] = new BigInteger[nodeWires[l].length][DIGEST_WIDTH];
+			for (int i = 0; i < nodeWires[l].length; i++) {
+				for (int j = 0; j < DIGEST_WIDTH; j++) {
+					tree[l][i][j] = generator.getCircuitEvaluator().getWireValue(nodeWires[l][i][j]);
+				}
+			}
+		}
+		return tree;
+	}
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.MerkleTreePathGadget;
+import examples.gadgets.MerkleTreePathGadget.HashFunction;
+import examples.gadgets.MiMCHashGadget;
+
+public class MiMCHash_Test extends TestCase {
+
+	@Test
+	public void testParameters() {
+		// x^3 is not a permutation of the default field
+		assertEquals(5, MiMCHashGadget.EXPONENT);
+		assertEquals(110, MiMCHashGadget.NUM_ROUNDS);
+	}
+
+	@Test
+	public void testHash() {
+
+		final BigInteger[] values = Util.randomBigIntegerArray(3, Config.FIELD_PRIME);
+		CircuitGenerator generator = new CircuitGenerator("MiMC_Test") {
+
+			Wire[] inputWires;
+
+			@Override
+			protected void buildCircuit() {
+				inputWires = createInputWireArray(values.length);
+				makeOutputArray(new MiMCHashGadget(inputWires).getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < values.length; i++) {
+					e.setWireValue(inputWires[i], values[i]);
+				}
+			}
+		};
+		generator.generateCircuit();
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		assertEquals(MiMCHashGadget.hash(values), evaluator.getWireValue(generator.getOutWires().get(0)));
+		// one more constraint for the output
+		assertEquals(3 * 3 * MiMCHashGadget.NUM_ROUNDS + 1, generator.getNumOfConstraints());
+
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+	}
+
+	@Test
+	public void testMerklePath() {
+
+		final int treeHeight = 8;
+		final int position = 0x5A;
+		final BigInteger[] leaf = Util.randomBigIntegerArray(4, 32);
+		final BigInteger[] siblings = Util.randomBigIntegerArray(treeHeight, Config.FIELD_PRIME);
+
+		// a direction bit of 1 puts the current hash first
+		BigInteger expectedRoot = MiMCHashGadget.hash(leaf);
+		for (int i = 0; i < treeHeight; i++) {
+			if (((position >> i) & 1) == 1) {
+				expectedRoot = MiMCHashGadget.compress(expectedRoot, siblings[i]);
+			} else {
+				expectedRoot = MiMCHashGadget.compress(siblings[i], expectedRoot);
+			}
+		}
+
+		int[] numConstraints = new int[2];
+		for (final HashFunction hashFunction : HashFunction.values()) {
+			CircuitGenerator generator = new CircuitGenerator("MerklePath_" + hashFunction) {
+
+				Wire directionSelector;
+				Wire[] leafWires;
+				Wire[] intermediateHashWires;
+
+				@Override
+				protected void buildCircuit() {
+					directionSelector = createProverWitnessWire();
+					leafWires = createProverWitnessWireArray(leaf.length);
+					intermediateHashWires = createProverWitnessWireArray(treeHeight * hashFunction.getDigestWidth());
+					makeOutputArray(new MerkleTreePathGadget(directionSelector, leafWires, intermediateHashWires, 32,
+							treeHeight, hashFunction).getOutputWires());
+				}
+
+				@Override
+				public void generateSampleInput(CircuitEvaluator e) {
+					e.setWireValue(directionSelector, position);
+					for (int i = 0; i < leaf.length; i++) {
+						e.setWireValue(leafWires[i], leaf[i]);
+					}
+					for (int i = 0; i < intermediateHashWires.length; i++) {
+						e.setWireValue(intermediateHashWires[i], siblings[i % treeHeight]);
+					}
+				}
+			};
+			generator.generateCircuit();
+			generator.evalCircuit();
+			numConstraints[hashFunction.ordinal()] = generator.getNumOfConstraints();
+			if (hashFunction == HashFunction.MIMC) {
+				assertEquals(expectedRoot, generator.getCircuitEvaluator().getWireValue(generator.getOutWires().get(0)));
+				R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+				assertTrue(cs.isSatisfied(cs.getVariableAssignment(generator.getCircuitEvaluator())));
+			}
+		}
+		assertTrue(numConstraints[HashFunction.MIMC.ordinal()] * 3 < numConstraints[HashFunction.SUBSET_SUM.ordinal()]);
+	}
+}
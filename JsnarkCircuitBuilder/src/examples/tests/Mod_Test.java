@@ -87,6 +87,39 @@ public class Mod_Test extends TestCase {
 		Wire rWire = generator.getOutWires().get(0);
 		assertEquals(evaluator.getWireValue(rWire), BigInteger.valueOf(a % b));
 	}
-	
+
+	@Test
+	public void testLongBitwidth() {
+
+		// above 126 bits, the gadget works on limbs
+		final BigInteger a = BigInteger.ONE.shiftLeft(199).add(BigInteger.valueOf(1262178522));
+		final BigInteger b = BigInteger.ONE.shiftLeft(150).subtract(BigInteger.valueOf(257));
+
+		CircuitGenerator generator = new CircuitGenerator("Mod_Test3") {
+
+			Wire[] inputWires;
+
+			@Override
+			protected void buildCircuit() {
+
+				inputWires = createInputWireArray(2);
+				Wire r = new ModGadget(inputWires[0], inputWires[1], 200).getOutputWires()[0];
+				makeOutput(r);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				e.setWireValue(inputWires[0], a);
+				e.setWireValue(inputWires[1], b);
+			}
+		};
+
+		generator.generateCircuit();
+		CircuitEvaluator evaluator = new CircuitEvaluator(generator);
+		generator.generateSampleInput(evaluator);
+		evaluator.evaluate();
+		Wire rWire = generator.getOutWires().get(0);
+		assertEquals(evaluator.getWireValue(rWire), a.mod(b));
+	}
 
 }
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.LongElement;
+import circuit.structure.Wire;
+import examples.gadgets.NonNativeFieldElement;
+
+public class NonNativeField_Test extends TestCase {
+
+	// the base field of secp256k1
+	private static final BigInteger MODULUS = new BigInteger(
+			"FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFC2F", 16);
+
+	@Test
+	public void testArithmetic() {
+		BigInteger a = Util.nextRandomBigInteger(MODULUS);
+		BigInteger b = Util.nextRandomBigInteger(MODULUS);
+		BigInteger[] expected = {
+				// (a * b + a - b) / (a + 1)
+				a.multiply(b).add(a).subtract(b).multiply(a.add(BigInteger.ONE).modInverse(MODULUS)).mod(MODULUS),
+				a.modInverse(MODULUS),
+				// a sum of products, reduced once
+				a.multiply(a).add(b.multiply(b)).add(a.multiply(b)).mod(MODULUS) };
+		CircuitGenerator generator = build(a, b, false);
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		int numLimbs = 256 / LongElement.DEFAULT_LIMB_BITWIDTH;
+		for (int i = 0; i < expected.length; i++) {
+			BigInteger value = BigInteger.ZERO;
+			for (int j = numLimbs - 1; j >= 0; j--) {
+				value = value.shiftLeft(LongElement.DEFAULT_LIMB_BITWIDTH).add(
+						evaluator.getWireValue(generator.getOutWires().get(i * numLimbs + j)));
+			}
+			assertEquals(expected[i], value);
+		}
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+
+		// both inputs to the top of the range of the limbs
+		BigInteger max = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+		generator = build(max, max, false);
+		generator.evalCircuit();
+		cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(generator.getCircuitEvaluator())));
+	}
+
+	@Test
+	public void testMulCost() {
+		// the product limbs, the quotient and the remainder (about 256 bits
+		// each, in range checks) and the carries
+		int base = buildMul(0).getNumOfConstraints();
+		int cost = buildMul(1).getNumOfConstraints() - base;
+		assertTrue(cost < 1000);
+		// a sum of two products is reduced once
+		assertTrue(buildMul(2).getNumOfConstraints() - base < cost + 50);
+	}
+
+	private static CircuitGenerator buildMul(final int numProducts) {
+		CircuitGenerator generator = new CircuitGenerator("NonNativeMul_Test") {
+			@Override
+			protected void buildCircuit() {
+				NonNativeFieldElement a = new NonNativeFieldElement(createProverWitnessWireArray(8), 32, MODULUS);
+				NonNativeFieldElement b = new NonNativeFieldElement(createProverWitnessWireArray(8), 32, MODULUS);
+				if (numProducts == 1) {
+					a.mul(b).reduce();
+				} else if (numProducts == 2) {
+					a.mul(a).add(b.mul(b)).reduce();
+				}
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+
+	@Test
+	public void testWrongWitness() {
+		CircuitGenerator generator = build(BigInteger.TEN, BigInteger.ONE, true);
+		try {
+			generator.evalCircuit();
+			fail("wrong inverse accepted");
+		} catch (RuntimeException e) {
+		}
+	}
+
+	private static CircuitGenerator build(final BigInteger a, final BigInteger b, final boolean wrongInverse) {
+		CircuitGenerator generator = new CircuitGenerator("NonNativeField_Test") {
+
+			Wire[] aLimbs;
+			Wire[] bLimbs;
+			Wire[] wrongLimbs;
+
+			@Override
+			protected void buildCircuit() {
+				int limbBitwidth = LongElement.DEFAULT_LIMB_BITWIDTH;
+				aLimbs = createProverWitnessWireArray(256 / limbBitwidth);
+				bLimbs = createProverWitnessWireArray(256 / limbBitwidth);
+				NonNativeFieldElement x = new NonNativeFieldElement(aLimbs, limbBitwidth, MODULUS);
+				NonNativeFieldElement y = new NonNativeFieldElement(bLimbs, limbBitwidth, MODULUS);
+				if (wrongInverse) {
+					wrongLimbs = createProverWitnessWireArray(256 / limbBitwidth);
+					NonNativeFieldElement z = new NonNativeFieldElement(wrongLimbs, limbBitwidth, MODULUS);
+					z.mul(x).assertEquality(new NonNativeFieldElement(BigInteger.ONE, MODULUS, limbBitwidth));
+					return;
+				}
+				NonNativeFieldElement one = new NonNativeFieldElement(BigInteger.ONE, MODULUS, limbBitwidth);
+				NonNativeFieldElement c = x.mul(y).add(x).sub(y).div(x.add(one));
+				NonNativeFieldElement d = x.inverse();
+				NonNativeFieldElement e = x.mul(x).add(y.mul(y)).add(x.mul(y));
+				makeOutputArray(c.getCanonical().getLongElement().getLimbs());
+				makeOutputArray(d.getCanonical().getLongElement().getLimbs());
+				makeOutputArray(e.getCanonical().getLongElement().getLimbs());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				int limbBitwidth = LongElement.DEFAULT_LIMB_BITWIDTH;
+				e.setWireValue(aLimbs, Util.split(a, aLimbs.length, limbBitwidth));
+				e.setWireValue(bLimbs, Util.split(b, bLimbs.length, limbBitwidth));
+				if (wrongLimbs != null) {
+					e.setWireValue(wrongLimbs, Util.split(BigInteger.TEN, wrongLimbs.length, limbBitwidth));
+				}
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
+}
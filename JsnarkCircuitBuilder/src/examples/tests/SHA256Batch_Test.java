@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.SHA256BatchGadget;
+import examples.gadgets.SHA256Gadget;
+
+/**
+ * Compares SHA256BatchGadget with a SHA256Gadget per message: same digests,
+ * same number of constraints.
+ */
+public class SHA256Batch_Test extends TestCase {
+
+	@Test
+	public void testPaddedBytes() {
+		// 55 bytes per message, padded to a single block
+		compare(8, 55, 8, 55, true, false, false);
+	}
+
+	@Test
+	public void testCommitmentWords() {
+		// the setting used by AugmentedAuctionCircuitGenerator: eight 64-bit
+		// words, no padding, 32-bit word outputs
+		compare(11, 8, 64, 64, false, false, false);
+	}
+
+	@Test
+	public void testBinaryOutput() {
+		compare(5, 16, 32, 64, false, true, false);
+	}
+
+	@Test
+	public void testRepeatedMessage() {
+		// instances that reuse the wires of another message are built
+		// directly, and should get the same result through caching
+		compare(6, 8, 64, 64, false, false, true);
+	}
+
+	private void compare(final int numMessages, final int messageLength, final int bitWidth, final int numBytes,
+			final boolean padding, final boolean binaryOutput, final boolean repeated) {
+
+		final BigInteger[][] values = new BigInteger[numMessages][];
+		for (int i = 0; i < numMessages; i++) {
+			values[i] = Util.randomBigIntegerArray(messageLength, bitWidth);
+		}
+
+		CircuitGenerator[] generators = new CircuitGenerator[2];
+		for (int k = 0; k < 2; k++) {
+			final boolean batch = k == 1;
+			generators[k] = new CircuitGenerator("SHA2_Batch" + k) {
+
+				Wire[][] inputWires;
+
+				@Override
+				protected void buildCircuit() {
+					inputWires = new Wire[numMessages][];
+					for (int i = 0; i < numMessages; i++) {
+						inputWires[i] = createInputWireArray(messageLength);
+					}
+					Wire[][] messages = inputWires.clone();
+					if (repeated) {
+						messages[numMessages - 1] = messages[1];
+					}
+					if (batch) {
+						makeOutputArray(new SHA256BatchGadget(messages, bitWidth, numBytes, binaryOutput, padding)
+								.getOutputWires());
+					} else {
+						for (int i = 0; i < numMessages; i++) {
+							makeOutputArray(new SHA256Gadget(messages[i], bitWidth, numBytes, binaryOutput, padding)
+									.getOutputWires());
+						}
+					}
+				}
+
+				@Override
+				public void generateSampleInput(CircuitEvaluator e) {
+					for (int i = 0; i < numMessages; i++) {
+						for (int j = 0; j < messageLength; j++) {
+							e.setWireValue(inputWires[i][j], values[i][j]);
+						}
+					}
+				}
+			};
+			generators[k].generateCircuit();
+			generators[k].evalCircuit();
+		}
+
+		CircuitEvaluator expected = generators[0].getCircuitEvaluator();
+		CircuitEvaluator actual = generators[1].getCircuitEvaluator();
+		assertEquals(generators[0].getOutWires().size(), generators[1].getOutWires().size());
+		for (int i = 0; i < generators[0].getOutWires().size(); i++) {
+			assertEquals(expected.getWireValue(generators[0].getOutWires().get(i)),
+					actual.getWireValue(generators[1].getOutWires().get(i)));
+		}
+		assertEquals(generators[0].getNumOfConstraints(), generators[1].getNumOfConstraints());
+		assertEquals(generators[0].getNumWires(), generators[1].getNumWires());
+
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generators[1]);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(actual)));
+	}
+}
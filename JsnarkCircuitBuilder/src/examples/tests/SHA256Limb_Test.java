@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.SHA256Gadget;
+import examples.gadgets.SHA256LimbGadget;
+
+/**
+ * Tests the SHA256 standard cases on SHA256LimbGadget, and compares it with
+ * SHA256Gadget.
+ */
+public class SHA256Limb_Test extends TestCase {
+
+	@Test
+	public void testStandardCases() {
+		checkDigest("", "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+		checkDigest("abc", "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+		checkDigest("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq",
+				"248d6a61d20638b8e5c026930c3e6039a33ce45964ff2167f6ecedd419db06c1");
+		checkDigest("abcdefghbcdefghicdefghijdefghijkefghijklfghijklmghijklmnhijklmnoijklmnopjklmnopqklmnopqrlmnopqrs"
+				+ "mnopqrstnopqrstu", "cf5b16a778af8380036ce59e7b0492370b249b11e8f07a51afac45037afee9d1");
+	}
+
+	@Test
+	public void testAgainstSHA256Gadget() {
+
+		// two blocks of 32-bit words, no padding, binary output
+		final BigInteger[] inputs = Util.randomBigIntegerArray(32, 32);
+		CircuitGenerator[] generators = new CircuitGenerator[2];
+		for (int k = 0; k < 2; k++) {
+			final boolean limb = k == 1;
+			generators[k] = new CircuitGenerator("SHA2_Compare" + k) {
+
+				Wire[] inputWires;
+
+				@Override
+				protected void buildCircuit() {
+					inputWires = createInputWireArray(inputs.length);
+					Wire[] digest = limb ? new SHA256LimbGadget(inputWires, 32, 128, true, false).getOutputWires()
+							: new SHA256Gadget(inputWires, 32, 128, true, false).getOutputWires();
+					makeOutputArray(digest);
+				}
+
+				@Override
+				public void generateSampleInput(CircuitEvaluator e) {
+					for (int i = 0; i < inputs.length; i++) {
+						e.setWireValue(inputWires[i], inputs[i]);
+					}
+				}
+			};
+			generators[k].generateCircuit();
+			generators[k].evalCircuit();
+		}
+
+		CircuitEvaluator expected = generators[0].getCircuitEvaluator();
+		CircuitEvaluator actual = generators[1].getCircuitEvaluator();
+		assertEquals(generators[0].getOutWires().size(), generators[1].getOutWires().size());
+		for (int i = 0; i < generators[0].getOutWires().size(); i++) {
+			assertEquals(expected.getWireValue(generators[0].getOutWires().get(i)),
+					actual.getWireValue(generators[1].getOutWires().get(i)));
+		}
+		assertTrue(generators[1].getNumOfConstraints() < generators[0].getNumOfConstraints());
+
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generators[1]);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(actual)));
+	}
+
+	private void checkDigest(final String inputStr, String expectedDigest) {
+
+		CircuitGenerator generator = new CircuitGenerator("SHA2_Limb_Test") {
+
+			Wire[] inputWires;
+
+			@Override
+			protected void buildCircuit() {
+				inputWires = createInputWireArray(inputStr.length());
+				Wire[] digest = new SHA256LimbGadget(inputWires, 8, inputStr.length(), false, true, "")
+						.getOutputWires();
+				makeOutputArray(digest);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < inputStr.length(); i++) {
+					e.setWireValue(inputWires[i], inputStr.charAt(i));
+				}
+			}
+		};
+
+		generator.generateCircuit();
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+
+		String outDigest = "";
+		for (Wire w : generator.getOutWires()) {
+			outDigest += Util.padZeros(evaluator.getWireValue(w).toString(16), 8);
+		}
+		assertEquals(expectedDigest, outDigest);
+	}
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import util.Util;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import circuit.structure.WireArray;
+import examples.gadgets.MiMCHashGadget;
+import examples.gadgets.PermutationCheckGadget;
+import examples.gadgets.SortGadget;
+
+public class Sort_Test extends TestCase {
+
+	@Test
+	public void testSort() {
+		int[] sizes = { 1, 2, 7, 64 };
+		for (final int n : sizes) {
+			final int bitwidth = 16;
+			final BigInteger[] values = Util.randomBigIntegerArray(n, bitwidth);
+			if (n > 2) {
+				values[1] = values[n - 1];
+				values[2] = BigInteger.ZERO;
+				values[0] = BigInteger.ONE.shiftLeft(bitwidth).subtract(BigInteger.ONE);
+			}
+			CircuitGenerator generator = new CircuitGenerator("Sort_Test") {
+
+				Wire[] inputWires;
+
+				@Override
+				protected void buildCircuit() {
+					inputWires = createInputWireArray(n);
+					makeOutputArray(new SortGadget(new WireArray(inputWires), bitwidth).getOutputWires());
+				}
+
+				@Override
+				public void generateSampleInput(CircuitEvaluator e) {
+					e.setWireValue(inputWires, values);
+				}
+			};
+			generator.generateCircuit();
+			check(generator);
+
+			BigInteger[] sorted = values.clone();
+			Arrays.sort(sorted);
+			CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+			for (int i = 0; i < n; i++) {
+				assertEquals(sorted[i], evaluator.getWireValue(generator.getOutWires().get(i)));
+			}
+
+			if (n == 1) {
+				continue;
+			}
+			// the range checks, the grand products, and the hash of the
+			// inputs and outputs packed 15 at a time
+			int hashCost = 2 * ((n + 14) / 15) * MiMCHashGadget.NUM_ROUNDS * 3;
+			int cost = generator.getNumOfConstraints() - n;
+			assertEquals((n + 1) * (bitwidth + 1) + 2 * n - 2 + hashCost, cost);
+		}
+	}
+
+	@Test
+	public void testPermutationCheck() {
+		final BigInteger[] a = Util.randomBigIntegerArray(10, 32);
+		BigInteger[] b = a.clone();
+		Collections.reverse(Arrays.asList(b));
+		assertTrue(checkPermutation(a, b));
+
+		b[3] = b[3].add(BigInteger.ONE);
+		assertFalse(checkPermutation(a, b));
+
+		// same sum and same elements, but different multiplicities
+		BigInteger[] c = { BigInteger.ONE, BigInteger.ONE, BigInteger.valueOf(4) };
+		BigInteger[] d = { BigInteger.ONE, BigInteger.valueOf(2), BigInteger.valueOf(3) };
+		assertFalse(checkPermutation(c, d));
+	}
+
+	private static boolean checkPermutation(final BigInteger[] a, final BigInteger[] b) {
+		CircuitGenerator generator = new CircuitGenerator("Permutation_Test") {
+
+			Wire[] aWires;
+			Wire[] bWires;
+
+			@Override
+			protected void buildCircuit() {
+				aWires = createInputWireArray(a.length);
+				bWires = createProverWitnessWireArray(b.length);
+				new PermutationCheckGadget(new WireArray(aWires), new WireArray(bWires), 32);
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				e.setWireValue(aWires, a);
+				e.setWireValue(bWires, b);
+			}
+		};
+		generator.generateCircuit();
+		try {
+			generator.evalCircuit();
+		} catch (RuntimeException e) {
+			return false;
+		}
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		return cs.isSatisfied(cs.getVariableAssignment(generator.getCircuitEvaluator()));
+	}
+
+	private static void check(CircuitGenerator generator) {
+		generator.evalCircuit();
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(generator.getCircuitEvaluator())));
+	}
+}
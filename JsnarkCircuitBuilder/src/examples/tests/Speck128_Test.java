@@ -56,4 +56,64 @@ public class Speck128_Test extends TestCase {
 		assertEquals(evaluator.getWireValue(cipherText.get(0)), new BigInteger("7860fedf5c570d18", 16));
 		assertEquals(evaluator.getWireValue(cipherText.get(1)), new BigInteger("a65d985179783265", 16));
 	}
+
+	@Test
+	public void testConstantKey() {
+		
+		CircuitGenerator generator = new CircuitGenerator("Speck128_Test2") {
+
+			Wire[] plaintext; // 2 64-bit words
+			
+			@Override
+			protected void buildCircuit() {
+				plaintext = createInputWireArray(2);
+				Wire[] key = new Wire[] { createConstantWire(new BigInteger("0706050403020100", 16)),
+						createConstantWire(new BigInteger("0f0e0d0c0b0a0908", 16)) };
+				Wire[] expandedKey = Speck128CipherGadget.expandKey(key);
+				makeOutputArray(new Speck128CipherGadget(plaintext, expandedKey).getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+				evaluator.setWireValue(plaintext[0], new BigInteger("7469206564616d20", 16));
+				evaluator.setWireValue(plaintext[1], new BigInteger("6c61766975716520", 16));
+			}
+		};
+
+		generator.generateCircuit();
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+		ArrayList<Wire> cipherText= generator.getOutWires();
+		assertEquals(evaluator.getWireValue(cipherText.get(0)), new BigInteger("7860fedf5c570d18", 16));
+		assertEquals(evaluator.getWireValue(cipherText.get(1)), new BigInteger("a65d985179783265", 16));
+	}
+
+	@Test
+	public void testRepeatedKeySchedule() {
+		// expanding the same key wires again should not add anything
+		assertEquals(buildTwoEncryptions(false).getNumOfConstraints(), buildTwoEncryptions(true).getNumOfConstraints());
+		assertEquals(buildTwoEncryptions(false).getNumWires(), buildTwoEncryptions(true).getNumWires());
+	}
+
+	private CircuitGenerator buildTwoEncryptions(final boolean expandTwice) {
+		CircuitGenerator generator = new CircuitGenerator("Speck128_Test3") {
+
+			@Override
+			protected void buildCircuit() {
+				Wire[] key = createInputWireArray(2);
+				Wire[] expandedKey = Speck128CipherGadget.expandKey(key);
+				makeOutputArray(new Speck128CipherGadget(createInputWireArray(2), expandedKey).getOutputWires());
+				if (expandTwice) {
+					expandedKey = Speck128CipherGadget.expandKey(key);
+				}
+				makeOutputArray(new Speck128CipherGadget(createInputWireArray(2), expandedKey).getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator evaluator) {
+			}
+		};
+		generator.generateCircuit();
+		return generator;
+	}
 }
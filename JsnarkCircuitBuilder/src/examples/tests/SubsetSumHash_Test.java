@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import circuit.config.Config;
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.SubsetSumHashGadget;
+
+public class SubsetSumHash_Test extends TestCase {
+
+	@Test
+	public void testSingleBlock() {
+		CircuitGenerator generator = hash(SubsetSumHashGadget.INPUT_LENGTH, false);
+		// the digest is linear in the input bits: the only constraints are the
+		// ones that make its elements outputs
+		assertEquals(SubsetSumHashGadget.DIMENSION, generator.getNumOfConstraints());
+	}
+
+	@Test
+	public void testShortInput() {
+		hash(100, false);
+	}
+
+	@Test
+	public void testMultipleBlocks() {
+		assertEquals(3, SubsetSumHashGadget.getNumBlocks(SubsetSumHashGadget.INPUT_LENGTH
+				+ SubsetSumHashGadget.CHAINED_BLOCK_LENGTH + 100));
+		CircuitGenerator generator = hash(SubsetSumHashGadget.INPUT_LENGTH + SubsetSumHashGadget.CHAINED_BLOCK_LENGTH
+				+ 100, true);
+		// two chaining values and the output are split into bits
+		assertEquals(3 * (SubsetSumHashGadget.DIMENSION * (Config.LOG2_FIELD_PRIME + 1)),
+				generator.getNumOfConstraints());
+	}
+
+	@Test
+	public void testCoefficientsCache() {
+		assertSame(SubsetSumHashGadget.getCoefficients(1), SubsetSumHashGadget.getCoefficients(1));
+		assertFalse(SubsetSumHashGadget.getCoefficients(0)[0][0].equals(SubsetSumHashGadget.getCoefficients(1)[0][0]));
+	}
+
+	private CircuitGenerator hash(final int numBits, final boolean binaryOutput) {
+
+		final boolean[] input = new boolean[numBits];
+		Random rand = new Random(numBits);
+		for (int i = 0; i < numBits; i++) {
+			input[i] = rand.nextBoolean();
+		}
+
+		CircuitGenerator generator = new CircuitGenerator("SubsetSumHash_Test") {
+
+			Wire[] inputWires;
+
+			@Override
+			protected void buildCircuit() {
+				inputWires = createInputWireArray(numBits);
+				makeOutputArray(new SubsetSumHashGadget(inputWires, binaryOutput).getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < numBits; i++) {
+					e.setWireValue(inputWires[i], input[i] ? 1 : 0);
+				}
+			}
+		};
+		generator.generateCircuit();
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+
+		BigInteger[] expected = expectedDigest(input);
+		for (int i = 0; i < SubsetSumHashGadget.DIMENSION; i++) {
+			if (binaryOutput) {
+				for (int j = 0; j < Config.LOG2_FIELD_PRIME; j++) {
+					Wire out = generator.getOutWires().get(i * Config.LOG2_FIELD_PRIME + j);
+					assertEquals(expected[i].testBit(j) ? BigInteger.ONE : BigInteger.ZERO, evaluator.getWireValue(out));
+				}
+			} else {
+				assertEquals(expected[i], evaluator.getWireValue(generator.getOutWires().get(i)));
+			}
+		}
+
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+		return generator;
+	}
+
+	private BigInteger[] expectedDigest(boolean[] input) {
+		int numBlocks = SubsetSumHashGadget.getNumBlocks(input.length);
+		int chainLength = SubsetSumHashGadget.INPUT_LENGTH - SubsetSumHashGadget.CHAINED_BLOCK_LENGTH;
+		BigInteger[] digest = null;
+		int next = 0;
+		for (int b = 0; b < numBlocks; b++) {
+			boolean[] block = new boolean[SubsetSumHashGadget.INPUT_LENGTH];
+			int j = 0;
+			if (b > 0) {
+				for (; j < chainLength; j++) {
+					block[j] = digest[j / Config.LOG2_FIELD_PRIME].testBit(j % Config.LOG2_FIELD_PRIME);
+				}
+			}
+			for (; j < block.length && next < input.length; j++) {
+				block[j] = input[next++];
+			}
+			BigInteger[][] coeffs = SubsetSumHashGadget.getCoefficients(b);
+			digest = new BigInteger[SubsetSumHashGadget.DIMENSION];
+			for (int i = 0; i < digest.length; i++) {
+				digest[i] = BigInteger.ZERO;
+				for (int k = 0; k < block.length; k++) {
+					if (block[k]) {
+						digest[i] = digest[i].add(coeffs[i][k]);
+					}
+				}
+				if (b == numBlocks - 1) {
+					digest[i] = digest[i].add(coeffs[i][block.length].multiply(BigInteger.valueOf(input.length)));
+				}
+				digest[i] = digest[i].mod(Config.FIELD_PRIME);
+			}
+		}
+		return digest;
+	}
+}
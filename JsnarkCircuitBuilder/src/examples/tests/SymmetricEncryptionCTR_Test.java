@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Author: Ahmed Kosba <akosba@cs.umd.edu>
+ *******************************************************************************/
+package examples.tests;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import circuit.eval.CircuitEvaluator;
+import circuit.r1cs.R1CSConstraintSystem;
+import circuit.structure.CircuitGenerator;
+import circuit.structure.Wire;
+import examples.gadgets.encrypt.SymmetricEncryptionCTRGadget;
+
+/**
+ * Compares SymmetricEncryptionCTRGadget with a reference implementation of
+ * Speck128/128 in the CTR mode.
+ */
+public class SymmetricEncryptionCTR_Test extends TestCase {
+
+	@Test
+	public void testReferenceSpeck() {
+		// same test vector as Speck128_Test
+		long[] ct = encrypt(new long[] { 0x0706050403020100L, 0x0f0e0d0c0b0a0908L }, new long[] {
+				0x7469206564616d20L, 0x6c61766975716520L });
+		assertEquals(0x7860fedf5c570d18L, ct[0]);
+		assertEquals(0xa65d985179783265L, ct[1]);
+	}
+
+	@Test
+	public void testFullBlocks() {
+		compare(4 * 128);
+	}
+
+	@Test
+	public void testTruncatedBlock() {
+		compare(5 * 128 + 100);
+	}
+
+	private void compare(final int numBits) {
+
+		Random rand = new Random(numBits);
+		final boolean[] plaintext = new boolean[numBits];
+		for (int i = 0; i < numBits; i++) {
+			plaintext[i] = rand.nextBoolean();
+		}
+		final long[] key = new long[] { rand.nextLong(), rand.nextLong() };
+		// the counter carries into the high word after the second block
+		final long[] iv = new long[] { -2L, rand.nextLong() };
+
+		CircuitGenerator generator = new CircuitGenerator("CTR_Test") {
+
+			Wire[] plaintextBits;
+			Wire[] keyBits;
+			Wire[] ivBits;
+
+			@Override
+			protected void buildCircuit() {
+				plaintextBits = createInputWireArray(numBits);
+				keyBits = createInputWireArray(128);
+				ivBits = createInputWireArray(128);
+				makeOutputArray(new SymmetricEncryptionCTRGadget(plaintextBits, keyBits, ivBits, "speck128")
+						.getOutputWires());
+			}
+
+			@Override
+			public void generateSampleInput(CircuitEvaluator e) {
+				for (int i = 0; i < numBits; i++) {
+					e.setWireValue(plaintextBits[i], plaintext[i] ? 1 : 0);
+				}
+				for (int i = 0; i < 128; i++) {
+					e.setWireValue(keyBits[i], (key[i / 64] >>> (i % 64)) & 1);
+					e.setWireValue(ivBits[i], (iv[i / 64] >>> (i % 64)) & 1);
+				}
+			}
+		};
+		generator.generateCircuit();
+		// the blocks after the first one are cloned, and evaluated in parallel
+		assertEquals(1, generator.getParallelSections().size());
+		generator.evalCircuit();
+		CircuitEvaluator evaluator = generator.getCircuitEvaluator();
+
+		// expected ciphertext bits
+		long[] roundKeys = expandKey(key);
+		boolean[] expected = new boolean[numBits];
+		long low = iv[0];
+		long high = iv[1];
+		for (int block = 0; block * 128 < numBits; block++) {
+			long[] keystream = encryptWithRoundKeys(roundKeys, new long[] { low, high });
+			for (int j = 0; j < 128 && block * 128 + j < numBits; j++) {
+				boolean k = ((keystream[j / 64] >>> (j % 64)) & 1) == 1;
+				expected[block * 128 + j] = plaintext[block * 128 + j] ^ k;
+			}
+			low++;
+			if (low == 0) {
+				high++;
+			}
+		}
+
+		int numWords = (numBits + 63) / 64;
+		assertEquals(numWords, generator.getOutWires().size());
+		for (int w = 0; w < numWords; w++) {
+			BigInteger word = BigInteger.ZERO;
+			for (int j = 0; j < 64 && w * 64 + j < numBits; j++) {
+				if (expected[w * 64 + j]) {
+					word = word.setBit(j);
+				}
+			}
+			assertEquals(word, evaluator.getWireValue(generator.getOutWires().get(w)));
+		}
+
+		R1CSConstraintSystem cs = new R1CSConstraintSystem(generator);
+		assertTrue(cs.isSatisfied(cs.getVariableAssignment(evaluator)));
+	}
+
+	private static long[] expandKey(long[] key) {
+		long[] k = new long[32];
+		long l = key[1];
+		k[0] = key[0];
+		for (int i = 0; i < 31; i++) {
+			l = (k[i] + Long.rotateRight(l, 8)) ^ i;
+			k[i + 1] = Long.rotateLeft(k[i], 3) ^ l;
+		}
+		return k;
+	}
+
+	private static long[] encryptWithRoundKeys(long[] k, long[] plaintext) {
+		long x = plaintext[1];
+		long y = plaintext[0];
+		for (int i = 0; i < 32; i++) {
+			x = (Long.rotateRight(x, 8) + y) ^ k[i];
+			y = Long.rotateLeft(y, 3) ^ x;
+		}
+		return new long[] { y, x };
+	}
+
+	private static long[] encrypt(long[] key, long[] plaintext) {
+		return encryptWithRoundKeys(expandKey(key), plaintext);
+	}
+}